@@ -134,6 +134,12 @@ public class DonorController {
         return ResponseEntity.ok("Donation status updated to " + status);
     }
 
+    @InternalOnly
+    @PutMapping("/donations/status/batch")
+    public ResponseEntity<StatusUpdateBatchResultDTO> updateDonationStatuses(@RequestBody List<DonationStatusUpdateDTO> updates) {
+        return ResponseEntity.ok(donorService.updateDonationStatuses(updates));
+    }
+
 
     @RequireRole("DONOR")
     @GetMapping("/donations/{donationId}/status")
@@ -0,0 +1,20 @@
+package com.donorservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a bulk status update: how many records were updated, and the ids that were not
+ * applied because no such record exists.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatusUpdateBatchResultDTO {
+    private int updated;
+    private List<UUID> unknownIds = List.of();
+}
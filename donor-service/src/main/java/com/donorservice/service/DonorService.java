@@ -19,6 +19,8 @@ public interface DonorService {
     List<DonationDTO> getDonationsByUserId(UUID userId);
     
     void updateDonationStatus(UUID donationId, DonationStatus status);
+
+    StatusUpdateBatchResultDTO updateDonationStatuses(List<DonationStatusUpdateDTO> updates);
     
     String getDonationStatus(UUID donationId);
     
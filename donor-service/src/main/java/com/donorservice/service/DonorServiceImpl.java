@@ -153,6 +153,24 @@ public class DonorServiceImpl implements DonorService {
         });
     }
 
+    @Override
+    @Transactional
+    public StatusUpdateBatchResultDTO updateDonationStatuses(List<DonationStatusUpdateDTO> updates) {
+        Map<UUID, DonationStatus> latest = new LinkedHashMap<>();
+        for (DonationStatusUpdateDTO update : updates) {
+            latest.put(update.getDonationId(), update.getStatus());
+        }
+
+        List<Donation> donations = donationRepository.findAllById(latest.keySet());
+        Set<UUID> unknownIds = new LinkedHashSet<>(latest.keySet());
+        for (Donation donation : donations) {
+            donation.setStatus(latest.get(donation.getId()));
+            unknownIds.remove(donation.getId());
+        }
+        donationRepository.saveAll(donations);
+        return new StatusUpdateBatchResultDTO(donations.size(), new ArrayList<>(unknownIds));
+    }
+
     @Override
     public String getDonationStatus(UUID donationId) {
         return donationRepository.findById(donationId).map(donation -> donation.getStatus().toString()).orElseThrow(() -> new ResourceNotFoundException("Donation not found"));
@@ -1,9 +1,12 @@
 package com.matchingservice.client;
 
+import com.matchingservice.dto.DonationStatusUpdateDTO;
+import com.matchingservice.dto.StatusUpdateBatchResultDTO;
 import com.matchingservice.enums.DonationStatus;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 @FeignClient(name = "DONOR-SERVICE", path = "/donors", configuration = FeignClientConfig.class)
@@ -14,4 +17,10 @@ public interface DonorServiceClient {
             @PathVariable UUID donationId,
             @RequestBody DonationStatus status
     );
+
+    /**
+     * @return the count of updated donations and the ids donor-service does not know
+     */
+    @PutMapping("/donations/status/batch")
+    StatusUpdateBatchResultDTO updateDonationStatuses(@RequestBody List<DonationStatusUpdateDTO> updates);
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package com.matchingservice.client;
 
+import com.matchingservice.dto.RequestStatusUpdateDTO;
+import com.matchingservice.dto.StatusUpdateBatchResultDTO;
 import com.matchingservice.enums.RequestStatus;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 @FeignClient(name = "RECIPIENT-SERVICE", path = "/recipients", configuration = FeignClientConfig.class)
@@ -14,4 +17,10 @@ public interface RecipientServiceClient {
             @PathVariable UUID requestId,
             @RequestBody RequestStatus status
     );
+
+    /**
+     * @return the count of updated requests and the ids recipient-service does not know
+     */
+    @PutMapping("/requests/status/batch")
+    StatusUpdateBatchResultDTO updateRequestStatuses(@RequestBody List<RequestStatusUpdateDTO> updates);
 }
\ No newline at end of file
@@ -6,9 +6,11 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
+import org.springframework.core.env.Environment;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
@@ -22,6 +24,15 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${matching.kafka.concurrency.default:1}")
+    private int defaultConcurrency;
+
+    private final Environment environment;
+
+    public KafkaConsumerConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     private Map<String, Object> baseConsumerProps() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
@@ -35,8 +46,7 @@ public class KafkaConsumerConfig {
         props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
 
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
-        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
-        props.put(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, 1000);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 30000);
         props.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, 10000);
         props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, 300000);
@@ -47,6 +57,22 @@ public class KafkaConsumerConfig {
         return props;
     }
 
+    /**
+     * Batch listener that receives a whole poll and acknowledges it manually once the handler's
+     * transaction has committed. Concurrency is read from
+     * {@code matching.kafka.concurrency.<topic>}, falling back to {@code matching.kafka.concurrency.default}.
+     */
+    private <T> ConcurrentKafkaListenerContainerFactory<String, T> batchListenerFactory(
+            ConsumerFactory<String, T> consumerFactory, String topic) {
+        var factory = new ConcurrentKafkaListenerContainerFactory<String, T>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setConcurrency(environment.getProperty(
+                "matching.kafka.concurrency." + topic, Integer.class, defaultConcurrency));
+        return factory;
+    }
+
     @Bean
     public ConsumerFactory<String, DonorEvent> donorConsumerFactory() {
         Map<String, Object> props = new HashMap<>(baseConsumerProps());
@@ -56,9 +82,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, DonorEvent> donorKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, DonorEvent>();
-        factory.setConsumerFactory(donorConsumerFactory());
-        return factory;
+        return batchListenerFactory(donorConsumerFactory(), "donor-events");
     }
 
     @Bean
@@ -70,9 +94,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, DonationEvent> donationKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, DonationEvent>();
-        factory.setConsumerFactory(donationConsumerFactory());
-        return factory;
+        return batchListenerFactory(donationConsumerFactory(), "donation-events");
     }
 
     @Bean
@@ -84,9 +106,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, DonorLocationEvent> donorLocationKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, DonorLocationEvent>();
-        factory.setConsumerFactory(donorLocationConsumerFactory());
-        return factory;
+        return batchListenerFactory(donorLocationConsumerFactory(), "donor-location-events");
     }
 
     @Bean
@@ -98,9 +118,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, DonorHLAProfileEvent> hlaProfileKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, DonorHLAProfileEvent>();
-        factory.setConsumerFactory(hlaProfileConsumerFactory());
-        return factory;
+        return batchListenerFactory(hlaProfileConsumerFactory(), "donor-hla-profile-event");
     }
 
     @Bean
@@ -112,9 +130,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, RecipientEvent> recipientKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, RecipientEvent>();
-        factory.setConsumerFactory(recipientConsumerFactory());
-        return factory;
+        return batchListenerFactory(recipientConsumerFactory(), "recipient-events");
     }
 
     @Bean
@@ -126,9 +142,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, ReceiveRequestEvent> receiveRequestKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, ReceiveRequestEvent>();
-        factory.setConsumerFactory(receiveRequestConsumerFactory());
-        return factory;
+        return batchListenerFactory(receiveRequestConsumerFactory(), "receive-request-events");
     }
 
     @Bean
@@ -140,9 +154,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, RecipientLocationEvent> recipientLocationKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, RecipientLocationEvent>();
-        factory.setConsumerFactory(recipientLocationConsumerFactory());
-        return factory;
+        return batchListenerFactory(recipientLocationConsumerFactory(), "recipient-location-events");
     }
 
     @Bean
@@ -154,9 +166,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, RecipientHLAProfileEvent> recipientHlaProfileKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, RecipientHLAProfileEvent>();
-        factory.setConsumerFactory(recipientHlaProfileConsumerFactory());
-        return factory;
+        return batchListenerFactory(recipientHlaProfileConsumerFactory(), "recipient-hla-profile-events");
     }
 
     @Bean
@@ -168,9 +178,7 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, DonationCancelledEvent> donationCancelledKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, DonationCancelledEvent>();
-        factory.setConsumerFactory(donationCancelledConsumerFactory());
-        return factory;
+        return batchListenerFactory(donationCancelledConsumerFactory(), "donation-cancelled");
     }
 
     @Bean
@@ -182,8 +190,6 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, RequestCancelledEvent> requestCancelledKafkaListenerFactory() {
-        var factory = new ConcurrentKafkaListenerContainerFactory<String, RequestCancelledEvent>();
-        factory.setConsumerFactory(requestCancelledConsumerFactory());
-        return factory;
+        return batchListenerFactory(requestCancelledConsumerFactory(), "request-cancelled");
     }
 }
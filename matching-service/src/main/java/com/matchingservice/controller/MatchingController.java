@@ -4,6 +4,9 @@ import com.matchingservice.aop.RequireRole;
 import com.matchingservice.dto.*;
 import com.matchingservice.exceptions.ResourceNotFoundException;
 import com.matchingservice.service.MatchingService;
+import com.matchingservice.service.exchange.PairedExchangeService;
+import com.matchingservice.service.hla.HlaDonorSearchService;
+import com.matchingservice.service.topcandidates.TopCandidateService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +23,9 @@ import java.util.UUID;
 public class MatchingController {
 
     private final MatchingService matchingService;
+    private final PairedExchangeService pairedExchangeService;
+    private final HlaDonorSearchService hlaDonorSearchService;
+    private final TopCandidateService topCandidateService;
 
     @PostMapping("/manual-match")
     public ResponseEntity<ManualMatchResponse> manualMatch(@Valid @RequestBody ManualMatchRequest request) {
@@ -258,4 +264,41 @@ public class MatchingController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    @PostMapping("/exchange/pairs")
+    public ResponseEntity<ExchangePairResponse> registerExchangePair(@Valid @RequestBody ExchangePairRequest request) {
+        return ResponseEntity.ok(pairedExchangeService.register(request));
+    }
+
+    @GetMapping("/exchange/pairs")
+    public ResponseEntity<List<ExchangePairResponse>> getActiveExchangePairs() {
+        return ResponseEntity.ok(pairedExchangeService.listActive());
+    }
+
+    @DeleteMapping("/exchange/pairs/{exchangePairId}")
+    public ResponseEntity<ExchangePairResponse> withdrawExchangePair(@PathVariable UUID exchangePairId) {
+        return ResponseEntity.ok(pairedExchangeService.withdraw(exchangePairId));
+    }
+
+    @PostMapping("/exchange/run")
+    public ResponseEntity<?> runPairedExchange() {
+        try {
+            return ResponseEntity.ok(pairedExchangeService.runExchange());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/request/{receiveRequestId}/hla-donors")
+    public ResponseEntity<List<HlaDonorMatchResponse>> searchHlaDonors(@PathVariable UUID receiveRequestId,
+                                                                       @RequestParam(defaultValue = "2") int maxMismatches,
+                                                                       @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(hlaDonorSearchService.searchDonors(receiveRequestId, maxMismatches, limit));
+    }
+
+    @GetMapping("/request/{receiveRequestId}/top-candidates")
+    public ResponseEntity<List<TopCandidateResponse>> getTopCandidates(@PathVariable UUID receiveRequestId,
+                                                                       @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(topCandidateService.getTopCandidates(receiveRequestId, limit));
+    }
 }
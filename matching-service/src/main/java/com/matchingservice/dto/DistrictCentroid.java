@@ -0,0 +1,4 @@
+package com.matchingservice.dto;
+
+public record DistrictCentroid(String state, String district, double latitude, double longitude, long locations) {
+}
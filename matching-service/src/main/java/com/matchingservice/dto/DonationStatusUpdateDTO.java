@@ -0,0 +1,16 @@
+package com.matchingservice.dto;
+
+import com.matchingservice.enums.DonationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DonationStatusUpdateDTO {
+    private UUID donationId;
+    private DonationStatus status;
+}
@@ -0,0 +1,14 @@
+package com.matchingservice.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import java.util.UUID;
+
+@Data
+public class ExchangePairRequest {
+    @NotNull(message = "Donation ID is required")
+    private UUID donationId;
+
+    // Leave empty to enrol an altruistic donor.
+    private UUID receiveRequestId;
+}
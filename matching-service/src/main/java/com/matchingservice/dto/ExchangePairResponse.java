@@ -0,0 +1,39 @@
+package com.matchingservice.dto;
+
+import com.matchingservice.enums.ExchangePairStatus;
+import com.matchingservice.model.ExchangePair;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExchangePairResponse {
+    private UUID exchangePairId;
+    private UUID donationId;
+    private UUID receiveRequestId;
+    private boolean altruistic;
+    private ExchangePairStatus status;
+    private LocalDateTime registeredAt;
+    private UUID exchangeCycleId;
+    private LocalDateTime matchedAt;
+
+    public static ExchangePairResponse fromExchangePair(ExchangePair pair) {
+        return ExchangePairResponse.builder()
+                .exchangePairId(pair.getId())
+                .donationId(pair.getDonationId())
+                .receiveRequestId(pair.getReceiveRequestId())
+                .altruistic(pair.isAltruistic())
+                .status(pair.getStatus())
+                .registeredAt(pair.getRegisteredAt())
+                .exchangeCycleId(pair.getExchangeCycleId())
+                .matchedAt(pair.getMatchedAt())
+                .build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.matchingservice.dto;
+
+import java.util.UUID;
+
+/**
+ * One donation of a fulfilment group that is still live, with the quantity it contributes
+ * (null when the donation has none).
+ */
+public record GroupAllocation(UUID receiveRequestId, UUID donationId, Double quantity) {
+}
@@ -0,0 +1,17 @@
+package com.matchingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HlaDonorMatchResponse {
+    private UUID donorId;
+    private int hlaMismatchCount;
+}
@@ -0,0 +1,8 @@
+package com.matchingservice.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record HlaTypingRow(UUID donorId, String hlaA1, String hlaA2, String hlaB1, String hlaB2,
+                           String hlaDR1, String hlaDR2, LocalDateTime eventTimestamp) {
+}
@@ -1,5 +1,6 @@
 package com.matchingservice.dto;
 
+import com.matchingservice.enums.TravelBand;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -34,6 +35,7 @@ public class ManualMatchResponse {
         private LocalDateTime matchedAt;
         private String status;
         private Double distance;
+        private TravelBand travelBand;
     }
 
     @Data
@@ -0,0 +1,6 @@
+package com.matchingservice.dto;
+
+import java.util.UUID;
+
+public record MatchPair(UUID donationId, UUID receiveRequestId) {
+}
@@ -2,6 +2,7 @@ package com.matchingservice.dto;
 
 import com.matchingservice.enums.ConfirmerType;
 import com.matchingservice.enums.MatchStatus;
+import com.matchingservice.enums.TravelBand;
 import com.matchingservice.model.MatchResult;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -43,6 +44,9 @@ public class MatchResponse {
     private Double urgencyPriorityScore;
     private String matchReason;
     private Integer priorityRank;
+    private UUID fulfilmentGroupId;
+    private UUID exchangeCycleId;
+    private TravelBand travelBand;
 
     private LocalDateTime completedAt;
     private LocalDate receivedDate;
@@ -87,6 +91,9 @@ public class MatchResponse {
                 .urgencyPriorityScore(matchResult.getUrgencyPriorityScore())
                 .matchReason(matchResult.getMatchReason())
                 .priorityRank(matchResult.getPriorityRank())
+                .fulfilmentGroupId(matchResult.getFulfilmentGroupId())
+                .exchangeCycleId(matchResult.getExchangeCycleId())
+                .travelBand(matchResult.getTravelBand())
                 .completedAt(matchResult.getCompletedAt())
                 .receivedDate(matchResult.getReceivedDate())
                 .canConfirmCompletion(matchResult.getCompletedAt() == null)
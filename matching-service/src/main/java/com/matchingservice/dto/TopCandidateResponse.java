@@ -0,0 +1,23 @@
+package com.matchingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TopCandidateResponse {
+    private UUID donationId;
+    private UUID donorUserId;
+    private int rank;
+    private double compatibilityScore;
+    private Double distanceKm;
+    private String matchReason;
+    private LocalDateTime scoredAt;
+}
@@ -1,5 +1,6 @@
 package com.matchingservice.dto.ml;
 
+import com.matchingservice.dto.MatchPair;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +16,12 @@ public class MLBatchMatchRequest {
     private List<MLRequestData> requests;
     private List<MLDonationData> donations;
 
+    /**
+     * Pairs of the cross product that already have a match result; the ML service skips them.
+     */
+    @Builder.Default
+    private List<MatchPair> excludedPairs = List.of();
+
     @Builder.Default
     private Integer topN = 10;
 
@@ -1,6 +1,7 @@
 // MLMatchResult.java
 package com.matchingservice.dto.ml;
 
+import com.matchingservice.enums.TravelBand;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,7 +10,7 @@ import lombok.NoArgsConstructor;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class MLMatchResult {
@@ -33,5 +34,14 @@ public class MLMatchResult {
     private Integer priorityRank;
     private Integer hlaMismatchCount;
 
+    // Set by QuantityFulfilmentPlanner on every match of a multi-donation group, null otherwise.
+    private UUID fulfilmentGroupId;
+
+    // Set by PairedExchangeService on every match of one exchange cycle or chain, null otherwise.
+    private UUID exchangeCycleId;
+
+    // Set by MLMatchingSchedulerService from DistrictDistanceTable before the match is written.
+    private TravelBand travelBand;
+
     private Double mlConfidence;
 }
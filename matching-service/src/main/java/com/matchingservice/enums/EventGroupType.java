@@ -0,0 +1,6 @@
+package com.matchingservice.enums;
+
+public enum EventGroupType {
+    DONOR,
+    RECIPIENT
+}
@@ -0,0 +1,5 @@
+package com.matchingservice.enums;
+
+public enum ExchangePairStatus {
+    ACTIVE, MATCHED, WITHDRAWN
+}
@@ -0,0 +1,28 @@
+package com.matchingservice.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum TravelBand {
+    SAME_DISTRICT(0, "Donor and recipient are in the same district"),
+    NEAR(100, "District centroids within 100 km"),
+    REGIONAL(500, "District centroids within 500 km"),
+    NATIONAL(Double.POSITIVE_INFINITY, "District centroids more than 500 km apart");
+
+    private final double maxKm;
+    private final String description;
+
+    TravelBand(double maxKm, String description) {
+        this.maxKm = maxKm;
+        this.description = description;
+    }
+
+    public static TravelBand ofDistance(double distanceKm) {
+        for (TravelBand band : values()) {
+            if (band != SAME_DISTRICT && distanceKm <= band.maxKm) {
+                return band;
+            }
+        }
+        return NATIONAL;
+    }
+}
@@ -1,75 +1,90 @@
-package com.matchingservice.kafka;
-
-import com.matchingservice.kafka.event.donor_events.*;
-import com.matchingservice.kafka.event.recipient_events.*;
-import com.matchingservice.service.MatchingEventHandlerService;
-import lombok.RequiredArgsConstructor;
-import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.stereotype.Service;
-
-@Service
-@RequiredArgsConstructor
-public class EventConsumer {
-
-    private final MatchingEventHandlerService handler;
-
-    @KafkaListener(topics = "donor-events", groupId = "matching-service-group", containerFactory = "donorKafkaListenerFactory")
-    public void consumeDonorEvent(DonorEvent event) {
-        System.out.println("Received DonorEvent: " + event);
-        handler.handleDonorEvent(event);
-    }
-
-    @KafkaListener(topics = "donation-events", groupId = "matching-service-group", containerFactory = "donationKafkaListenerFactory")
-    public void consumeDonationEvent(DonationEvent event) {
-        System.out.println("Received DonationEvent: " + event);
-        handler.handleDonationEvent(event);
-    }
-
-    @KafkaListener(topics = "donor-location-events", groupId = "matching-service-group", containerFactory = "donorLocationKafkaListenerFactory")
-    public void consumeDonorLocationEvent(DonorLocationEvent event) {
-        System.out.println("Received DonorLocationEvent: " + event);
-        handler.handleDonorLocationEvent(event);
-    }
-
-    @KafkaListener(topics = "donor-hla-profile-event", groupId = "matching-service-group", containerFactory = "hlaProfileKafkaListenerFactory")
-    public void consumeDonorHLAProfileEvent(DonorHLAProfileEvent event) {
-        System.out.println("Received DonorHLAProfileEvent: " + event);
-        handler.handleDonorHLAProfileEvent(event);
-    }
-
-    @KafkaListener(topics = "recipient-events", groupId = "matching-service-group", containerFactory = "recipientKafkaListenerFactory")
-    public void consumeRecipientEvent(RecipientEvent event) {
-        System.out.println("Received RecipientEvent: " + event);
-        handler.handleRecipientEvent(event);
-    }
-
-    @KafkaListener(topics = "receive-request-events", groupId = "matching-service-group", containerFactory = "receiveRequestKafkaListenerFactory")
-    public void consumeReceiveRequestEvent(ReceiveRequestEvent event) {
-        System.out.println("Received ReceiveRequestEvent: " + event);
-        handler.handleReceiveRequestEvent(event);
-    }
-
-    @KafkaListener(topics = "recipient-location-events", groupId = "matching-service-group", containerFactory = "recipientLocationKafkaListenerFactory")
-    public void consumeRecipientLocationEvent(RecipientLocationEvent event) {
-        System.out.println("Received RecipientLocationEvent: " + event);
-        handler.handleRecipientLocationEvent(event);
-    }
-
-    @KafkaListener(topics = "recipient-hla-profile-events", groupId = "matching-service-group", containerFactory = "recipientHlaProfileKafkaListenerFactory")
-    public void consumeRecipientHLAProfileEvent(RecipientHLAProfileEvent event) {
-        System.out.println("Received RecipientHLAProfileEvent: " + event);
-        handler.handleRecipientHLAProfileEvent(event);
-    }
-
-    @KafkaListener(topics = "donation-cancelled", groupId = "matching-service-group", containerFactory = "donationCancelledKafkaListenerFactory")
-    public void consumeDonationCancelledEvent(DonationCancelledEvent event) {
-        System.out.println("Received DonationCancelledEvent: " + event);
-        handler.handleDonationCancelledEvent(event);
-    }
-
-    @KafkaListener(topics = "request-cancelled", groupId = "matching-service-group", containerFactory = "requestCancelledKafkaListenerFactory")
-    public void consumeRequestCancelledEvent(RequestCancelledEvent event) {
-        System.out.println("Received RequestCancelledEvent: " + event);
-        handler.handleRequestCancelledEvent(event);
-    }
-}
+package com.matchingservice.kafka;
+
+import com.matchingservice.kafka.event.donor_events.*;
+import com.matchingservice.kafka.event.recipient_events.*;
+import com.matchingservice.service.MatchingEventHandlerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+public class EventConsumer {
+
+    private final MatchingEventHandlerService handler;
+    private final KeyOrderedDispatcher dispatcher;
+
+    @KafkaListener(topics = "donor-events", groupId = "matching-service-group", containerFactory = "donorKafkaListenerFactory")
+    public void consumeDonorEvents(List<DonorEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " DonorEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::donorIdOf, handler::handleDonorEvents, ack);
+    }
+
+    @KafkaListener(topics = "donation-events", groupId = "matching-service-group", containerFactory = "donationKafkaListenerFactory")
+    public void consumeDonationEvents(List<DonationEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " DonationEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::donorIdOf, handler::handleDonorEvents, ack);
+    }
+
+    @KafkaListener(topics = "donor-location-events", groupId = "matching-service-group", containerFactory = "donorLocationKafkaListenerFactory")
+    public void consumeDonorLocationEvents(List<DonorLocationEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " DonorLocationEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::donorIdOf, handler::handleDonorEvents, ack);
+    }
+
+    @KafkaListener(topics = "donor-hla-profile-event", groupId = "matching-service-group", containerFactory = "hlaProfileKafkaListenerFactory")
+    public void consumeDonorHLAProfileEvents(List<DonorHLAProfileEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " DonorHLAProfileEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::donorIdOf, handler::handleDonorEvents, ack);
+    }
+
+    @KafkaListener(topics = "recipient-events", groupId = "matching-service-group", containerFactory = "recipientKafkaListenerFactory")
+    public void consumeRecipientEvents(List<RecipientEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " RecipientEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::recipientIdOf, handler::handleRecipientEvents, ack);
+    }
+
+    @KafkaListener(topics = "receive-request-events", groupId = "matching-service-group", containerFactory = "receiveRequestKafkaListenerFactory")
+    public void consumeReceiveRequestEvents(List<ReceiveRequestEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " ReceiveRequestEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::recipientIdOf, handler::handleRecipientEvents, ack);
+    }
+
+    @KafkaListener(topics = "recipient-location-events", groupId = "matching-service-group", containerFactory = "recipientLocationKafkaListenerFactory")
+    public void consumeRecipientLocationEvents(List<RecipientLocationEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " RecipientLocationEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::recipientIdOf, handler::handleRecipientEvents, ack);
+    }
+
+    @KafkaListener(topics = "recipient-hla-profile-events", groupId = "matching-service-group", containerFactory = "recipientHlaProfileKafkaListenerFactory")
+    public void consumeRecipientHLAProfileEvents(List<RecipientHLAProfileEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " RecipientHLAProfileEvents");
+        dispatcher.dispatch(events, MatchingEventHandlerService::recipientIdOf, handler::handleRecipientEvents, ack);
+    }
+
+    @KafkaListener(topics = "donation-cancelled", groupId = "matching-service-group", containerFactory = "donationCancelledKafkaListenerFactory")
+    public void consumeDonationCancelledEvents(List<DonationCancelledEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " DonationCancelledEvents");
+        handler.handleDonationCancelledEvents(received(events));
+        ack.acknowledge();
+    }
+
+    @KafkaListener(topics = "request-cancelled", groupId = "matching-service-group", containerFactory = "requestCancelledKafkaListenerFactory")
+    public void consumeRequestCancelledEvents(List<RequestCancelledEvent> events, Acknowledgment ack) {
+        System.out.println("Received " + events.size() + " RequestCancelledEvents");
+        handler.handleRequestCancelledEvents(received(events));
+        ack.acknowledge();
+    }
+
+    /**
+     * Drops records whose value could not be deserialized; ErrorHandlingDeserializer delivers
+     * them as null in batch mode.
+     */
+    private static <T> List<T> received(List<T> events) {
+        return events.stream().filter(Objects::nonNull).toList();
+    }
+}
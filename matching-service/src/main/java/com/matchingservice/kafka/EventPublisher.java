@@ -7,6 +7,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 @Slf4j
@@ -26,4 +28,25 @@ public class EventPublisher {
             log.error("Error publishing match found event: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * Hands every event to the producer without waiting for broker acknowledgements;
+     * send failures are logged from the completion callback.
+     */
+    public void publishMatchFoundEvents(List<MatchFoundEvent> events) {
+        for (MatchFoundEvent event : events) {
+            try {
+                kafkaTemplate.send(matchFoundTopic, event.getMatchId().toString(), event)
+                        .whenComplete((result, ex) -> {
+                            if (ex != null) {
+                                log.error("Error publishing match found event for matchId {}: {}",
+                                        event.getMatchId(), ex.getMessage());
+                            }
+                        });
+            } catch (Exception e) {
+                log.error("Error publishing match found event for matchId {}: {}", event.getMatchId(), e.getMessage());
+            }
+        }
+        log.info("Queued {} match found events", events.size());
+    }
 }
@@ -0,0 +1,106 @@
+package com.matchingservice.kafka;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Splits one polled batch into lanes by record key and runs the lanes concurrently on virtual
+ * threads. Every record with the same key lands in the same lane in poll order, so per-owner
+ * ordering is kept while a slow owner only holds up the keys that share its lane.
+ * <p>
+ * Offsets are committed only up to the lowest record of a failed lane: the batch is failed
+ * with a {@link BatchListenerFailedException} at that index, which makes the container commit
+ * everything before it and redeliver the rest. Lanes that did complete past that point are
+ * redelivered too, so lane handlers must be idempotent.
+ */
+@Component
+@Slf4j
+public class KeyOrderedDispatcher {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Upper bound on lanes per batch. Each lane holds a database connection while it runs,
+     * so keep this below the connection pool size.
+     */
+    @Value("${matching.kafka.dispatch.lanes:4}")
+    private int laneCount;
+
+    public <T> void dispatch(List<T> records, Function<T, UUID> keyOf,
+                             Consumer<List<T>> handler, Acknowledgment ack) {
+        List<List<Integer>> lanes = new ArrayList<>(laneCount);
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        for (int index = 0; index < records.size(); index++) {
+            T record = records.get(index);
+            if (record == null) {
+                // Failed deserialization; ErrorHandlingDeserializer already logged it.
+                continue;
+            }
+            lanes.get(Math.floorMod(keyOf.apply(record).hashCode(), laneCount)).add(index);
+        }
+        lanes.removeIf(List::isEmpty);
+
+        if (lanes.size() == 1) {
+            runLane(records, lanes.get(0), handler);
+            ack.acknowledge();
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(lanes.size());
+        for (List<Integer> lane : lanes) {
+            futures.add(executor.submit(() -> runLane(records, lane, handler)));
+        }
+
+        int lowestFailedIndex = Integer.MAX_VALUE;
+        Throwable failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                int firstIndex = lanes.get(i).get(0);
+                log.error("Lane starting at record {} failed: {}", firstIndex, e.getCause().getMessage());
+                if (firstIndex < lowestFailedIndex) {
+                    lowestFailedIndex = firstIndex;
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for dispatch lanes", e);
+            }
+        }
+
+        if (failure != null) {
+            throw new BatchListenerFailedException("Key-ordered dispatch failed", failure, lowestFailedIndex);
+        }
+        ack.acknowledge();
+    }
+
+    private static <T> void runLane(List<T> records, List<Integer> lane, Consumer<List<T>> handler) {
+        List<T> laneRecords = new ArrayList<>(lane.size());
+        for (int index : lane) {
+            laneRecords.add(records.get(index));
+        }
+        handler.accept(laneRecords);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.close();
+    }
+}
@@ -0,0 +1,50 @@
+package com.matchingservice.model;
+
+import com.matchingservice.enums.EventGroupType;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One Kafka event that arrived for a donor/recipient registration whose remaining events
+ * have not all been received yet. Rows for a group are deleted once the group is complete.
+ */
+@Entity
+@Table(name = "event_group_parts",
+        uniqueConstraints = @UniqueConstraint(name = "uk_event_group_part", columnNames = {"group_type", "owner_id", "part"}),
+        indexes = @Index(name = "idx_event_group_parts_received_at", columnList = "group_type, received_at"))
+@Data
+@NoArgsConstructor
+public class EventGroupPart {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "group_type", nullable = false, length = 20)
+    private EventGroupType groupType;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(nullable = false, length = 50)
+    private String part;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    public EventGroupPart(EventGroupType groupType, UUID ownerId, String part, String payload) {
+        this.groupType = groupType;
+        this.ownerId = ownerId;
+        this.part = part;
+        this.payload = payload;
+        this.receivedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,55 @@
+package com.matchingservice.model;
+
+import com.matchingservice.enums.ExchangePairStatus;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A living kidney donor enrolled in paired exchange. The donation is paired with the request of
+ * the recipient the donor came forward for. An altruistic donor, or the bridge donor left at the
+ * end of a chain, has no request.
+ */
+@Entity
+@Table(name = "exchange_pairs", indexes = {
+        @Index(name = "idx_exchange_pair_status", columnList = "status"),
+        @Index(name = "idx_exchange_pair_donation", columnList = "donationId")
+})
+@Data
+@NoArgsConstructor
+public class ExchangePair {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private UUID id;
+
+    @NotNull
+    @Column(nullable = false)
+    private UUID donationId;
+
+    @Column
+    private UUID receiveRequestId;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ExchangePairStatus status = ExchangePairStatus.ACTIVE;
+
+    @NotNull
+    @Column(nullable = false)
+    private LocalDateTime registeredAt;
+
+    @Column(name = "exchange_cycle_id")
+    private UUID exchangeCycleId;
+
+    @Column(name = "matched_at")
+    private LocalDateTime matchedAt;
+
+    public boolean isAltruistic() {
+        return receiveRequestId == null;
+    }
+}
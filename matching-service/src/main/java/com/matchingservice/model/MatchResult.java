@@ -2,6 +2,7 @@ package com.matchingservice.model;
 
 import com.matchingservice.enums.ConfirmerType;
 import com.matchingservice.enums.MatchStatus;
+import com.matchingservice.enums.TravelBand;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
@@ -17,7 +18,9 @@ import java.util.UUID;
         @Index(name = "idx_recipient_user_matched_at", columnList = "recipientUserId, matchedAt"),
         @Index(name = "idx_donation_compatibility", columnList = "donationId, compatibilityScore"),
         @Index(name = "idx_request_compatibility", columnList = "receiveRequestId, compatibilityScore"),
-        @Index(name = "idx_status_matched_at", columnList = "status, matchedAt")
+        @Index(name = "idx_status_matched_at", columnList = "status, matchedAt"),
+        @Index(name = "idx_fulfilment_group", columnList = "fulfilmentGroupId"),
+        @Index(name = "idx_exchange_cycle", columnList = "exchangeCycleId")
 })
 @Data
 @EqualsAndHashCode(callSuper = false)
@@ -100,6 +103,16 @@ public class MatchResult {
     @Column(name = "priority_rank")
     private Integer priorityRank;
 
+    @Column(name = "fulfilment_group_id")
+    private UUID fulfilmentGroupId;
+
+    @Column(name = "exchange_cycle_id")
+    private UUID exchangeCycleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "travel_band")
+    private TravelBand travelBand;
+
     @Column(name = "expired_at")
     private LocalDateTime expiredAt;
 
@@ -0,0 +1,28 @@
+package com.matchingservice.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "matching_watermarks")
+@Data
+@NoArgsConstructor
+public class MatchingWatermark {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "last_successful_run_at")
+    private LocalDateTime lastSuccessfulRunAt;
+
+    @Column(name = "last_full_reconciliation_at")
+    private LocalDateTime lastFullReconciliationAt;
+
+    public MatchingWatermark(String name) {
+        this.name = name;
+    }
+}
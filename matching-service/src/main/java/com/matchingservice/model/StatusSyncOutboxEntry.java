@@ -0,0 +1,75 @@
+package com.matchingservice.model;
+
+import com.matchingservice.enums.StatusSyncTarget;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A donation/request status change that still has to be pushed to donor-service or
+ * recipient-service. Written in the same transaction as the local status change and
+ * relayed in {@code committed_at} order by {@link com.matchingservice.service.statussync.StatusSyncRelay}.
+ * <p>
+ * Ids come from a pooled sequence, so they follow neither time nor commit order across
+ * instances. {@code committed_at} is stamped from the database clock just before the writing
+ * transaction commits, while it still holds the lock on the donation or request it changed, so
+ * two changes to the same donation or request are ordered as they committed.
+ */
+@Entity
+@Table(name = "status_sync_outbox", indexes = {
+        @Index(name = "idx_status_sync_outbox_queue", columnList = "target, sent_at, committed_at, id")
+})
+@Data
+@NoArgsConstructor
+public class StatusSyncOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "status_sync_outbox_seq")
+    @SequenceGenerator(name = "status_sync_outbox_seq", sequenceName = "status_sync_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatusSyncTarget target;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+
+    @Column(nullable = false, length = 30)
+    private String status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "committed_at")
+    private LocalDateTime committedAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * Set while a relay instance is sending this entry outside any transaction. Until then no
+     * other instance relays the entry's target.
+     */
+    @Column(name = "leased_until")
+    private LocalDateTime leasedUntil;
+
+    public StatusSyncOutboxEntry(StatusSyncTarget target, UUID aggregateId, String status) {
+        this.target = target;
+        this.aggregateId = aggregateId;
+        this.status = status;
+        this.createdAt = LocalDateTime.now();
+    }
+}
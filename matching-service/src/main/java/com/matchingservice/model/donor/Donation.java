@@ -11,7 +11,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "donations")
+@Table(name = "donations", indexes = {
+        @Index(name = "idx_donation_status_updated_at", columnList = "status, updated_at")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
 @Data
 public class Donation {
@@ -54,4 +56,12 @@ public class Donation {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touchUpdatedAt() {
+        updatedAt = LocalDateTime.now();
+    }
 }
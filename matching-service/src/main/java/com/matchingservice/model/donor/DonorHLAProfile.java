@@ -19,7 +19,7 @@ public class DonorHLAProfile {
     @Column
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "donor_db_id", referencedColumnName = "id")
     private Donor donor;
 
@@ -10,7 +10,9 @@ import java.util.UUID;
 
 @Data
 @Entity
-@Table(name = "receive_requests")
+@Table(name = "receive_requests", indexes = {
+        @Index(name = "idx_request_status_updated_at", columnList = "status, updated_at")
+})
 public class ReceiveRequest {
 
     @Id
@@ -69,4 +71,12 @@ public class ReceiveRequest {
     @Column(name = "fulfilled_at")
     private LocalDateTime fulfilledAt;
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touchUpdatedAt() {
+        updatedAt = LocalDateTime.now();
+    }
 }
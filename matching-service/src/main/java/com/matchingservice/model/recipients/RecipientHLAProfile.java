@@ -18,7 +18,7 @@ public class RecipientHLAProfile {
     @Column
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "recipient_db_id", referencedColumnName = "id")
     private Recipient recipient;
 
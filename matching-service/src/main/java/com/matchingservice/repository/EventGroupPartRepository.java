@@ -0,0 +1,50 @@
+package com.matchingservice.repository;
+
+import com.matchingservice.enums.EventGroupType;
+import com.matchingservice.model.EventGroupPart;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EventGroupPartRepository extends JpaRepository<EventGroupPart, UUID> {
+
+    List<EventGroupPart> findByGroupTypeAndOwnerIdIn(EventGroupType groupType, Collection<UUID> ownerIds);
+
+    @Query("SELECT COUNT(DISTINCT p.ownerId) FROM EventGroupPart p WHERE p.groupType = :groupType")
+    long countGroups(@Param("groupType") EventGroupType groupType);
+
+    @Query("""
+        SELECT p.ownerId FROM EventGroupPart p
+        WHERE p.groupType = :groupType
+        GROUP BY p.ownerId
+        HAVING MIN(p.receivedAt) < :cutoff
+        """)
+    List<UUID> findOwnersStartedBefore(
+            @Param("groupType") EventGroupType groupType,
+            @Param("cutoff") LocalDateTime cutoff
+    );
+
+    @Query("""
+        SELECT p.ownerId FROM EventGroupPart p
+        WHERE p.groupType = :groupType
+        GROUP BY p.ownerId
+        ORDER BY MIN(p.receivedAt)
+        """)
+    List<UUID> findOldestOwners(@Param("groupType") EventGroupType groupType, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM EventGroupPart p WHERE p.groupType = :groupType AND p.ownerId IN :ownerIds")
+    int deleteGroups(
+            @Param("groupType") EventGroupType groupType,
+            @Param("ownerIds") Collection<UUID> ownerIds
+    );
+}
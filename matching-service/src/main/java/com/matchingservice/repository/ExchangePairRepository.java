@@ -0,0 +1,26 @@
+package com.matchingservice.repository;
+
+import com.matchingservice.enums.ExchangePairStatus;
+import com.matchingservice.model.ExchangePair;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+public interface ExchangePairRepository extends JpaRepository<ExchangePair, UUID> {
+
+    List<ExchangePair> findByStatus(ExchangePairStatus status);
+
+    boolean existsByDonationIdAndStatus(UUID donationId, ExchangePairStatus status);
+
+    @Query("SELECT p.donationId FROM ExchangePair p WHERE p.status = :status")
+    Set<UUID> findDonationIdsByStatus(@Param("status") ExchangePairStatus status);
+
+    @Query("SELECT p.receiveRequestId FROM ExchangePair p WHERE p.status = :status AND p.receiveRequestId IS NOT NULL")
+    Set<UUID> findReceiveRequestIdsByStatus(@Param("status") ExchangePairStatus status);
+}
@@ -1,8 +1,12 @@
 package com.matchingservice.repository;
 
+import com.matchingservice.dto.GroupAllocation;
+import com.matchingservice.dto.MatchPair;
 import com.matchingservice.enums.MatchStatus;
 import com.matchingservice.model.MatchResult;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
@@ -11,6 +15,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -87,4 +92,37 @@ public interface MatchResultRepository extends JpaRepository<MatchResult, UUID>
     );
 
     boolean existsByDonationIdAndReceiveRequestId(UUID donationId, UUID receiveRequestId);
+
+    @Query("""
+        SELECT new com.matchingservice.dto.MatchPair(m.donationId, m.receiveRequestId)
+        FROM MatchResult m
+        WHERE m.donationId IN :donationIds
+        AND m.receiveRequestId IN :requestIds
+        """)
+    List<MatchPair> findPairsAmong(
+            @Param("donationIds") Collection<UUID> donationIds,
+            @Param("requestIds") Collection<UUID> requestIds
+    );
+
+    @Query("""
+        SELECT new com.matchingservice.dto.MatchPair(m.donationId, m.receiveRequestId)
+        FROM MatchResult m
+        ORDER BY m.id
+        """)
+    Slice<MatchPair> findAllPairs(Pageable pageable);
+
+    @Query("""
+        SELECT new com.matchingservice.dto.GroupAllocation(m.receiveRequestId, m.donationId, COALESCE(b.quantity, t.quantity))
+        FROM MatchResult m
+        LEFT JOIN BloodDonation b ON b.donationId = m.donationId
+        LEFT JOIN TissueDonation t ON t.donationId = m.donationId
+        WHERE m.fulfilmentGroupId IS NOT NULL
+        AND m.status IN :statuses
+        AND (m.receiveRequestId IN :requestIds OR m.donationId IN :donationIds)
+        """)
+    List<GroupAllocation> findGroupAllocations(
+            @Param("requestIds") Collection<UUID> requestIds,
+            @Param("donationIds") Collection<UUID> donationIds,
+            @Param("statuses") Collection<MatchStatus> statuses
+    );
 }
@@ -0,0 +1,9 @@
+package com.matchingservice.repository;
+
+import com.matchingservice.model.MatchingWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MatchingWatermarkRepository extends JpaRepository<MatchingWatermark, String> {
+}
@@ -0,0 +1,95 @@
+package com.matchingservice.repository;
+
+import com.matchingservice.enums.StatusSyncTarget;
+import com.matchingservice.model.StatusSyncOutboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StatusSyncOutboxRepository extends JpaRepository<StatusSyncOutboxEntry, Long> {
+
+    /**
+     * Unsent entries of one target in commit order. Entries written before {@code committed_at}
+     * existed have none and come first.
+     */
+    @Query("""
+        SELECT e FROM StatusSyncOutboxEntry e
+        WHERE e.target = :target
+        AND e.sentAt IS NULL
+        ORDER BY e.committedAt ASC NULLS FIRST, e.id
+        """)
+    List<StatusSyncOutboxEntry> findPending(@Param("target") StatusSyncTarget target, Pageable pageable);
+
+    long countBySentAtIsNull();
+
+    /**
+     * Whether some instance is sending a page of {@code target} right now.
+     */
+    boolean existsByTargetAndSentAtIsNullAndLeasedUntilAfter(StatusSyncTarget target, LocalDateTime now);
+
+    long countBySentAtIsNullAndAttemptsGreaterThanEqual(int attempts);
+
+    /**
+     * Takes a lock that the current transaction holds until it ends, or returns false at once
+     * when another transaction holds it.
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryTransactionLock(@Param("key") long key);
+
+    /**
+     * Stamps {@code committed_at} with the database clock. Flushes first so that the status
+     * change these entries record has taken its row lock before the stamp is read.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE status_sync_outbox SET committed_at = clock_timestamp() WHERE id IN (:ids)", nativeQuery = true)
+    int markCommitted(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StatusSyncOutboxEntry e SET e.leasedUntil = :leasedUntil WHERE e.id IN :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    /**
+     * Marks entries sent, with {@code error} recording why the target did not apply them, or
+     * null. Only entries still under {@code leasedUntil} are touched, so a relay whose lease
+     * ran out does not overwrite the outcome of the instance that took the page over.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE StatusSyncOutboxEntry e
+        SET e.sentAt = :sentAt, e.lastError = :error, e.leasedUntil = NULL
+        WHERE e.id IN :ids AND e.leasedUntil = :leasedUntil
+        """)
+    int markSent(@Param("ids") Collection<Long> ids,
+                 @Param("leasedUntil") LocalDateTime leasedUntil,
+                 @Param("sentAt") LocalDateTime sentAt,
+                 @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE StatusSyncOutboxEntry e
+        SET e.attempts = e.attempts + 1, e.lastError = :error, e.nextAttemptAt = :nextAttemptAt, e.leasedUntil = NULL
+        WHERE e.id IN :ids AND e.leasedUntil = :leasedUntil
+        """)
+    int markFailed(@Param("ids") Collection<Long> ids,
+                   @Param("leasedUntil") LocalDateTime leasedUntil,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StatusSyncOutboxEntry e WHERE e.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
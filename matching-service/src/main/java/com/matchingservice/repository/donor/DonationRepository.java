@@ -1,14 +1,19 @@
 package com.matchingservice.repository.donor;
 
+import com.matchingservice.dto.GeoPoint;
 import com.matchingservice.enums.BloodType;
 import com.matchingservice.enums.DonationStatus;
 import com.matchingservice.enums.DonationType;
 import com.matchingservice.model.donor.Donation;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -38,4 +43,57 @@ public interface DonationRepository extends JpaRepository<Donation, UUID> {
     List<Donation> findByStatus(DonationStatus status);
 
     List<Donation> findByStatusIn(List<DonationStatus> statuses);
+
+    @EntityGraph(attributePaths = {"donor", "donor.medicalDetails", "donor.eligibilityCriteria", "location"})
+    List<Donation> findWithSnapshotByStatusIn(List<DonationStatus> statuses);
+
+    @EntityGraph(attributePaths = {"donor", "donor.medicalDetails", "donor.eligibilityCriteria", "location"})
+    List<Donation> findWithSnapshotByStatusInAndUpdatedAtAfter(List<DonationStatus> statuses, LocalDateTime updatedAfter);
+
+    @EntityGraph(attributePaths = {"donor", "donor.medicalDetails", "donor.eligibilityCriteria", "location"})
+    List<Donation> findWithSnapshotByDonationTypeAndStatusIn(DonationType donationType, List<DonationStatus> statuses);
+
+    @EntityGraph(attributePaths = {"donor", "donor.medicalDetails", "donor.eligibilityCriteria", "location"})
+    List<Donation> findWithSnapshotByDonationIdIn(Collection<UUID> donationIds);
+
+    @Query("""
+        SELECT new com.matchingservice.dto.GeoPoint(d.donationId, d.location.latitude, d.location.longitude)
+        FROM Donation d
+        WHERE d.status IN :statuses
+        AND d.location IS NOT NULL
+    """)
+    List<GeoPoint> findLocationPointsByStatusIn(@Param("statuses") Collection<DonationStatus> statuses);
+
+    @Query("SELECT d.donationId FROM Donation d WHERE d.donationId IN :donationIds")
+    List<UUID> findExistingDonationIds(@Param("donationIds") Collection<UUID> donationIds);
+
+    @Modifying
+    @Query("""
+        UPDATE Donation d
+        SET d.status = :status, d.updatedAt = :updatedAt
+        WHERE d.donationId IN :donationIds
+        AND d.status <> :status
+    """)
+    int updateStatusByDonationIdIn(
+            @Param("donationIds") Collection<UUID> donationIds,
+            @Param("status") DonationStatus status,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
+
+    /**
+     * Same as {@link #updateStatusByDonationIdIn} but leaves {@code updatedAt} alone, for status
+     * changes the matching scheduler makes itself: they must not look like changes to the next
+     * incremental run, or every matched donation would be re-scored on every tick.
+     */
+    @Modifying
+    @Query("""
+        UPDATE Donation d
+        SET d.status = :status
+        WHERE d.donationId IN :donationIds
+        AND d.status <> :status
+    """)
+    int updateStatusKeepingUpdatedAtByDonationIdIn(
+            @Param("donationIds") Collection<UUID> donationIds,
+            @Param("status") DonationStatus status
+    );
 }
@@ -1,11 +1,16 @@
 package com.matchingservice.repository.donor;
 
+import com.matchingservice.dto.HlaTypingRow;
 import com.matchingservice.model.donor.DonorHLAProfile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,4 +35,22 @@ public interface DonorHLAProfileRepository extends JpaRepository<DonorHLAProfile
     );
 
     Optional<DonorHLAProfile> findTopByDonor_DonorIdAndIdOrderByEventTimestampDesc(UUID donorId, Long id);
+
+    @EntityGraph(attributePaths = {"donor", "donor.medicalDetails", "donor.eligibilityCriteria"})
+    @Query("""
+        SELECT dhp FROM DonorHLAProfile dhp
+        WHERE dhp.donor.donorId IN :donorIds
+        AND dhp.eventTimestamp = (
+            SELECT MAX(dhp2.eventTimestamp) FROM DonorHLAProfile dhp2 WHERE dhp2.donor.donorId = dhp.donor.donorId
+        )
+    """)
+    List<DonorHLAProfile> findLatestByDonorIdIn(@Param("donorIds") Collection<UUID> donorIds);
+
+    @Query("""
+        SELECT new com.matchingservice.dto.HlaTypingRow(dhp.donor.donorId, dhp.hlaA1, dhp.hlaA2,
+            dhp.hlaB1, dhp.hlaB2, dhp.hlaDR1, dhp.hlaDR2, dhp.eventTimestamp)
+        FROM DonorHLAProfile dhp
+        ORDER BY dhp.dbId
+        """)
+    Slice<HlaTypingRow> findAllTypings(Pageable pageable);
 }
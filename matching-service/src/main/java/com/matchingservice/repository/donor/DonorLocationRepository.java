@@ -1,6 +1,7 @@
 package com.matchingservice.repository.donor;
 
 import com.matchingservice.model.donor.DonorLocation;
+import com.matchingservice.dto.DistrictCentroid;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -42,4 +43,12 @@ public interface DonorLocationRepository extends JpaRepository<DonorLocation, Lo
             @Param("longitude") Double longitude,
             @Param("radiusKm") Double radiusKm
     );
+
+    @Query("""
+        SELECT new com.matchingservice.dto.DistrictCentroid(dl.state, dl.district, AVG(dl.latitude), AVG(dl.longitude), COUNT(dl))
+        FROM DonorLocation dl
+        WHERE dl.latitude IS NOT NULL AND dl.longitude IS NOT NULL
+        GROUP BY dl.state, dl.district
+    """)
+    List<DistrictCentroid> findDistrictCentroids();
 }
@@ -1,14 +1,19 @@
 package com.matchingservice.repository.recipient;
 
+import com.matchingservice.dto.GeoPoint;
 import com.matchingservice.enums.BloodType;
 import com.matchingservice.enums.RequestStatus;
 import com.matchingservice.enums.RequestType;
 import com.matchingservice.model.recipients.ReceiveRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -43,4 +48,57 @@ public interface ReceiveRequestRepository extends JpaRepository<ReceiveRequest,
     List<ReceiveRequest> findByStatus(RequestStatus status);
 
     List<ReceiveRequest> findByStatusIn(List<RequestStatus> statuses);
+
+    @EntityGraph(attributePaths = {"recipient", "recipient.medicalDetails", "recipient.eligibilityCriteria", "location"})
+    List<ReceiveRequest> findWithSnapshotByStatusIn(List<RequestStatus> statuses);
+
+    @EntityGraph(attributePaths = {"recipient", "recipient.medicalDetails", "recipient.eligibilityCriteria", "location"})
+    List<ReceiveRequest> findWithSnapshotByStatusInAndUpdatedAtAfter(List<RequestStatus> statuses, LocalDateTime updatedAfter);
+
+    @EntityGraph(attributePaths = {"recipient", "recipient.medicalDetails", "recipient.eligibilityCriteria", "location"})
+    List<ReceiveRequest> findWithSnapshotByRequestTypeAndStatusIn(RequestType requestType, List<RequestStatus> statuses);
+
+    @EntityGraph(attributePaths = {"recipient", "recipient.medicalDetails", "recipient.eligibilityCriteria", "location"})
+    List<ReceiveRequest> findWithSnapshotByReceiveRequestIdIn(Collection<UUID> receiveRequestIds);
+
+    @Query("""
+        SELECT new com.matchingservice.dto.GeoPoint(rr.receiveRequestId, rr.location.latitude, rr.location.longitude)
+        FROM ReceiveRequest rr
+        WHERE rr.status IN :statuses
+        AND rr.location IS NOT NULL
+    """)
+    List<GeoPoint> findLocationPointsByStatusIn(@Param("statuses") Collection<RequestStatus> statuses);
+
+    @Query("SELECT rr.receiveRequestId FROM ReceiveRequest rr WHERE rr.receiveRequestId IN :requestIds")
+    List<UUID> findExistingReceiveRequestIds(@Param("requestIds") Collection<UUID> requestIds);
+
+    @Modifying
+    @Query("""
+        UPDATE ReceiveRequest rr
+        SET rr.status = :status, rr.updatedAt = :updatedAt
+        WHERE rr.receiveRequestId IN :requestIds
+        AND rr.status <> :status
+    """)
+    int updateStatusByReceiveRequestIdIn(
+            @Param("requestIds") Collection<UUID> requestIds,
+            @Param("status") RequestStatus status,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
+
+    /**
+     * Same as {@link #updateStatusByReceiveRequestIdIn} but leaves {@code updatedAt} alone, for
+     * status changes the matching scheduler makes itself, so the next incremental run does not
+     * pick its own matches up as changed requests.
+     */
+    @Modifying
+    @Query("""
+        UPDATE ReceiveRequest rr
+        SET rr.status = :status
+        WHERE rr.receiveRequestId IN :requestIds
+        AND rr.status <> :status
+    """)
+    int updateStatusKeepingUpdatedAtByReceiveRequestIdIn(
+            @Param("requestIds") Collection<UUID> requestIds,
+            @Param("status") RequestStatus status
+    );
 }
@@ -1,11 +1,13 @@
 package com.matchingservice.repository.recipient;
 
 import com.matchingservice.model.recipients.RecipientHLAProfile;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,4 +32,14 @@ public interface RecipientHLAProfileRepository extends JpaRepository<RecipientHL
     );
 
     Optional<RecipientHLAProfile> findTopByRecipient_RecipientIdAndIdOrderByEventTimestampDesc(UUID recipientId, Long id);
+
+    @EntityGraph(attributePaths = {"recipient", "recipient.medicalDetails", "recipient.eligibilityCriteria"})
+    @Query("""
+        SELECT rhp FROM RecipientHLAProfile rhp
+        WHERE rhp.recipient.recipientId IN :recipientIds
+        AND rhp.eventTimestamp = (
+            SELECT MAX(rhp2.eventTimestamp) FROM RecipientHLAProfile rhp2 WHERE rhp2.recipient.recipientId = rhp.recipient.recipientId
+        )
+    """)
+    List<RecipientHLAProfile> findLatestByRecipientIdIn(@Param("recipientIds") Collection<UUID> recipientIds);
 }
@@ -1,6 +1,7 @@
 package com.matchingservice.repository.recipient;
 
 import com.matchingservice.model.recipients.RecipientLocation;
+import com.matchingservice.dto.DistrictCentroid;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -42,4 +43,12 @@ public interface RecipientLocationRepository extends JpaRepository<RecipientLoca
             @Param("longitude") Double longitude,
             @Param("radiusKm") Double radiusKm
     );
+
+    @Query("""
+        SELECT new com.matchingservice.dto.DistrictCentroid(rl.state, rl.district, AVG(rl.latitude), AVG(rl.longitude), COUNT(rl))
+        FROM RecipientLocation rl
+        WHERE rl.latitude IS NOT NULL AND rl.longitude IS NOT NULL
+        GROUP BY rl.state, rl.district
+    """)
+    List<DistrictCentroid> findDistrictCentroids();
 }
@@ -3,20 +3,31 @@ package com.matchingservice.service;
 import com.matchingservice.enums.*;
 import com.matchingservice.kafka.event.donor_events.*;
 import com.matchingservice.kafka.event.recipient_events.*;
-import com.matchingservice.model.MatchResult;
 import com.matchingservice.model.donor.*;
 import com.matchingservice.model.recipients.*;
 import com.matchingservice.repository.MatchResultRepository;
 import com.matchingservice.repository.donor.*;
 import com.matchingservice.repository.recipient.*;
+import com.matchingservice.service.assembly.DonorEventGroup;
+import com.matchingservice.service.assembly.EventGroupAssembler;
+import com.matchingservice.service.assembly.EventGroupLocks;
+import com.matchingservice.service.assembly.RecipientEventGroup;
+import com.matchingservice.service.candidate.LocationIndex;
+import com.matchingservice.service.hla.DonorHlaIndex;
+import com.matchingservice.service.hla.HlaAlleleCodec;
+import com.matchingservice.service.hla.HlaTyping;
+import com.matchingservice.service.ml_scheduler.MatchingTrigger;
+import com.matchingservice.service.ml_scheduler.ScoreCache;
+import com.matchingservice.service.topcandidates.TopCandidateStore;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
@@ -31,156 +42,146 @@ public class MatchingEventHandlerService {
     private final ReceiveRequestRepository receiveRequestRepository;
     private final RecipientHLAProfileRepository recipientHLAProfileRepository;
     private final MatchResultRepository matchResultRepository;
-
-    private final ConcurrentHashMap<UUID, ReentrantLock> donorLocks = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<UUID, ReentrantLock> recipientLocks = new ConcurrentHashMap<>();
-
-    private final ConcurrentHashMap<UUID, DonorEventGroup> donorEventGroups = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<UUID, RecipientEventGroup> recipientEventGroups = new ConcurrentHashMap<>();
-
-    @Transactional
-    public void handleDonorEvent(DonorEvent event) {
-        ReentrantLock lock = donorLocks.computeIfAbsent(event.getDonorId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing DonorEvent for donorId: " + event.getDonorId());
-
-            DonorEventGroup group = donorEventGroups.computeIfAbsent(event.getDonorId(), k -> new DonorEventGroup());
-            group.donorEvent = event;
-            group.donorEventReceived = true;
-
-            processCompleteDonorGroup(event.getDonorId(), group);
-        } finally {
-            lock.unlock();
+    private final EventGroupAssembler eventGroupAssembler;
+    private final EventGroupLocks eventGroupLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final MatchingTrigger matchingTrigger;
+    private final ScoreCache scoreCache;
+    private final DonorHlaIndex donorHlaIndex;
+    private final LocationIndex locationIndex;
+    private final TopCandidateStore topCandidateStore;
+
+    /**
+     * Handles one poll worth of donor-side events in a single transaction. Donations that are
+     * already stored are skipped with one query, the rest are appended to the assembly store
+     * in bulk, and every group this batch completes is persisted before the commit.
+     */
+    public void handleDonorEvents(List<?> events) {
+        Map<UUID, List<Object>> eventsByDonor = new LinkedHashMap<>();
+        for (Object event : events) {
+            eventsByDonor.computeIfAbsent(donorIdOf(event), k -> new ArrayList<>()).add(event);
+        }
+        if (eventsByDonor.isEmpty()) {
+            return;
         }
-    }
 
-    @Transactional
-    public void handleDonationEvent(DonationEvent event) {
-        ReentrantLock lock = donorLocks.computeIfAbsent(event.getDonorId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing DonationEvent for donationId: " + event.getDonationId());
-
-            if (donationRepository.existsById(event.getDonationId())) {
-                System.out.println("Donation already processed (Kafka retry), skipping: " + event.getDonationId());
+        lockedTransaction(EventGroupType.DONOR, eventsByDonor.keySet(), () -> {
+            System.out.println("Processing " + events.size() + " donor-side events for " + eventsByDonor.size() + " donors");
+
+            Set<UUID> donationIds = new HashSet<>();
+            for (Object event : events) {
+                if (event instanceof DonationEvent e) {
+                    donationIds.add(e.getDonationId());
+                }
+            }
+            if (!donationIds.isEmpty()) {
+                Set<UUID> alreadyStored = new HashSet<>(donationRepository.findExistingDonationIds(donationIds));
+                if (!alreadyStored.isEmpty()) {
+                    System.out.println("Donations already processed (Kafka retry), skipping: " + alreadyStored);
+                    eventsByDonor.values().forEach(list -> list.removeIf(
+                            event -> event instanceof DonationEvent e && alreadyStored.contains(e.getDonationId())));
+                    eventsByDonor.values().removeIf(List::isEmpty);
+                }
+            }
+            if (eventsByDonor.isEmpty()) {
                 return;
             }
 
-            DonorEventGroup group = donorEventGroups.computeIfAbsent(event.getDonorId(), k -> new DonorEventGroup());
-            group.donationEvent = event;
-            group.donationEventReceived = true;
-
-            processCompleteDonorGroup(event.getDonorId(), group);
-        } finally {
-            lock.unlock();
-        }
+            List<UUID> completed = new ArrayList<>();
+            eventGroupAssembler.addDonorEvents(eventsByDonor).forEach((donorId, group) -> {
+                if (!group.isComplete()) {
+                    System.out.println("Donor event group incomplete, waiting for more events. Status: " + group.getStatus());
+                    return;
+                }
+                processCompleteDonorGroup(donorId, group);
+                completed.add(donorId);
+            });
+            eventGroupAssembler.completeDonorGroups(completed);
+        });
     }
 
-    @Transactional
-    public void handleDonorLocationEvent(DonorLocationEvent event) {
-        ReentrantLock lock = donorLocks.computeIfAbsent(event.getDonorId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing DonorLocationEvent for locationId: " + event.getLocationId());
-
-            DonorEventGroup group = donorEventGroups.computeIfAbsent(event.getDonorId(), k -> new DonorEventGroup());
-            group.locationEvent = event;
-            group.locationEventReceived = true;
-
-            processCompleteDonorGroup(event.getDonorId(), group);
-        } finally {
-            lock.unlock();
-        }
+    /**
+     * Key that donor-side events are grouped, locked and dispatched by.
+     */
+    public static UUID donorIdOf(Object event) {
+        return switch (event) {
+            case DonorEvent e -> e.getDonorId();
+            case DonationEvent e -> e.getDonorId();
+            case DonorLocationEvent e -> e.getDonorId();
+            case DonorHLAProfileEvent e -> e.getDonorId();
+            default -> throw new IllegalArgumentException("Not a donor group event: " + event.getClass().getName());
+        };
     }
 
-    @Transactional
-    public void handleDonorHLAProfileEvent(DonorHLAProfileEvent event) {
-        ReentrantLock lock = donorLocks.computeIfAbsent(event.getDonorId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing DonorHLAProfileEvent for donorId: " + event.getDonorId());
-
-            DonorEventGroup group = donorEventGroups.computeIfAbsent(event.getDonorId(), k -> new DonorEventGroup());
-            group.hlaEvent = event;
-            group.hlaEventReceived = true;
-
-            processCompleteDonorGroup(event.getDonorId(), group);
-        } finally {
-            lock.unlock();
-        }
+    /**
+     * Runs {@code work} in its own transaction while holding the lock stripes of every owner,
+     * so the next event for the same donor/recipient only starts after this one has committed.
+     */
+    private void lockedTransaction(EventGroupType type, Collection<UUID> ownerIds, Runnable work) {
+        eventGroupLocks.runLocked(type, ownerIds,
+                () -> transactionTemplate.executeWithoutResult(status -> work.run()));
     }
 
     private void processCompleteDonorGroup(UUID donorId, DonorEventGroup group) {
-        if (!group.isComplete()) {
-            System.out.println("Donor event group incomplete, waiting for more events. Status: " + group.getStatus());
-            return;
-        }
-
-        if (group.processed) {
-            System.out.println("Donor group already processed, skipping");
-            return;
-        }
-
         System.out.println("All 4 donor events received, processing group for donorId: " + donorId);
 
         Donor donor = new Donor();
-        donor.setDonorId(group.donorEvent.getDonorId());
-        donor.setUserId(group.donorEvent.getUserId());
-        donor.setRegistrationDate(group.donorEvent.getRegistrationDate());
-        donor.setStatus(DonorStatus.valueOf(group.donorEvent.getStatus()));
+        donor.setDonorId(group.getDonorEvent().getDonorId());
+        donor.setUserId(group.getDonorEvent().getUserId());
+        donor.setRegistrationDate(group.getDonorEvent().getRegistrationDate());
+        donor.setStatus(DonorStatus.valueOf(group.getDonorEvent().getStatus()));
         donor.setEventTimestamp(LocalDateTime.now());
 
-        if (group.donorEvent.getEligibilityCriteriaId() != null) {
+        if (group.getDonorEvent().getEligibilityCriteriaId() != null) {
             DonorEligibilityCriteria eligibility = new DonorEligibilityCriteria();
-            eligibility.setEligibilityCriteriaId(group.donorEvent.getEligibilityCriteriaId());
+            eligibility.setEligibilityCriteriaId(group.getDonorEvent().getEligibilityCriteriaId());
             eligibility.setDonor(donor);
-            eligibility.setWeight(group.donorEvent.getWeight());
-            eligibility.setAge(group.donorEvent.getAge());
-            eligibility.setDob(group.donorEvent.getDob());
-            eligibility.setMedicalClearance(group.donorEvent.getMedicalClearance());
-            eligibility.setRecentTattooOrPiercing(group.donorEvent.getRecentTattooOrPiercing());
-            eligibility.setRecentTravelDetails(group.donorEvent.getRecentTravelDetails());
-            eligibility.setRecentVaccination(group.donorEvent.getRecentVaccination());
-            eligibility.setRecentSurgery(group.donorEvent.getRecentSurgery());
-            eligibility.setChronicDiseases(group.donorEvent.getChronicDiseases());
-            eligibility.setAllergies(group.donorEvent.getAllergies());
-            eligibility.setLastDonationDate(group.donorEvent.getLastDonationDate());
-            eligibility.setHeight(group.donorEvent.getHeight());
-            eligibility.setBodyMassIndex(group.donorEvent.getBodyMassIndex());
-            eligibility.setBodySize(group.donorEvent.getBodySize());
-            eligibility.setIsLivingDonor(group.donorEvent.getIsLivingDonor());
-            eligibility.setSmokingStatus(group.donorEvent.getSmokingStatus());
-            eligibility.setPackYears(group.donorEvent.getPackYears());
-            eligibility.setQuitSmokingDate(group.donorEvent.getQuitSmokingDate());
-            eligibility.setAlcoholStatus(group.donorEvent.getAlcoholStatus());
-            eligibility.setDrinksPerWeek(group.donorEvent.getDrinksPerWeek());
-            eligibility.setQuitAlcoholDate(group.donorEvent.getQuitAlcoholDate());
-            eligibility.setAlcoholAbstinenceMonths(group.donorEvent.getAlcoholAbstinenceMonths());
+            eligibility.setWeight(group.getDonorEvent().getWeight());
+            eligibility.setAge(group.getDonorEvent().getAge());
+            eligibility.setDob(group.getDonorEvent().getDob());
+            eligibility.setMedicalClearance(group.getDonorEvent().getMedicalClearance());
+            eligibility.setRecentTattooOrPiercing(group.getDonorEvent().getRecentTattooOrPiercing());
+            eligibility.setRecentTravelDetails(group.getDonorEvent().getRecentTravelDetails());
+            eligibility.setRecentVaccination(group.getDonorEvent().getRecentVaccination());
+            eligibility.setRecentSurgery(group.getDonorEvent().getRecentSurgery());
+            eligibility.setChronicDiseases(group.getDonorEvent().getChronicDiseases());
+            eligibility.setAllergies(group.getDonorEvent().getAllergies());
+            eligibility.setLastDonationDate(group.getDonorEvent().getLastDonationDate());
+            eligibility.setHeight(group.getDonorEvent().getHeight());
+            eligibility.setBodyMassIndex(group.getDonorEvent().getBodyMassIndex());
+            eligibility.setBodySize(group.getDonorEvent().getBodySize());
+            eligibility.setIsLivingDonor(group.getDonorEvent().getIsLivingDonor());
+            eligibility.setSmokingStatus(group.getDonorEvent().getSmokingStatus());
+            eligibility.setPackYears(group.getDonorEvent().getPackYears());
+            eligibility.setQuitSmokingDate(group.getDonorEvent().getQuitSmokingDate());
+            eligibility.setAlcoholStatus(group.getDonorEvent().getAlcoholStatus());
+            eligibility.setDrinksPerWeek(group.getDonorEvent().getDrinksPerWeek());
+            eligibility.setQuitAlcoholDate(group.getDonorEvent().getQuitAlcoholDate());
+            eligibility.setAlcoholAbstinenceMonths(group.getDonorEvent().getAlcoholAbstinenceMonths());
             donor.setEligibilityCriteria(eligibility);
         }
 
-        if (group.donorEvent.getMedicalDetailsId() != null) {
+        if (group.getDonorEvent().getMedicalDetailsId() != null) {
             DonorMedicalDetails medicalDetails = new DonorMedicalDetails();
-            medicalDetails.setMedicalDetailsId(group.donorEvent.getMedicalDetailsId());
+            medicalDetails.setMedicalDetailsId(group.getDonorEvent().getMedicalDetailsId());
             medicalDetails.setDonor(donor);
-            medicalDetails.setHemoglobinLevel(group.donorEvent.getHemoglobinLevel());
-            medicalDetails.setBloodGlucoseLevel(group.donorEvent.getBloodGlucoseLevel());
-            medicalDetails.setHasDiabetes(group.donorEvent.getHasDiabetes());
-            medicalDetails.setBloodPressure(group.donorEvent.getBloodPressure());
-            medicalDetails.setHasDiseases(group.donorEvent.getHasDiseases());
-            medicalDetails.setTakingMedication(group.donorEvent.getTakingMedication());
-            medicalDetails.setDiseaseDescription(group.donorEvent.getDiseaseDescription());
-            medicalDetails.setCurrentMedications(group.donorEvent.getCurrentMedications());
-            medicalDetails.setLastMedicalCheckup(group.donorEvent.getLastMedicalCheckup());
-            medicalDetails.setMedicalHistory(group.donorEvent.getMedicalHistory());
-            medicalDetails.setHasInfectiousDiseases(group.donorEvent.getHasInfectiousDiseases());
-            medicalDetails.setInfectiousDiseaseDetails(group.donorEvent.getInfectiousDiseaseDetails());
-            medicalDetails.setCreatinineLevel(group.donorEvent.getCreatinineLevel());
-            medicalDetails.setLiverFunctionTests(group.donorEvent.getLiverFunctionTests());
-            medicalDetails.setCardiacStatus(group.donorEvent.getCardiacStatus());
-            medicalDetails.setPulmonaryFunction(group.donorEvent.getPulmonaryFunction());
-            medicalDetails.setOverallHealthStatus(group.donorEvent.getOverallHealthStatus());
+            medicalDetails.setHemoglobinLevel(group.getDonorEvent().getHemoglobinLevel());
+            medicalDetails.setBloodGlucoseLevel(group.getDonorEvent().getBloodGlucoseLevel());
+            medicalDetails.setHasDiabetes(group.getDonorEvent().getHasDiabetes());
+            medicalDetails.setBloodPressure(group.getDonorEvent().getBloodPressure());
+            medicalDetails.setHasDiseases(group.getDonorEvent().getHasDiseases());
+            medicalDetails.setTakingMedication(group.getDonorEvent().getTakingMedication());
+            medicalDetails.setDiseaseDescription(group.getDonorEvent().getDiseaseDescription());
+            medicalDetails.setCurrentMedications(group.getDonorEvent().getCurrentMedications());
+            medicalDetails.setLastMedicalCheckup(group.getDonorEvent().getLastMedicalCheckup());
+            medicalDetails.setMedicalHistory(group.getDonorEvent().getMedicalHistory());
+            medicalDetails.setHasInfectiousDiseases(group.getDonorEvent().getHasInfectiousDiseases());
+            medicalDetails.setInfectiousDiseaseDetails(group.getDonorEvent().getInfectiousDiseaseDetails());
+            medicalDetails.setCreatinineLevel(group.getDonorEvent().getCreatinineLevel());
+            medicalDetails.setLiverFunctionTests(group.getDonorEvent().getLiverFunctionTests());
+            medicalDetails.setCardiacStatus(group.getDonorEvent().getCardiacStatus());
+            medicalDetails.setPulmonaryFunction(group.getDonorEvent().getPulmonaryFunction());
+            medicalDetails.setOverallHealthStatus(group.getDonorEvent().getOverallHealthStatus());
             donor.setMedicalDetails(medicalDetails);
         }
 
@@ -188,208 +189,190 @@ public class MatchingEventHandlerService {
         System.out.println("Saved donor snapshot: " + savedDonor.getDonorId() + " with BP: " + savedDonor.getMedicalDetails().getBloodPressure());
 
         DonorLocation location = new DonorLocation();
-        location.setLocationId(group.locationEvent.getLocationId());
+        location.setLocationId(group.getLocationEvent().getLocationId());
         location.setDonor(savedDonor);
-        location.setAddressLine(group.locationEvent.getAddressLine());
-        location.setLandmark(group.locationEvent.getLandmark());
-        location.setArea(group.locationEvent.getArea());
-        location.setCity(group.locationEvent.getCity());
-        location.setDistrict(group.locationEvent.getDistrict());
-        location.setState(group.locationEvent.getState());
-        location.setCountry(group.locationEvent.getCountry());
-        location.setPincode(group.locationEvent.getPincode());
-        location.setLatitude(group.locationEvent.getLatitude());
-        location.setLongitude(group.locationEvent.getLongitude());
+        location.setAddressLine(group.getLocationEvent().getAddressLine());
+        location.setLandmark(group.getLocationEvent().getLandmark());
+        location.setArea(group.getLocationEvent().getArea());
+        location.setCity(group.getLocationEvent().getCity());
+        location.setDistrict(group.getLocationEvent().getDistrict());
+        location.setState(group.getLocationEvent().getState());
+        location.setCountry(group.getLocationEvent().getCountry());
+        location.setPincode(group.getLocationEvent().getPincode());
+        location.setLatitude(group.getLocationEvent().getLatitude());
+        location.setLongitude(group.getLocationEvent().getLongitude());
         location.setEventTimestamp(LocalDateTime.now());
         DonorLocation savedLocation = donorLocationRepository.save(location);
         System.out.println("Saved donor location: " + savedLocation.getLocationId());
 
-        Donation donation = createDonationByType(group.donationEvent);
-        donation.setDonationId(group.donationEvent.getDonationId());
+        Donation donation = createDonationByType(group.getDonationEvent());
+        donation.setDonationId(group.getDonationEvent().getDonationId());
         donation.setDonor(savedDonor);
         donation.setDonorId(savedDonor.getDonorId());
         donation.setUserId(savedDonor.getUserId());
-        donation.setDonationType(group.donationEvent.getDonationType());
-        donation.setBloodType(group.donationEvent.getBloodType());
-        donation.setDonationDate(group.donationEvent.getDonationDate());
-        donation.setStatus(group.donationEvent.getStatus());
+        donation.setDonationType(group.getDonationEvent().getDonationType());
+        donation.setBloodType(group.getDonationEvent().getBloodType());
+        donation.setDonationDate(group.getDonationEvent().getDonationDate());
+        donation.setStatus(group.getDonationEvent().getStatus());
         donation.setEventTimestamp(LocalDateTime.now());
         donation.setLocation(savedLocation);
         Donation savedDonation = donationRepository.save(donation);
+        afterCommit(() -> locationIndex.putDonation(savedDonation.getDonationId(), savedLocation));
         System.out.println("Saved donation: " + savedDonation.getDonationId() + " linked to donor with BP: " + savedDonor.getMedicalDetails().getBloodPressure());
 
-        if (group.hlaEventReceived && group.hlaEvent != null) {
+        if (group.getHlaEvent() != null) {
             DonorHLAProfile hlaProfile = new DonorHLAProfile();
-            hlaProfile.setId(group.hlaEvent.getId());
+            hlaProfile.setId(group.getHlaEvent().getId());
             hlaProfile.setDonor(savedDonor);
-            hlaProfile.setHlaA1(group.hlaEvent.getHlaA1());
-            hlaProfile.setHlaA2(group.hlaEvent.getHlaA2());
-            hlaProfile.setHlaB1(group.hlaEvent.getHlaB1());
-            hlaProfile.setHlaB2(group.hlaEvent.getHlaB2());
-            hlaProfile.setHlaC1(group.hlaEvent.getHlaC1());
-            hlaProfile.setHlaC2(group.hlaEvent.getHlaC2());
-            hlaProfile.setHlaDR1(group.hlaEvent.getHlaDR1());
-            hlaProfile.setHlaDR2(group.hlaEvent.getHlaDR2());
-            hlaProfile.setHlaDQ1(group.hlaEvent.getHlaDQ1());
-            hlaProfile.setHlaDQ2(group.hlaEvent.getHlaDQ2());
-            hlaProfile.setHlaDP1(group.hlaEvent.getHlaDP1());
-            hlaProfile.setHlaDP2(group.hlaEvent.getHlaDP2());
-            hlaProfile.setTestingDate(group.hlaEvent.getTestingDate());
-            hlaProfile.setTestingMethod(group.hlaEvent.getTestingMethod());
-            hlaProfile.setLaboratoryName(group.hlaEvent.getLaboratoryName());
-            hlaProfile.setCertificationNumber(group.hlaEvent.getCertificationNumber());
-            hlaProfile.setHlaString(group.hlaEvent.getHlaString());
-            hlaProfile.setIsHighResolution(group.hlaEvent.getIsHighResolution());
+            hlaProfile.setHlaA1(group.getHlaEvent().getHlaA1());
+            hlaProfile.setHlaA2(group.getHlaEvent().getHlaA2());
+            hlaProfile.setHlaB1(group.getHlaEvent().getHlaB1());
+            hlaProfile.setHlaB2(group.getHlaEvent().getHlaB2());
+            hlaProfile.setHlaC1(group.getHlaEvent().getHlaC1());
+            hlaProfile.setHlaC2(group.getHlaEvent().getHlaC2());
+            hlaProfile.setHlaDR1(group.getHlaEvent().getHlaDR1());
+            hlaProfile.setHlaDR2(group.getHlaEvent().getHlaDR2());
+            hlaProfile.setHlaDQ1(group.getHlaEvent().getHlaDQ1());
+            hlaProfile.setHlaDQ2(group.getHlaEvent().getHlaDQ2());
+            hlaProfile.setHlaDP1(group.getHlaEvent().getHlaDP1());
+            hlaProfile.setHlaDP2(group.getHlaEvent().getHlaDP2());
+            hlaProfile.setTestingDate(group.getHlaEvent().getTestingDate());
+            hlaProfile.setTestingMethod(group.getHlaEvent().getTestingMethod());
+            hlaProfile.setLaboratoryName(group.getHlaEvent().getLaboratoryName());
+            hlaProfile.setCertificationNumber(group.getHlaEvent().getCertificationNumber());
+            hlaProfile.setHlaString(group.getHlaEvent().getHlaString());
+            hlaProfile.setIsHighResolution(group.getHlaEvent().getIsHighResolution());
             hlaProfile.setEventTimestamp(LocalDateTime.now());
             donorHLAProfileRepository.save(hlaProfile);
+            HlaTyping typing = HlaAlleleCodec.encode(hlaProfile);
+            LocalDateTime typedAt = hlaProfile.getEventTimestamp();
+            afterCommit(() -> donorHlaIndex.put(savedDonor.getDonorId(), typing, typedAt));
             System.out.println("Saved HLA profile: " + hlaProfile.getId());
         } else {
             System.out.println("No HLA profile event received (blood donation or not provided)");
         }
-        group.processed = true;
-        donorEventGroups.remove(donorId);
-
         System.out.println("✅ Complete donor group processed successfully for donation: " + savedDonation.getDonationId());
+        scoreCache.invalidateDonors(List.of(savedDonor.getDonorId()));
+        matchingTrigger.donationReady(savedDonation.getDonationId());
     }
 
-    @Transactional
-    public void handleRecipientEvent(RecipientEvent event) {
-        ReentrantLock lock = recipientLocks.computeIfAbsent(event.getRecipientId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing RecipientEvent for recipientId: " + event.getRecipientId());
-
-            RecipientEventGroup group = recipientEventGroups.computeIfAbsent(event.getRecipientId(), k -> new RecipientEventGroup());
-            group.recipientEvent = event;
-            group.recipientEventReceived = true;
-
-            processCompleteRecipientGroup(event.getRecipientId(), group);
-        } finally {
-            lock.unlock();
+    /**
+     * Handles one poll worth of recipient-side events in a single transaction. ReceiveRequests that are
+     * already stored are skipped with one query, the rest are appended to the assembly store
+     * in bulk, and every group this batch completes is persisted before the commit.
+     */
+    public void handleRecipientEvents(List<?> events) {
+        Map<UUID, List<Object>> eventsByRecipient = new LinkedHashMap<>();
+        for (Object event : events) {
+            eventsByRecipient.computeIfAbsent(recipientIdOf(event), k -> new ArrayList<>()).add(event);
+        }
+        if (eventsByRecipient.isEmpty()) {
+            return;
         }
-    }
 
-    @Transactional
-    public void handleReceiveRequestEvent(ReceiveRequestEvent event) {
-        ReentrantLock lock = recipientLocks.computeIfAbsent(event.getRecipientId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing ReceiveRequestEvent for requestId: " + event.getReceiveRequestId());
-
-            if (receiveRequestRepository.existsById(event.getReceiveRequestId())) {
-                System.out.println("ReceiveRequest already processed (Kafka retry), skipping: " + event.getReceiveRequestId());
+        lockedTransaction(EventGroupType.RECIPIENT, eventsByRecipient.keySet(), () -> {
+            System.out.println("Processing " + events.size() + " recipient-side events for " + eventsByRecipient.size() + " recipients");
+
+            Set<UUID> requestIds = new HashSet<>();
+            for (Object event : events) {
+                if (event instanceof ReceiveRequestEvent e) {
+                    requestIds.add(e.getReceiveRequestId());
+                }
+            }
+            if (!requestIds.isEmpty()) {
+                Set<UUID> alreadyStored = new HashSet<>(receiveRequestRepository.findExistingReceiveRequestIds(requestIds));
+                if (!alreadyStored.isEmpty()) {
+                    System.out.println("ReceiveRequests already processed (Kafka retry), skipping: " + alreadyStored);
+                    eventsByRecipient.values().forEach(list -> list.removeIf(
+                            event -> event instanceof ReceiveRequestEvent e && alreadyStored.contains(e.getReceiveRequestId())));
+                    eventsByRecipient.values().removeIf(List::isEmpty);
+                }
+            }
+            if (eventsByRecipient.isEmpty()) {
                 return;
             }
 
-            RecipientEventGroup group = recipientEventGroups.computeIfAbsent(event.getRecipientId(), k -> new RecipientEventGroup());
-            group.receiveRequestEvent = event;
-            group.receiveRequestEventReceived = true;
-
-            processCompleteRecipientGroup(event.getRecipientId(), group);
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    @Transactional
-    public void handleRecipientLocationEvent(RecipientLocationEvent event) {
-        ReentrantLock lock = recipientLocks.computeIfAbsent(event.getRecipientId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing RecipientLocationEvent for locationId: " + event.getLocationId());
-
-            RecipientEventGroup group = recipientEventGroups.computeIfAbsent(event.getRecipientId(), k -> new RecipientEventGroup());
-            group.locationEvent = event;
-            group.locationEventReceived = true;
-
-            processCompleteRecipientGroup(event.getRecipientId(), group);
-        } finally {
-            lock.unlock();
-        }
+            List<UUID> completed = new ArrayList<>();
+            eventGroupAssembler.addRecipientEvents(eventsByRecipient).forEach((recipientId, group) -> {
+                if (!group.isComplete()) {
+                    System.out.println("Recipient event group incomplete, waiting for more events. Status: " + group.getStatus());
+                    return;
+                }
+                processCompleteRecipientGroup(recipientId, group);
+                completed.add(recipientId);
+            });
+            eventGroupAssembler.completeRecipientGroups(completed);
+        });
     }
 
-    @Transactional
-    public void handleRecipientHLAProfileEvent(RecipientHLAProfileEvent event) {
-        ReentrantLock lock = recipientLocks.computeIfAbsent(event.getRecipientId(), k -> new ReentrantLock());
-        lock.lock();
-        try {
-            System.out.println("Processing RecipientHLAProfileEvent for recipientId: " + event.getRecipientId());
-
-            RecipientEventGroup group = recipientEventGroups.computeIfAbsent(event.getRecipientId(), k -> new RecipientEventGroup());
-            group.hlaEvent = event;
-            group.hlaEventReceived = true;
-
-            processCompleteRecipientGroup(event.getRecipientId(), group);
-        } finally {
-            lock.unlock();
-        }
+    /**
+     * Key that recipient-side events are grouped, locked and dispatched by.
+     */
+    public static UUID recipientIdOf(Object event) {
+        return switch (event) {
+            case RecipientEvent e -> e.getRecipientId();
+            case ReceiveRequestEvent e -> e.getRecipientId();
+            case RecipientLocationEvent e -> e.getRecipientId();
+            case RecipientHLAProfileEvent e -> e.getRecipientId();
+            default -> throw new IllegalArgumentException("Not a recipient group event: " + event.getClass().getName());
+        };
     }
 
     private void processCompleteRecipientGroup(UUID recipientId, RecipientEventGroup group) {
-        if (!group.isComplete()) {
-            System.out.println("Recipient event group incomplete, waiting for more events. Status: " + group.getStatus());
-            return;
-        }
-
-        if (group.processed) {
-            System.out.println("Recipient group already processed, skipping");
-            return;
-        }
-
         System.out.println("All 4 recipient events received, processing group for recipientId: " + recipientId);
 
         Recipient recipient = new Recipient();
-        recipient.setRecipientId(group.recipientEvent.getRecipientId());
-        recipient.setUserId(group.recipientEvent.getUserId());
-        recipient.setAvailability(group.recipientEvent.getAvailability());
+        recipient.setRecipientId(group.getRecipientEvent().getRecipientId());
+        recipient.setUserId(group.getRecipientEvent().getUserId());
+        recipient.setAvailability(group.getRecipientEvent().getAvailability());
         recipient.setEventTimestamp(LocalDateTime.now());
 
-        if (group.recipientEvent.getEligibilityCriteriaId() != null) {
+        if (group.getRecipientEvent().getEligibilityCriteriaId() != null) {
             RecipientEligibilityCriteria eligibility = new RecipientEligibilityCriteria();
-            eligibility.setEligibilityCriteriaId(group.recipientEvent.getEligibilityCriteriaId());
+            eligibility.setEligibilityCriteriaId(group.getRecipientEvent().getEligibilityCriteriaId());
             eligibility.setRecipient(recipient);
-            eligibility.setAgeEligible(group.recipientEvent.getAgeEligible());
-            eligibility.setAge(group.recipientEvent.getAge());
-            eligibility.setDob(group.recipientEvent.getDob());
-            eligibility.setWeightEligible(group.recipientEvent.getWeightEligible());
-            eligibility.setWeight(group.recipientEvent.getWeight());
-            eligibility.setMedicallyEligible(group.recipientEvent.getMedicallyEligible());
-            eligibility.setLegalClearance(group.recipientEvent.getLegalClearance());
-            eligibility.setNotes(group.recipientEvent.getEligibilityNotes());
-            eligibility.setLastReviewed(group.recipientEvent.getLastReviewed());
-            eligibility.setHeight(group.recipientEvent.getHeight());
-            eligibility.setBodyMassIndex(group.recipientEvent.getBodyMassIndex());
-            eligibility.setBodySize(group.recipientEvent.getBodySize());
-            eligibility.setIsLivingDonor(group.recipientEvent.getIsLivingDonor());
-            eligibility.setSmokingStatus(group.recipientEvent.getSmokingStatus());
-            eligibility.setPackYears(group.recipientEvent.getPackYears());
-            eligibility.setQuitSmokingDate(group.recipientEvent.getQuitSmokingDate());
-            eligibility.setAlcoholStatus(group.recipientEvent.getAlcoholStatus());
-            eligibility.setDrinksPerWeek(group.recipientEvent.getDrinksPerWeek());
-            eligibility.setQuitAlcoholDate(group.recipientEvent.getQuitAlcoholDate());
-            eligibility.setAlcoholAbstinenceMonths(group.recipientEvent.getAlcoholAbstinenceMonths());
+            eligibility.setAgeEligible(group.getRecipientEvent().getAgeEligible());
+            eligibility.setAge(group.getRecipientEvent().getAge());
+            eligibility.setDob(group.getRecipientEvent().getDob());
+            eligibility.setWeightEligible(group.getRecipientEvent().getWeightEligible());
+            eligibility.setWeight(group.getRecipientEvent().getWeight());
+            eligibility.setMedicallyEligible(group.getRecipientEvent().getMedicallyEligible());
+            eligibility.setLegalClearance(group.getRecipientEvent().getLegalClearance());
+            eligibility.setNotes(group.getRecipientEvent().getEligibilityNotes());
+            eligibility.setLastReviewed(group.getRecipientEvent().getLastReviewed());
+            eligibility.setHeight(group.getRecipientEvent().getHeight());
+            eligibility.setBodyMassIndex(group.getRecipientEvent().getBodyMassIndex());
+            eligibility.setBodySize(group.getRecipientEvent().getBodySize());
+            eligibility.setIsLivingDonor(group.getRecipientEvent().getIsLivingDonor());
+            eligibility.setSmokingStatus(group.getRecipientEvent().getSmokingStatus());
+            eligibility.setPackYears(group.getRecipientEvent().getPackYears());
+            eligibility.setQuitSmokingDate(group.getRecipientEvent().getQuitSmokingDate());
+            eligibility.setAlcoholStatus(group.getRecipientEvent().getAlcoholStatus());
+            eligibility.setDrinksPerWeek(group.getRecipientEvent().getDrinksPerWeek());
+            eligibility.setQuitAlcoholDate(group.getRecipientEvent().getQuitAlcoholDate());
+            eligibility.setAlcoholAbstinenceMonths(group.getRecipientEvent().getAlcoholAbstinenceMonths());
             recipient.setEligibilityCriteria(eligibility);
         }
 
-        if (group.recipientEvent.getMedicalDetailsId() != null) {
+        if (group.getRecipientEvent().getMedicalDetailsId() != null) {
             RecipientMedicalDetails medicalDetails = new RecipientMedicalDetails();
-            medicalDetails.setMedicalDetailsId(group.recipientEvent.getMedicalDetailsId());
+            medicalDetails.setMedicalDetailsId(group.getRecipientEvent().getMedicalDetailsId());
             medicalDetails.setRecipient(recipient);
-            medicalDetails.setHemoglobinLevel(group.recipientEvent.getHemoglobinLevel());
-            medicalDetails.setBloodGlucoseLevel(group.recipientEvent.getBloodGlucoseLevel());
-            medicalDetails.setHasDiabetes(group.recipientEvent.getHasDiabetes());
-            medicalDetails.setBloodPressure(group.recipientEvent.getBloodPressure());
-            medicalDetails.setDiagnosis(group.recipientEvent.getDiagnosis());
-            medicalDetails.setAllergies(group.recipientEvent.getAllergies());
-            medicalDetails.setCurrentMedications(group.recipientEvent.getCurrentMedications());
-            medicalDetails.setAdditionalNotes(group.recipientEvent.getAdditionalNotes());
-            medicalDetails.setHasInfectiousDiseases(group.recipientEvent.getHasInfectiousDiseases());
-            medicalDetails.setInfectiousDiseaseDetails(group.recipientEvent.getInfectiousDiseaseDetails());
-            medicalDetails.setCreatinineLevel(group.recipientEvent.getCreatinineLevel());
-            medicalDetails.setLiverFunctionTests(group.recipientEvent.getLiverFunctionTests());
-            medicalDetails.setCardiacStatus(group.recipientEvent.getCardiacStatus());
-            medicalDetails.setPulmonaryFunction(group.recipientEvent.getPulmonaryFunction());
-            medicalDetails.setOverallHealthStatus(group.recipientEvent.getOverallHealthStatus());
+            medicalDetails.setHemoglobinLevel(group.getRecipientEvent().getHemoglobinLevel());
+            medicalDetails.setBloodGlucoseLevel(group.getRecipientEvent().getBloodGlucoseLevel());
+            medicalDetails.setHasDiabetes(group.getRecipientEvent().getHasDiabetes());
+            medicalDetails.setBloodPressure(group.getRecipientEvent().getBloodPressure());
+            medicalDetails.setDiagnosis(group.getRecipientEvent().getDiagnosis());
+            medicalDetails.setAllergies(group.getRecipientEvent().getAllergies());
+            medicalDetails.setCurrentMedications(group.getRecipientEvent().getCurrentMedications());
+            medicalDetails.setAdditionalNotes(group.getRecipientEvent().getAdditionalNotes());
+            medicalDetails.setHasInfectiousDiseases(group.getRecipientEvent().getHasInfectiousDiseases());
+            medicalDetails.setInfectiousDiseaseDetails(group.getRecipientEvent().getInfectiousDiseaseDetails());
+            medicalDetails.setCreatinineLevel(group.getRecipientEvent().getCreatinineLevel());
+            medicalDetails.setLiverFunctionTests(group.getRecipientEvent().getLiverFunctionTests());
+            medicalDetails.setCardiacStatus(group.getRecipientEvent().getCardiacStatus());
+            medicalDetails.setPulmonaryFunction(group.getRecipientEvent().getPulmonaryFunction());
+            medicalDetails.setOverallHealthStatus(group.getRecipientEvent().getOverallHealthStatus());
             recipient.setMedicalDetails(medicalDetails);
         }
 
@@ -397,64 +380,65 @@ public class MatchingEventHandlerService {
         System.out.println("Saved recipient snapshot: " + savedRecipient.getRecipientId() + " with BP: " + savedRecipient.getMedicalDetails().getBloodPressure());
 
         RecipientLocation location = new RecipientLocation();
-        location.setLocationId(group.locationEvent.getLocationId());
+        location.setLocationId(group.getLocationEvent().getLocationId());
         location.setRecipient(savedRecipient);
-        location.setAddressLine(group.locationEvent.getAddressLine());
-        location.setLandmark(group.locationEvent.getLandmark());
-        location.setArea(group.locationEvent.getArea());
-        location.setCity(group.locationEvent.getCity());
-        location.setDistrict(group.locationEvent.getDistrict());
-        location.setState(group.locationEvent.getState());
-        location.setCountry(group.locationEvent.getCountry());
-        location.setPincode(group.locationEvent.getPincode());
-        location.setLatitude(group.locationEvent.getLatitude());
-        location.setLongitude(group.locationEvent.getLongitude());
+        location.setAddressLine(group.getLocationEvent().getAddressLine());
+        location.setLandmark(group.getLocationEvent().getLandmark());
+        location.setArea(group.getLocationEvent().getArea());
+        location.setCity(group.getLocationEvent().getCity());
+        location.setDistrict(group.getLocationEvent().getDistrict());
+        location.setState(group.getLocationEvent().getState());
+        location.setCountry(group.getLocationEvent().getCountry());
+        location.setPincode(group.getLocationEvent().getPincode());
+        location.setLatitude(group.getLocationEvent().getLatitude());
+        location.setLongitude(group.getLocationEvent().getLongitude());
         location.setEventTimestamp(LocalDateTime.now());
         RecipientLocation savedLocation = recipientLocationRepository.save(location);
         System.out.println("Saved recipient location: " + savedLocation.getLocationId());
 
         ReceiveRequest request = new ReceiveRequest();
-        request.setReceiveRequestId(group.receiveRequestEvent.getReceiveRequestId());
+        request.setReceiveRequestId(group.getReceiveRequestEvent().getReceiveRequestId());
         request.setRecipient(savedRecipient);
         request.setRecipientId(savedRecipient.getRecipientId());
         request.setUserId(savedRecipient.getUserId());
-        request.setRequestType(group.receiveRequestEvent.getRequestType());
-        request.setRequestedBloodType(group.receiveRequestEvent.getRequestedBloodType());
-        request.setRequestedOrgan(group.receiveRequestEvent.getRequestedOrgan());
-        request.setRequestedTissue(group.receiveRequestEvent.getRequestedTissue());
-        request.setRequestedStemCellType(group.receiveRequestEvent.getRequestedStemCellType());
-        request.setUrgencyLevel(group.receiveRequestEvent.getUrgencyLevel());
-        request.setQuantity(group.receiveRequestEvent.getQuantity());
-        request.setRequestDate(group.receiveRequestEvent.getRequestDate());
-        request.setStatus(group.receiveRequestEvent.getStatus());
-        request.setNotes(group.receiveRequestEvent.getNotes());
+        request.setRequestType(group.getReceiveRequestEvent().getRequestType());
+        request.setRequestedBloodType(group.getReceiveRequestEvent().getRequestedBloodType());
+        request.setRequestedOrgan(group.getReceiveRequestEvent().getRequestedOrgan());
+        request.setRequestedTissue(group.getReceiveRequestEvent().getRequestedTissue());
+        request.setRequestedStemCellType(group.getReceiveRequestEvent().getRequestedStemCellType());
+        request.setUrgencyLevel(group.getReceiveRequestEvent().getUrgencyLevel());
+        request.setQuantity(group.getReceiveRequestEvent().getQuantity());
+        request.setRequestDate(group.getReceiveRequestEvent().getRequestDate());
+        request.setStatus(group.getReceiveRequestEvent().getStatus());
+        request.setNotes(group.getReceiveRequestEvent().getNotes());
         request.setEventTimestamp(LocalDateTime.now());
         request.setLocation(savedLocation);
         ReceiveRequest savedRequest = receiveRequestRepository.save(request);
+        afterCommit(() -> locationIndex.putRequest(savedRequest.getReceiveRequestId(), savedLocation));
         System.out.println("Saved receive request: " + savedRequest.getReceiveRequestId() + " linked to recipient with BP: " + savedRecipient.getMedicalDetails().getBloodPressure());
 
-        if (group.hlaEventReceived && group.hlaEvent != null) {
+        if (group.getHlaEvent() != null) {
         RecipientHLAProfile hlaProfile = new RecipientHLAProfile();
-        hlaProfile.setId(group.hlaEvent.getId());
+        hlaProfile.setId(group.getHlaEvent().getId());
         hlaProfile.setRecipient(savedRecipient);
-        hlaProfile.setHlaA1(group.hlaEvent.getHlaA1());
-        hlaProfile.setHlaA2(group.hlaEvent.getHlaA2());
-        hlaProfile.setHlaB1(group.hlaEvent.getHlaB1());
-        hlaProfile.setHlaB2(group.hlaEvent.getHlaB2());
-        hlaProfile.setHlaC1(group.hlaEvent.getHlaC1());
-        hlaProfile.setHlaC2(group.hlaEvent.getHlaC2());
-        hlaProfile.setHlaDR1(group.hlaEvent.getHlaDR1());
-        hlaProfile.setHlaDR2(group.hlaEvent.getHlaDR2());
-        hlaProfile.setHlaDQ1(group.hlaEvent.getHlaDQ1());
-        hlaProfile.setHlaDQ2(group.hlaEvent.getHlaDQ2());
-        hlaProfile.setHlaDP1(group.hlaEvent.getHlaDP1());
-        hlaProfile.setHlaDP2(group.hlaEvent.getHlaDP2());
-        hlaProfile.setTestingDate(group.hlaEvent.getTestingDate());
-        hlaProfile.setTestingMethod(group.hlaEvent.getTestingMethod());
-        hlaProfile.setLaboratoryName(group.hlaEvent.getLaboratoryName());
-        hlaProfile.setCertificationNumber(group.hlaEvent.getCertificationNumber());
-        hlaProfile.setHlaString(group.hlaEvent.getHlaString());
-        hlaProfile.setIsHighResolution(group.hlaEvent.getIsHighResolution());
+        hlaProfile.setHlaA1(group.getHlaEvent().getHlaA1());
+        hlaProfile.setHlaA2(group.getHlaEvent().getHlaA2());
+        hlaProfile.setHlaB1(group.getHlaEvent().getHlaB1());
+        hlaProfile.setHlaB2(group.getHlaEvent().getHlaB2());
+        hlaProfile.setHlaC1(group.getHlaEvent().getHlaC1());
+        hlaProfile.setHlaC2(group.getHlaEvent().getHlaC2());
+        hlaProfile.setHlaDR1(group.getHlaEvent().getHlaDR1());
+        hlaProfile.setHlaDR2(group.getHlaEvent().getHlaDR2());
+        hlaProfile.setHlaDQ1(group.getHlaEvent().getHlaDQ1());
+        hlaProfile.setHlaDQ2(group.getHlaEvent().getHlaDQ2());
+        hlaProfile.setHlaDP1(group.getHlaEvent().getHlaDP1());
+        hlaProfile.setHlaDP2(group.getHlaEvent().getHlaDP2());
+        hlaProfile.setTestingDate(group.getHlaEvent().getTestingDate());
+        hlaProfile.setTestingMethod(group.getHlaEvent().getTestingMethod());
+        hlaProfile.setLaboratoryName(group.getHlaEvent().getLaboratoryName());
+        hlaProfile.setCertificationNumber(group.getHlaEvent().getCertificationNumber());
+        hlaProfile.setHlaString(group.getHlaEvent().getHlaString());
+        hlaProfile.setIsHighResolution(group.getHlaEvent().getIsHighResolution());
         hlaProfile.setEventTimestamp(LocalDateTime.now());
         recipientHLAProfileRepository.save(hlaProfile);
         System.out.println("Saved HLA profile: " + hlaProfile.getId());
@@ -462,10 +446,9 @@ public class MatchingEventHandlerService {
             System.out.println("No HLA profile event received (blood request or not provided)");
         }
 
-        group.processed = true;
-        recipientEventGroups.remove(recipientId);
-
         System.out.println("✅ Complete recipient group processed successfully for request: " + savedRequest.getReceiveRequestId());
+        scoreCache.invalidateRecipients(List.of(savedRecipient.getRecipientId()));
+        matchingTrigger.requestReady(savedRequest.getReceiveRequestId());
     }
 
     private Donation createDonationByType(DonationEvent event) {
@@ -505,198 +488,84 @@ public class MatchingEventHandlerService {
         };
     }
 
-    private static class DonorEventGroup {
-        DonorEvent donorEvent;
-        DonationEvent donationEvent;
-        DonorLocationEvent locationEvent;
-        DonorHLAProfileEvent hlaEvent;
-
-        boolean donorEventReceived = false;
-        boolean donationEventReceived = false;
-        boolean locationEventReceived = false;
-        boolean hlaEventReceived = false;
-        boolean processed = false;
-
-        boolean isComplete() {
-            if (!donorEventReceived || !donationEventReceived || !locationEventReceived) {
-                return false;
-            }
-
-            if (donationEvent != null && donationEvent.getDonationType() == DonationType.BLOOD) {
-                return true;
-            }
-
-            return hlaEventReceived;
-        }
-
-        String getStatus() {
-            String hlaRequired = (donationEvent != null && donationEvent.getDonationType() == DonationType.BLOOD)
-                    ? "(optional)" : "(required)";
-            return String.format("Donor:%s Donation:%s Location:%s HLA:%s%s",
-                    donorEventReceived, donationEventReceived, locationEventReceived,
-                    hlaEventReceived, hlaRequired);
+    /**
+     * Runs {@code action} once the current transaction has committed, so the in-memory indexes
+     * never hold a row that was rolled back. Runs it right away outside a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
-    }
-
-
-    private static class RecipientEventGroup {
-        RecipientEvent recipientEvent;
-        ReceiveRequestEvent receiveRequestEvent;
-        RecipientLocationEvent locationEvent;
-        RecipientHLAProfileEvent hlaEvent;
-
-        boolean recipientEventReceived = false;
-        boolean receiveRequestEventReceived = false;
-        boolean locationEventReceived = false;
-        boolean hlaEventReceived = false;
-        boolean processed = false;
-
-        boolean isComplete() {
-            if (!recipientEventReceived || !receiveRequestEventReceived || !locationEventReceived) {
-                return false;
-            }
-            if (receiveRequestEvent != null && receiveRequestEvent.getRequestType() == RequestType.BLOOD) {
-                return true;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
             }
-            return hlaEventReceived;
-        }
-
-        String getStatus() {
-            String hlaRequired = (receiveRequestEvent != null && receiveRequestEvent.getRequestType() == RequestType.BLOOD)
-                    ? "(optional)" : "(required)";
-            return String.format("Recipient:%s Request:%s Location:%s HLA:%s%s",
-                    recipientEventReceived, receiveRequestEventReceived, locationEventReceived,
-                    hlaEventReceived, hlaRequired);
-        }
+        });
     }
 
+    /**
+     * Applies a batch of donation cancellations in one transaction: one set-based status
+     * UPDATE for all donations and one match-expiry UPDATE per cancelled donation.
+     */
     @Transactional
-    public void handleDonationCancelledEvent(DonationCancelledEvent event) {
-        System.out.println("========================================");
-        System.out.println("Processing Donation Cancellation");
-        System.out.println("Donation ID: " + event.getDonationId());
-        System.out.println("Donor User ID: " + event.getDonorUserId());
-        System.out.println("Reason: " + event.getCancellationReason());
-        System.out.println("========================================");
-
-        try {
-            donationRepository.findById(event.getDonationId())
-                    .ifPresent(donation -> {
-                        donation.setStatus(DonationStatus.CANCELLED_BY_DONOR);
-                        donationRepository.save(donation);
-                        System.out.println("✓ Updated donation " + donation.getDonationId() +
-                                " status to CANCELLED_BY_DONOR in matching-service");
-                    });
-
-            List<MatchStatus> activeStatuses = Arrays.asList(
-                    MatchStatus.PENDING,
-                    MatchStatus.DONOR_CONFIRMED,
-                    MatchStatus.RECIPIENT_CONFIRMED
-            );
-
-            List<MatchResult> activeMatches = matchResultRepository
-                    .findByDonationIdAndStatusIn(event.getDonationId(), activeStatuses);
-
-            if (activeMatches.isEmpty()) {
-                System.out.println("No active matches found for donation " + event.getDonationId());
-                return;
-            }
+    public void handleDonationCancelledEvents(List<DonationCancelledEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        System.out.println("Processing " + events.size() + " donation cancellations");
 
-            System.out.println("Found " + activeMatches.size() + " active matches to expire");
-
-            int expiredCount = 0;
-            for (MatchResult match : activeMatches) {
-                try {
-                    match.setStatus(MatchStatus.CANCELLED_BY_DONOR);
-                    match.setExpiryReason("DONATION_CANCELLED_BY_DONOR: " +
-                            event.getCancellationReason());
-                    match.setExpiredAt(LocalDateTime.now());
-                    matchResultRepository.save(match);
-                    expiredCount++;
-                    System.out.println("Expired match " + match.getId() +
-                            " | Donation: " + match.getDonationId() +
-                            " - Request: " + match.getReceiveRequestId());
-                } catch (Exception e) {
-                    System.err.println("Failed to expire match " + match.getId() +
-                            ": " + e.getMessage());
-                }
-            }
+        Set<UUID> donationIds = new LinkedHashSet<>();
+        events.forEach(event -> donationIds.add(event.getDonationId()));
 
-            System.out.println("Successfully expired " + expiredCount + " out of " +
-                    activeMatches.size() + " matches for donation " +
-                    event.getDonationId());
-            System.out.println("========================================");
+        int cancelledDonations = donationRepository.updateStatusByDonationIdIn(
+                donationIds, DonationStatus.CANCELLED_BY_DONOR, LocalDateTime.now());
 
-        } catch (Exception e) {
-            System.err.println("Error handling donation cancellation event: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+        int expiredMatches = 0;
+        for (DonationCancelledEvent event : events) {
+            expiredMatches += matchResultRepository.expireMatchesForCancelledDonation(
+                    event.getDonationId(),
+                    "DONATION_CANCELLED_BY_DONOR: " + event.getCancellationReason());
         }
+        afterCommit(() -> {
+            topCandidateStore.donationsClosed(donationIds);
+            locationIndex.donationsClosed(donationIds);
+        });
+
+        System.out.println("✓ Marked " + cancelledDonations + " donations CANCELLED_BY_DONOR and expired " +
+                expiredMatches + " active matches");
     }
 
+    /**
+     * Applies a batch of request cancellations in one transaction: one set-based status
+     * UPDATE for all requests and one match-expiry UPDATE per cancelled request.
+     */
     @Transactional
-    public void handleRequestCancelledEvent(RequestCancelledEvent event) {
-        System.out.println("========================================");
-        System.out.println("Processing Request Cancellation");
-        System.out.println("Request ID: " + event.getRequestId());
-        System.out.println("Recipient User ID: " + event.getRecipientUserId());
-        System.out.println("Reason: " + event.getCancellationReason());
-        System.out.println("========================================");
-
-        try {
-            receiveRequestRepository.findById(event.getRequestId())
-                    .ifPresent(request -> {
-                        request.setStatus(RequestStatus.CANCELLED_BY_RECIPIENT);
-                        receiveRequestRepository.save(request);
-                        System.out.println("✓ Updated request " + request.getReceiveRequestId() +
-                                " status to CANCELLED_BY_RECIPIENT in matching-service");
-                    });
-
-            List<MatchStatus> activeStatuses = Arrays.asList(
-                    MatchStatus.PENDING,
-                    MatchStatus.DONOR_CONFIRMED,
-                    MatchStatus.RECIPIENT_CONFIRMED
-            );
-
-            List<MatchResult> activeMatches = matchResultRepository
-                    .findByReceiveRequestIdAndStatusIn(event.getRequestId(), activeStatuses);
-
-            if (activeMatches.isEmpty()) {
-                System.out.println("No active matches found for request " + event.getRequestId());
-                return;
-            }
+    public void handleRequestCancelledEvents(List<RequestCancelledEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        System.out.println("Processing " + events.size() + " request cancellations");
 
-            System.out.println("Found " + activeMatches.size() + " active matches to expire");
-
-            int expiredCount = 0;
-            for (MatchResult match : activeMatches) {
-                try {
-                    match.setStatus(MatchStatus.CANCELLED_BY_RECIPIENT);
-                    match.setExpiryReason("REQUEST_CANCELLED_BY_RECIPIENT: " +
-                            event.getCancellationReason());
-                    match.setExpiredAt(LocalDateTime.now());
-                    matchResultRepository.save(match);
-                    expiredCount++;
-                    System.out.println("Expired match " + match.getId() +
-                            " | Donation: " + match.getDonationId() +
-                            " - Request: " + match.getReceiveRequestId());
-                } catch (Exception e) {
-                    System.err.println("Failed to expire match " + match.getId() +
-                            ": " + e.getMessage());
-                }
-            }
+        Set<UUID> requestIds = new LinkedHashSet<>();
+        events.forEach(event -> requestIds.add(event.getRequestId()));
 
-            System.out.println("Successfully expired " + expiredCount + " out of " +
-                    activeMatches.size() + " matches for request " +
-                    event.getRequestId());
-            System.out.println("========================================");
+        int cancelledRequests = receiveRequestRepository.updateStatusByReceiveRequestIdIn(
+                requestIds, RequestStatus.CANCELLED_BY_RECIPIENT, LocalDateTime.now());
 
-        } catch (Exception e) {
-            System.err.println("Error handling request cancellation event: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+        int expiredMatches = 0;
+        for (RequestCancelledEvent event : events) {
+            expiredMatches += matchResultRepository.expireMatchesForCancelledRequest(
+                    event.getRequestId(),
+                    "REQUEST_CANCELLED_BY_RECIPIENT: " + event.getCancellationReason());
         }
-    }
-
+        afterCommit(() -> {
+            topCandidateStore.requestsClosed(requestIds);
+            locationIndex.requestsClosed(requestIds);
+        });
 
+        System.out.println("✓ Marked " + cancelledRequests + " requests CANCELLED_BY_RECIPIENT and expired " +
+                expiredMatches + " active matches");
+    }
 }
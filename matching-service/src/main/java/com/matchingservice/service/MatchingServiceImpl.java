@@ -1,7 +1,5 @@
 package com.matchingservice.service;
 
-import com.matchingservice.client.DonorServiceClient;
-import com.matchingservice.client.RecipientServiceClient;
 import com.matchingservice.dto.*;
 import com.matchingservice.enums.*;
 import com.matchingservice.exceptions.ResourceNotFoundException;
@@ -11,10 +9,19 @@ import com.matchingservice.model.recipients.*;
 import com.matchingservice.repository.*;
 import com.matchingservice.repository.donor.*;
 import com.matchingservice.repository.recipient.*;
+import com.matchingservice.service.candidate.BloodTypeCompatibility;
+import com.matchingservice.service.candidate.DistrictDistanceTable;
+import com.matchingservice.service.candidate.KnownPairIndex;
+import com.matchingservice.service.candidate.LocationIndex;
+import com.matchingservice.service.scoring.GeoDistance;
+import com.matchingservice.service.statussync.StatusSyncOutbox;
+import com.matchingservice.service.topcandidates.TopCandidateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -35,8 +42,11 @@ public class MatchingServiceImpl implements MatchingService {
     private final DonorHLAProfileRepository donorHLAProfileRepository;
     private final RecipientHLAProfileRepository recipientHLAProfileRepository;
 
-    private final DonorServiceClient donorServiceClient;
-    private final RecipientServiceClient recipientServiceClient;
+    private final StatusSyncOutbox statusSyncOutbox;
+    private final KnownPairIndex knownPairIndex;
+    private final TopCandidateStore topCandidateStore;
+    private final LocationIndex locationIndex;
+    private final DistrictDistanceTable districtDistanceTable;
     private final com.matchingservice.kafka.EventPublisher eventPublisher;
 
     @Override
@@ -492,11 +502,11 @@ public class MatchingServiceImpl implements MatchingService {
             donationRepository.save(donation);
         });
 
-        try {
-            donorServiceClient.updateDonationStatus(donationId, newStatus);
-        } catch (Exception e) {
-            log.error("Failed to sync with donor-service: {}", e.getMessage());
-        }
+        statusSyncOutbox.donationStatusChanged(donationId, newStatus);
+        afterCommit(() -> {
+            topCandidateStore.donationStatusChanged(donationId, newStatus);
+            locationIndex.donationStatusChanged(donationId, newStatus);
+        });
     }
 
     private void updateRequestStatus(UUID requestId, RequestStatus newStatus) {
@@ -510,11 +520,28 @@ public class MatchingServiceImpl implements MatchingService {
             receiveRequestRepository.save(request);
         });
 
-        try {
-            recipientServiceClient.updateRequestStatus(requestId, newStatus);
-        } catch (Exception e) {
-            log.error("Failed to sync with recipient-service: {}", e.getMessage());
-        }
+        statusSyncOutbox.requestStatusChanged(requestId, newStatus);
+        afterCommit(() -> {
+            topCandidateStore.requestStatusChanged(requestId, newStatus);
+            locationIndex.requestStatusChanged(requestId, newStatus);
+        });
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has committed, so the in-memory indexes
+     * only see status changes that were stored. Runs it right away outside a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private void expireOtherMatchesForConfirmedMatch(MatchResult confirmedMatch) {
@@ -810,6 +837,7 @@ public class MatchingServiceImpl implements MatchingService {
 
             MatchResult matchResult = createMatchResult(donation, receiveRequest);
             MatchResult savedMatchResult = matchResultRepository.save(matchResult);
+            knownPairIndex.add(List.of(new MatchPair(savedMatchResult.getDonationId(), savedMatchResult.getReceiveRequestId())));
 
             updateDonationStatus(donation.getDonationId(), DonationStatus.MATCHED);
             updateRequestStatus(receiveRequest.getReceiveRequestId(), RequestStatus.MATCHED);
@@ -855,14 +883,22 @@ public class MatchingServiceImpl implements MatchingService {
         match.setDonorLocationId(donation.getLocation() != null ? donation.getLocation().getLocationId() : null);
         match.setRecipientLocationId(request.getLocation() != null ? request.getLocation().getLocationId() : null);
 
-        if (donation.getLocation() != null && request.getLocation() != null) {
-            double distance = calculateDistance(
-                    donation.getLocation().getLatitude(),
-                    donation.getLocation().getLongitude(),
-                    request.getLocation().getLatitude(),
-                    request.getLocation().getLongitude()
-            );
-            match.setDistance(distance);
+        DonorLocation donorLocation = donation.getLocation();
+        RecipientLocation recipientLocation = request.getLocation();
+        if (donorLocation != null && recipientLocation != null) {
+            if (donorLocation.getLatitude() != null && donorLocation.getLongitude() != null
+                    && recipientLocation.getLatitude() != null && recipientLocation.getLongitude() != null) {
+                match.setDistance(GeoDistance.haversineKm(
+                        donorLocation.getLatitude(), donorLocation.getLongitude(),
+                        recipientLocation.getLatitude(), recipientLocation.getLongitude()));
+            } else {
+                match.setDistance(0.0);
+            }
+            match.setTravelBand(districtDistanceTable.band(
+                    donorLocation.getState(), donorLocation.getDistrict(),
+                    donorLocation.getLatitude(), donorLocation.getLongitude(),
+                    recipientLocation.getState(), recipientLocation.getDistrict(),
+                    recipientLocation.getLatitude(), recipientLocation.getLongitude()));
         }
 
         match.setStatus(MatchStatus.PENDING);
@@ -889,6 +925,7 @@ public class MatchingServiceImpl implements MatchingService {
                 .matchedAt(match.getMatchedAt())
                 .status(match.getStatus().name())
                 .distance(match.getDistance())
+                .travelBand(match.getTravelBand())
                 .build();
 
         return ManualMatchResponse.builder()
@@ -913,20 +950,6 @@ public class MatchingServiceImpl implements MatchingService {
                 .build();
     }
 
-    private double calculateDistance(Double lat1, Double lon1, Double lat2, Double lon2) {
-        if (lat1 == null || lon1 == null || lat2 == null || lon2 == null) {
-            return 0.0;
-        }
-        final double R = 6371;
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
-    }
-
 
     private String validateCompatibility(Donation donation, ReceiveRequest request) {
         if (donation.getUserId().equals(request.getUserId())) {
@@ -946,8 +969,8 @@ public class MatchingServiceImpl implements MatchingService {
         }
 
         if (donation.getBloodType() != null && request.getRequestedBloodType() != null) {
-            if (!donation.getBloodType().equals(request.getRequestedBloodType())) {
-                return "Blood type mismatch: Donation is " + donation.getBloodType() + ", Request needs " + request.getRequestedBloodType();
+            if (!BloodTypeCompatibility.canDonate(donation.getBloodType(), request.getRequestedBloodType())) {
+                return "Blood type incompatible: Donation is " + donation.getBloodType() + ", Request needs " + request.getRequestedBloodType();
             }
         }
 
@@ -0,0 +1,48 @@
+package com.matchingservice.service.assembly;
+
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.kafka.event.donor_events.*;
+import lombok.Getter;
+
+/**
+ * The events received so far for one donor registration. HLA is only required for
+ * non-blood donations.
+ */
+@Getter
+public class DonorEventGroup {
+
+    private DonorEvent donorEvent;
+    private DonationEvent donationEvent;
+    private DonorLocationEvent locationEvent;
+    private DonorHLAProfileEvent hlaEvent;
+
+    void set(Object event) {
+        switch (event) {
+            case DonorEvent e -> donorEvent = e;
+            case DonationEvent e -> donationEvent = e;
+            case DonorLocationEvent e -> locationEvent = e;
+            case DonorHLAProfileEvent e -> hlaEvent = e;
+            default -> throw new IllegalArgumentException("Not a donor group event: " + event.getClass().getName());
+        }
+    }
+
+    public boolean isComplete() {
+        if (donorEvent == null || donationEvent == null || locationEvent == null) {
+            return false;
+        }
+
+        if (donationEvent.getDonationType() == DonationType.BLOOD) {
+            return true;
+        }
+
+        return hlaEvent != null;
+    }
+
+    public String getStatus() {
+        String hlaRequired = (donationEvent != null && donationEvent.getDonationType() == DonationType.BLOOD)
+                ? "(optional)" : "(required)";
+        return String.format("Donor:%s Donation:%s Location:%s HLA:%s%s",
+                donorEvent != null, donationEvent != null, locationEvent != null,
+                hlaEvent != null, hlaRequired);
+    }
+}
@@ -0,0 +1,222 @@
+package com.matchingservice.service.assembly;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.matchingservice.enums.EventGroupType;
+import com.matchingservice.kafka.event.donor_events.*;
+import com.matchingservice.kafka.event.recipient_events.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Joins the 3–4 Kafka events of a donor/recipient registration on top of an
+ * {@link EventGroupStore}. Groups that do not complete within
+ * {@code matching.event-assembly.ttl-minutes} are expired, and at most
+ * {@code matching.event-assembly.max-pending-groups} incomplete groups are kept per type,
+ * evicting the oldest first. A group is only expired or evicted while holding its
+ * {@link EventGroupLocks} stripe; a group whose stripe is busy is being handled and is left for
+ * the next sweep or append.
+ */
+@Component
+@Slf4j
+public class EventGroupAssembler {
+
+    private static final Map<String, Class<?>> DONOR_PARTS = partsOf(
+            DonorEvent.class, DonationEvent.class, DonorLocationEvent.class, DonorHLAProfileEvent.class);
+
+    private static final Map<String, Class<?>> RECIPIENT_PARTS = partsOf(
+            RecipientEvent.class, ReceiveRequestEvent.class, RecipientLocationEvent.class, RecipientHLAProfileEvent.class);
+
+    private final EventGroupStore eventGroupStore;
+    private final EventGroupLocks eventGroupLocks;
+    private final ObjectMapper objectMapper;
+
+    private final Map<EventGroupType, Counter> completedCounters = new EnumMap<>(EventGroupType.class);
+    private final Map<EventGroupType, Counter> expiredCounters = new EnumMap<>(EventGroupType.class);
+    private final Map<EventGroupType, Counter> evictedCounters = new EnumMap<>(EventGroupType.class);
+
+    @Value("${matching.event-assembly.ttl-minutes:360}")
+    private long ttlMinutes;
+
+    @Value("${matching.event-assembly.max-pending-groups:10000}")
+    private int maxPendingGroups;
+
+    public EventGroupAssembler(EventGroupStore eventGroupStore, EventGroupLocks eventGroupLocks,
+                               ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.eventGroupStore = eventGroupStore;
+        this.eventGroupLocks = eventGroupLocks;
+        this.objectMapper = objectMapper;
+        for (EventGroupType type : EventGroupType.values()) {
+            String tag = type.name().toLowerCase();
+            Gauge.builder("matching.event_groups.pending", eventGroupStore, store -> store.groupCount(type))
+                    .tag("type", tag)
+                    .register(meterRegistry);
+            completedCounters.put(type, meterRegistry.counter("matching.event_groups.completed", "type", tag));
+            expiredCounters.put(type, meterRegistry.counter("matching.event_groups.expired", "type", tag));
+            evictedCounters.put(type, meterRegistry.counter("matching.event_groups.evicted", "type", tag));
+        }
+    }
+
+    /**
+     * Adds a batch of donor-side events, keyed by donor id in arrival order.
+     *
+     * @return the current state of every touched group
+     */
+    public Map<UUID, DonorEventGroup> addDonorEvents(Map<UUID, List<Object>> eventsByDonor) {
+        Map<UUID, DonorEventGroup> groups = new LinkedHashMap<>();
+        appendAll(EventGroupType.DONOR, eventsByDonor, DONOR_PARTS).forEach((donorId, events) -> {
+            DonorEventGroup group = new DonorEventGroup();
+            events.forEach(group::set);
+            groups.put(donorId, group);
+        });
+        return groups;
+    }
+
+    /**
+     * Adds a batch of recipient-side events, keyed by recipient id in arrival order.
+     *
+     * @return the current state of every touched group
+     */
+    public Map<UUID, RecipientEventGroup> addRecipientEvents(Map<UUID, List<Object>> eventsByRecipient) {
+        Map<UUID, RecipientEventGroup> groups = new LinkedHashMap<>();
+        appendAll(EventGroupType.RECIPIENT, eventsByRecipient, RECIPIENT_PARTS).forEach((recipientId, events) -> {
+            RecipientEventGroup group = new RecipientEventGroup();
+            events.forEach(group::set);
+            groups.put(recipientId, group);
+        });
+        return groups;
+    }
+
+    public void completeDonorGroups(Collection<UUID> donorIds) {
+        complete(EventGroupType.DONOR, donorIds);
+    }
+
+    public void completeRecipientGroups(Collection<UUID> recipientIds) {
+        complete(EventGroupType.RECIPIENT, recipientIds);
+    }
+
+    @Scheduled(fixedDelayString = "${matching.event-assembly.sweep-interval-ms:60000}")
+    public void expireStaleGroups() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+        for (EventGroupType type : EventGroupType.values()) {
+            List<UUID> expired = removeUnlocked(type, eventGroupStore.findStartedBefore(type, cutoff));
+            if (!expired.isEmpty()) {
+                expiredCounters.get(type).increment(expired.size());
+                log.warn("Expired {} incomplete {} event groups older than {} minutes: {}",
+                        expired.size(), type, ttlMinutes, expired);
+            }
+        }
+    }
+
+    private Map<UUID, List<Object>> appendAll(EventGroupType type,
+                                              Map<UUID, List<Object>> eventsByOwner,
+                                              Map<String, Class<?>> partTypes) {
+        List<EventGroupStore.GroupPart> parts = new ArrayList<>();
+        Map<UUID, Map<String, Object>> latestByOwner = new HashMap<>();
+        eventsByOwner.forEach((ownerId, events) -> {
+            for (Object event : events) {
+                String part = event.getClass().getSimpleName();
+                parts.add(new EventGroupStore.GroupPart(ownerId, part, write(event)));
+                latestByOwner.computeIfAbsent(ownerId, k -> new HashMap<>()).put(part, event);
+            }
+        });
+
+        Map<UUID, Map<String, String>> stored = eventGroupStore.appendAll(type, parts);
+
+        boolean newGroups = false;
+        Map<UUID, List<Object>> result = new LinkedHashMap<>();
+        for (UUID ownerId : eventsByOwner.keySet()) {
+            Map<String, String> ownerParts = stored.getOrDefault(ownerId, Map.of());
+            Map<String, Object> received = latestByOwner.getOrDefault(ownerId, Map.of());
+            newGroups |= ownerParts.size() == received.size();
+
+            List<Object> events = new ArrayList<>(ownerParts.size());
+            ownerParts.forEach((name, payload) -> {
+                Class<?> partType = partTypes.get(name);
+                if (partType == null) {
+                    log.warn("Ignoring unknown {} event group part {} for {}", type, name, ownerId);
+                    return;
+                }
+                Object event = received.get(name);
+                events.add(event != null ? event : read(payload, partType));
+            });
+            result.put(ownerId, events);
+        }
+
+        if (newGroups) {
+            enforceBound(type);
+        }
+        return result;
+    }
+
+    private void complete(EventGroupType type, Collection<UUID> ownerIds) {
+        if (ownerIds.isEmpty()) {
+            return;
+        }
+        eventGroupStore.removeAll(type, ownerIds);
+        completedCounters.get(type).increment(ownerIds.size());
+    }
+
+    private void enforceBound(EventGroupType type) {
+        long excess = eventGroupStore.groupCount(type) - maxPendingGroups;
+        if (excess <= 0) {
+            return;
+        }
+        List<UUID> evicted = removeUnlocked(type, eventGroupStore.findOldest(type, (int) excess));
+        if (evicted.isEmpty()) {
+            return;
+        }
+        evictedCounters.get(type).increment(evicted.size());
+        log.warn("{} event group store over {} pending groups, evicted oldest: {}", type, maxPendingGroups, evicted);
+    }
+
+    /**
+     * Removes the groups of {@code ownerIds} whose stripe this thread can take without waiting.
+     * The caller may already hold the stripes of the batch it is appending.
+     *
+     * @return owner ids of the removed groups
+     */
+    private List<UUID> removeUnlocked(EventGroupType type, List<UUID> ownerIds) {
+        List<UUID> removed = new ArrayList<>();
+        if (ownerIds.isEmpty()) {
+            return removed;
+        }
+        eventGroupLocks.tryRunLocked(type, ownerIds, free -> {
+            eventGroupStore.removeAll(type, free);
+            removed.addAll(free);
+        });
+        return removed;
+    }
+
+    private String write(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event.getClass().getSimpleName(), e);
+        }
+    }
+
+    private Object read(String payload, Class<?> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot deserialize stored " + type.getSimpleName(), e);
+        }
+    }
+
+    private static Map<String, Class<?>> partsOf(Class<?>... types) {
+        Map<String, Class<?>> parts = new HashMap<>();
+        for (Class<?> type : types) {
+            parts.put(type.getSimpleName(), type);
+        }
+        return Map.copyOf(parts);
+    }
+}
@@ -0,0 +1,116 @@
+package com.matchingservice.service.assembly;
+
+import com.matchingservice.enums.EventGroupType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Serializes event handling per donor/recipient with a fixed pool of lock stripes per
+ * {@link EventGroupType}, so memory stays constant no matter how many owners have been seen.
+ * Two owners that hash to the same stripe are serialized too, which is harmless.
+ * <p>
+ * Callers must open their transaction inside {@link #runLocked} so that it has committed
+ * before the stripe is released.
+ */
+@Component
+public class EventGroupLocks {
+
+    private final Map<EventGroupType, ReentrantLock[]> stripes = new EnumMap<>(EventGroupType.class);
+    private final Map<EventGroupType, Counter> contendedCounters = new EnumMap<>(EventGroupType.class);
+    private final Map<EventGroupType, Timer> waitTimers = new EnumMap<>(EventGroupType.class);
+    private final int mask;
+
+    public EventGroupLocks(@Value("${matching.event-locks.stripes:1024}") int stripeCount,
+                           MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.mask = size - 1;
+
+        for (EventGroupType type : EventGroupType.values()) {
+            ReentrantLock[] locks = new ReentrantLock[size];
+            for (int i = 0; i < size; i++) {
+                locks[i] = new ReentrantLock();
+            }
+            stripes.put(type, locks);
+
+            String tag = type.name().toLowerCase();
+            contendedCounters.put(type, meterRegistry.counter("matching.event_locks.contended", "type", tag));
+            waitTimers.put(type, Timer.builder("matching.event_locks.wait")
+                    .tag("type", tag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Runs {@code action} holding the stripes of every owner in {@code ownerIds}. Stripes are
+     * always taken in ascending index order, so concurrent batches cannot deadlock.
+     */
+    public void runLocked(EventGroupType type, Collection<UUID> ownerIds, Runnable action) {
+        ReentrantLock[] pool = stripes.get(type);
+        int[] indexes = ownerIds.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+
+        int held = 0;
+        try {
+            for (int index : indexes) {
+                lock(type, pool[index]);
+                held++;
+            }
+            action.run();
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                pool[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code action} on the owners of {@code ownerIds} whose stripe is free or already held
+     * by this thread, holding those stripes. Owners whose stripe another thread holds are being
+     * handled and are left out. Never waits, so it is safe to call while holding other stripes.
+     */
+    public void tryRunLocked(EventGroupType type, Collection<UUID> ownerIds, Consumer<List<UUID>> action) {
+        ReentrantLock[] pool = stripes.get(type);
+        Map<Integer, List<UUID>> byStripe = new TreeMap<>();
+        ownerIds.forEach(ownerId -> byStripe.computeIfAbsent(stripeIndex(ownerId), k -> new ArrayList<>()).add(ownerId));
+
+        List<ReentrantLock> held = new ArrayList<>();
+        List<UUID> free = new ArrayList<>();
+        try {
+            byStripe.forEach((index, owners) -> {
+                if (pool[index].tryLock()) {
+                    held.add(pool[index]);
+                    free.addAll(owners);
+                }
+            });
+            if (!free.isEmpty()) {
+                action.accept(free);
+            }
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+    }
+
+    private void lock(EventGroupType type, ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        contendedCounters.get(type).increment();
+        long waitStart = System.nanoTime();
+        lock.lock();
+        waitTimers.get(type).record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+    }
+
+    private int stripeIndex(UUID ownerId) {
+        int h = ownerId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
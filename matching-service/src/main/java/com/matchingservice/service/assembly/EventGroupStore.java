@@ -0,0 +1,41 @@
+package com.matchingservice.service.assembly;
+
+import com.matchingservice.enums.EventGroupType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Holds the Kafka events of donor/recipient registrations until every event of a group has
+ * arrived. Each part is an event payload keyed by a part name; storing a part that already
+ * exists replaces it. Selected with {@code matching.event-assembly.store} ({@code jpa} or {@code memory}).
+ */
+public interface EventGroupStore {
+
+    /**
+     * Stores a batch of parts; a later part for the same owner and part name wins.
+     *
+     * @return every part currently stored for each touched group, including the ones just added
+     */
+    Map<UUID, Map<String, String>> appendAll(EventGroupType type, List<GroupPart> parts);
+
+    void removeAll(EventGroupType type, Collection<UUID> ownerIds);
+
+    /**
+     * Owner ids of the groups whose first part arrived before {@code cutoff}.
+     */
+    List<UUID> findStartedBefore(EventGroupType type, LocalDateTime cutoff);
+
+    /**
+     * Owner ids of up to {@code count} groups, oldest first part first.
+     */
+    List<UUID> findOldest(EventGroupType type, int count);
+
+    long groupCount(EventGroupType type);
+
+    record GroupPart(UUID ownerId, String part, String payload) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.matchingservice.service.assembly;
+
+import com.matchingservice.enums.EventGroupType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap-only store for local runs and tests. Incomplete groups are lost on restart.
+ */
+@Component
+@ConditionalOnProperty(name = "matching.event-assembly.store", havingValue = "memory")
+public class InMemoryEventGroupStore implements EventGroupStore {
+
+    private record GroupKey(EventGroupType type, UUID ownerId) {
+    }
+
+    private static class Group {
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final Map<String, String> parts = new HashMap<>();
+    }
+
+    private final ConcurrentHashMap<GroupKey, Group> groups = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<UUID, Map<String, String>> appendAll(EventGroupType type, List<GroupPart> parts) {
+        Map<UUID, Map<String, String>> result = new HashMap<>();
+        for (GroupPart part : parts) {
+            groups.compute(new GroupKey(type, part.ownerId()), (key, group) -> {
+                Group target = group != null ? group : new Group();
+                target.parts.put(part.part(), part.payload());
+                result.put(part.ownerId(), new HashMap<>(target.parts));
+                return target;
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public void removeAll(EventGroupType type, Collection<UUID> ownerIds) {
+        ownerIds.forEach(ownerId -> groups.remove(new GroupKey(type, ownerId)));
+    }
+
+    @Override
+    public List<UUID> findStartedBefore(EventGroupType type, LocalDateTime cutoff) {
+        List<UUID> owners = new ArrayList<>();
+        groups.forEach((key, group) -> {
+            if (key.type() == type && group.startedAt.isBefore(cutoff)) {
+                owners.add(key.ownerId());
+            }
+        });
+        return owners;
+    }
+
+    @Override
+    public List<UUID> findOldest(EventGroupType type, int count) {
+        return groups.entrySet().stream()
+                .filter(entry -> entry.getKey().type() == type)
+                .sorted(Comparator.comparing(entry -> entry.getValue().startedAt))
+                .limit(count)
+                .map(entry -> entry.getKey().ownerId())
+                .toList();
+    }
+
+    @Override
+    public long groupCount(EventGroupType type) {
+        return groups.keySet().stream().filter(key -> key.type() == type).count();
+    }
+}
@@ -0,0 +1,84 @@
+package com.matchingservice.service.assembly;
+
+import com.matchingservice.enums.EventGroupType;
+import com.matchingservice.model.EventGroupPart;
+import com.matchingservice.repository.EventGroupPartRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Default store. Parts live in {@code event_group_parts} and are written in the same transaction
+ * as the event handler, so incomplete groups survive restarts and rolling deploys.
+ */
+@Component
+@ConditionalOnProperty(name = "matching.event-assembly.store", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaEventGroupStore implements EventGroupStore {
+
+    private final EventGroupPartRepository eventGroupPartRepository;
+
+    @Override
+    @Transactional
+    public Map<UUID, Map<String, String>> appendAll(EventGroupType type, List<GroupPart> parts) {
+        Set<UUID> ownerIds = new HashSet<>();
+        parts.forEach(part -> ownerIds.add(part.ownerId()));
+
+        Map<UUID, Map<String, EventGroupPart>> stored = new HashMap<>();
+        for (EventGroupPart existing : eventGroupPartRepository.findByGroupTypeAndOwnerIdIn(type, ownerIds)) {
+            stored.computeIfAbsent(existing.getOwnerId(), k -> new HashMap<>()).put(existing.getPart(), existing);
+        }
+
+        List<EventGroupPart> inserts = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (GroupPart part : parts) {
+            Map<String, EventGroupPart> group = stored.computeIfAbsent(part.ownerId(), k -> new HashMap<>());
+            EventGroupPart existing = group.get(part.part());
+            if (existing != null) {
+                existing.setPayload(part.payload());
+                existing.setReceivedAt(now);
+            } else {
+                EventGroupPart created = new EventGroupPart(type, part.ownerId(), part.part(), part.payload());
+                group.put(part.part(), created);
+                inserts.add(created);
+            }
+        }
+        eventGroupPartRepository.saveAll(inserts);
+
+        Map<UUID, Map<String, String>> result = new HashMap<>();
+        for (UUID ownerId : ownerIds) {
+            Map<String, String> payloads = new HashMap<>();
+            stored.get(ownerId).forEach((name, part) -> payloads.put(name, part.getPayload()));
+            result.put(ownerId, payloads);
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public void removeAll(EventGroupType type, Collection<UUID> ownerIds) {
+        if (!ownerIds.isEmpty()) {
+            eventGroupPartRepository.deleteGroups(type, ownerIds);
+        }
+    }
+
+    @Override
+    public List<UUID> findStartedBefore(EventGroupType type, LocalDateTime cutoff) {
+        return eventGroupPartRepository.findOwnersStartedBefore(type, cutoff);
+    }
+
+    @Override
+    public List<UUID> findOldest(EventGroupType type, int count) {
+        return eventGroupPartRepository.findOldestOwners(type, PageRequest.of(0, count));
+    }
+
+    @Override
+    public long groupCount(EventGroupType type) {
+        return eventGroupPartRepository.countGroups(type);
+    }
+}
@@ -0,0 +1,46 @@
+package com.matchingservice.service.assembly;
+
+import com.matchingservice.enums.RequestType;
+import com.matchingservice.kafka.event.recipient_events.*;
+import lombok.Getter;
+
+/**
+ * The events received so far for one recipient registration. HLA is only required for
+ * non-blood requests.
+ */
+@Getter
+public class RecipientEventGroup {
+
+    private RecipientEvent recipientEvent;
+    private ReceiveRequestEvent receiveRequestEvent;
+    private RecipientLocationEvent locationEvent;
+    private RecipientHLAProfileEvent hlaEvent;
+
+    void set(Object event) {
+        switch (event) {
+            case RecipientEvent e -> recipientEvent = e;
+            case ReceiveRequestEvent e -> receiveRequestEvent = e;
+            case RecipientLocationEvent e -> locationEvent = e;
+            case RecipientHLAProfileEvent e -> hlaEvent = e;
+            default -> throw new IllegalArgumentException("Not a recipient group event: " + event.getClass().getName());
+        }
+    }
+
+    public boolean isComplete() {
+        if (recipientEvent == null || receiveRequestEvent == null || locationEvent == null) {
+            return false;
+        }
+        if (receiveRequestEvent.getRequestType() == RequestType.BLOOD) {
+            return true;
+        }
+        return hlaEvent != null;
+    }
+
+    public String getStatus() {
+        String hlaRequired = (receiveRequestEvent != null && receiveRequestEvent.getRequestType() == RequestType.BLOOD)
+                ? "(optional)" : "(required)";
+        return String.format("Recipient:%s Request:%s Location:%s HLA:%s%s",
+                recipientEvent != null, receiveRequestEvent != null, locationEvent != null,
+                hlaEvent != null, hlaRequired);
+    }
+}
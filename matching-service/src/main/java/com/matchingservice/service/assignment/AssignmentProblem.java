@@ -0,0 +1,43 @@
+package com.matchingservice.service.assignment;
+
+/**
+ * Sparse bipartite weight matrix: rows are requests, columns are donations, and only scored
+ * pairs are stored. Edges are kept in compressed-row form, so the edges of row {@code r} are
+ * {@code rowStart[r] .. rowStart[r + 1] - 1}. Every weight must be positive.
+ */
+public record AssignmentProblem(int rows, int columns, int[] rowStart, int[] edgeColumn, double[] edgeWeight) {
+
+    public AssignmentProblem {
+        if (rowStart.length != rows + 1 || edgeColumn.length != edgeWeight.length
+                || rowStart[rows] != edgeColumn.length) {
+            throw new IllegalArgumentException("Inconsistent assignment problem layout");
+        }
+    }
+
+    /**
+     * Builds the compressed-row layout from parallel edge arrays in any order.
+     */
+    public static AssignmentProblem fromEdges(int rows, int columns, int[] edgeRow, int[] edgeColumn, double[] edgeWeight) {
+        int[] rowStart = new int[rows + 1];
+        for (int row : edgeRow) {
+            rowStart[row + 1]++;
+        }
+        for (int r = 0; r < rows; r++) {
+            rowStart[r + 1] += rowStart[r];
+        }
+
+        int[] next = rowStart.clone();
+        int[] columnsByRow = new int[edgeRow.length];
+        double[] weightsByRow = new double[edgeRow.length];
+        for (int e = 0; e < edgeRow.length; e++) {
+            int slot = next[edgeRow[e]]++;
+            columnsByRow[slot] = edgeColumn[e];
+            weightsByRow[slot] = edgeWeight[e];
+        }
+        return new AssignmentProblem(rows, columns, rowStart, columnsByRow, weightsByRow);
+    }
+
+    public int edges() {
+        return edgeColumn.length;
+    }
+}
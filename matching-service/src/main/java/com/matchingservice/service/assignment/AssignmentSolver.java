@@ -0,0 +1,281 @@
+package com.matchingservice.service.assignment;
+
+import java.util.Arrays;
+
+/**
+ * One-to-one assignment of columns to rows that maximizes the total edge weight. A row may stay
+ * unassigned, so the result is a maximum-weight matching, not a perfect one.
+ * <p>
+ * {@link #optimal} is a sparse shortest-augmenting-path (Jonker-Volgenant style) solver. Each row
+ * gets a private zero-weight "unassigned" column, so a full row assignment always exists. Weights
+ * become costs {@code maxWeight - weight}, which are non-negative. Every row then needs one
+ * Dijkstra search over the edges it can reach, with column potentials kept between rows.
+ * Rows are added heaviest first. If the deadline passes, the remaining rows are completed with
+ * {@link #greedy}'s rule, and the result is marked as not exact.
+ * <p>
+ * {@link #greedy} takes edges in descending weight order whenever both ends are still free. It
+ * is at least half as good as the optimum and costs one sort.
+ */
+public final class AssignmentSolver {
+
+    /** Result: the column of each row, or {@code -1} when the row is unassigned. */
+    public record Assignment(int[] columnOfRow, boolean exact) {
+
+        public double totalWeight(AssignmentProblem problem) {
+            double total = 0.0;
+            for (int r = 0; r < problem.rows(); r++) {
+                for (int e = problem.rowStart()[r]; e < problem.rowStart()[r + 1]; e++) {
+                    if (problem.edgeColumn()[e] == columnOfRow[r]) {
+                        total += problem.edgeWeight()[e];
+                        break;
+                    }
+                }
+            }
+            return total;
+        }
+    }
+
+    private static final int DEADLINE_CHECK_INTERVAL = 32;
+
+    private AssignmentSolver() {
+    }
+
+    public static Assignment optimal(AssignmentProblem problem, long deadlineNanos) {
+        int rows = problem.rows();
+        int columns = problem.columns();
+        int[] rowStart = problem.rowStart();
+        int[] edgeColumn = problem.edgeColumn();
+        double[] edgeWeight = problem.edgeWeight();
+
+        double maxWeight = 0.0;
+        for (double weight : edgeWeight) {
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        // Columns 0..columns-1 are real, columns + r is row r's "unassigned" column.
+        int allColumns = columns + rows;
+        double[] potential = new double[allColumns];
+        int[] rowOfColumn = new int[allColumns];
+        Arrays.fill(rowOfColumn, -1);
+        int[] columnOfRow = new int[rows];
+        Arrays.fill(columnOfRow, -1);
+        double[] matchedCost = new double[rows];
+
+        double[] dist = new double[allColumns];
+        int[] predRow = new int[allColumns];
+        double[] predCost = new double[allColumns];
+        int[] reachedStamp = new int[allColumns];
+        int[] scannedStamp = new int[allColumns];
+        int[] scanned = new int[allColumns];
+        ColumnHeap heap = new ColumnHeap();
+
+        Integer[] order = rowsByHeaviestEdge(problem);
+        int stamp = 0;
+        int done = 0;
+
+        for (; done < rows; done++) {
+            if (done % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadlineNanos) {
+                break;
+            }
+            int startRow = order[done];
+            stamp++;
+            heap.clear();
+            int scannedCount = 0;
+
+            int row = startRow;
+            double base = 0.0;
+            int sink;
+            while (true) {
+                for (int e = rowStart[row]; e <= rowStart[row + 1]; e++) {
+                    int column;
+                    double cost;
+                    if (e < rowStart[row + 1]) {
+                        column = edgeColumn[e];
+                        cost = maxWeight - edgeWeight[e];
+                    } else {
+                        column = columns + row;
+                        cost = maxWeight;
+                    }
+                    if (scannedStamp[column] == stamp) {
+                        continue;
+                    }
+                    double candidate = base + cost - potential[column];
+                    if (reachedStamp[column] != stamp || candidate < dist[column]) {
+                        reachedStamp[column] = stamp;
+                        dist[column] = candidate;
+                        predRow[column] = row;
+                        predCost[column] = cost;
+                        heap.push(column, candidate);
+                    }
+                }
+
+                int column;
+                do {
+                    column = heap.pop();
+                } while (scannedStamp[column] == stamp);
+                scannedStamp[column] = stamp;
+                scanned[scannedCount++] = column;
+
+                if (rowOfColumn[column] == -1) {
+                    sink = column;
+                    break;
+                }
+                row = rowOfColumn[column];
+                base = dist[column] - (matchedCost[row] - potential[column]);
+            }
+
+            double shortest = dist[sink];
+            for (int i = 0; i < scannedCount; i++) {
+                int column = scanned[i];
+                potential[column] += dist[column] - shortest;
+            }
+
+            int column = sink;
+            while (true) {
+                int row2 = predRow[column];
+                int previous = columnOfRow[row2];
+                rowOfColumn[column] = row2;
+                columnOfRow[row2] = column;
+                matchedCost[row2] = predCost[column];
+                if (row2 == startRow) {
+                    break;
+                }
+                column = previous;
+            }
+        }
+
+        for (int r = 0; r < rows; r++) {
+            if (columnOfRow[r] >= columns) {
+                columnOfRow[r] = -1;
+            }
+        }
+
+        if (done < rows) {
+            boolean[] pending = new boolean[rows];
+            for (int i = done; i < rows; i++) {
+                pending[order[i]] = true;
+            }
+            boolean[] columnTaken = new boolean[columns];
+            for (int r = 0; r < rows; r++) {
+                if (columnOfRow[r] >= 0) {
+                    columnTaken[columnOfRow[r]] = true;
+                }
+            }
+            greedyFill(problem, pending, columnOfRow, columnTaken);
+            return new Assignment(columnOfRow, false);
+        }
+        return new Assignment(columnOfRow, true);
+    }
+
+    public static Assignment greedy(AssignmentProblem problem) {
+        int[] columnOfRow = new int[problem.rows()];
+        Arrays.fill(columnOfRow, -1);
+        boolean[] pending = new boolean[problem.rows()];
+        Arrays.fill(pending, true);
+        greedyFill(problem, pending, columnOfRow, new boolean[problem.columns()]);
+        return new Assignment(columnOfRow, true);
+    }
+
+    /**
+     * Assigns the {@code pending} rows greedily to free columns, heaviest edge first.
+     */
+    private static void greedyFill(AssignmentProblem problem, boolean[] pending, int[] columnOfRow, boolean[] columnTaken) {
+        int[] rowStart = problem.rowStart();
+        int[] edgeRow = new int[problem.edges()];
+        int count = 0;
+        long[] keys = new long[problem.edges()];
+        for (int r = 0; r < problem.rows(); r++) {
+            if (!pending[r]) {
+                continue;
+            }
+            for (int e = rowStart[r]; e < rowStart[r + 1]; e++) {
+                edgeRow[e] = r;
+                // Positive floats order like their bit patterns, so weight and edge index pack into one sortable long.
+                keys[count++] = ((long) Float.floatToIntBits((float) problem.edgeWeight()[e]) << 32) | e;
+            }
+        }
+        Arrays.sort(keys, 0, count);
+
+        for (int i = count - 1; i >= 0; i--) {
+            int e = (int) keys[i];
+            int row = edgeRow[e];
+            int column = problem.edgeColumn()[e];
+            if (columnOfRow[row] == -1 && !columnTaken[column]) {
+                columnOfRow[row] = column;
+                columnTaken[column] = true;
+            }
+        }
+    }
+
+    private static Integer[] rowsByHeaviestEdge(AssignmentProblem problem) {
+        double[] heaviest = new double[problem.rows()];
+        Integer[] order = new Integer[problem.rows()];
+        for (int r = 0; r < problem.rows(); r++) {
+            order[r] = r;
+            for (int e = problem.rowStart()[r]; e < problem.rowStart()[r + 1]; e++) {
+                heaviest[r] = Math.max(heaviest[r], problem.edgeWeight()[e]);
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(heaviest[b], heaviest[a]));
+        return order;
+    }
+
+    /**
+     * Binary min-heap of (column, distance) with lazy deletion: a column may be pushed several
+     * times and stale entries are skipped by the caller.
+     */
+    private static final class ColumnHeap {
+
+        private int[] columns = new int[64];
+        private double[] keys = new double[64];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(int column, double key) {
+            if (size == columns.length) {
+                columns = Arrays.copyOf(columns, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                columns[i] = columns[parent];
+                keys[i] = keys[parent];
+                i = parent;
+            }
+            columns[i] = column;
+            keys[i] = key;
+        }
+
+        int pop() {
+            int top = columns[0];
+            int lastColumn = columns[--size];
+            double lastKey = keys[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                columns[i] = columns[child];
+                keys[i] = keys[child];
+                i = child;
+            }
+            columns[i] = lastColumn;
+            keys[i] = lastKey;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.matchingservice.service.assignment;
+
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.UrgencyLevel;
+import com.matchingservice.service.ml_scheduler.ScoringBatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional stage between scoring and the write phase. It turns the per-request top-N lists into
+ * a global one-to-one assignment, so a donation is proposed to one request instead of to every
+ * request that ranked it.
+ * <p>
+ * Each scored pair is weighted by its compatibility score times the urgency weight of the request
+ * ({@code ml.matching.assignment.urgency-weight.<level>}). {@link AssignmentSolver} then picks the
+ * donation for each request that maximizes the total weight. {@code ml.matching.assignment.mode}
+ * selects the solver:
+ * <ul>
+ *     <li>{@code optimal} - exact, within {@code time-budget-ms}</li>
+ *     <li>{@code greedy} - heaviest pair first</li>
+ *     <li>{@code auto} - optimal up to {@code optimal-max-pairs} scored pairs, greedy above</li>
+ * </ul>
+ * Each request keeps its assigned donation as rank 1. It also keeps up to
+ * {@code ml.matching.assignment.alternates} of its next best donations as lower ranks. Alternates
+ * are only taken from donations that are not assigned to another request.
+ */
+@Component
+@Slf4j
+public class MatchAssignmentStage {
+
+    private final boolean enabled;
+    private final String mode;
+    private final int optimalMaxPairs;
+    private final long timeBudgetMs;
+    private final int alternates;
+    private final Map<UrgencyLevel, Double> urgencyWeights = new EnumMap<>(UrgencyLevel.class);
+    private final MeterRegistry meterRegistry;
+    private final Counter budgetExceeded;
+
+    public MatchAssignmentStage(Environment environment, MeterRegistry meterRegistry) {
+        this.enabled = environment.getProperty("ml.matching.assignment.enabled", Boolean.class, false);
+        this.mode = environment.getProperty("ml.matching.assignment.mode", "auto");
+        this.optimalMaxPairs = environment.getProperty("ml.matching.assignment.optimal-max-pairs", Integer.class, 500000);
+        this.timeBudgetMs = environment.getProperty("ml.matching.assignment.time-budget-ms", Long.class, 2000L);
+        this.alternates = Math.max(0, environment.getProperty("ml.matching.assignment.alternates", Integer.class, 2));
+
+        Map<UrgencyLevel, Double> defaults = Map.of(
+                UrgencyLevel.CRITICAL, 3.0,
+                UrgencyLevel.HIGH, 2.0,
+                UrgencyLevel.MEDIUM, 1.5,
+                UrgencyLevel.LOW, 1.0);
+        for (UrgencyLevel level : UrgencyLevel.values()) {
+            urgencyWeights.put(level, environment.getProperty(
+                    "ml.matching.assignment.urgency-weight." + level.name().toLowerCase(), Double.class, defaults.get(level)));
+        }
+
+        this.meterRegistry = meterRegistry;
+        this.budgetExceeded = meterRegistry.counter("matching.assignment.budget_exceeded");
+    }
+
+    /**
+     * Reduces {@code matches} to the assigned match and its alternates for each request and
+     * re-ranks them. Returns {@code matches} unchanged when the stage is disabled.
+     */
+    public List<MLMatchResult> assign(ScoringBatch batch, List<MLMatchResult> matches) {
+        if (!enabled || matches.isEmpty()) {
+            return matches;
+        }
+        long startTime = System.nanoTime();
+
+        Map<UUID, UrgencyLevel> urgencyByRequest = new HashMap<>();
+        for (MLRequestData request : batch.requests()) {
+            urgencyByRequest.put(request.getReceiveRequestId(), request.getUrgencyLevel());
+        }
+
+        Map<UUID, Integer> rowOf = new HashMap<>();
+        Map<UUID, Integer> columnOf = new HashMap<>();
+        List<List<MLMatchResult>> candidatesByRow = new ArrayList<>();
+        int[] edgeRow = new int[matches.size()];
+        int[] edgeColumn = new int[matches.size()];
+        double[] edgeWeight = new double[matches.size()];
+        int edges = 0;
+
+        for (MLMatchResult match : matches) {
+            if (match.getCompatibilityScore() == null || match.getCompatibilityScore() <= 0.0) {
+                continue;
+            }
+            int row = rowOf.computeIfAbsent(match.getReceiveRequestId(), id -> {
+                candidatesByRow.add(new ArrayList<>());
+                return candidatesByRow.size() - 1;
+            });
+            int column = columnOf.computeIfAbsent(match.getDonationId(), id -> columnOf.size());
+            candidatesByRow.get(row).add(match);
+
+            edgeRow[edges] = row;
+            edgeColumn[edges] = column;
+            edgeWeight[edges] = match.getCompatibilityScore() * urgencyWeight(urgencyByRequest.get(match.getReceiveRequestId()));
+            edges++;
+        }
+        if (edges == 0) {
+            return matches;
+        }
+
+        AssignmentProblem problem = AssignmentProblem.fromEdges(rowOf.size(), columnOf.size(),
+                Arrays.copyOf(edgeRow, edges), Arrays.copyOf(edgeColumn, edges), Arrays.copyOf(edgeWeight, edges));
+
+        boolean useOptimal = switch (mode) {
+            case "optimal" -> true;
+            case "greedy" -> false;
+            default -> edges <= optimalMaxPairs;
+        };
+        AssignmentSolver.Assignment assignment = useOptimal
+                ? AssignmentSolver.optimal(problem, startTime + TimeUnit.MILLISECONDS.toNanos(timeBudgetMs))
+                : AssignmentSolver.greedy(problem);
+        if (!assignment.exact()) {
+            budgetExceeded.increment();
+            log.warn("Assignment for {} ran over its {}ms budget, remaining requests were assigned greedily",
+                    batch.donationType(), timeBudgetMs);
+        }
+
+        List<MLMatchResult> assigned = select(candidatesByRow, columnOf, assignment.columnOfRow());
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        Timer.builder("matching.assignment.solve")
+                .tag("type", batch.donationType().name().toLowerCase())
+                .tag("solver", useOptimal ? "optimal" : "greedy")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        log.info("Assigned {} of {} requests to {} donations for {} with the {} solver in {}ms: {} -> {} matches",
+                Arrays.stream(assignment.columnOfRow()).filter(column -> column >= 0).count(), problem.rows(),
+                problem.columns(), batch.donationType(), useOptimal ? "optimal" : "greedy",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), matches.size(), assigned.size());
+        return assigned;
+    }
+
+    private List<MLMatchResult> select(List<List<MLMatchResult>> candidatesByRow, Map<UUID, Integer> columnOf,
+                                       int[] columnOfRow) {
+        boolean[] assignedColumn = new boolean[columnOf.size()];
+        for (int column : columnOfRow) {
+            if (column >= 0) {
+                assignedColumn[column] = true;
+            }
+        }
+
+        Comparator<MLMatchResult> byScore = Comparator.comparing(MLMatchResult::getCompatibilityScore).reversed();
+        List<MLMatchResult> selected = new ArrayList<>();
+        for (int row = 0; row < candidatesByRow.size(); row++) {
+            List<MLMatchResult> candidates = candidatesByRow.get(row);
+            candidates.sort(byScore);
+
+            List<MLMatchResult> kept = new ArrayList<>();
+            int ownColumn = columnOfRow[row];
+            for (MLMatchResult candidate : candidates) {
+                if (columnOf.get(candidate.getDonationId()) == ownColumn) {
+                    kept.add(candidate);
+                    break;
+                }
+            }
+            for (MLMatchResult candidate : candidates) {
+                if (kept.size() >= alternates + (ownColumn >= 0 ? 1 : 0)) {
+                    break;
+                }
+                if (!assignedColumn[columnOf.get(candidate.getDonationId())]) {
+                    kept.add(candidate);
+                }
+            }
+
+            for (int i = 0; i < kept.size(); i++) {
+                kept.get(i).setPriorityRank(i + 1);
+            }
+            selected.addAll(kept);
+        }
+        selected.sort(byScore);
+        return selected;
+    }
+
+    private double urgencyWeight(UrgencyLevel level) {
+        return level != null ? urgencyWeights.get(level) : 1.0;
+    }
+}
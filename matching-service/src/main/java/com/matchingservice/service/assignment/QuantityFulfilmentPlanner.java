@@ -0,0 +1,283 @@
+package com.matchingservice.service.assignment;
+
+import com.matchingservice.dto.GroupAllocation;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.enums.MatchStatus;
+import com.matchingservice.enums.UrgencyLevel;
+import com.matchingservice.repository.MatchResultRepository;
+import com.matchingservice.service.ml_scheduler.ScoringBatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Fills BLOOD and TISSUE requests that no single donation can cover with a group of donations
+ * in the same run, instead of one donation per two-minute cycle.
+ * <p>
+ * Requests are planned most urgent first, then largest quantity first. A request whose scored
+ * candidates include a donation at least as large as the request keeps only those candidates and
+ * stays a normal pairwise match. For any other request, a branch-and-bound search over its
+ * {@code ml.matching.fulfilment.max-candidates} nearest candidates picks the set that covers the
+ * quantity at the lowest cost. The cost is the total distance in km plus
+ * {@code ml.matching.fulfilment.km-per-excess-unit} for each unit of over-allocation. If the
+ * candidates cannot cover the request, all of them are allocated as a partial fulfilment.
+ * <p>
+ * Every match in a group gets the same {@code fulfilmentGroupId} and rank 1. Donations used by a
+ * group are removed from every other request's candidates in the batch.
+ * <p>
+ * Groups written by earlier runs count while any of their matches is live (not expired, rejected
+ * or cancelled). A request only plans for the quantity its live groups do not cover yet, and one
+ * they cover fully is left out of the run. A donation in a live group is never grouped again.
+ */
+@Component
+@Slf4j
+public class QuantityFulfilmentPlanner {
+
+    private static final Set<DonationType> QUANTITY_TYPES = EnumSet.of(DonationType.BLOOD, DonationType.TISSUE);
+
+    private static final Set<MatchStatus> LIVE_GROUP_STATUSES = EnumSet.of(
+            MatchStatus.PENDING, MatchStatus.DONOR_CONFIRMED, MatchStatus.RECIPIENT_CONFIRMED,
+            MatchStatus.CONFIRMED, MatchStatus.COMPLETED, MatchStatus.WITHDRAWN);
+
+    private final MatchResultRepository matchResultRepository;
+
+    @Value("${ml.matching.fulfilment.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ml.matching.fulfilment.max-candidates:16}")
+    private int maxCandidates;
+
+    @Value("${ml.matching.fulfilment.km-per-excess-unit:0.1}")
+    private double kmPerExcessUnit;
+
+    private final Counter groupsPlanned;
+    private final Counter partialGroups;
+
+    public QuantityFulfilmentPlanner(MatchResultRepository matchResultRepository, MeterRegistry meterRegistry) {
+        this.matchResultRepository = matchResultRepository;
+        this.groupsPlanned = meterRegistry.counter("matching.fulfilment.groups");
+        this.partialGroups = meterRegistry.counter("matching.fulfilment.partial_groups");
+    }
+
+    /**
+     * Grouped matches, ready to be written as they are, and the pairwise matches that are left
+     * for the normal ranking or assignment stage.
+     */
+    public record FulfilmentPlan(List<MLMatchResult> grouped, List<MLMatchResult> remaining) {
+    }
+
+    public FulfilmentPlan plan(ScoringBatch batch, List<MLMatchResult> matches) {
+        if (!enabled || !QUANTITY_TYPES.contains(batch.donationType()) || matches.isEmpty()) {
+            return new FulfilmentPlan(List.of(), matches);
+        }
+
+        Map<UUID, Double> donationQuantity = new HashMap<>();
+        List<UUID> donationIds = new ArrayList<>(batch.donations().size());
+        for (MLDonationData donation : batch.donations()) {
+            donationIds.add(donation.getDonationId());
+            if (donation.getQuantity() != null) {
+                donationQuantity.put(donation.getDonationId(), donation.getQuantity());
+            }
+        }
+
+        List<UUID> requestIds = batch.requests().stream().map(MLRequestData::getReceiveRequestId).toList();
+        Map<UUID, Double> allocatedByRequest = new HashMap<>();
+        Set<UUID> liveGroupDonations = new HashSet<>();
+        for (GroupAllocation allocation : matchResultRepository.findGroupAllocations(requestIds, donationIds, LIVE_GROUP_STATUSES)) {
+            liveGroupDonations.add(allocation.donationId());
+            if (allocation.quantity() != null) {
+                allocatedByRequest.merge(allocation.receiveRequestId(), allocation.quantity(), Double::sum);
+            }
+        }
+
+        Map<UUID, List<MLMatchResult>> candidatesByRequest = new LinkedHashMap<>();
+        for (MLMatchResult match : matches) {
+            candidatesByRequest.computeIfAbsent(match.getReceiveRequestId(), k -> new ArrayList<>()).add(match);
+        }
+
+        List<MLRequestData> requests = new ArrayList<>(batch.requests());
+        requests.sort(Comparator
+                .comparing((MLRequestData request) -> urgencyOrder(request.getUrgencyLevel()))
+                .thenComparing(request -> request.getQuantity() != null ? -request.getQuantity() : 0.0));
+
+        Set<UUID> usedDonations = new HashSet<>();
+        Set<UUID> groupedRequests = new HashSet<>();
+        List<MLMatchResult> grouped = new ArrayList<>();
+
+        for (MLRequestData request : requests) {
+            List<MLMatchResult> candidates = candidatesByRequest.get(request.getReceiveRequestId());
+            if (request.getQuantity() == null || request.getQuantity() <= 0 || candidates == null) {
+                continue;
+            }
+            double allocatedBefore = allocatedByRequest.getOrDefault(request.getReceiveRequestId(), 0.0);
+            double needed = request.getQuantity() - allocatedBefore;
+            if (needed <= 0) {
+                log.debug("Request {} is already covered by live fulfilment groups ({} of {} units)",
+                        request.getReceiveRequestId(), allocatedBefore, request.getQuantity());
+                groupedRequests.add(request.getReceiveRequestId());
+                continue;
+            }
+
+            List<MLMatchResult> available = new ArrayList<>();
+            boolean singleCovers = false;
+            for (MLMatchResult candidate : candidates) {
+                if (usedDonations.contains(candidate.getDonationId())
+                        || liveGroupDonations.contains(candidate.getDonationId())) {
+                    continue;
+                }
+                Double quantity = donationQuantity.get(candidate.getDonationId());
+                if (quantity == null || quantity >= needed) {
+                    singleCovers = true;
+                }
+                if (quantity != null && quantity > 0) {
+                    available.add(candidate);
+                }
+            }
+            if (singleCovers) {
+                // Pairwise as before: a partial donation is no use when one donation covers the request.
+                candidates.removeIf(candidate -> {
+                    Double quantity = donationQuantity.get(candidate.getDonationId());
+                    return quantity != null && quantity < needed;
+                });
+                continue;
+            }
+            if (available.isEmpty()) {
+                continue;
+            }
+
+            available.sort(Comparator.comparingDouble(QuantityFulfilmentPlanner::distanceOf));
+            List<MLMatchResult> pool = available.subList(0, Math.min(maxCandidates, available.size()));
+            double[] quantities = pool.stream().mapToDouble(match -> donationQuantity.get(match.getDonationId())).toArray();
+            double[] distances = pool.stream().mapToDouble(QuantityFulfilmentPlanner::distanceOf).toArray();
+
+            boolean[] chosen = cheapestCover(quantities, distances, needed);
+            boolean partial = chosen == null;
+            UUID groupId = UUID.randomUUID();
+            double allocated = 0.0;
+            for (int i = 0; i < pool.size(); i++) {
+                if (partial || chosen[i]) {
+                    MLMatchResult member = pool.get(i);
+                    member.setFulfilmentGroupId(groupId);
+                    member.setPriorityRank(1);
+                    usedDonations.add(member.getDonationId());
+                    allocated += quantities[i];
+                    grouped.add(member);
+                }
+            }
+            groupedRequests.add(request.getReceiveRequestId());
+            groupsPlanned.increment();
+            if (partial) {
+                partialGroups.increment();
+            }
+            log.info("Request {} ({} units, {} already allocated) {} fulfilled by a group of donations totalling {} units",
+                    request.getReceiveRequestId(), request.getQuantity(), allocatedBefore,
+                    partial ? "partially" : "fully", allocated);
+        }
+
+        List<MLMatchResult> remaining = new ArrayList<>();
+        for (List<MLMatchResult> candidates : candidatesByRequest.values()) {
+            for (MLMatchResult candidate : candidates) {
+                if (!groupedRequests.contains(candidate.getReceiveRequestId())
+                        && !usedDonations.contains(candidate.getDonationId())) {
+                    remaining.add(candidate);
+                }
+            }
+        }
+        return new FulfilmentPlan(grouped, remaining);
+    }
+
+    /**
+     * Returns the subset of items whose quantities reach {@code needed} at the lowest distance
+     * plus over-allocation cost, or null when all of them together fall short. Items are tried
+     * largest first. A branch stops as soon as it covers the request, because adding more only
+     * raises the cost, or as soon as its cost reaches the best cover found.
+     */
+    boolean[] cheapestCover(double[] quantities, double[] distances, double needed) {
+        int n = quantities.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(quantities[b], quantities[a]));
+
+        double[] remainingQuantity = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            remainingQuantity[i] = remainingQuantity[i + 1] + quantities[order[i]];
+        }
+        if (remainingQuantity[0] < needed) {
+            return null;
+        }
+
+        CoverSearch search = new CoverSearch(order, quantities, distances, remainingQuantity, needed);
+        search.extend(0, 0.0, 0.0);
+        boolean[] chosen = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            chosen[order[i]] = search.best[i];
+        }
+        return chosen;
+    }
+
+    private final class CoverSearch {
+
+        private final Integer[] order;
+        private final double[] quantities;
+        private final double[] distances;
+        private final double[] remainingQuantity;
+        private final double needed;
+        private final boolean[] current;
+        private final boolean[] best;
+        private double bestCost = Double.MAX_VALUE;
+
+        CoverSearch(Integer[] order, double[] quantities, double[] distances, double[] remainingQuantity, double needed) {
+            this.order = order;
+            this.quantities = quantities;
+            this.distances = distances;
+            this.remainingQuantity = remainingQuantity;
+            this.needed = needed;
+            this.current = new boolean[order.length];
+            this.best = new boolean[order.length];
+        }
+
+        void extend(int index, double quantity, double distance) {
+            if (quantity >= needed) {
+                double cost = distance + (quantity - needed) * kmPerExcessUnit;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    System.arraycopy(current, 0, best, 0, current.length);
+                }
+                return;
+            }
+            if (index == order.length || distance >= bestCost || quantity + remainingQuantity[index] < needed) {
+                return;
+            }
+            int item = order[index];
+            current[index] = true;
+            extend(index + 1, quantity + quantities[item], distance + distances[item]);
+            current[index] = false;
+            extend(index + 1, quantity, distance);
+        }
+    }
+
+    private static double distanceOf(MLMatchResult match) {
+        return match.getDistanceKm() != null ? match.getDistanceKm() : 0.0;
+    }
+
+    private static int urgencyOrder(UrgencyLevel level) {
+        if (level == null) {
+            return UrgencyLevel.values().length;
+        }
+        return switch (level) {
+            case CRITICAL -> 0;
+            case HIGH -> 1;
+            case MEDIUM -> 2;
+            case LOW -> 3;
+        };
+    }
+}
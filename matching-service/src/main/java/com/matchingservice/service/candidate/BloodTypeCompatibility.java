@@ -0,0 +1,62 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.enums.BloodType;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static com.matchingservice.enums.BloodType.*;
+
+/**
+ * Red cell ABO/Rh compatibility, precomputed as one bitmask per donor blood type
+ * (bit i set = recipient with ordinal i may receive from that donor). Mirrors the
+ * BLOOD_COMPATIBILITY table used by ml-matching-service.
+ */
+public final class BloodTypeCompatibility {
+
+    private static final int[] RECIPIENTS_BY_DONOR = new int[BloodType.values().length];
+    private static final int[] DONORS_BY_RECIPIENT = new int[BloodType.values().length];
+
+    static {
+        allow(O_NEGATIVE, O_NEGATIVE, O_POSITIVE, A_NEGATIVE, A_POSITIVE, B_NEGATIVE, B_POSITIVE, AB_NEGATIVE, AB_POSITIVE);
+        allow(O_POSITIVE, O_POSITIVE, A_POSITIVE, B_POSITIVE, AB_POSITIVE);
+        allow(A_NEGATIVE, A_NEGATIVE, A_POSITIVE, AB_NEGATIVE, AB_POSITIVE);
+        allow(A_POSITIVE, A_POSITIVE, AB_POSITIVE);
+        allow(B_NEGATIVE, B_NEGATIVE, B_POSITIVE, AB_NEGATIVE, AB_POSITIVE);
+        allow(B_POSITIVE, B_POSITIVE, AB_POSITIVE);
+        allow(AB_NEGATIVE, AB_NEGATIVE, AB_POSITIVE);
+        allow(AB_POSITIVE, AB_POSITIVE);
+    }
+
+    private BloodTypeCompatibility() {
+    }
+
+    private static void allow(BloodType donor, BloodType... recipients) {
+        for (BloodType recipient : recipients) {
+            RECIPIENTS_BY_DONOR[donor.ordinal()] |= 1 << recipient.ordinal();
+            DONORS_BY_RECIPIENT[recipient.ordinal()] |= 1 << donor.ordinal();
+        }
+    }
+
+    public static boolean canDonate(BloodType donor, BloodType recipient) {
+        if (donor == null || recipient == null) {
+            return false;
+        }
+        return (RECIPIENTS_BY_DONOR[donor.ordinal()] & (1 << recipient.ordinal())) != 0;
+    }
+
+    public static int donorMask(BloodType recipient) {
+        return recipient == null ? 0 : DONORS_BY_RECIPIENT[recipient.ordinal()];
+    }
+
+    public static Set<BloodType> compatibleDonors(BloodType recipient) {
+        Set<BloodType> donors = EnumSet.noneOf(BloodType.class);
+        int mask = donorMask(recipient);
+        for (BloodType type : BloodType.values()) {
+            if ((mask & (1 << type.ordinal())) != 0) {
+                donors.add(type);
+            }
+        }
+        return donors;
+    }
+}
@@ -0,0 +1,25 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.recipients.ReceiveRequest;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A group of requests that share the same candidate donations. Every
+ * (request, donation) pair in the cross product satisfies the hard matching rules.
+ *
+ * @param excludedPairs pairs of the cross product that must not be scored: those that already
+ *                      have a match result, and the {@code prunedPairs}
+ * @param prunedPairs   the excluded pairs that have no match result but failed a pre-scoring
+ *                      filter, such as the search radius, organ viability or the HLA limit
+ */
+public record CandidateBatch(List<ReceiveRequest> requests, List<Donation> donations, Set<MatchPair> excludedPairs,
+                             Set<MatchPair> prunedPairs) {
+
+    public long pairCount() {
+        return (long) requests.size() * donations.size() - excludedPairs.size();
+    }
+}
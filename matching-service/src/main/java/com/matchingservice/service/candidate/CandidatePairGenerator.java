@@ -0,0 +1,245 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.enums.DonationStatus;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.enums.BloodType;
+import com.matchingservice.model.donor.*;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.service.logistics.OrganViabilityFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Candidate-generation stage run before ML scoring. Open donations are indexed by
+ * (donation type, organ/tissue/stem-cell subtype, blood type) and each request is
+ * only paired with the buckets that satisfy the hard rules enforced after scoring:
+ * same type, matching subtype, different user, open status, and for blood,
+ * ABO/Rh compatibility. Pairs that already have a match result are looked up in
+ * {@link KnownPairIndex} and excluded, and a request whose candidates are all known is
+ * dropped.
+ * <p>
+ * When {@code matching.candidates.max-radius-km.<type>} is set, a request with a location is
+ * only paired with the donations within that radius, looked up in {@link LocationIndex}. A
+ * shared batch then carries only donations that some request can reach, and the pairs out of
+ * range are excluded like known pairs. 0 means no limit.
+ * <p>
+ * Organ requests are further narrowed by {@link OrganViabilityFilter} to the organs that can be
+ * transported to them before they expire, and the pairs it drops are excluded the same way.
+ */
+@Component
+@Slf4j
+public class CandidatePairGenerator {
+
+    private static final Set<DonationStatus> OPEN_DONATION_STATUSES =
+            EnumSet.of(DonationStatus.PENDING, DonationStatus.MATCHED);
+
+    private static final Set<RequestStatus> OPEN_REQUEST_STATUSES =
+            EnumSet.of(RequestStatus.PENDING, RequestStatus.MATCHED);
+
+    private final KnownPairIndex knownPairIndex;
+    private final LocationIndex locationIndex;
+    private final OrganViabilityFilter organViabilityFilter;
+    private final Map<DonationType, Double> maxRadiusKm = new EnumMap<>(DonationType.class);
+    private final Counter pairsConsidered;
+    private final Counter pairsPruned;
+
+    public CandidatePairGenerator(KnownPairIndex knownPairIndex,
+                                  LocationIndex locationIndex,
+                                  OrganViabilityFilter organViabilityFilter,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${matching.candidates.max-radius-km.blood:0}") double bloodRadiusKm,
+                                  @Value("${matching.candidates.max-radius-km.organ:0}") double organRadiusKm,
+                                  @Value("${matching.candidates.max-radius-km.tissue:0}") double tissueRadiusKm,
+                                  @Value("${matching.candidates.max-radius-km.stem-cell:0}") double stemCellRadiusKm) {
+        this.knownPairIndex = knownPairIndex;
+        this.locationIndex = locationIndex;
+        this.organViabilityFilter = organViabilityFilter;
+        this.maxRadiusKm.put(DonationType.BLOOD, bloodRadiusKm);
+        this.maxRadiusKm.put(DonationType.ORGAN, organRadiusKm);
+        this.maxRadiusKm.put(DonationType.TISSUE, tissueRadiusKm);
+        this.maxRadiusKm.put(DonationType.STEM_CELL, stemCellRadiusKm);
+        this.pairsConsidered = Counter.builder("matching.candidates.pairs.considered")
+                .description("Request/donation pairs in the naive cross product")
+                .register(meterRegistry);
+        this.pairsPruned = Counter.builder("matching.candidates.pairs.pruned")
+                .description("Pairs rejected by hard rules before ML scoring")
+                .register(meterRegistry);
+    }
+
+    public List<CandidateBatch> generate(List<ReceiveRequest> requests, List<Donation> donations) {
+        long considered = (long) requests.size() * donations.size();
+
+        Map<BucketKey, List<Donation>> buckets = new HashMap<>();
+        for (Donation donation : donations) {
+            if (OPEN_DONATION_STATUSES.contains(donation.getStatus())) {
+                buckets.computeIfAbsent(BucketKey.of(donation), k -> new ArrayList<>()).add(donation);
+            }
+        }
+
+        Map<BucketKey, List<ReceiveRequest>> requestGroups = new LinkedHashMap<>();
+        for (ReceiveRequest request : requests) {
+            if (OPEN_REQUEST_STATUSES.contains(request.getStatus())) {
+                requestGroups.computeIfAbsent(BucketKey.of(request), k -> new ArrayList<>()).add(request);
+            }
+        }
+
+        List<CandidateBatch> batches = new ArrayList<>();
+        long emitted = 0;
+
+        for (Map.Entry<BucketKey, List<ReceiveRequest>> group : requestGroups.entrySet()) {
+            List<Donation> candidates = buckets.entrySet().stream()
+                    .filter(bucket -> group.getKey().accepts(bucket.getKey()))
+                    .flatMap(bucket -> bucket.getValue().stream())
+                    .collect(Collectors.toList());
+
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            Set<UUID> donorUserIds = candidates.stream()
+                    .map(Donation::getUserId)
+                    .collect(Collectors.toSet());
+
+            Map<UUID, Set<MatchPair>> knownByRequest = new HashMap<>();
+            for (MatchPair pair : knownPairIndex.knownAmong(group.getValue(), candidates)) {
+                knownByRequest.computeIfAbsent(pair.receiveRequestId(), k -> new HashSet<>()).add(pair);
+            }
+
+            double radiusKm = maxRadiusKm.getOrDefault(group.getKey().type(), 0.0);
+            Map<UUID, Set<UUID>> withinRadius = radiusKm > 0
+                    ? locationIndex.donationsWithinRadius(group.getValue(), candidates, radiusKm)
+                    : Map.of();
+            if (group.getKey().type() == DonationType.ORGAN) {
+                withinRadius = organViabilityFilter.arrivingInTime(group.getValue(), candidates, withinRadius);
+            }
+
+            List<ReceiveRequest> sharedBatch = new ArrayList<>();
+            Set<MatchPair> sharedExcluded = new HashSet<>();
+            Set<MatchPair> sharedPruned = new HashSet<>();
+            Set<UUID> sharedDonationIds = new HashSet<>();
+            boolean sharedUnconstrained = false;
+            for (ReceiveRequest request : group.getValue()) {
+                Set<MatchPair> known = knownByRequest.getOrDefault(request.getReceiveRequestId(), Set.of());
+                Set<UUID> inRadius = withinRadius.get(request.getReceiveRequestId());
+                List<Donation> reachable = inRadius == null
+                        ? candidates
+                        : candidates.stream().filter(donation -> inRadius.contains(donation.getDonationId())).toList();
+                Set<MatchPair> reachableKnown = inRadius == null
+                        ? known
+                        : known.stream().filter(pair -> inRadius.contains(pair.donationId())).collect(Collectors.toSet());
+
+                if (!donorUserIds.contains(request.getUserId())) {
+                    if (reachableKnown.size() < reachable.size()) {
+                        sharedBatch.add(request);
+                        sharedExcluded.addAll(reachableKnown);
+                        if (inRadius == null) {
+                            sharedUnconstrained = true;
+                        } else {
+                            sharedDonationIds.addAll(inRadius);
+                        }
+                    }
+                    continue;
+                }
+
+                List<Donation> ownExcluded = reachable.stream()
+                        .filter(donation -> !donation.getUserId().equals(request.getUserId()))
+                        .collect(Collectors.toList());
+                if (ownExcluded.size() > reachableKnown.size()) {
+                    CandidateBatch batch = new CandidateBatch(List.of(request), ownExcluded, reachableKnown, Set.of());
+                    batches.add(batch);
+                    emitted += batch.pairCount();
+                }
+            }
+
+            if (!sharedBatch.isEmpty()) {
+                List<Donation> sharedCandidates = sharedUnconstrained
+                        ? candidates
+                        : candidates.stream().filter(donation -> sharedDonationIds.contains(donation.getDonationId())).toList();
+                for (ReceiveRequest request : sharedBatch) {
+                    Set<UUID> inRadius = withinRadius.get(request.getReceiveRequestId());
+                    if (inRadius == null) {
+                        continue;
+                    }
+                    for (Donation donation : sharedCandidates) {
+                        if (!inRadius.contains(donation.getDonationId())) {
+                            MatchPair pair = new MatchPair(donation.getDonationId(), request.getReceiveRequestId());
+                            sharedExcluded.add(pair);
+                            sharedPruned.add(pair);
+                        }
+                    }
+                }
+                CandidateBatch batch = new CandidateBatch(sharedBatch, sharedCandidates, sharedExcluded, sharedPruned);
+                batches.add(batch);
+                emitted += batch.pairCount();
+            }
+        }
+
+        pairsConsidered.increment(considered);
+        pairsPruned.increment(considered - emitted);
+
+        log.info("Candidate generation: {} pairs considered, {} emitted in {} batches, {} pruned",
+                considered, emitted, batches.size(), considered - emitted);
+
+        return batches;
+    }
+
+    public double getPairsConsidered() {
+        return pairsConsidered.count();
+    }
+
+    public double getPairsPruned() {
+        return pairsPruned.count();
+    }
+
+    /**
+     * Index key for both sides. On the request side a null subtype means "any subtype".
+     * Blood type only constrains BLOOD pairs; other types keep it purely for bucketing.
+     */
+    private record BucketKey(DonationType type, Enum<?> subtype, BloodType bloodType) {
+
+        static BucketKey of(Donation donation) {
+            Enum<?> subtype = null;
+            if (donation instanceof OrganDonation organ) {
+                subtype = organ.getOrganType();
+            } else if (donation instanceof TissueDonation tissue) {
+                subtype = tissue.getTissueType();
+            } else if (donation instanceof StemCellDonation stemCell) {
+                subtype = stemCell.getStemCellType();
+            }
+            return new BucketKey(donation.getDonationType(), subtype, donation.getBloodType());
+        }
+
+        static BucketKey of(ReceiveRequest request) {
+            DonationType type = DonationType.valueOf(request.getRequestType().name());
+            Enum<?> subtype = switch (type) {
+                case ORGAN -> request.getRequestedOrgan();
+                case TISSUE -> request.getRequestedTissue();
+                case STEM_CELL -> request.getRequestedStemCellType();
+                case BLOOD -> null;
+            };
+            BloodType bloodType = type == DonationType.BLOOD ? request.getRequestedBloodType() : null;
+            return new BucketKey(type, subtype, bloodType);
+        }
+
+        boolean accepts(BucketKey donationKey) {
+            if (type != donationKey.type) {
+                return false;
+            }
+            if (subtype != null && !subtype.equals(donationKey.subtype)) {
+                return false;
+            }
+            if (type == DonationType.BLOOD) {
+                return BloodTypeCompatibility.canDonate(donationKey.bloodType, bloodType);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.dto.DistrictCentroid;
+import com.matchingservice.enums.TravelBand;
+import com.matchingservice.repository.donor.DonorLocationRepository;
+import com.matchingservice.repository.recipient.RecipientLocationRepository;
+import com.matchingservice.service.scoring.GeoDistance;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Distances between district centroids, precomputed once per build so that a coarse distance
+ * or {@link TravelBand} between two locations is two map lookups and one array read. Exact
+ * haversine on the coordinates is still what match distances and location scores use.
+ * <p>
+ * Centroids come from {@code matching.district-distances.centroids-file}, a CSV of
+ * {@code state,district,latitude,longitude}, and, for districts it does not list, from the mean
+ * coordinates of the donor and recipient locations on record. Districts are keyed by state and
+ * district name, stripped and upper-cased. At most {@code matching.district-distances.max-districts}
+ * are kept, the best-covered first, since the table grows with the square of the count.
+ * <p>
+ * The table is built when the application starts and rebuilt every
+ * {@code matching.district-distances.refresh-interval-ms}. Each build replaces the previous one
+ * as a whole, so readers never see a partial table.
+ */
+@Component
+@Slf4j
+public class DistrictDistanceTable {
+
+    private record Table(Map<String, Integer> codes, float[] distances) {
+
+        static final Table EMPTY = new Table(Map.of(), new float[0]);
+
+        double distanceKm(int from, int to) {
+            if (from == to) {
+                return 0.0;
+            }
+            int high = Math.max(from, to);
+            int low = Math.min(from, to);
+            return distances[triangleIndex(high, low)];
+        }
+    }
+
+    private final DonorLocationRepository donorLocationRepository;
+    private final RecipientLocationRepository recipientLocationRepository;
+    private final ResourceLoader resourceLoader;
+    private final String centroidsFile;
+    private final int maxDistricts;
+    private volatile Table table = Table.EMPTY;
+
+    public DistrictDistanceTable(DonorLocationRepository donorLocationRepository,
+                                 RecipientLocationRepository recipientLocationRepository,
+                                 ResourceLoader resourceLoader,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${matching.district-distances.centroids-file:classpath:geo/district-centroids.csv}") String centroidsFile,
+                                 @Value("${matching.district-distances.max-districts:2000}") int maxDistricts) {
+        this.donorLocationRepository = donorLocationRepository;
+        this.recipientLocationRepository = recipientLocationRepository;
+        this.resourceLoader = resourceLoader;
+        this.centroidsFile = centroidsFile;
+        this.maxDistricts = maxDistricts;
+        meterRegistry.gauge("matching.district_distances.districts", this, DistrictDistanceTable::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${matching.district-distances.refresh-interval-ms:3600000}",
+            initialDelayString = "${matching.district-distances.refresh-interval-ms:3600000}")
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        Map<String, DistrictCentroid> centroids = new LinkedHashMap<>(readCentroidsFile());
+        int fromFile = centroids.size();
+
+        Map<String, DistrictCentroid> observed = new HashMap<>();
+        List<DistrictCentroid> rows = new ArrayList<>(donorLocationRepository.findDistrictCentroids());
+        rows.addAll(recipientLocationRepository.findDistrictCentroids());
+        for (DistrictCentroid row : rows) {
+            String key = key(row.state(), row.district());
+            if (key != null && !centroids.containsKey(key)) {
+                observed.merge(key, row, DistrictDistanceTable::combine);
+            }
+        }
+        observed.values().stream()
+                .sorted(Comparator.comparingLong(DistrictCentroid::locations).reversed())
+                .limit(Math.max(0, maxDistricts - centroids.size()))
+                .forEach(centroid -> centroids.put(key(centroid.state(), centroid.district()), centroid));
+
+        List<DistrictCentroid> ordered = new ArrayList<>(centroids.values()).subList(0, Math.min(centroids.size(), maxDistricts));
+        Map<String, Integer> codes = new HashMap<>();
+        int n = ordered.size();
+        float[] distances = new float[triangleIndex(n, 0)];
+        for (int i = 0; i < n; i++) {
+            DistrictCentroid from = ordered.get(i);
+            codes.put(key(from.state(), from.district()), i);
+            for (int j = 0; j < i; j++) {
+                DistrictCentroid to = ordered.get(j);
+                distances[triangleIndex(i, j)] = (float) GeoDistance.haversineKm(
+                        from.latitude(), from.longitude(), to.latitude(), to.longitude());
+            }
+        }
+        table = new Table(codes, distances);
+
+        log.info("District distance table built for {} districts ({} from {}, {} from locations on record) in {}ms",
+                n, Math.min(fromFile, n), centroidsFile, Math.max(0, n - fromFile), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Centroid-to-centroid distance, or NaN when either district is not in the table.
+     */
+    public double distanceKm(String fromState, String fromDistrict, String toState, String toDistrict) {
+        Table current = table;
+        Integer from = codeIn(current, fromState, fromDistrict);
+        Integer to = codeIn(current, toState, toDistrict);
+        return from == null || to == null ? Double.NaN : current.distanceKm(from, to);
+    }
+
+    /**
+     * The travel band between two locations: from their district centroids when both districts
+     * are in the table, otherwise from the exact distance between the coordinates. Null when
+     * neither is known.
+     */
+    public TravelBand band(String fromState, String fromDistrict, Double fromLatitude, Double fromLongitude,
+                           String toState, String toDistrict, Double toLatitude, Double toLongitude) {
+        String fromKey = key(fromState, fromDistrict);
+        if (fromKey != null && fromKey.equals(key(toState, toDistrict))) {
+            return TravelBand.SAME_DISTRICT;
+        }
+        double distanceKm = distanceKm(fromState, fromDistrict, toState, toDistrict);
+        if (Double.isNaN(distanceKm)) {
+            if (fromLatitude == null || fromLongitude == null || toLatitude == null || toLongitude == null) {
+                return null;
+            }
+            distanceKm = GeoDistance.haversineKm(fromLatitude, fromLongitude, toLatitude, toLongitude);
+        }
+        return TravelBand.ofDistance(distanceKm);
+    }
+
+    public int size() {
+        return table.codes().size();
+    }
+
+    private static Integer codeIn(Table current, String state, String district) {
+        String key = key(state, district);
+        return key == null ? null : current.codes().get(key);
+    }
+
+    private Map<String, DistrictCentroid> readCentroidsFile() {
+        Map<String, DistrictCentroid> centroids = new LinkedHashMap<>();
+        if (centroidsFile == null || centroidsFile.isBlank()) {
+            return centroids;
+        }
+        Resource resource = resourceLoader.getResource(centroidsFile);
+        if (!resource.exists()) {
+            log.info("No district centroids file at {}, using locations on record only", centroidsFile);
+            return centroids;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("state,")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                String key = fields.length == 4 ? key(fields[0], fields[1]) : null;
+                if (key == null) {
+                    log.warn("Skipping malformed district centroid at {}:{}", centroidsFile, lineNumber);
+                    continue;
+                }
+                try {
+                    centroids.put(key, new DistrictCentroid(fields[0].trim(), fields[1].trim(),
+                            Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim()), 0));
+                } catch (NumberFormatException e) {
+                    log.warn("Skipping district centroid with bad coordinates at {}:{}", centroidsFile, lineNumber);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not read district centroids from {}: {}", centroidsFile, e.getMessage());
+        }
+        return centroids;
+    }
+
+    private static DistrictCentroid combine(DistrictCentroid a, DistrictCentroid b) {
+        long locations = a.locations() + b.locations();
+        return new DistrictCentroid(a.state(), a.district(),
+                (a.latitude() * a.locations() + b.latitude() * b.locations()) / locations,
+                (a.longitude() * a.locations() + b.longitude() * b.locations()) / locations,
+                locations);
+    }
+
+    /**
+     * The table key of a district, or null when either name is missing. Other per-district
+     * lookups use the same key so that they agree with this table on what a district is.
+     */
+    public static String key(String state, String district) {
+        if (state == null || district == null || state.isBlank() || district.isBlank()) {
+            return null;
+        }
+        return normalize(state) + "|" + normalize(district);
+    }
+
+    private static String normalize(String name) {
+        return name.strip().toUpperCase(Locale.ROOT);
+    }
+
+    private static int triangleIndex(int high, int low) {
+        return high * (high - 1) / 2 + low;
+    }
+}
@@ -0,0 +1,136 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.service.scoring.GeoDistance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed-grid spatial index over latitude/longitude points. Each point sits in one cell of
+ * {@code cellDegrees} x {@code cellDegrees}. A radius query visits only the cells overlapping the
+ * circle's bounding box, drops points outside the box with two comparisons and checks the rest
+ * with the haversine distance. When the box covers more cells than there are points, as for a
+ * continent-wide radius, it scans the points directly instead.
+ * <p>
+ * Safe for concurrent reads and writes. A query running next to an update sees the point at
+ * either its old or its new position.
+ */
+public class GeoGridIndex<K> {
+
+    // 6371 km * pi / 180 is 111.1949...; rounding down keeps the box at least as wide as the
+    // haversine radius, so a point due north or south at the edge is never dropped.
+    private static final double KM_PER_DEGREE_LATITUDE = 111.19;
+
+    private record Point(double latitude, double longitude, long cell) {
+    }
+
+    private final double cellDegrees;
+    private final int cellsPerRing;
+    private final Map<K, Point> points = new ConcurrentHashMap<>();
+    private final Map<Long, Set<K>> cells = new ConcurrentHashMap<>();
+
+    public GeoGridIndex(double cellDegrees) {
+        if (!(cellDegrees > 0 && cellDegrees <= 180)) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 180], was " + cellDegrees);
+        }
+        // Rounded so that a whole number of cells spans the antimeridian seam exactly.
+        this.cellsPerRing = (int) Math.ceil(360.0 / cellDegrees);
+        this.cellDegrees = 360.0 / cellsPerRing;
+    }
+
+    public void put(K key, double latitude, double longitude) {
+        long cell = cellOf(latitude, longitude);
+        Point previous = points.put(key, new Point(latitude, longitude, cell));
+        if (previous != null && previous.cell() != cell) {
+            Set<K> old = cells.get(previous.cell());
+            if (old != null) {
+                old.remove(key);
+            }
+        }
+        cells.computeIfAbsent(cell, k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    public void remove(K key) {
+        Point previous = points.remove(key);
+        if (previous != null) {
+            Set<K> old = cells.get(previous.cell());
+            if (old != null) {
+                old.remove(key);
+            }
+        }
+    }
+
+    public boolean contains(K key) {
+        return points.containsKey(key);
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Keys of all points within {@code radiusKm} of the given position, in no particular order.
+     */
+    public List<K> within(double latitude, double longitude, double radiusKm) {
+        double latitudeSpan = radiusKm / KM_PER_DEGREE_LATITUDE;
+        double minLatitude = Math.max(-90.0, latitude - latitudeSpan);
+        double maxLatitude = Math.min(90.0, latitude + latitudeSpan);
+
+        // Longitude span at the box edge nearest a pole, where a degree is shortest.
+        double widestLatitude = Math.max(Math.abs(minLatitude), Math.abs(maxLatitude));
+        double cosine = Math.cos(Math.toRadians(widestLatitude));
+        double longitudeSpan = cosine <= 1e-9 ? 180.0 : Math.min(180.0, latitudeSpan / cosine);
+        boolean allLongitudes = longitudeSpan >= 180.0;
+
+        List<K> found = new ArrayList<>();
+        int minRow = row(minLatitude);
+        int maxRow = row(maxLatitude);
+        int columns = allLongitudes ? cellsPerRing
+                : Math.min(cellsPerRing, (int) Math.floor((longitude + longitudeSpan) / cellDegrees)
+                        - (int) Math.floor((longitude - longitudeSpan) / cellDegrees) + 1);
+        long boxCells = (long) (maxRow - minRow + 1) * columns;
+
+        if (boxCells > points.size()) {
+            points.forEach((key, point) -> {
+                if (point.latitude() >= minLatitude && point.latitude() <= maxLatitude
+                        && GeoDistance.haversineKm(latitude, longitude, point.latitude(), point.longitude()) <= radiusKm) {
+                    found.add(key);
+                }
+            });
+            return found;
+        }
+
+        int firstColumn = allLongitudes ? 0 : (int) Math.floor((longitude - longitudeSpan) / cellDegrees);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int offset = 0; offset < columns; offset++) {
+                Set<K> keys = cells.get(cellKey(row, Math.floorMod(firstColumn + offset, cellsPerRing)));
+                if (keys == null) {
+                    continue;
+                }
+                for (K key : keys) {
+                    Point point = points.get(key);
+                    if (point != null && point.latitude() >= minLatitude && point.latitude() <= maxLatitude
+                            && GeoDistance.haversineKm(latitude, longitude, point.latitude(), point.longitude()) <= radiusKm) {
+                        found.add(key);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return cellKey(row(latitude), Math.floorMod((int) Math.floor(longitude / cellDegrees), cellsPerRing));
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude + 90.0) / cellDegrees);
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+}
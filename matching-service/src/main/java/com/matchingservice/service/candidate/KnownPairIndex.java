@@ -0,0 +1,191 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.repository.MatchResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Membership test for (donation, request) pairs that already have a {@code MatchResult}, so
+ * candidate generation can drop them before any scoring. A Bloom filter in memory answers
+ * "definitely new" for almost every pair. Only the pairs it reports as possibly known are
+ * confirmed with one {@link MatchResultRepository#findPairsAmong} query, so a false positive
+ * never hides a new pair.
+ * <p>
+ * The filter is built from {@code match_results} when the application starts, and every insert
+ * adds to it through {@link #add}. Pairs are never removed: rejected and expired matches stay
+ * known, so they are not re-proposed.
+ */
+@Component
+@Slf4j
+public class KnownPairIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    private final MatchResultRepository matchResultRepository;
+    private final AtomicReference<BloomFilter> filter = new AtomicReference<>();
+    private volatile BloomFilter building;
+    private final Counter bloomPositives;
+    private final Counter confirmedKnown;
+    private final int expectedPairs;
+    private final double falsePositiveRate;
+
+    public KnownPairIndex(MatchResultRepository matchResultRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${matching.known-pairs.expected:1000000}") int expectedPairs,
+                          @Value("${matching.known-pairs.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.matchResultRepository = matchResultRepository;
+        this.expectedPairs = expectedPairs;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomPositives = meterRegistry.counter("matching.known_pairs.bloom_positives");
+        this.confirmedKnown = meterRegistry.counter("matching.known_pairs.confirmed");
+    }
+
+    /**
+     * Loads every existing pair into a fresh filter sized for twice the current count or the
+     * configured expectation, whichever is larger.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        long total = matchResultRepository.count();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedPairs, total * 2), falsePositiveRate);
+        building = rebuilt;
+
+        Pageable page = PageRequest.of(0, REBUILD_PAGE_SIZE);
+        long loaded = 0;
+        Slice<MatchPair> slice;
+        do {
+            slice = matchResultRepository.findAllPairs(page);
+            slice.forEach(rebuilt::put);
+            loaded += slice.getNumberOfElements();
+            page = slice.nextPageable();
+        } while (slice.hasNext());
+
+        filter.set(rebuilt);
+        building = null;
+        log.info("Known-pair index built from {} match results in {}ms", loaded, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Records newly inserted pairs. During a rebuild they also go into the filter being built, so
+     * no insert is lost when it is swapped in.
+     */
+    public void add(Collection<MatchPair> pairs) {
+        BloomFilter current = filter.get();
+        if (current != null) {
+            pairs.forEach(current::put);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            pairs.forEach(next::put);
+        }
+    }
+
+    /**
+     * Returns the pairs of {@code requests} x {@code donations} that already have a match result.
+     * Until the first rebuild has finished, every pair is checked against the database.
+     */
+    public Set<MatchPair> knownAmong(Collection<ReceiveRequest> requests, Collection<Donation> donations) {
+        BloomFilter current = filter.get();
+        Set<MatchPair> maybeKnown = new HashSet<>();
+        for (ReceiveRequest request : requests) {
+            for (Donation donation : donations) {
+                MatchPair pair = new MatchPair(donation.getDonationId(), request.getReceiveRequestId());
+                if (current == null || current.mightContain(pair)) {
+                    maybeKnown.add(pair);
+                }
+            }
+        }
+        if (maybeKnown.isEmpty()) {
+            return Set.of();
+        }
+        bloomPositives.increment(maybeKnown.size());
+
+        Set<UUID> donationIds = new HashSet<>();
+        Set<UUID> requestIds = new HashSet<>();
+        for (MatchPair pair : maybeKnown) {
+            donationIds.add(pair.donationId());
+            requestIds.add(pair.receiveRequestId());
+        }
+
+        Set<MatchPair> known = new HashSet<>(matchResultRepository.findPairsAmong(donationIds, requestIds));
+        known.retainAll(maybeKnown);
+        confirmedKnown.increment(known.size());
+        return known;
+    }
+
+    /**
+     * Standard Bloom filter over the two UUIDs of a pair. It uses double hashing on 64-bit mixes
+     * of the UUID halves and lock-free bit sets.
+     */
+    private static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(1, expectedInsertions);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        }
+
+        void put(MatchPair pair) {
+            long h1 = h1(pair);
+            long h2 = h2(pair);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(MatchPair pair) {
+            long h1 = h1(pair);
+            long h2 = h2(pair);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long h1(MatchPair pair) {
+            return mix(pair.donationId().getMostSignificantBits() ^ pair.receiveRequestId().getLeastSignificantBits());
+        }
+
+        private static long h2(MatchPair pair) {
+            return mix(pair.donationId().getLeastSignificantBits() ^ Long.rotateLeft(pair.receiveRequestId().getMostSignificantBits(), 31)) | 1;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
+    }
+}
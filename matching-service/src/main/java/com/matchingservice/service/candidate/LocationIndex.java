@@ -0,0 +1,207 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.dto.GeoPoint;
+import com.matchingservice.enums.DonationStatus;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.donor.DonorLocation;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.model.recipients.RecipientLocation;
+import com.matchingservice.repository.donor.DonationRepository;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import com.matchingservice.service.scoring.GeoDistance;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Spatial indexes of where each donation and each request is, keyed by donation id and receive
+ * request id, so candidate generation can ask for "donations within X km of this request"
+ * without a distance computation per pair. Both are {@link GeoGridIndex}es with cells of
+ * {@code matching.location-index.cell-degrees}.
+ * <p>
+ * They are built from the open donations and requests when the application starts and updated
+ * once the ingest of a donation or request with its location has committed. A donation or
+ * request is removed when it leaves PENDING/MATCHED or is cancelled, so the indexes hold open
+ * rows only. Callers still intersect results with their own open snapshot, and one that is
+ * missing from its index is checked with a direct distance.
+ */
+@Component
+@Slf4j
+public class LocationIndex {
+
+    private static final List<DonationStatus> OPEN_DONATION_STATUSES =
+            List.of(DonationStatus.PENDING, DonationStatus.MATCHED);
+
+    private static final List<RequestStatus> OPEN_REQUEST_STATUSES =
+            List.of(RequestStatus.PENDING, RequestStatus.MATCHED);
+
+    private final DonationRepository donationRepository;
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final GeoGridIndex<UUID> donations;
+    private final GeoGridIndex<UUID> requests;
+    private volatile boolean ready;
+
+    public LocationIndex(DonationRepository donationRepository,
+                         ReceiveRequestRepository receiveRequestRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${matching.location-index.cell-degrees:0.25}") double cellDegrees) {
+        this.donationRepository = donationRepository;
+        this.receiveRequestRepository = receiveRequestRepository;
+        this.donations = new GeoGridIndex<>(cellDegrees);
+        this.requests = new GeoGridIndex<>(cellDegrees);
+        meterRegistry.gauge("matching.location_index.donations", donations, GeoGridIndex::size);
+        meterRegistry.gauge("matching.location_index.requests", requests, GeoGridIndex::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        List<GeoPoint> donationPoints = donationRepository.findLocationPointsByStatusIn(OPEN_DONATION_STATUSES);
+        donationPoints.forEach(point -> donations.put(point.id(), point.latitude(), point.longitude()));
+        List<GeoPoint> requestPoints = receiveRequestRepository.findLocationPointsByStatusIn(OPEN_REQUEST_STATUSES);
+        requestPoints.forEach(point -> requests.put(point.id(), point.latitude(), point.longitude()));
+        ready = true;
+        log.info("Location index built from {} donations and {} requests in {}ms",
+                donationPoints.size(), requestPoints.size(), System.currentTimeMillis() - startTime);
+    }
+
+    public void putDonation(UUID donationId, DonorLocation location) {
+        if (hasCoordinates(location)) {
+            donations.put(donationId, location.getLatitude(), location.getLongitude());
+        }
+    }
+
+    public void putRequest(UUID receiveRequestId, RecipientLocation location) {
+        if (hasCoordinates(location)) {
+            requests.put(receiveRequestId, location.getLatitude(), location.getLongitude());
+        }
+    }
+
+    public void donationStatusChanged(UUID donationId, DonationStatus status) {
+        if (!OPEN_DONATION_STATUSES.contains(status)) {
+            donationsClosed(List.of(donationId));
+        }
+    }
+
+    public void requestStatusChanged(UUID receiveRequestId, RequestStatus status) {
+        if (!OPEN_REQUEST_STATUSES.contains(status)) {
+            requestsClosed(List.of(receiveRequestId));
+        }
+    }
+
+    public void donationsClosed(Collection<UUID> donationIds) {
+        donationIds.forEach(donations::remove);
+    }
+
+    public void requestsClosed(Collection<UUID> receiveRequestIds) {
+        receiveRequestIds.forEach(requests::remove);
+    }
+
+    /**
+     * For each request with a location, the ids of the {@code candidates} within
+     * {@code radiusKm} of it. Requests without a location are left out of the map and are not
+     * constrained. The smaller side is the one queried: each request against the donation index,
+     * or each donation against the request index. A donation or request missing from its index,
+     * or every pair while the startup build is still running, is checked with a direct distance.
+     */
+    public Map<UUID, Set<UUID>> donationsWithinRadius(List<ReceiveRequest> requestsToCheck,
+                                                      List<Donation> candidates,
+                                                      double radiusKm) {
+        Map<UUID, Set<UUID>> within = new HashMap<>();
+        for (ReceiveRequest request : requestsToCheck) {
+            if (hasCoordinates(request.getLocation())) {
+                within.put(request.getReceiveRequestId(), new HashSet<>());
+            }
+        }
+        if (within.isEmpty()) {
+            return within;
+        }
+
+        if (!ready) {
+            for (ReceiveRequest request : requestsToCheck) {
+                Set<UUID> allowed = within.get(request.getReceiveRequestId());
+                if (allowed != null) {
+                    candidates.stream()
+                            .filter(donation -> directlyWithin(donation, request, radiusKm))
+                            .forEach(donation -> allowed.add(donation.getDonationId()));
+                }
+            }
+            return within;
+        }
+
+        if (within.size() <= candidates.size()) {
+            Set<UUID> candidateIds = new HashSet<>();
+            List<Donation> unindexed = new ArrayList<>();
+            for (Donation donation : candidates) {
+                candidateIds.add(donation.getDonationId());
+                if (!donations.contains(donation.getDonationId())) {
+                    unindexed.add(donation);
+                }
+            }
+            for (ReceiveRequest request : requestsToCheck) {
+                Set<UUID> allowed = within.get(request.getReceiveRequestId());
+                if (allowed == null) {
+                    continue;
+                }
+                RecipientLocation location = request.getLocation();
+                for (UUID donationId : donations.within(location.getLatitude(), location.getLongitude(), radiusKm)) {
+                    if (candidateIds.contains(donationId)) {
+                        allowed.add(donationId);
+                    }
+                }
+                unindexed.stream()
+                        .filter(donation -> directlyWithin(donation, request, radiusKm))
+                        .forEach(donation -> allowed.add(donation.getDonationId()));
+            }
+        } else {
+            List<ReceiveRequest> unindexed = requestsToCheck.stream()
+                    .filter(request -> within.containsKey(request.getReceiveRequestId())
+                            && !requests.contains(request.getReceiveRequestId()))
+                    .toList();
+            for (Donation donation : candidates) {
+                DonorLocation location = donation.getLocation();
+                if (!hasCoordinates(location)) {
+                    continue;
+                }
+                for (UUID requestId : requests.within(location.getLatitude(), location.getLongitude(), radiusKm)) {
+                    Set<UUID> allowed = within.get(requestId);
+                    if (allowed != null) {
+                        allowed.add(donation.getDonationId());
+                    }
+                }
+                for (ReceiveRequest request : unindexed) {
+                    if (directlyWithin(donation, request, radiusKm)) {
+                        within.get(request.getReceiveRequestId()).add(donation.getDonationId());
+                    }
+                }
+            }
+        }
+        return within;
+    }
+
+    private static boolean directlyWithin(Donation donation, ReceiveRequest request, double radiusKm) {
+        DonorLocation donorLocation = donation.getLocation();
+        RecipientLocation recipientLocation = request.getLocation();
+        return hasCoordinates(donorLocation) && hasCoordinates(recipientLocation)
+                && GeoDistance.haversineKm(donorLocation.getLatitude(), donorLocation.getLongitude(),
+                recipientLocation.getLatitude(), recipientLocation.getLongitude()) <= radiusKm;
+    }
+
+    private static boolean hasCoordinates(DonorLocation location) {
+        return location != null && location.getLatitude() != null && location.getLongitude() != null;
+    }
+
+    private static boolean hasCoordinates(RecipientLocation location) {
+        return location != null && location.getLatitude() != null && location.getLongitude() != null;
+    }
+
+    public List<UUID> donationsWithin(double latitude, double longitude, double radiusKm) {
+        return donations.within(latitude, longitude, radiusKm);
+    }
+}
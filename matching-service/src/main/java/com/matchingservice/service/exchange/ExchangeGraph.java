@@ -0,0 +1,39 @@
+package com.matchingservice.service.exchange;
+
+import java.util.Arrays;
+
+/**
+ * Directed compatibility graph of a paired exchange pool. Node {@code u} is a living donor and,
+ * unless it is altruistic, the recipient that donor came in with. An edge {@code u -> v} means
+ * u's donor can give to v's recipient. Altruistic nodes have no incoming edges.
+ * <p>
+ * The successors of each node are sorted, so {@link #weight} is a binary search.
+ */
+public record ExchangeGraph(boolean[] altruistic, int[][] successors, double[][] weights) {
+
+    public ExchangeGraph {
+        if (altruistic.length != successors.length || successors.length != weights.length) {
+            throw new IllegalArgumentException("Inconsistent exchange graph layout");
+        }
+    }
+
+    public int size() {
+        return altruistic.length;
+    }
+
+    /**
+     * Weight of the edge {@code from -> to}, or {@code NaN} when there is none.
+     */
+    public double weight(int from, int to) {
+        int index = Arrays.binarySearch(successors[from], to);
+        return index >= 0 ? weights[from][index] : Double.NaN;
+    }
+
+    public int edges() {
+        int edges = 0;
+        for (int[] out : successors) {
+            edges += out.length;
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,160 @@
+package com.matchingservice.service.exchange;
+
+import com.matchingservice.enums.*;
+import com.matchingservice.model.ExchangePair;
+import com.matchingservice.model.donor.*;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.model.recipients.RecipientHLAProfile;
+import com.matchingservice.repository.ExchangePairRepository;
+import com.matchingservice.service.candidate.BloodTypeCompatibility;
+import com.matchingservice.service.hla.HlaAlleleCodec;
+import com.matchingservice.service.hla.HlaTyping;
+import com.matchingservice.service.ml_scheduler.MatchingSnapshotLoader;
+import com.matchingservice.service.scoring.HlaMismatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the active exchange pairs in one read-only transaction and builds their compatibility
+ * graph. A pair only takes part while its donation is a PENDING living-donor kidney and, unless
+ * it is altruistic, its request is a PENDING kidney request.
+ * <p>
+ * Donor {@code u} can give to recipient {@code v} when ABO allows it, the two are different
+ * users and the A/B/DR mismatch count is within {@code matching.exchange.max-hla-mismatches}.
+ * The edge score is 0.8 for the HLA match (0.4 when either typing is missing) plus 0.2 for an
+ * identical blood group. The edge weight is 1 + score, so the search maximizes transplants first.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExchangePoolLoader {
+
+    private final ExchangePairRepository exchangePairRepository;
+    private final MatchingSnapshotLoader matchingSnapshotLoader;
+
+    @Value("${matching.exchange.max-hla-mismatches:6}")
+    private int maxHlaMismatches;
+
+    /**
+     * One pair in the pool, with what is needed to write its matches.
+     */
+    public record ExchangeNode(ExchangePair pair, Donation donation, ReceiveRequest request) {
+    }
+
+    public record ExchangePool(List<ExchangeNode> nodes, ExchangeGraph graph, double[][] scores, int[][] hlaMismatches) {
+    }
+
+    @Transactional(readOnly = true)
+    public ExchangePool load() {
+        List<ExchangePair> pairs = exchangePairRepository.findByStatus(ExchangePairStatus.ACTIVE);
+
+        Map<UUID, Donation> donations = matchingSnapshotLoader.loadDonations(
+                        pairs.stream().map(ExchangePair::getDonationId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Donation::getDonationId, Function.identity()));
+        Map<UUID, ReceiveRequest> requests = matchingSnapshotLoader.loadRequests(
+                        pairs.stream().map(ExchangePair::getReceiveRequestId).filter(Objects::nonNull).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(ReceiveRequest::getReceiveRequestId, Function.identity()));
+
+        List<ExchangeNode> nodes = new ArrayList<>();
+        for (ExchangePair pair : pairs) {
+            Donation donation = donations.get(pair.getDonationId());
+            ReceiveRequest request = pair.isAltruistic() ? null : requests.get(pair.getReceiveRequestId());
+            if (!isLivingKidneyDonation(donation) || (!pair.isAltruistic() && !isOpenKidneyRequest(request))) {
+                log.debug("Exchange pair {} is not eligible this round, skipping", pair.getId());
+                continue;
+            }
+            nodes.add(new ExchangeNode(pair, donation, request));
+        }
+
+        Map<UUID, DonorHLAProfile> donorHLA = matchingSnapshotLoader.loadLatestDonorHLA(
+                nodes.stream().map(ExchangeNode::donation).toList());
+        Map<UUID, RecipientHLAProfile> recipientHLA = matchingSnapshotLoader.loadLatestRecipientHLA(
+                nodes.stream().map(ExchangeNode::request).filter(Objects::nonNull).toList());
+
+        int size = nodes.size();
+        HlaTyping[] donorTypings = new HlaTyping[size];
+        HlaTyping[] recipientTypings = new HlaTyping[size];
+        for (int i = 0; i < size; i++) {
+            ExchangeNode node = nodes.get(i);
+            donorTypings[i] = HlaAlleleCodec.encode(donorHLA.get(node.donation().getDonorId()));
+            recipientTypings[i] = node.request() == null ? null
+                    : HlaAlleleCodec.encode(recipientHLA.get(node.request().getRecipientId()));
+        }
+
+        boolean[] altruistic = new boolean[size];
+        int[][] successors = new int[size][];
+        double[][] weights = new double[size][];
+        double[][] scores = new double[size][];
+        int[][] mismatches = new int[size][];
+
+        for (int u = 0; u < size; u++) {
+            ExchangeNode donorNode = nodes.get(u);
+            altruistic[u] = donorNode.pair().isAltruistic();
+
+            List<Integer> out = new ArrayList<>();
+            List<Double> outScores = new ArrayList<>();
+            List<Integer> outMismatches = new ArrayList<>();
+            for (int v = 0; v < size; v++) {
+                ExchangeNode recipientNode = nodes.get(v);
+                if (u == v || recipientNode.request() == null) {
+                    continue;
+                }
+                Donation donation = donorNode.donation();
+                ReceiveRequest request = recipientNode.request();
+                if (donation.getUserId().equals(request.getUserId())
+                        || donation.getBloodType() == null || request.getRequestedBloodType() == null
+                        || !BloodTypeCompatibility.canDonate(donation.getBloodType(), request.getRequestedBloodType())) {
+                    continue;
+                }
+                int mismatchCount = HlaMismatch.antigenMismatches(donorTypings[u], recipientTypings[v]);
+                if (mismatchCount > maxHlaMismatches) {
+                    continue;
+                }
+
+                double hlaScore = mismatchCount < 0
+                        ? 0.5
+                        : 1.0 - (double) mismatchCount / HlaMismatch.MAX_ANTIGEN_MISMATCHES;
+                double score = 0.8 * hlaScore + (donation.getBloodType() == request.getRequestedBloodType() ? 0.2 : 0.0);
+                out.add(v);
+                outScores.add(score);
+                outMismatches.add(mismatchCount);
+            }
+
+            successors[u] = out.stream().mapToInt(Integer::intValue).toArray();
+            scores[u] = outScores.stream().mapToDouble(Double::doubleValue).toArray();
+            weights[u] = outScores.stream().mapToDouble(score -> 1.0 + score).toArray();
+            mismatches[u] = outMismatches.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        log.info("Exchange pool has {} eligible of {} active pairs", size, pairs.size());
+        return new ExchangePool(nodes, new ExchangeGraph(altruistic, successors, weights), scores, mismatches);
+    }
+
+    private static boolean isLivingKidneyDonation(Donation donation) {
+        if (!(donation instanceof OrganDonation organ)
+                || organ.getOrganType() != OrganType.KIDNEY
+                || donation.getStatus() != DonationStatus.PENDING) {
+            return false;
+        }
+        Donor donor = donation.getDonor();
+        return donor != null && donor.getEligibilityCriteria() != null
+                && Boolean.TRUE.equals(donor.getEligibilityCriteria().getIsLivingDonor());
+    }
+
+    private static boolean isOpenKidneyRequest(ReceiveRequest request) {
+        return request != null
+                && request.getRequestType() == RequestType.ORGAN
+                && request.getRequestedOrgan() == OrganType.KIDNEY
+                && request.getStatus() == RequestStatus.PENDING;
+    }
+
+}
@@ -0,0 +1,397 @@
+package com.matchingservice.service.exchange;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Picks the set of disjoint exchanges with the largest total weight from an {@link ExchangeGraph}.
+ * <p>
+ * Candidates are cycles of 2..{@code maxCycleLength} pairs, and chains that start at an
+ * altruistic donor and pass through 1..{@code maxChainLength} pairs. The last donor of a chain
+ * does not donate in this round and stays in the pool as a bridge donor. Enumeration runs in
+ * parallel, one start node per task. Each cycle is found once, from its smallest node. A start
+ * node keeps at most {@code maxCandidatesPerNode} candidates, the heaviest ones, which bounds
+ * memory on dense pools.
+ * <p>
+ * Choosing disjoint candidates is a weighted set packing problem, solved by depth-first branch
+ * and bound:
+ * <ul>
+ *     <li>The candidates split into independent components, and each component starts from a
+ *     greedy solution.</li>
+ *     <li>The search branches on the undecided node with the fewest candidates. Each undecided
+ *     node adds its best weight-per-node to the upper bound.</li>
+ *     <li>The root of each component is split across threads by the options of its most
+ *     contested node. The threads share one incumbent, so a cut found by one prunes the
+ *     others.</li>
+ * </ul>
+ * A search that reaches {@code timeLimitMs} keeps its best solution so far. Such a result, or
+ * one with truncated candidates, is reported as not proven optimal.
+ */
+public final class ExchangeSearch {
+
+    private static final double EPSILON = 1e-9;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    public record Options(int maxCycleLength, int maxChainLength, int maxCandidatesPerNode, long timeLimitMs) {
+    }
+
+    /**
+     * A cycle or chain over graph nodes. Donor {@code nodes[i]} gives to recipient
+     * {@code nodes[i + 1]}. A cycle also closes from the last node back to the first.
+     */
+    public record Exchange(int[] nodes, double weight, boolean chain) {
+
+        public int transplants() {
+            return chain ? nodes.length - 1 : nodes.length;
+        }
+    }
+
+    public record Result(List<Exchange> exchanges, int candidates, boolean optimal) {
+
+        public int transplants() {
+            return exchanges.stream().mapToInt(Exchange::transplants).sum();
+        }
+    }
+
+    private ExchangeSearch() {
+    }
+
+    public static Result solve(ExchangeGraph graph, Options options) {
+        long deadlineNanos = System.nanoTime() + options.timeLimitMs() * 1_000_000L;
+        AtomicBoolean optimal = new AtomicBoolean(true);
+
+        List<Exchange> candidates = enumerate(graph, options, deadlineNanos, optimal);
+        if (candidates.isEmpty()) {
+            return new Result(List.of(), 0, optimal.get());
+        }
+
+        List<Exchange> chosen = new ArrayList<>();
+        for (List<Exchange> component : components(graph.size(), candidates)) {
+            PackingSearch search = new PackingSearch(component, deadlineNanos);
+            chosen.addAll(search.run());
+            if (!search.complete) {
+                optimal.set(false);
+            }
+        }
+
+        chosen.sort(Comparator.comparingDouble(Exchange::weight).reversed());
+        return new Result(chosen, candidates.size(), optimal.get());
+    }
+
+    private static List<Exchange> enumerate(ExchangeGraph graph, Options options, long deadlineNanos,
+                                            AtomicBoolean optimal) {
+        return IntStream.range(0, graph.size())
+                .parallel()
+                .mapToObj(start -> {
+                    if (System.nanoTime() > deadlineNanos) {
+                        optimal.set(false);
+                        return List.<Exchange>of();
+                    }
+                    TopCandidates found = new TopCandidates(options.maxCandidatesPerNode());
+                    int[] path = new int[Math.max(options.maxCycleLength(), options.maxChainLength() + 1)];
+                    path[0] = start;
+                    if (graph.altruistic()[start]) {
+                        extendChain(graph, options.maxChainLength(), path, 1, 0.0, found);
+                    } else {
+                        extendCycle(graph, options.maxCycleLength(), path, 1, 0.0, found);
+                    }
+                    if (found.truncated) {
+                        optimal.set(false);
+                    }
+                    return found.toList();
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private static void extendCycle(ExchangeGraph graph, int maxLength, int[] path, int length, double weight,
+                                    TopCandidates found) {
+        int start = path[0];
+        int last = path[length - 1];
+        int[] successors = graph.successors()[last];
+        for (int i = 0; i < successors.length; i++) {
+            int next = successors[i];
+            if (next <= start || graph.altruistic()[next] || onPath(path, length, next)) {
+                continue;
+            }
+            double extended = weight + graph.weights()[last][i];
+            double closing = graph.weight(next, start);
+            if (!Double.isNaN(closing)) {
+                path[length] = next;
+                found.offer(path, length + 1, extended + closing, false);
+            }
+            if (length + 1 < maxLength) {
+                path[length] = next;
+                extendCycle(graph, maxLength, path, length + 1, extended, found);
+            }
+        }
+    }
+
+    private static void extendChain(ExchangeGraph graph, int maxPairs, int[] path, int length, double weight,
+                                    TopCandidates found) {
+        int last = path[length - 1];
+        int[] successors = graph.successors()[last];
+        for (int i = 0; i < successors.length; i++) {
+            int next = successors[i];
+            if (graph.altruistic()[next] || onPath(path, length, next)) {
+                continue;
+            }
+            double extended = weight + graph.weights()[last][i];
+            path[length] = next;
+            found.offer(path, length + 1, extended, true);
+            if (length < maxPairs) {
+                extendChain(graph, maxPairs, path, length + 1, extended, found);
+            }
+        }
+    }
+
+    private static boolean onPath(int[] path, int length, int node) {
+        for (int i = 0; i < length; i++) {
+            if (path[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Heaviest {@code limit} candidates of one start node. The path is only copied once a
+     * candidate is accepted.
+     */
+    private static final class TopCandidates {
+
+        private final int limit;
+        private final PriorityQueue<Exchange> lightestFirst = new PriorityQueue<>(Comparator.comparingDouble(Exchange::weight));
+        private boolean truncated;
+
+        TopCandidates(int limit) {
+            this.limit = Math.max(1, limit);
+        }
+
+        void offer(int[] path, int length, double weight, boolean chain) {
+            if (lightestFirst.size() >= limit) {
+                truncated = true;
+                if (weight <= lightestFirst.peek().weight()) {
+                    return;
+                }
+                lightestFirst.poll();
+            }
+            lightestFirst.add(new Exchange(Arrays.copyOf(path, length), weight, chain));
+        }
+
+        List<Exchange> toList() {
+            return new ArrayList<>(lightestFirst);
+        }
+    }
+
+    private static List<List<Exchange>> components(int size, List<Exchange> candidates) {
+        int[] parent = new int[size];
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        for (Exchange candidate : candidates) {
+            int root = find(parent, candidate.nodes()[0]);
+            for (int node : candidate.nodes()) {
+                parent[find(parent, node)] = root;
+            }
+        }
+
+        Map<Integer, List<Exchange>> byRoot = new HashMap<>();
+        for (Exchange candidate : candidates) {
+            byRoot.computeIfAbsent(find(parent, candidate.nodes()[0]), k -> new ArrayList<>()).add(candidate);
+        }
+        return new ArrayList<>(byRoot.values());
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Branch and bound over one component, with nodes renumbered 0..n-1.
+     */
+    private static final class PackingSearch {
+
+        private final List<Exchange> candidates;
+        private final int[][] candidateNodes;
+        private final int[][] candidatesOfNode;
+        private final double[] nodeBound;
+        private final int[] order;
+        private final long deadlineNanos;
+
+        private List<Integer> best = List.of();
+        private volatile double bestWeight;
+        private volatile boolean complete = true;
+
+        PackingSearch(List<Exchange> candidates, long deadlineNanos) {
+            this.candidates = candidates;
+            this.deadlineNanos = deadlineNanos;
+
+            Map<Integer, Integer> local = new HashMap<>();
+            candidateNodes = new int[candidates.size()][];
+            for (int c = 0; c < candidates.size(); c++) {
+                int[] nodes = candidates.get(c).nodes();
+                candidateNodes[c] = new int[nodes.length];
+                for (int i = 0; i < nodes.length; i++) {
+                    candidateNodes[c][i] = local.computeIfAbsent(nodes[i], k -> local.size());
+                }
+            }
+
+            int n = local.size();
+            int[] counts = new int[n];
+            nodeBound = new double[n];
+            for (int c = 0; c < candidates.size(); c++) {
+                double perNode = candidates.get(c).weight() / candidateNodes[c].length;
+                for (int node : candidateNodes[c]) {
+                    counts[node]++;
+                    nodeBound[node] = Math.max(nodeBound[node], perNode);
+                }
+            }
+            candidatesOfNode = new int[n][];
+            int[] filled = new int[n];
+            for (int node = 0; node < n; node++) {
+                candidatesOfNode[node] = new int[counts[node]];
+            }
+            for (int c : byWeight()) {
+                for (int node : candidateNodes[c]) {
+                    candidatesOfNode[node][filled[node]++] = c;
+                }
+            }
+
+            order = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingInt(node -> counts[node]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        List<Exchange> run() {
+            greedy();
+
+            double bound = 0.0;
+            for (double value : nodeBound) {
+                bound += value;
+            }
+            double rootBound = bound;
+
+            int split = order[order.length - 1];
+            List<Integer> options = new ArrayList<>();
+            for (int c : candidatesOfNode[split]) {
+                options.add(c);
+            }
+            options.add(-1);
+
+            options.parallelStream().forEach(option -> {
+                Worker worker = new Worker();
+                if (option >= 0) {
+                    double released = 0.0;
+                    for (int member : candidateNodes[option]) {
+                        worker.decided[member] = true;
+                        released += nodeBound[member];
+                    }
+                    worker.current.push(option);
+                    worker.branch(0, candidates.get(option).weight(), rootBound - released);
+                } else {
+                    worker.decided[split] = true;
+                    worker.branch(0, 0.0, rootBound - nodeBound[split]);
+                }
+            });
+
+            return best.stream().map(candidates::get).collect(Collectors.toList());
+        }
+
+        private void greedy() {
+            boolean[] used = new boolean[order.length];
+            List<Integer> picked = new ArrayList<>();
+            double weight = 0.0;
+            for (int c : byWeight()) {
+                if (isFree(c, used)) {
+                    for (int node : candidateNodes[c]) {
+                        used[node] = true;
+                    }
+                    picked.add(c);
+                    weight += candidates.get(c).weight();
+                }
+            }
+            best = picked;
+            bestWeight = weight;
+        }
+
+        private synchronized void offer(double weight, Collection<Integer> chosen) {
+            if (weight > bestWeight + EPSILON) {
+                bestWeight = weight;
+                best = new ArrayList<>(chosen);
+            }
+        }
+
+        private int[] byWeight() {
+            return IntStream.range(0, candidates.size()).boxed()
+                    .sorted((a, b) -> Double.compare(candidates.get(b).weight(), candidates.get(a).weight()))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        private boolean isFree(int candidate, boolean[] taken) {
+            for (int node : candidateNodes[candidate]) {
+                if (taken[node]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private final class Worker {
+
+            private final boolean[] decided = new boolean[order.length];
+            private final Deque<Integer> current = new ArrayDeque<>();
+            private long expansions;
+
+            void branch(int position, double weight, double bound) {
+                if (!complete) {
+                    return;
+                }
+                if (++expansions % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadlineNanos) {
+                    complete = false;
+                    return;
+                }
+                while (position < order.length && decided[order[position]]) {
+                    position++;
+                }
+                if (position == order.length) {
+                    offer(weight, current);
+                    return;
+                }
+                if (weight + bound <= bestWeight + EPSILON) {
+                    return;
+                }
+
+                int node = order[position];
+                for (int c : candidatesOfNode[node]) {
+                    if (!isFree(c, decided)) {
+                        continue;
+                    }
+                    double released = 0.0;
+                    for (int member : candidateNodes[c]) {
+                        decided[member] = true;
+                        released += nodeBound[member];
+                    }
+                    current.push(c);
+                    branch(position + 1, weight + candidates.get(c).weight(), bound - released);
+                    current.pop();
+                    for (int member : candidateNodes[c]) {
+                        decided[member] = false;
+                    }
+                }
+
+                decided[node] = true;
+                branch(position + 1, weight, bound - nodeBound[node]);
+                decided[node] = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.matchingservice.service.exchange;
+
+import com.matchingservice.dto.ExchangePairRequest;
+import com.matchingservice.dto.ExchangePairResponse;
+import com.matchingservice.dto.MatchResponse;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.enums.*;
+import com.matchingservice.exceptions.InvalidStatusException;
+import com.matchingservice.exceptions.ResourceNotFoundException;
+import com.matchingservice.model.ExchangePair;
+import com.matchingservice.model.MatchResult;
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.donor.DonorLocation;
+import com.matchingservice.model.donor.OrganDonation;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.model.recipients.RecipientLocation;
+import com.matchingservice.repository.ExchangePairRepository;
+import com.matchingservice.repository.donor.DonationRepository;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import com.matchingservice.service.ml_scheduler.MLMatchWriter;
+import com.matchingservice.service.scoring.GeoDistance;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Living-donor paired kidney exchange. Donors who are incompatible with their own recipient, and
+ * altruistic donors, are enrolled as {@link ExchangePair}s. Each run loads the pool with
+ * {@link ExchangePoolLoader}, picks disjoint 2- and 3-way cycles and altruistic chains with
+ * {@link ExchangeSearch} and writes every transplant of one exchange as a {@link MatchResult}
+ * sharing one {@code exchangeCycleId}.
+ * <p>
+ * An exchange is written all or nothing. If any of its matches no longer validates, none is
+ * written and its pairs stay in the pool for the next run. The last pair of a chain keeps its
+ * donor in the pool as an altruistic bridge donor.
+ */
+@Service
+@Slf4j
+public class PairedExchangeService {
+
+    private final ExchangePairRepository exchangePairRepository;
+    private final DonationRepository donationRepository;
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final ExchangePoolLoader exchangePoolLoader;
+    private final MLMatchWriter mlMatchWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer searchTimer;
+    private final Counter transplantsCounter;
+    private final Counter notOptimalCounter;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${matching.exchange.enabled:false}")
+    private boolean scheduledRunEnabled;
+
+    @Value("${matching.exchange.max-cycle-length:3}")
+    private int maxCycleLength;
+
+    @Value("${matching.exchange.max-chain-length:3}")
+    private int maxChainLength;
+
+    @Value("${matching.exchange.max-candidates-per-node:2000}")
+    private int maxCandidatesPerNode;
+
+    @Value("${matching.exchange.time-limit-ms:10000}")
+    private long timeLimitMs;
+
+    public PairedExchangeService(ExchangePairRepository exchangePairRepository,
+                                 DonationRepository donationRepository,
+                                 ReceiveRequestRepository receiveRequestRepository,
+                                 ExchangePoolLoader exchangePoolLoader,
+                                 MLMatchWriter mlMatchWriter,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.exchangePairRepository = exchangePairRepository;
+        this.donationRepository = donationRepository;
+        this.receiveRequestRepository = receiveRequestRepository;
+        this.exchangePoolLoader = exchangePoolLoader;
+        this.mlMatchWriter = mlMatchWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.searchTimer = meterRegistry.timer("matching.exchange.search");
+        this.transplantsCounter = meterRegistry.counter("matching.exchange.transplants");
+        this.notOptimalCounter = meterRegistry.counter("matching.exchange.not_optimal");
+    }
+
+    @Transactional
+    public ExchangePairResponse register(ExchangePairRequest request) {
+        Donation donation = donationRepository.findById(request.getDonationId())
+                .orElseThrow(() -> new ResourceNotFoundException("Donation not found with id: " + request.getDonationId()));
+        if (!(donation instanceof OrganDonation organ) || organ.getOrganType() != OrganType.KIDNEY) {
+            throw new InvalidStatusException("Only kidney donations can be enrolled in paired exchange");
+        }
+        if (donation.getStatus() != DonationStatus.PENDING) {
+            throw new InvalidStatusException("Donation must be PENDING to enrol in paired exchange, current status: " + donation.getStatus());
+        }
+        if (donation.getDonor() == null || donation.getDonor().getEligibilityCriteria() == null
+                || !Boolean.TRUE.equals(donation.getDonor().getEligibilityCriteria().getIsLivingDonor())) {
+            throw new InvalidStatusException("Only living donors can be enrolled in paired exchange");
+        }
+        if (exchangePairRepository.existsByDonationIdAndStatus(donation.getDonationId(), ExchangePairStatus.ACTIVE)) {
+            throw new InvalidStatusException("Donation " + donation.getDonationId() + " is already enrolled in paired exchange");
+        }
+
+        if (request.getReceiveRequestId() != null) {
+            ReceiveRequest receiveRequest = receiveRequestRepository.findById(request.getReceiveRequestId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Request not found with id: " + request.getReceiveRequestId()));
+            if (receiveRequest.getRequestType() != RequestType.ORGAN || receiveRequest.getRequestedOrgan() != OrganType.KIDNEY) {
+                throw new InvalidStatusException("Only kidney requests can be enrolled in paired exchange");
+            }
+            if (receiveRequest.getStatus() != RequestStatus.PENDING) {
+                throw new InvalidStatusException("Request must be PENDING to enrol in paired exchange, current status: " + receiveRequest.getStatus());
+            }
+        }
+
+        ExchangePair pair = new ExchangePair();
+        pair.setDonationId(donation.getDonationId());
+        pair.setReceiveRequestId(request.getReceiveRequestId());
+        pair.setRegisteredAt(LocalDateTime.now());
+        ExchangePair saved = exchangePairRepository.save(pair);
+        log.info("Enrolled donation {} in paired exchange ({})", saved.getDonationId(),
+                saved.isAltruistic() ? "altruistic" : "paired with request " + saved.getReceiveRequestId());
+        return ExchangePairResponse.fromExchangePair(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ExchangePairResponse> listActive() {
+        return exchangePairRepository.findByStatus(ExchangePairStatus.ACTIVE).stream()
+                .map(ExchangePairResponse::fromExchangePair)
+                .toList();
+    }
+
+    @Transactional
+    public ExchangePairResponse withdraw(UUID exchangePairId) {
+        ExchangePair pair = exchangePairRepository.findById(exchangePairId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exchange pair not found with id: " + exchangePairId));
+        if (pair.getStatus() != ExchangePairStatus.ACTIVE) {
+            throw new InvalidStatusException("Only an active exchange pair can be withdrawn, current status: " + pair.getStatus());
+        }
+        pair.setStatus(ExchangePairStatus.WITHDRAWN);
+        return ExchangePairResponse.fromExchangePair(exchangePairRepository.save(pair));
+    }
+
+    @Scheduled(cron = "${matching.exchange.cron:0 0 * * * *}")
+    public void scheduledRun() {
+        if (!scheduledRunEnabled) {
+            return;
+        }
+        runExchange();
+    }
+
+    /**
+     * Runs one exchange round over the current pool and returns the matches written.
+     *
+     * @throws IllegalStateException when a round is already running
+     */
+    public List<MatchResponse> runExchange() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A paired exchange run is already in progress");
+        }
+        try {
+            ExchangePoolLoader.ExchangePool pool = exchangePoolLoader.load();
+            if (pool.nodes().size() < 2) {
+                log.info("Paired exchange pool has {} eligible pairs, nothing to search", pool.nodes().size());
+                return List.of();
+            }
+
+            ExchangeSearch.Options options = new ExchangeSearch.Options(
+                    maxCycleLength, maxChainLength, maxCandidatesPerNode, timeLimitMs);
+            ExchangeSearch.Result result = searchTimer.record(() -> ExchangeSearch.solve(pool.graph(), options));
+            if (!result.optimal()) {
+                notOptimalCounter.increment();
+            }
+            log.info("Paired exchange search over {} pairs and {} edges: {} candidates, {} exchanges, {} transplants{}",
+                    pool.nodes().size(), pool.graph().edges(), result.candidates(), result.exchanges().size(),
+                    result.transplants(), result.optimal() ? "" : " (time limit reached, best found)");
+
+            List<MatchResponse> written = new ArrayList<>();
+            for (ExchangeSearch.Exchange exchange : result.exchanges()) {
+                try {
+                    List<MatchResult> created = transactionTemplate.execute(status -> writeExchange(pool, exchange));
+                    created.forEach(match -> written.add(MatchResponse.fromMatchResult(match)));
+                    transplantsCounter.increment(created.size());
+                } catch (RuntimeException e) {
+                    // One exchange that cannot be written must not cost the rest of the round theirs.
+                    log.warn("Skipping paired exchange over {} pairs: {}", exchange.nodes().length, e.getMessage());
+                }
+            }
+            return written;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<MatchResult> writeExchange(ExchangePoolLoader.ExchangePool pool, ExchangeSearch.Exchange exchange) {
+        UUID exchangeCycleId = UUID.randomUUID();
+        int[] nodes = exchange.nodes();
+        int transplants = exchange.transplants();
+        String reason = exchange.chain()
+                ? "Paired exchange: altruistic chain of " + transplants + " transplants"
+                : "Paired exchange: " + transplants + "-way cycle";
+
+        List<MLMatchResult> matches = new ArrayList<>(transplants);
+        for (int i = 0; i < transplants; i++) {
+            int from = nodes[i];
+            int to = nodes[(i + 1) % nodes.length];
+            matches.add(toMatch(pool, from, to, reason, exchangeCycleId));
+        }
+        List<MatchResult> created = mlMatchWriter.persistLinked(matches);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ExchangePair> pairs = new ArrayList<>(nodes.length);
+        for (int i = 0; i < nodes.length; i++) {
+            ExchangePair pair = pool.nodes().get(nodes[i]).pair();
+            if (exchange.chain() && i == nodes.length - 1) {
+                // The bridge donor's recipient is served, the donor stays in the pool for the next round.
+                pair.setReceiveRequestId(null);
+            } else {
+                pair.setStatus(ExchangePairStatus.MATCHED);
+                pair.setMatchedAt(now);
+            }
+            pair.setExchangeCycleId(exchangeCycleId);
+            pairs.add(pair);
+        }
+        exchangePairRepository.saveAll(pairs);
+        return created;
+    }
+
+    private static boolean hasCoordinates(DonorLocation location) {
+        return location != null && location.getLatitude() != null && location.getLongitude() != null;
+    }
+
+    private static boolean hasCoordinates(RecipientLocation location) {
+        return location != null && location.getLatitude() != null && location.getLongitude() != null;
+    }
+
+    private static MLMatchResult toMatch(ExchangePoolLoader.ExchangePool pool, int from, int to,
+                                         String reason, UUID exchangeCycleId) {
+        Donation donation = pool.nodes().get(from).donation();
+        ReceiveRequest request = pool.nodes().get(to).request();
+        int edge = Arrays.binarySearch(pool.graph().successors()[from], to);
+        int mismatches = pool.hlaMismatches()[from][edge];
+
+        DonorLocation donorLocation = donation.getLocation();
+        RecipientLocation recipientLocation = request.getLocation();
+        Double distanceKm = null;
+        if (hasCoordinates(donorLocation) && hasCoordinates(recipientLocation)) {
+            distanceKm = GeoDistance.haversineKm(
+                    donorLocation.getLatitude(), donorLocation.getLongitude(),
+                    recipientLocation.getLatitude(), recipientLocation.getLongitude());
+        }
+
+        return MLMatchResult.builder()
+                .donationId(donation.getDonationId())
+                .receiveRequestId(request.getReceiveRequestId())
+                .donorUserId(donation.getUserId())
+                .recipientUserId(request.getUserId())
+                .donorLocationId(donorLocation != null ? donorLocation.getLocationId() : null)
+                .recipientLocationId(recipientLocation != null ? recipientLocation.getLocationId() : null)
+                .compatibilityScore(pool.scores()[from][edge])
+                .hlaMismatchCount(mismatches >= 0 ? mismatches : null)
+                .distanceKm(distanceKm)
+                .matchReason(reason)
+                .priorityRank(1)
+                .exchangeCycleId(exchangeCycleId)
+                .build();
+    }
+}
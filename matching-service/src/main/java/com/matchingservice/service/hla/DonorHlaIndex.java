@@ -0,0 +1,201 @@
+package com.matchingservice.service.hla;
+
+import com.matchingservice.dto.HlaTypingRow;
+import com.matchingservice.repository.donor.DonorHLAProfileRepository;
+import com.matchingservice.service.scoring.HlaMismatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from A/B/DR antigen code to the donors carrying it, over the latest
+ * typing of every donor in the registry. It answers "all donors within {@code k} mismatches of
+ * this recipient" without touching the HLA tables.
+ * <p>
+ * A donor's mismatch count is its antigen count minus the antigens it shares with the
+ * recipient. The shared counts come from the posting lists of the recipient's (at most six)
+ * antigens. Donors that share nothing are only within {@code k} when they have at most
+ * {@code k} typed antigens, and those are kept in a separate bitset per antigen count.
+ * <p>
+ * The index is built from {@code donor_hla_profiles} when the application starts, and every
+ * ingested profile is added through {@link #put}. An older typing never replaces a newer one,
+ * so the startup scan and live ingest can overlap.
+ */
+@Component
+@Slf4j
+public class DonorHlaIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    /**
+     * A donor found by {@link #search}, with its A/B/DR mismatch count against the recipient.
+     */
+    public record Candidate(UUID donorId, int mismatches) {
+    }
+
+    private final DonorHLAProfileRepository donorHLAProfileRepository;
+    private final Timer searchTimer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final List<UUID> donorIds = new ArrayList<>();
+    private final List<HlaTyping> typings = new ArrayList<>();
+    private final List<LocalDateTime> typedAt = new ArrayList<>();
+    private final Map<Integer, BitSet> postings = new HashMap<>();
+    private final BitSet[] byAntigenCount = new BitSet[HlaMismatch.MAX_ANTIGEN_MISMATCHES + 1];
+
+    public DonorHlaIndex(DonorHLAProfileRepository donorHLAProfileRepository, MeterRegistry meterRegistry) {
+        this.donorHLAProfileRepository = donorHLAProfileRepository;
+        this.searchTimer = meterRegistry.timer("matching.hla_index.search");
+        for (int count = 0; count < byAntigenCount.length; count++) {
+            byAntigenCount[count] = new BitSet();
+        }
+        meterRegistry.gauge("matching.hla_index.donors", this, DonorHlaIndex::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startTime = System.currentTimeMillis();
+        Pageable page = PageRequest.of(0, REBUILD_PAGE_SIZE);
+        long loaded = 0;
+        Slice<HlaTypingRow> slice;
+        do {
+            slice = donorHLAProfileRepository.findAllTypings(page);
+            for (HlaTypingRow row : slice) {
+                put(row.donorId(), HlaAlleleCodec.encode(row.hlaA1(), row.hlaA2(), row.hlaB1(), row.hlaB2(),
+                        row.hlaDR1(), row.hlaDR2()), row.eventTimestamp());
+            }
+            loaded += slice.getNumberOfElements();
+            page = slice.nextPageable();
+        } while (slice.hasNext());
+        log.info("Donor HLA index built from {} profiles ({} donors) in {}ms",
+                loaded, size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Records a donor's typing unless the index already holds a newer one for that donor. A
+     * typing with no A/B/DR antigens is ignored.
+     */
+    public void put(UUID donorId, HlaTyping typing, LocalDateTime typingTimestamp) {
+        if (donorId == null || typing == null || typing.antigenCount() == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(donorId);
+            if (ordinal == null) {
+                ordinal = donorIds.size();
+                ordinals.put(donorId, ordinal);
+                donorIds.add(donorId);
+                typings.add(null);
+                typedAt.add(null);
+            } else {
+                LocalDateTime current = typedAt.get(ordinal);
+                if (current != null && typingTimestamp != null && typingTimestamp.isBefore(current)) {
+                    return;
+                }
+                unlink(ordinal, typings.get(ordinal));
+            }
+            typings.set(ordinal, typing);
+            typedAt.set(ordinal, typingTimestamp);
+            for (int code : typing.codes()) {
+                postings.computeIfAbsent(code, k -> new BitSet()).set(ordinal);
+            }
+            byAntigenCount[Math.min(typing.antigenCount(), HlaMismatch.MAX_ANTIGEN_MISMATCHES)].set(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Every indexed donor with at most {@code maxMismatches} A/B/DR mismatches against the
+     * recipient, fewest mismatches first.
+     */
+    public List<Candidate> search(HlaTyping recipient, int maxMismatches) {
+        return searchTimer.record(() -> {
+            lock.readLock().lock();
+            try {
+                return searchLocked(recipient, maxMismatches);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return donorIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Candidate> searchLocked(HlaTyping recipient, int maxMismatches) {
+        int limit = Math.min(maxMismatches, HlaMismatch.MAX_ANTIGEN_MISMATCHES);
+        if (limit < 0) {
+            return List.of();
+        }
+        List<List<UUID>> byMismatches = new ArrayList<>(limit + 1);
+        for (int level = 0; level <= limit; level++) {
+            byMismatches.add(new ArrayList<>());
+        }
+
+        byte[] shared = new byte[donorIds.size()];
+        BitSet touched = new BitSet(donorIds.size());
+        for (int code : recipient.codes()) {
+            BitSet carriers = postings.get(code);
+            if (carriers == null) {
+                continue;
+            }
+            for (int ordinal = carriers.nextSetBit(0); ordinal >= 0; ordinal = carriers.nextSetBit(ordinal + 1)) {
+                shared[ordinal]++;
+            }
+            touched.or(carriers);
+        }
+        for (int ordinal = touched.nextSetBit(0); ordinal >= 0; ordinal = touched.nextSetBit(ordinal + 1)) {
+            int mismatches = typings.get(ordinal).antigenCount() - shared[ordinal];
+            if (mismatches <= limit) {
+                byMismatches.get(mismatches).add(donorIds.get(ordinal));
+            }
+        }
+        for (int count = 0; count <= limit; count++) {
+            BitSet untouched = (BitSet) byAntigenCount[count].clone();
+            untouched.andNot(touched);
+            for (int ordinal = untouched.nextSetBit(0); ordinal >= 0; ordinal = untouched.nextSetBit(ordinal + 1)) {
+                byMismatches.get(count).add(donorIds.get(ordinal));
+            }
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (int level = 0; level <= limit; level++) {
+            for (UUID donorId : byMismatches.get(level)) {
+                candidates.add(new Candidate(donorId, level));
+            }
+        }
+        return candidates;
+    }
+
+    private void unlink(int ordinal, HlaTyping typing) {
+        if (typing == null) {
+            return;
+        }
+        for (int code : typing.codes()) {
+            BitSet carriers = postings.get(code);
+            if (carriers != null) {
+                carriers.clear(ordinal);
+            }
+        }
+        byAntigenCount[Math.min(typing.antigenCount(), HlaMismatch.MAX_ANTIGEN_MISMATCHES)].clear(ordinal);
+    }
+}
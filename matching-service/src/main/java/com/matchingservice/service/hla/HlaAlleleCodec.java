@@ -0,0 +1,113 @@
+package com.matchingservice.service.hla;
+
+import com.matchingservice.model.donor.DonorHLAProfile;
+import com.matchingservice.model.recipients.RecipientHLAProfile;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Normalizes free-text HLA alleles to antigen level and interns each (locus, antigen) as a small
+ * integer code. Alleles are compared on their first field without the locus name or leading
+ * zeros, so {@code A*02:01}, {@code HLA-A*02}, the serological {@code A2} and a bare {@code 02}
+ * all become antigen {@code 2} at locus A. Codes are handed out on first sight and are stable
+ * for the life of the process. A registry has a few hundred A/B/DR antigens, so a typing's bitset
+ * is a handful of words.
+ */
+public final class HlaAlleleCodec {
+
+    public enum Locus {
+        A("A"), B("B"), DR("DRB1", "DR");
+
+        private final String[] prefixes;
+
+        Locus(String... prefixes) {
+            this.prefixes = prefixes;
+        }
+    }
+
+    private static final ConcurrentMap<String, Integer> CODES = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_CODE = new AtomicInteger();
+
+    private HlaAlleleCodec() {
+    }
+
+    /**
+     * Code of the antigen of {@code allele} at {@code locus}, or -1 when the allele is blank.
+     */
+    public static int code(Locus locus, String allele) {
+        String antigen = antigen(locus, allele);
+        if (antigen == null) {
+            return -1;
+        }
+        return CODES.computeIfAbsent(locus.name() + '|' + antigen, key -> NEXT_CODE.getAndIncrement());
+    }
+
+    /**
+     * Encoded typing of the six alleles, or null when all of them are blank. An untyped donor or
+     * recipient must not look like one that matches everything.
+     */
+    public static HlaTyping encode(String a1, String a2, String b1, String b2, String dr1, String dr2) {
+        HlaTyping typing = HlaTyping.of(new int[]{
+                code(Locus.A, a1), code(Locus.A, a2),
+                code(Locus.B, b1), code(Locus.B, b2),
+                code(Locus.DR, dr1), code(Locus.DR, dr2)});
+        return typing.antigenCount() == 0 ? null : typing;
+    }
+
+    /**
+     * Encoded typing of the profile, or null when there is no profile or it has no A/B/DR allele.
+     */
+    public static HlaTyping encode(DonorHLAProfile profile) {
+        if (profile == null) {
+            return null;
+        }
+        return encode(profile.getHlaA1(), profile.getHlaA2(), profile.getHlaB1(), profile.getHlaB2(),
+                profile.getHlaDR1(), profile.getHlaDR2());
+    }
+
+    /**
+     * Encoded typing of the profile, or null when there is no profile or it has no A/B/DR allele.
+     */
+    public static HlaTyping encode(RecipientHLAProfile profile) {
+        if (profile == null) {
+            return null;
+        }
+        return encode(profile.getHlaA1(), profile.getHlaA2(), profile.getHlaB1(), profile.getHlaB2(),
+                profile.getHlaDR1(), profile.getHlaDR2());
+    }
+
+    static String antigen(Locus locus, String allele) {
+        if (allele == null || allele.isBlank()) {
+            return null;
+        }
+        String normalized = allele.trim().toUpperCase(Locale.ROOT);
+        if (normalized.startsWith("HLA-")) {
+            normalized = normalized.substring(4);
+        }
+        for (String prefix : locus.prefixes) {
+            // Only a locus name followed by '*' or a number is a prefix: "BW4" is an epitope.
+            if (normalized.startsWith(prefix + '*')) {
+                normalized = normalized.substring(prefix.length() + 1);
+                break;
+            }
+            if (normalized.length() > prefix.length() && normalized.startsWith(prefix)
+                    && Character.isDigit(normalized.charAt(prefix.length()))) {
+                normalized = normalized.substring(prefix.length());
+                break;
+            }
+        }
+        int fieldSeparator = normalized.indexOf(':');
+        String field = fieldSeparator >= 0 ? normalized.substring(0, fieldSeparator) : normalized;
+        if (field.isEmpty()) {
+            return null;
+        }
+        int start = 0;
+        while (start < field.length() - 1 && field.charAt(start) == '0' && Character.isDigit(field.charAt(start + 1))) {
+            start++;
+        }
+        return field.substring(start);
+    }
+}
@@ -0,0 +1,53 @@
+package com.matchingservice.service.hla;
+
+import com.matchingservice.dto.HlaDonorMatchResponse;
+import com.matchingservice.enums.RequestType;
+import com.matchingservice.exceptions.InvalidStatusException;
+import com.matchingservice.exceptions.ResourceNotFoundException;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.model.recipients.RecipientHLAProfile;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import com.matchingservice.repository.recipient.RecipientHLAProfileRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registry-wide HLA search for an ORGAN or STEM_CELL request: every donor within a given number
+ * of A/B/DR mismatches of the recipient's latest typing, best matches first, answered from
+ * {@link DonorHlaIndex}.
+ */
+@Service
+@RequiredArgsConstructor
+public class HlaDonorSearchService {
+
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final RecipientHLAProfileRepository recipientHLAProfileRepository;
+    private final DonorHlaIndex donorHlaIndex;
+
+    @Transactional(readOnly = true)
+    public List<HlaDonorMatchResponse> searchDonors(UUID receiveRequestId, int maxMismatches, int limit) {
+        ReceiveRequest request = receiveRequestRepository.findById(receiveRequestId)
+                .orElseThrow(() -> new ResourceNotFoundException("Request not found with id: " + receiveRequestId));
+        if (request.getRequestType() != RequestType.ORGAN && request.getRequestType() != RequestType.STEM_CELL) {
+            throw new InvalidStatusException("HLA donor search is only available for ORGAN and STEM_CELL requests");
+        }
+
+        RecipientHLAProfile profile = recipientHLAProfileRepository.findLatestByRecipientIdIn(List.of(request.getRecipientId()))
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new InvalidStatusException("Recipient of request " + receiveRequestId + " has no HLA typing"));
+        HlaTyping typing = HlaAlleleCodec.encode(profile);
+        if (typing == null) {
+            throw new InvalidStatusException("Recipient of request " + receiveRequestId + " has no HLA typing");
+        }
+
+        return donorHlaIndex.search(typing, maxMismatches).stream()
+                .limit(Math.max(0, limit))
+                .map(candidate -> new HlaDonorMatchResponse(candidate.donorId(), candidate.mismatches()))
+                .toList();
+    }
+}
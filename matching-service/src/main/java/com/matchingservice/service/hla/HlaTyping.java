@@ -0,0 +1,41 @@
+package com.matchingservice.service.hla;
+
+import java.util.Arrays;
+
+/**
+ * A/B/DR antigens of one HLA typing as {@link HlaAlleleCodec} codes. {@code bits} has bit
+ * {@code code} set for every antigen carried, so a mismatch count is a few AND-NOT and popcount
+ * operations instead of string comparisons.
+ *
+ * @param codes distinct antigen codes, sorted
+ * @param bits  the same codes as a bitset, word {@code code >>> 6}, bit {@code code & 63}
+ */
+public record HlaTyping(int[] codes, long[] bits) {
+
+    public static HlaTyping of(int[] codes) {
+        int[] distinct = Arrays.stream(codes).filter(code -> code >= 0).sorted().distinct().toArray();
+        long[] bits = new long[distinct.length == 0 ? 0 : (distinct[distinct.length - 1] >>> 6) + 1];
+        for (int code : distinct) {
+            bits[code >>> 6] |= 1L << code;
+        }
+        return new HlaTyping(distinct, bits);
+    }
+
+    public int antigenCount() {
+        return codes.length;
+    }
+
+    /**
+     * Number of antigens in this typing that {@code other} does not carry. With this typing as
+     * the donor and {@code other} as the recipient, this is the A/B/DR mismatch count.
+     */
+    public int mismatchesAgainst(HlaTyping other) {
+        long[] otherBits = other.bits;
+        int mismatches = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long carried = word < otherBits.length ? otherBits[word] : 0L;
+            mismatches += Long.bitCount(bits[word] & ~carried);
+        }
+        return mismatches;
+    }
+}
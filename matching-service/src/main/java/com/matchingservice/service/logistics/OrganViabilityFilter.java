@@ -0,0 +1,100 @@
+package com.matchingservice.service.logistics;
+
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.donor.OrganDonation;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Drops the organ donations that cannot reach a request before their
+ * {@code organViabilityExpiry}, as estimated by the {@link TravelTimeEstimator}. Nothing is
+ * dropped for a donation with no expiry, or for a pair whose travel time cannot be estimated.
+ * An organ already past its expiry reaches nobody. Disabled with
+ * {@code matching.travel-time.organ-pruning.enabled=false}.
+ */
+@Component
+public class OrganViabilityFilter {
+
+    private final TravelTimeEstimator travelTimeEstimator;
+    private final boolean enabled;
+    private final Counter pairsPruned;
+
+    public OrganViabilityFilter(TravelTimeEstimator travelTimeEstimator,
+                                MeterRegistry meterRegistry,
+                                @Value("${matching.travel-time.organ-pruning.enabled:true}") boolean enabled) {
+        this.travelTimeEstimator = travelTimeEstimator;
+        this.enabled = enabled;
+        this.pairsPruned = Counter.builder("matching.candidates.pairs.viability_pruned")
+                .description("Organ pairs rejected because the organ cannot arrive before it expires")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Narrows {@code allowed}, the donation ids each request may be paired with (a request
+     * missing from it may be paired with every candidate), to the donations that arrive in time.
+     * Returns {@code allowed} itself when nothing is dropped.
+     */
+    public Map<UUID, Set<UUID>> arrivingInTime(List<ReceiveRequest> requests,
+                                               List<Donation> candidates,
+                                               Map<UUID, Set<UUID>> allowed) {
+        if (!enabled) {
+            return allowed;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OrganDonation> expiring = new ArrayList<>();
+        List<TravelPoint> origins = new ArrayList<>();
+        List<Double> minutesLeft = new ArrayList<>();
+        for (Donation donation : candidates) {
+            if (donation instanceof OrganDonation organ && organ.getOrganViabilityExpiry() != null) {
+                expiring.add(organ);
+                origins.add(TravelPoint.of(organ.getLocation()));
+                minutesLeft.add(Duration.between(now, organ.getOrganViabilityExpiry()).toSeconds() / 60.0);
+            }
+        }
+        if (expiring.isEmpty()) {
+            return allowed;
+        }
+
+        Map<UUID, Set<UUID>> narrowed = new HashMap<>(allowed);
+        long pruned = 0;
+        for (ReceiveRequest request : requests) {
+            Set<UUID> inRadius = allowed.get(request.getReceiveRequestId());
+            TravelPoint destination = TravelPoint.of(request.getLocation());
+            Set<UUID> tooFar = new HashSet<>();
+            for (int i = 0; i < expiring.size(); i++) {
+                UUID donationId = expiring.get(i).getDonationId();
+                if (inRadius != null && !inRadius.contains(donationId)) {
+                    continue;
+                }
+                double left = minutesLeft.get(i);
+                if (left <= 0 || travelTimeEstimator.minutes(origins.get(i), destination) > left) {
+                    tooFar.add(donationId);
+                }
+            }
+            if (tooFar.isEmpty()) {
+                continue;
+            }
+            Set<UUID> reachable = new HashSet<>();
+            if (inRadius == null) {
+                candidates.forEach(donation -> reachable.add(donation.getDonationId()));
+            } else {
+                reachable.addAll(inRadius);
+            }
+            reachable.removeAll(tooFar);
+            narrowed.put(request.getReceiveRequestId(), reachable);
+            pruned += tooFar.size();
+        }
+        if (pruned == 0) {
+            return allowed;
+        }
+        pairsPruned.increment(pruned);
+        return narrowed;
+    }
+}
@@ -0,0 +1,267 @@
+package com.matchingservice.service.logistics;
+
+import com.matchingservice.service.candidate.DistrictDistanceTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Default estimator. Travel times come from a road graph between district centroids, read from
+ * {@code matching.travel-time.graph-file}: a CSV of
+ * {@code from_state,from_district,to_state,to_district,minutes}, one road segment per line, usable
+ * in both directions. Districts are keyed as in {@link DistrictDistanceTable}.
+ * <p>
+ * The first query from a district runs Dijkstra over the graph and keeps the resulting row of
+ * times to every district, so every later query from that district is two map lookups and an
+ * array read. At most {@code matching.travel-time.cache-size} rows are kept, least recently used
+ * evicted first. Pairs within one district, or with a district the graph does not reach, are
+ * estimated by {@link StraightLineTravelTimeEstimator}.
+ * <p>
+ * The graph is loaded when the application starts. Until then, and when no file is configured,
+ * every query takes the straight-line estimate.
+ */
+@Component
+@ConditionalOnProperty(name = "matching.travel-time.estimator", havingValue = "road-graph", matchIfMissing = true)
+@Slf4j
+public class RoadGraphTravelTimeEstimator implements TravelTimeEstimator {
+
+    /**
+     * Adjacency in compressed rows: the edges of node {@code i} are
+     * {@code [offsets[i], offsets[i + 1])} of {@code targets} and {@code minutes}.
+     */
+    record Graph(Map<String, Integer> codes, int[] offsets, int[] targets, float[] minutes, Map<Integer, float[]> rows) {
+
+        int size() {
+            return codes.size();
+        }
+    }
+
+    record Edge(int from, int to, float minutes) {
+    }
+
+    private final ResourceLoader resourceLoader;
+    private final StraightLineTravelTimeEstimator fallback;
+    private final String graphFile;
+    private final int cacheSize;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private volatile Graph graph;
+
+    public RoadGraphTravelTimeEstimator(DistrictDistanceTable districtDistanceTable,
+                                        ResourceLoader resourceLoader,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${matching.travel-time.graph-file:classpath:geo/district-road-graph.csv}") String graphFile,
+                                        @Value("${matching.travel-time.cache-size:512}") int cacheSize,
+                                        @Value("${matching.travel-time.road-factor:1.4}") double roadFactor,
+                                        @Value("${matching.travel-time.speed-kmh:50}") double speedKmh,
+                                        @Value("${matching.travel-time.handling-minutes:60}") double handlingMinutes) {
+        this.resourceLoader = resourceLoader;
+        this.fallback = new StraightLineTravelTimeEstimator(districtDistanceTable, roadFactor, speedKmh, handlingMinutes);
+        this.graphFile = graphFile;
+        this.cacheSize = cacheSize;
+        this.graph = build(new LinkedHashMap<>(), List.of(), cacheSize);
+        this.cacheHits = meterRegistry.counter("matching.travel_time.cache.hits");
+        this.cacheMisses = meterRegistry.counter("matching.travel_time.cache.misses");
+        meterRegistry.gauge("matching.travel_time.graph.districts", this, estimator -> estimator.graph.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long startTime = System.currentTimeMillis();
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        List<Edge> edges = readGraphFile(codes);
+        graph = build(codes, edges, cacheSize);
+        log.info("Road graph loaded with {} districts and {} segments from {} in {}ms",
+                codes.size(), edges.size(), graphFile, System.currentTimeMillis() - startTime);
+    }
+
+    @Override
+    public double minutes(TravelPoint from, TravelPoint to) {
+        if (from == null || to == null) {
+            return Double.NaN;
+        }
+        Graph current = graph;
+        Integer origin = codeIn(current, from);
+        Integer destination = codeIn(current, to);
+        if (origin == null || destination == null || origin.equals(destination)) {
+            return fallback.minutes(from, to);
+        }
+        float[] row = current.rows().get(origin);
+        if (row == null) {
+            cacheMisses.increment();
+            row = shortestPaths(current, origin);
+            current.rows().put(origin, row);
+        } else {
+            cacheHits.increment();
+        }
+        float minutes = row[destination];
+        return Float.isInfinite(minutes) ? fallback.minutes(from, to) : fallback.handlingMinutes() + minutes;
+    }
+
+    private static Integer codeIn(Graph current, TravelPoint point) {
+        String key = DistrictDistanceTable.key(point.state(), point.district());
+        return key == null ? null : current.codes().get(key);
+    }
+
+    /**
+     * Dijkstra from {@code origin}. The heap holds (time, node) packed into a long: the bits of a
+     * non-negative float order like the float, so the smallest long is the nearest node. A node
+     * is pushed at most once per incoming edge, which bounds the heap.
+     */
+    static float[] shortestPaths(Graph graph, int origin) {
+        int n = graph.size();
+        float[] times = new float[n];
+        Arrays.fill(times, Float.POSITIVE_INFINITY);
+        times[origin] = 0f;
+        long[] heap = new long[graph.targets().length + 1];
+        int heapSize = 0;
+        heap[heapSize++] = pack(0f, origin);
+        while (heapSize > 0) {
+            long top = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+            int node = (int) top;
+            float time = Float.intBitsToFloat((int) (top >>> 32));
+            if (time > times[node]) {
+                continue;
+            }
+            for (int e = graph.offsets()[node]; e < graph.offsets()[node + 1]; e++) {
+                int next = graph.targets()[e];
+                float candidate = time + graph.minutes()[e];
+                if (candidate < times[next]) {
+                    times[next] = candidate;
+                    heap[heapSize] = pack(candidate, next);
+                    siftUp(heap, heapSize++);
+                }
+            }
+        }
+        return times;
+    }
+
+    private static long pack(float time, int node) {
+        return ((long) Float.floatToRawIntBits(time) << 32) | node;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        if (size == 0) {
+            return;
+        }
+        long value = heap[0];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    static Graph build(Map<String, Integer> codes, List<Edge> edges, int cacheSize) {
+        int n = codes.size();
+        int[] offsets = new int[n + 1];
+        for (Edge edge : edges) {
+            offsets[edge.from() + 1]++;
+            offsets[edge.to() + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[offsets[n]];
+        float[] minutes = new float[offsets[n]];
+        for (Edge edge : edges) {
+            targets[fill[edge.from()]] = edge.to();
+            minutes[fill[edge.from()]++] = edge.minutes();
+            targets[fill[edge.to()]] = edge.from();
+            minutes[fill[edge.to()]++] = edge.minutes();
+        }
+        Map<Integer, float[]> rows = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        return new Graph(Map.copyOf(codes), offsets, targets, minutes, rows);
+    }
+
+    private List<Edge> readGraphFile(Map<String, Integer> codes) {
+        List<Edge> edges = new ArrayList<>();
+        if (graphFile == null || graphFile.isBlank()) {
+            return edges;
+        }
+        Resource resource = resourceLoader.getResource(graphFile);
+        if (!resource.exists()) {
+            log.info("No road graph at {}, estimating travel times from straight-line distance", graphFile);
+            return edges;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("from_state,")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                String fromKey = fields.length == 5 ? DistrictDistanceTable.key(fields[0], fields[1]) : null;
+                String toKey = fields.length == 5 ? DistrictDistanceTable.key(fields[2], fields[3]) : null;
+                if (fromKey == null || toKey == null) {
+                    log.warn("Skipping malformed road segment at {}:{}", graphFile, lineNumber);
+                    continue;
+                }
+                float minutes;
+                try {
+                    minutes = Float.parseFloat(fields[4].trim());
+                } catch (NumberFormatException e) {
+                    minutes = Float.NaN;
+                }
+                if (!(minutes >= 0f) || Float.isInfinite(minutes)) {
+                    log.warn("Skipping road segment with bad minutes at {}:{}", graphFile, lineNumber);
+                    continue;
+                }
+                int from = codes.computeIfAbsent(fromKey, k -> codes.size());
+                int to = codes.computeIfAbsent(toKey, k -> codes.size());
+                if (from != to) {
+                    edges.add(new Edge(from, to, minutes));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not read road graph from {}: {}", graphFile, e.getMessage());
+        }
+        return edges;
+    }
+}
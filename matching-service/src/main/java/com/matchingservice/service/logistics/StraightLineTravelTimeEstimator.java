@@ -0,0 +1,48 @@
+package com.matchingservice.service.logistics;
+
+import com.matchingservice.service.candidate.DistrictDistanceTable;
+import com.matchingservice.service.scoring.GeoDistance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Travel time from the great-circle distance: the distance between the coordinates, or between
+ * the district centroids when either end has none, stretched by
+ * {@code matching.travel-time.road-factor} and driven at {@code matching.travel-time.speed-kmh},
+ * plus {@code matching.travel-time.handling-minutes}.
+ * <p>
+ * Also the fallback of {@link RoadGraphTravelTimeEstimator} for districts its graph does not connect.
+ */
+@Component
+@ConditionalOnProperty(name = "matching.travel-time.estimator", havingValue = "straight-line")
+public class StraightLineTravelTimeEstimator implements TravelTimeEstimator {
+
+    private final DistrictDistanceTable districtDistanceTable;
+    private final double minutesPerKm;
+    private final double handlingMinutes;
+
+    public StraightLineTravelTimeEstimator(DistrictDistanceTable districtDistanceTable,
+                                           @Value("${matching.travel-time.road-factor:1.4}") double roadFactor,
+                                           @Value("${matching.travel-time.speed-kmh:50}") double speedKmh,
+                                           @Value("${matching.travel-time.handling-minutes:60}") double handlingMinutes) {
+        this.districtDistanceTable = districtDistanceTable;
+        this.minutesPerKm = roadFactor * 60.0 / speedKmh;
+        this.handlingMinutes = handlingMinutes;
+    }
+
+    @Override
+    public double minutes(TravelPoint from, TravelPoint to) {
+        if (from == null || to == null) {
+            return Double.NaN;
+        }
+        double distanceKm = from.hasCoordinates() && to.hasCoordinates()
+                ? GeoDistance.haversineKm(from.latitude(), from.longitude(), to.latitude(), to.longitude())
+                : districtDistanceTable.distanceKm(from.state(), from.district(), to.state(), to.district());
+        return handlingMinutes + distanceKm * minutesPerKm;
+    }
+
+    double handlingMinutes() {
+        return handlingMinutes;
+    }
+}
@@ -0,0 +1,25 @@
+package com.matchingservice.service.logistics;
+
+import com.matchingservice.model.donor.DonorLocation;
+import com.matchingservice.model.recipients.RecipientLocation;
+
+/**
+ * Where a transport starts or ends, as much of it as is known: the district and the coordinates.
+ * Any field may be null.
+ */
+public record TravelPoint(String state, String district, Double latitude, Double longitude) {
+
+    public static TravelPoint of(DonorLocation location) {
+        return location == null ? null
+                : new TravelPoint(location.getState(), location.getDistrict(), location.getLatitude(), location.getLongitude());
+    }
+
+    public static TravelPoint of(RecipientLocation location) {
+        return location == null ? null
+                : new TravelPoint(location.getState(), location.getDistrict(), location.getLatitude(), location.getLongitude());
+    }
+
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.matchingservice.service.logistics;
+
+/**
+ * Estimates how long it takes to move an organ from a donor to a recipient, door to door,
+ * including the fixed handling time at both ends. Called once per candidate pair before ML
+ * scoring, so implementations must answer from memory. Selected with
+ * {@code matching.travel-time.estimator} ({@code road-graph} or {@code straight-line}).
+ */
+public interface TravelTimeEstimator {
+
+    /**
+     * Estimated minutes from {@code from} to {@code to}, or NaN when neither end is known well
+     * enough to say.
+     */
+    double minutes(TravelPoint from, TravelPoint to);
+}
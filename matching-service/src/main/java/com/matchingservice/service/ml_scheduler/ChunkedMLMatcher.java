@@ -0,0 +1,213 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.client.MLMatchingClient;
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.*;
+import com.matchingservice.enums.DonationType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a {@link ScoringBatch} to the ML service as several bounded calls instead of one.
+ * <p>
+ * Each chunk holds at most the current pair budget for its type: requests x donations.
+ * Chunks run concurrently. At most {@code ml.matching.chunks.max-concurrency} calls are in
+ * flight across all lanes.
+ * <p>
+ * The pair budget adapts per type: it grows slowly and backs off fast. A chunk that answers well
+ * inside {@code ml.matching.chunks.target-latency-ms} grows the budget by a quarter. A chunk that
+ * is slower than the target, or that fails, halves it. The budget stays within the configured
+ * min and max.
+ * <p>
+ * A chunk returns the top-N matches per request among its own donations. Merging therefore
+ * takes each request's top N across all chunks and ranks them 1..N, which gives the same
+ * priorityRank as a single call.
+ */
+@Component
+@Slf4j
+public class ChunkedMLMatcher {
+
+    private final MLMatchingClient mlMatchingClient;
+    private final Semaphore callPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<DonationType, AtomicInteger> pairBudgets = new EnumMap<>(DonationType.class);
+    private final Map<DonationType, Timer> callTimers = new EnumMap<>(DonationType.class);
+
+    private final int minPairs;
+    private final int maxPairs;
+    private final long targetLatencyMs;
+
+    public ChunkedMLMatcher(MLMatchingClient mlMatchingClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${ml.matching.chunks.max-concurrency:4}") int maxConcurrency,
+                            @Value("${ml.matching.chunks.initial-pairs:5000}") int initialPairs,
+                            @Value("${ml.matching.chunks.min-pairs:500}") int minPairs,
+                            @Value("${ml.matching.chunks.max-pairs:50000}") int maxPairs,
+                            @Value("${ml.matching.chunks.target-latency-ms:5000}") long targetLatencyMs) {
+        this.mlMatchingClient = mlMatchingClient;
+        this.callPermits = new Semaphore(Math.max(1, maxConcurrency));
+        this.minPairs = minPairs;
+        this.maxPairs = Math.max(minPairs, maxPairs);
+        this.targetLatencyMs = targetLatencyMs;
+
+        for (DonationType type : DonationType.values()) {
+            String tag = type.name().toLowerCase();
+            AtomicInteger budget = new AtomicInteger(Math.max(minPairs, Math.min(this.maxPairs, initialPairs)));
+            pairBudgets.put(type, budget);
+            Gauge.builder("matching.ml.chunk_pairs", budget, AtomicInteger::get)
+                    .tag("type", tag)
+                    .register(meterRegistry);
+            callTimers.put(type, Timer.builder("matching.ml.call").tag("type", tag).register(meterRegistry));
+        }
+    }
+
+    /**
+     * Scores {@code batch} through the ML service. Throws when any chunk fails, so the caller
+     * treats the batch as a whole.
+     */
+    public List<MLMatchResult> batchMatch(ScoringBatch batch, int topN, double threshold) {
+        List<MLRequestData> requests = batch.requests();
+        List<MLDonationData> donations = batch.donations();
+        if (requests.isEmpty() || donations.isEmpty()) {
+            return List.of();
+        }
+
+        int budget = pairBudgets.get(batch.donationType()).get();
+        int donationsPerChunk = Math.min(donations.size(), budget);
+        int requestsPerChunk = Math.max(1, budget / donationsPerChunk);
+
+        List<Future<List<MLMatchResult>>> futures = new ArrayList<>();
+        for (int r = 0; r < requests.size(); r += requestsPerChunk) {
+            List<MLRequestData> requestChunk = requests.subList(r, Math.min(r + requestsPerChunk, requests.size()));
+            for (int d = 0; d < donations.size(); d += donationsPerChunk) {
+                List<MLDonationData> donationChunk = donations.subList(d, Math.min(d + donationsPerChunk, donations.size()));
+                List<MatchPair> excluded = excludedWithin(batch.excludedPairs(), requestChunk, donationChunk);
+                futures.add(executor.submit(() -> callChunk(batch.donationType(), requestChunk, donationChunk, excluded, topN, threshold)));
+            }
+        }
+
+        log.info("Calling ML service for {} with {} requests x {} donations in {} chunks of up to {} pairs",
+                batch.donationType(), requests.size(), donations.size(), futures.size(), budget);
+
+        List<MLMatchResult> partials = new ArrayList<>();
+        try {
+            for (Future<List<MLMatchResult>> future : futures) {
+                partials.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ML chunks", e);
+        }
+
+        if (!batch.excludedPairs().isEmpty()) {
+            partials.removeIf(match -> batch.excludedPairs().contains(
+                    new MatchPair(match.getDonationId(), match.getReceiveRequestId())));
+        }
+        return rankPerRequest(partials, topN);
+    }
+
+    private static List<MatchPair> excludedWithin(Set<MatchPair> excludedPairs, List<MLRequestData> requests,
+                                                  List<MLDonationData> donations) {
+        if (excludedPairs.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> requestIds = new HashSet<>();
+        requests.forEach(request -> requestIds.add(request.getReceiveRequestId()));
+        Set<UUID> donationIds = new HashSet<>();
+        donations.forEach(donation -> donationIds.add(donation.getDonationId()));
+        return excludedPairs.stream()
+                .filter(pair -> requestIds.contains(pair.receiveRequestId()) && donationIds.contains(pair.donationId()))
+                .toList();
+    }
+
+    private List<MLMatchResult> callChunk(DonationType type, List<MLRequestData> requests,
+                                          List<MLDonationData> donations, List<MatchPair> excludedPairs,
+                                          int topN, double threshold)
+            throws InterruptedException {
+        MLBatchMatchRequest mlRequest = MLBatchMatchRequest.builder()
+                .requests(requests)
+                .donations(donations)
+                .excludedPairs(excludedPairs)
+                .topN(topN)
+                .threshold(threshold)
+                .build();
+
+        callPermits.acquire();
+        long startTime = System.currentTimeMillis();
+        MLBatchMatchResponse mlResponse;
+        try {
+            mlResponse = mlMatchingClient.batchMatch(mlRequest);
+        } catch (RuntimeException e) {
+            adapt(type, Long.MAX_VALUE);
+            throw e;
+        } finally {
+            callPermits.release();
+        }
+        long elapsedMs = System.currentTimeMillis() - startTime;
+        callTimers.get(type).record(elapsedMs, TimeUnit.MILLISECONDS);
+        adapt(type, elapsedMs);
+
+        log.info("ML service responded in {}ms for {} pairs: {} matches, model {}",
+                elapsedMs, (long) requests.size() * donations.size(),
+                mlResponse.getMatchesFound(), mlResponse.getModelVersion());
+
+        if (!Boolean.TRUE.equals(mlResponse.getSuccess())) {
+            throw new IllegalStateException("ML service returned error: " + mlResponse.getError());
+        }
+
+        return mlResponse.getMatches() != null ? mlResponse.getMatches() : List.of();
+    }
+
+    private void adapt(DonationType type, long elapsedMs) {
+        AtomicInteger budget = pairBudgets.get(type);
+        if (elapsedMs > targetLatencyMs) {
+            budget.updateAndGet(current -> Math.max(minPairs, current / 2));
+        } else if (elapsedMs < targetLatencyMs / 2) {
+            budget.updateAndGet(current -> Math.min(maxPairs, current + Math.max(1, current / 4)));
+        }
+    }
+
+    /**
+     * Keeps each request's best {@code topN} across partial results, ranks them 1..N and orders
+     * the whole list by compatibility, as a single call would.
+     */
+    static List<MLMatchResult> rankPerRequest(List<MLMatchResult> partials, int topN) {
+        Map<UUID, List<MLMatchResult>> byRequest = new LinkedHashMap<>();
+        for (MLMatchResult match : partials) {
+            byRequest.computeIfAbsent(match.getReceiveRequestId(), k -> new ArrayList<>()).add(match);
+        }
+
+        Comparator<MLMatchResult> byScore = Comparator.comparing(
+                MLMatchResult::getCompatibilityScore, Comparator.nullsLast(Comparator.reverseOrder()));
+
+        List<MLMatchResult> merged = new ArrayList<>();
+        for (List<MLMatchResult> requestMatches : byRequest.values()) {
+            requestMatches.sort(byScore);
+            List<MLMatchResult> top = requestMatches.subList(0, Math.min(topN, requestMatches.size()));
+            for (int i = 0; i < top.size(); i++) {
+                top.get(i).setPriorityRank(i + 1);
+            }
+            merged.addAll(top);
+        }
+        merged.sort(byScore);
+        return merged;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.close();
+    }
+}
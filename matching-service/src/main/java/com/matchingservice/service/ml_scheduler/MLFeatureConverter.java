@@ -0,0 +1,250 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.enums.RequestType;
+import com.matchingservice.model.donor.*;
+import com.matchingservice.model.recipients.*;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Maps donation/request snapshots to the feature payload expected by ml-matching-service.
+ * Callers pass in the latest HLA profile so conversion never touches the database.
+ */
+@Component
+public class MLFeatureConverter {
+
+    public MLRequestData convertToMLRequestData(ReceiveRequest request, RecipientHLAProfile hlaProfile) {
+        Recipient recipient = request.getRecipient();
+        RecipientMedicalDetails medical = recipient != null ? recipient.getMedicalDetails() : null;
+        RecipientEligibilityCriteria eligibility = recipient != null ? recipient.getEligibilityCriteria() : null;
+        RecipientLocation location = request.getLocation();
+
+        int daysWaiting = (int) ChronoUnit.DAYS.between(request.getRequestDate(), LocalDate.now());
+
+        String hlaA1 = null, hlaA2 = null, hlaB1 = null, hlaB2 = null, hlaC1 = null, hlaC2 = null;
+        String hlaDR1 = null, hlaDR2 = null, hlaDQ1 = null, hlaDQ2 = null, hlaDP1 = null, hlaDP2 = null;
+        String hlaString = null;
+        Boolean hlaHighRes = null;
+
+        if (request.getRequestType() == RequestType.ORGAN || request.getRequestType() == RequestType.STEM_CELL) {
+            if (hlaProfile != null) {
+                hlaA1 = hlaProfile.getHlaA1();
+                hlaA2 = hlaProfile.getHlaA2();
+                hlaB1 = hlaProfile.getHlaB1();
+                hlaB2 = hlaProfile.getHlaB2();
+                hlaC1 = hlaProfile.getHlaC1();
+                hlaC2 = hlaProfile.getHlaC2();
+                hlaDR1 = hlaProfile.getHlaDR1();
+                hlaDR2 = hlaProfile.getHlaDR2();
+                hlaDQ1 = hlaProfile.getHlaDQ1();
+                hlaDQ2 = hlaProfile.getHlaDQ2();
+                hlaDP1 = hlaProfile.getHlaDP1();
+                hlaDP2 = hlaProfile.getHlaDP2();
+                hlaString = hlaProfile.getHlaString();
+                hlaHighRes = hlaProfile.getIsHighResolution();
+            }
+        }
+
+        return MLRequestData.builder()
+                .receiveRequestId(request.getReceiveRequestId())
+                .recipientId(request.getRecipientId())
+                .userId(recipient != null ? recipient.getUserId() : null)
+                .locationId(location != null ? location.getLocationId() : null)
+                .requestType(request.getRequestType())
+                .requestedBloodType(request.getRequestedBloodType())
+                .requestedOrgan(request.getRequestedOrgan())
+                .requestedTissue(request.getRequestedTissue())
+                .requestedStemCellType(request.getRequestedStemCellType())
+                .urgencyLevel(request.getUrgencyLevel())
+                .quantity(request.getQuantity())
+                .requestDate(request.getRequestDate())
+                .daysWaiting(daysWaiting)
+                .age(eligibility != null ? eligibility.getAge() : null)
+                .dob(eligibility != null ? eligibility.getDob() : null)
+                .weight(eligibility != null ? eligibility.getWeight() : null)
+                .height(eligibility != null ? eligibility.getHeight() : null)
+                .bmi(eligibility != null ? eligibility.getBodyMassIndex() : null)
+                .bodySize(eligibility != null ? eligibility.getBodySize() : null)
+                .hemoglobinLevel(medical != null ? medical.getHemoglobinLevel() : null)
+                .bloodGlucoseLevel(medical != null ? medical.getBloodGlucoseLevel() : null)
+                .hasDiabetes(medical != null ? medical.getHasDiabetes() : false)
+                .bloodPressure(medical != null ? medical.getBloodPressure() : null)
+                .hasInfectiousDiseases(medical != null ? medical.getHasInfectiousDiseases() : false)
+                .infectiousDiseaseDetails(medical != null ? medical.getInfectiousDiseaseDetails() : null)
+                .creatinineLevel(medical != null ? medical.getCreatinineLevel() : null)
+                .liverFunctionTests(medical != null ? medical.getLiverFunctionTests() : null)
+                .cardiacStatus(medical != null ? medical.getCardiacStatus() : null)
+                .pulmonaryFunction(medical != null ? medical.getPulmonaryFunction() : null)
+                .overallHealthStatus(medical != null ? medical.getOverallHealthStatus() : null)
+                .diagnosis(medical != null ? medical.getDiagnosis() : null)
+                .allergies(medical != null ? medical.getAllergies() : null)
+                .smokingStatus(eligibility != null ? eligibility.getSmokingStatus() : null)
+                .packYears(eligibility != null ? eligibility.getPackYears() : null)
+                .alcoholStatus(eligibility != null ? eligibility.getAlcoholStatus() : null)
+                .drinksPerWeek(eligibility != null ? eligibility.getDrinksPerWeek() : null)
+                .latitude(location != null ? location.getLatitude() : null)
+                .longitude(location != null ? location.getLongitude() : null)
+                .city(location != null ? location.getCity() : null)
+                .district(location != null ? location.getDistrict() : null)
+                .state(location != null ? location.getState() : null)
+                .country(location != null ? location.getCountry() : null)
+                .hlaA1(hlaA1)
+                .hlaA2(hlaA2)
+                .hlaB1(hlaB1)
+                .hlaB2(hlaB2)
+                .hlaC1(hlaC1)
+                .hlaC2(hlaC2)
+                .hlaDR1(hlaDR1)
+                .hlaDR2(hlaDR2)
+                .hlaDQ1(hlaDQ1)
+                .hlaDQ2(hlaDQ2)
+                .hlaDP1(hlaDP1)
+                .hlaDP2(hlaDP2)
+                .hlaHighResolution(hlaHighRes)
+                .hlaString(hlaString)
+                .build();
+    }
+
+    public MLDonationData convertToMLDonationData(Donation donation, DonorHLAProfile hlaProfile) {
+        Donor donor = donation.getDonor();
+        DonorMedicalDetails medical = donor != null ? donor.getMedicalDetails() : null;
+        DonorEligibilityCriteria eligibility = donor != null ? donor.getEligibilityCriteria() : null;
+        DonorLocation location = donation.getLocation();
+
+        Integer daysSinceLastDonation = null;
+        if (eligibility != null && eligibility.getLastDonationDate() != null) {
+            daysSinceLastDonation = (int) ChronoUnit.DAYS.between(
+                    eligibility.getLastDonationDate(), LocalDate.now()
+            );
+        }
+
+        String hlaA1 = null, hlaA2 = null, hlaB1 = null, hlaB2 = null, hlaC1 = null, hlaC2 = null;
+        String hlaDR1 = null, hlaDR2 = null, hlaDQ1 = null, hlaDQ2 = null, hlaDP1 = null, hlaDP2 = null;
+        String hlaString = null;
+        Boolean hlaHighRes = null;
+
+        if (donation.getDonationType() == DonationType.ORGAN || donation.getDonationType() == DonationType.STEM_CELL) {
+            if (hlaProfile != null) {
+                hlaA1 = hlaProfile.getHlaA1();
+                hlaA2 = hlaProfile.getHlaA2();
+                hlaB1 = hlaProfile.getHlaB1();
+                hlaB2 = hlaProfile.getHlaB2();
+                hlaC1 = hlaProfile.getHlaC1();
+                hlaC2 = hlaProfile.getHlaC2();
+                hlaDR1 = hlaProfile.getHlaDR1();
+                hlaDR2 = hlaProfile.getHlaDR2();
+                hlaDQ1 = hlaProfile.getHlaDQ1();
+                hlaDQ2 = hlaProfile.getHlaDQ2();
+                hlaDP1 = hlaProfile.getHlaDP1();
+                hlaDP2 = hlaProfile.getHlaDP2();
+                hlaString = hlaProfile.getHlaString();
+                hlaHighRes = hlaProfile.getIsHighResolution();
+            }
+        }
+
+        MLDonationData.MLDonationDataBuilder builder = MLDonationData.builder()
+                .donationId(donation.getDonationId())
+                .donorId(donation.getDonorId())
+                .userId(donation.getUserId())
+                .locationId(location != null ? location.getLocationId() : null)
+                .donationType(donation.getDonationType())
+                .bloodType(donation.getBloodType())
+                .donationDate(donation.getDonationDate())
+                .age(eligibility != null ? eligibility.getAge() : null)
+                .dob(eligibility != null ? eligibility.getDob() : null)
+                .weight(eligibility != null ? eligibility.getWeight() : null)
+                .height(eligibility != null ? eligibility.getHeight() : null)
+                .bmi(eligibility != null ? eligibility.getBodyMassIndex() : null)
+                .bodySize(eligibility != null ? eligibility.getBodySize() : null)
+                .isLivingDonor(eligibility != null ? eligibility.getIsLivingDonor() : null)
+                .hemoglobinLevel(medical != null ? medical.getHemoglobinLevel() : null)
+                .bloodGlucoseLevel(medical != null ? medical.getBloodGlucoseLevel() : null)
+                .hasDiabetes(medical != null ? medical.getHasDiabetes() : false)
+                .bloodPressure(medical != null ? medical.getBloodPressure() : null)
+                .hasDiseases(medical != null ? medical.getHasDiseases() : false)
+                .hasInfectiousDiseases(medical != null ? medical.getHasInfectiousDiseases() : false)
+                .infectiousDiseaseDetails(medical != null ? medical.getInfectiousDiseaseDetails() : null)
+                .creatinineLevel(medical != null ? medical.getCreatinineLevel() : null)
+                .liverFunctionTests(medical != null ? medical.getLiverFunctionTests() : null)
+                .cardiacStatus(medical != null ? medical.getCardiacStatus() : null)
+                .pulmonaryFunction(medical != null ? medical.getPulmonaryFunction() : null)
+                .overallHealthStatus(medical != null ? medical.getOverallHealthStatus() : null)
+                .medicalClearance(eligibility != null ? eligibility.getMedicalClearance() : null)
+                .recentTattoo(eligibility != null ? eligibility.getRecentTattooOrPiercing() : null)
+                .recentVaccination(eligibility != null ? eligibility.getRecentVaccination() : null)
+                .recentSurgery(eligibility != null ? eligibility.getRecentSurgery() : null)
+                .chronicDiseases(eligibility != null ? eligibility.getChronicDiseases() : null)
+                .allergies(eligibility != null ? eligibility.getAllergies() : null)
+                .lastDonationDate(eligibility != null ? eligibility.getLastDonationDate() : null)
+                .daysSinceLastDonation(daysSinceLastDonation)
+                .smokingStatus(eligibility != null ? eligibility.getSmokingStatus() : null)
+                .packYears(eligibility != null ? eligibility.getPackYears() : null)
+                .quitSmokingDate(eligibility != null ? eligibility.getQuitSmokingDate() : null)
+                .alcoholStatus(eligibility != null ? eligibility.getAlcoholStatus() : null)
+                .drinksPerWeek(eligibility != null ? eligibility.getDrinksPerWeek() : null)
+                .quitAlcoholDate(eligibility != null ? eligibility.getQuitAlcoholDate() : null)
+                .alcoholAbstinenceMonths(eligibility != null ? eligibility.getAlcoholAbstinenceMonths() : null)
+                .latitude(location != null ? location.getLatitude() : null)
+                .longitude(location != null ? location.getLongitude() : null)
+                .city(location != null ? location.getCity() : null)
+                .district(location != null ? location.getDistrict() : null)
+                .state(location != null ? location.getState() : null)
+                .country(location != null ? location.getCountry() : null)
+                .hlaA1(hlaA1)
+                .hlaA2(hlaA2)
+                .hlaB1(hlaB1)
+                .hlaB2(hlaB2)
+                .hlaC1(hlaC1)
+                .hlaC2(hlaC2)
+                .hlaDR1(hlaDR1)
+                .hlaDR2(hlaDR2)
+                .hlaDQ1(hlaDQ1)
+                .hlaDQ2(hlaDQ2)
+                .hlaDP1(hlaDP1)
+                .hlaDP2(hlaDP2)
+                .hlaHighResolution(hlaHighRes)
+                .hlaString(hlaString);
+
+        if (donation instanceof BloodDonation) {
+            BloodDonation blood = (BloodDonation) donation;
+            builder.quantity(blood.getQuantity());
+
+        } else if (donation instanceof OrganDonation) {
+            OrganDonation organ = (OrganDonation) donation;
+            builder
+                    .organType(organ.getOrganType())
+                    .organQuality(organ.getOrganQuality())
+                    .organViabilityExpiry(organ.getOrganViabilityExpiry())
+                    .coldIschemiaTime(organ.getColdIschemiaTime())
+                    .organPerfused(organ.getOrganPerfused())
+                    .organWeight(organ.getOrganWeight())
+                    .organSize(organ.getOrganSize())
+                    .hasAbnormalities(organ.getHasAbnormalities());
+
+            if (organ.getOrganViabilityExpiry() != null) {
+                long hours = ChronoUnit.HOURS.between(LocalDateTime.now(), organ.getOrganViabilityExpiry());
+                builder.organViabilityHours((double) Math.max(0, hours));
+            }
+
+        } else if (donation instanceof TissueDonation) {
+            TissueDonation tissue = (TissueDonation) donation;
+            builder
+                    .tissueType(tissue.getTissueType())
+                    .quantity(tissue.getQuantity());
+
+        } else if (donation instanceof StemCellDonation) {
+            StemCellDonation stemCell = (StemCellDonation) donation;
+            builder
+                    .stemCellType(stemCell.getStemCellType())
+                    .quantity(stemCell.getQuantity());
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,255 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.enums.DonationStatus;
+import com.matchingservice.enums.MatchStatus;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.kafka.EventPublisher;
+import com.matchingservice.kafka.event.MatchFoundEvent;
+import com.matchingservice.model.MatchResult;
+import com.matchingservice.model.donor.*;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.repository.MatchResultRepository;
+import com.matchingservice.repository.donor.DonationRepository;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import com.matchingservice.service.candidate.KnownPairIndex;
+import com.matchingservice.service.statussync.StatusSyncOutbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Write phase of a batch-matching run. Each chunk of ML results is persisted in its own short
+ * transaction with a constant number of statements. Remote status sync goes through the
+ * {@link StatusSyncOutbox} and Kafka notifications are sent only after the chunk committed.
+ * Matched donations and requests keep their {@code updatedAt}, so the next incremental run does
+ * not treat this run's own writes as changes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MLMatchWriter {
+
+    private final DonationRepository donationRepository;
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final MatchResultRepository matchResultRepository;
+    private final StatusSyncOutbox statusSyncOutbox;
+    private final EventPublisher eventPublisher;
+    private final KnownPairIndex knownPairIndex;
+
+    /**
+     * Re-validates each ML match against the current state of the donation and request, inserts
+     * the accepted ones as one JDBC batch and marks both sides MATCHED with one set-based UPDATE
+     * per table, recording the change in the status sync outbox. Existing pairs are found with a single query for the whole chunk.
+     * MatchFoundEvents are handed to Kafka only once this transaction has committed.
+     *
+     * @return the match results created by this chunk
+     */
+    @Transactional
+    public List<MatchResult> persistChunk(List<MLMatchResult> mlMatches) {
+        return persist(mlMatches, false);
+    }
+
+    /**
+     * Persists a set of matches that only make sense together, such as the transplants of one
+     * paired exchange cycle. Validation is the same as {@link #persistChunk}, but if any member is
+     * rejected nothing is written and an {@link IllegalStateException} is thrown.
+     *
+     * @return the match results created, one per distinct pair
+     */
+    @Transactional
+    public List<MatchResult> persistLinked(List<MLMatchResult> mlMatches) {
+        return persist(mlMatches, true);
+    }
+
+    private List<MatchResult> persist(List<MLMatchResult> mlMatches, boolean requireAll) {
+        Map<MatchPair, MLMatchResult> candidates = new LinkedHashMap<>();
+        for (MLMatchResult mlMatch : mlMatches) {
+            candidates.putIfAbsent(new MatchPair(mlMatch.getDonationId(), mlMatch.getReceiveRequestId()), mlMatch);
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        Set<UUID> donationIds = new HashSet<>();
+        Set<UUID> requestIds = new HashSet<>();
+        for (MatchPair pair : candidates.keySet()) {
+            donationIds.add(pair.donationId());
+            requestIds.add(pair.receiveRequestId());
+        }
+
+        Set<MatchPair> existingPairs = new HashSet<>(matchResultRepository.findPairsAmong(donationIds, requestIds));
+
+        Map<UUID, Donation> donations = new HashMap<>();
+        donationRepository.findAllById(donationIds).forEach(donation -> donations.put(donation.getDonationId(), donation));
+        Map<UUID, ReceiveRequest> requests = new HashMap<>();
+        receiveRequestRepository.findAllById(requestIds).forEach(request -> requests.put(request.getReceiveRequestId(), request));
+
+        List<MatchResult> toInsert = new ArrayList<>();
+        int rejected = 0;
+
+        for (Map.Entry<MatchPair, MLMatchResult> entry : candidates.entrySet()) {
+            MatchPair pair = entry.getKey();
+            MLMatchResult mlMatch = entry.getValue();
+
+            if (existingPairs.contains(pair)) {
+                log.debug("Match already exists for donation {} and request {}, skipping",
+                        pair.donationId(), pair.receiveRequestId());
+                rejected++;
+                continue;
+            }
+
+            Donation donation = donations.get(pair.donationId());
+            ReceiveRequest request = requests.get(pair.receiveRequestId());
+
+            if (donation == null) {
+                log.warn("Donation {} not found, skipping ML match", pair.donationId());
+                rejected++;
+                continue;
+            }
+
+            if (request == null) {
+                log.warn("Request {} not found, skipping ML match", pair.receiveRequestId());
+                rejected++;
+                continue;
+            }
+
+            String validationError = validateCompatibility(donation, request);
+            if (validationError != null) {
+                log.warn("ML match validation failed for donation {} and request {}: {}",
+                        pair.donationId(), pair.receiveRequestId(), validationError);
+                rejected++;
+                continue;
+            }
+
+            toInsert.add(toMatchResult(mlMatch));
+        }
+
+        if (requireAll && rejected > 0) {
+            throw new IllegalStateException(rejected + " of " + candidates.size() + " linked matches are no longer valid");
+        }
+        if (toInsert.isEmpty()) {
+            return List.of();
+        }
+
+        List<MatchResult> created = matchResultRepository.saveAll(toInsert);
+        knownPairIndex.add(created.stream()
+                .map(matchResult -> new MatchPair(matchResult.getDonationId(), matchResult.getReceiveRequestId()))
+                .toList());
+
+        Set<UUID> matchedDonationIds = new HashSet<>();
+        Set<UUID> matchedRequestIds = new HashSet<>();
+        for (MatchResult matchResult : created) {
+            matchedDonationIds.add(matchResult.getDonationId());
+            matchedRequestIds.add(matchResult.getReceiveRequestId());
+        }
+
+        donationRepository.updateStatusKeepingUpdatedAtByDonationIdIn(matchedDonationIds, DonationStatus.MATCHED);
+        receiveRequestRepository.updateStatusKeepingUpdatedAtByReceiveRequestIdIn(matchedRequestIds, RequestStatus.MATCHED);
+        statusSyncOutbox.donationStatusesChanged(matchedDonationIds, DonationStatus.MATCHED);
+        statusSyncOutbox.requestStatusesChanged(matchedRequestIds, RequestStatus.MATCHED);
+
+        log.info("Created {} ML matches ({} donations, {} requests) from {} ML results",
+                created.size(), matchedDonationIds.size(), matchedRequestIds.size(), mlMatches.size());
+
+        List<MatchFoundEvent> events = created.stream().map(this::toMatchFoundEvent).toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventPublisher.publishMatchFoundEvents(events);
+            }
+        });
+
+        return created;
+    }
+
+    private MatchFoundEvent toMatchFoundEvent(MatchResult matchResult) {
+        return MatchFoundEvent.builder()
+                .matchId(matchResult.getId())
+                .donationId(matchResult.getDonationId())
+                .receiveRequestId(matchResult.getReceiveRequestId())
+                .donorUserId(matchResult.getDonorUserId())
+                .recipientUserId(matchResult.getRecipientUserId())
+                .matchedAt(matchResult.getMatchedAt())
+                .compatibilityScore(matchResult.getCompatibilityScore())
+                .distance(matchResult.getDistance())
+                .build();
+    }
+
+    private MatchResult toMatchResult(MLMatchResult mlMatch) {
+        MatchResult matchResult = new MatchResult();
+        matchResult.setDonationId(mlMatch.getDonationId());
+        matchResult.setReceiveRequestId(mlMatch.getReceiveRequestId());
+        matchResult.setDonorUserId(mlMatch.getDonorUserId());
+        matchResult.setRecipientUserId(mlMatch.getRecipientUserId());
+        matchResult.setDonorLocationId(mlMatch.getDonorLocationId());
+        matchResult.setRecipientLocationId(mlMatch.getRecipientLocationId());
+
+        matchResult.setCompatibilityScore(mlMatch.getCompatibilityScore());
+        matchResult.setBloodCompatibilityScore(mlMatch.getBloodCompatibilityScore());
+        matchResult.setLocationCompatibilityScore(mlMatch.getLocationCompatibilityScore());
+        matchResult.setMedicalCompatibilityScore(mlMatch.getMedicalCompatibilityScore());
+        matchResult.setUrgencyPriorityScore(mlMatch.getUrgencyPriorityScore());
+        matchResult.setDistance(mlMatch.getDistanceKm());
+        matchResult.setMatchReason(mlMatch.getMatchReason());
+        matchResult.setPriorityRank(mlMatch.getPriorityRank());
+        matchResult.setFulfilmentGroupId(mlMatch.getFulfilmentGroupId());
+        matchResult.setExchangeCycleId(mlMatch.getExchangeCycleId());
+        matchResult.setTravelBand(mlMatch.getTravelBand());
+
+        matchResult.setStatus(MatchStatus.PENDING);
+        matchResult.setMatchedAt(LocalDateTime.now());
+        matchResult.setIsConfirmed(false);
+        matchResult.setDonorConfirmed(false);
+        matchResult.setRecipientConfirmed(false);
+        return matchResult;
+    }
+
+    private String validateCompatibility(Donation donation, ReceiveRequest request) {
+        if (donation.getUserId().equals(request.getUserId())) {
+            return "Cannot match donation and request from the same user";
+        }
+
+        if (!donation.getDonationType().toString().equals(request.getRequestType().toString())) {
+            return "Donation type (" + donation.getDonationType() + ") does not match request type (" + request.getRequestType() + ")";
+        }
+
+        if (donation.getStatus() != DonationStatus.PENDING && donation.getStatus() != DonationStatus.MATCHED) {
+            return "Donation must be in PENDING or MATCHED status, current status: " + donation.getStatus();
+        }
+
+        if (request.getStatus() != RequestStatus.PENDING && request.getStatus() != RequestStatus.MATCHED) {
+            return "Request must be in PENDING or MATCHED status, current status: " + request.getStatus();
+        }
+
+        if (donation instanceof OrganDonation && request.getRequestedOrgan() != null) {
+            OrganDonation organ = (OrganDonation) donation;
+            if (!organ.getOrganType().equals(request.getRequestedOrgan())) {
+                return "Organ type mismatch: Donation is " + organ.getOrganType() + ", Request needs " + request.getRequestedOrgan();
+            }
+        }
+
+        if (donation instanceof TissueDonation && request.getRequestedTissue() != null) {
+            TissueDonation tissue = (TissueDonation) donation;
+            if (!tissue.getTissueType().equals(request.getRequestedTissue())) {
+                return "Tissue type mismatch: Donation is " + tissue.getTissueType() + ", Request needs " + request.getRequestedTissue();
+            }
+        }
+
+        if (donation instanceof StemCellDonation && request.getRequestedStemCellType() != null) {
+            StemCellDonation stemCell = (StemCellDonation) donation;
+            if (!stemCell.getStemCellType().equals(request.getRequestedStemCellType())) {
+                return "Stem cell type mismatch: Donation is " + stemCell.getStemCellType() + ", Request needs " + request.getRequestedStemCellType();
+            }
+        }
+
+        return null;
+    }
+}
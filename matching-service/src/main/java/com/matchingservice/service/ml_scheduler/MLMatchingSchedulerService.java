@@ -1,554 +1,337 @@
 package com.matchingservice.service.ml_scheduler;
 
-import com.matchingservice.client.DonorServiceClient;
-import com.matchingservice.client.MLMatchingClient;
-import com.matchingservice.client.RecipientServiceClient;
-import com.matchingservice.dto.ml.*;
-import com.matchingservice.enums.*;
-import com.matchingservice.model.MatchResult;
-import com.matchingservice.model.donor.*;
-import com.matchingservice.model.recipients.*;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.model.MatchingWatermark;
 import com.matchingservice.repository.*;
-import com.matchingservice.repository.donor.*;
-import com.matchingservice.repository.recipient.*;
+import com.matchingservice.service.assignment.MatchAssignmentStage;
+import com.matchingservice.service.assignment.QuantityFulfilmentPlanner;
+import com.matchingservice.service.candidate.DistrictDistanceTable;
+import com.matchingservice.service.scoring.InProcessMatchingEngine;
+import com.matchingservice.service.topcandidates.TopCandidateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drives a batch-matching run in phases so that no database connection is held while
+ * the ML service is working:
+ * <ol>
+ *     <li>snapshot: {@link MatchingRunPlanner} reads and converts candidates in one read-only transaction,</li>
+ *     <li>scoring: each {@link ScoringBatch} is sent to the ML service outside of any transaction, on the
+ *     {@link MatchingLanes} lane of its type and split into concurrent calls by {@link ChunkedMLMatcher},</li>
+ *     <li>allocation: {@link QuantityFulfilmentPlanner} groups several donations for BLOOD and TISSUE
+ *     requests that no single donation covers, then, when enabled, {@link MatchAssignmentStage} reduces
+ *     the remaining per-request top N to a global one-to-one assignment plus alternates,</li>
+ *     <li>write: {@link MLMatchWriter} persists each fulfilment group all or nothing in its own
+ *     transaction, and the other accepted matches in transactions of at most
+ *     {@code ml.matching.write.chunk-size} results.</li>
+ * </ol>
+ * BLOOD is scored by {@link InProcessMatchingEngine} unless {@code ml.matching.blood.in-process}
+ * is off, and falls back to it when the ML service fails or is disabled. Other types are only
+ * scored by the ML service: while it is unavailable their batches fail, so the watermark stays put
+ * and the next run rescores those changes.
+ * <p>
+ * An incremental run plans the changes since the last successful run minus
+ * {@code ml.matching.incremental.overlap-seconds}. A row is stamped when its transaction writes it
+ * but only visible once it commits, so a change committed just after a run started can carry an
+ * earlier timestamp; the overlap picks it up. Pairs seen twice are skipped by the known-pair index
+ * and the score cache.
+ * <p>
+ * Every scored batch also refreshes {@link TopCandidateStore} with the per-request top N it
+ * produced, before allocation narrows them down.
+ * <p>
+ * Besides the cron, {@link MatchingTrigger} starts targeted runs for newly assembled requests and
+ * donations. Both kinds of run hold {@code runLock}, so they never write the same pairs concurrently.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MLMatchingSchedulerService {
 
-    private final DonationRepository donationRepository;
-    private final ReceiveRequestRepository receiveRequestRepository;
-    private final MatchResultRepository matchResultRepository;
-    private final DonorHLAProfileRepository donorHLAProfileRepository;
-    private final RecipientHLAProfileRepository recipientHLAProfileRepository;
-    private final MLMatchingClient mlMatchingClient;
-    private final DonorServiceClient donorServiceClient;
-    private final RecipientServiceClient recipientServiceClient;
-
-    private final com.matchingservice.kafka.EventPublisher eventPublisher;
+    private final MatchingWatermarkRepository matchingWatermarkRepository;
+    private final MatchingRunPlanner matchingRunPlanner;
+    private final MLMatchWriter mlMatchWriter;
+    private final InProcessMatchingEngine inProcessMatchingEngine;
+    private final MatchingLanes matchingLanes;
+    private final ChunkedMLMatcher chunkedMLMatcher;
+    private final ScoreCache scoreCache;
+    private final MatchAssignmentStage matchAssignmentStage;
+    private final QuantityFulfilmentPlanner quantityFulfilmentPlanner;
+    private final TopCandidateStore topCandidateStore;
+    private final DistrictDistanceTable districtDistanceTable;
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private static final String BATCH_MATCHING_WATERMARK = "ml-batch-matching";
+    private static final int TOP_N = 10;
+    private static final double THRESHOLD = 0.5;
 
     @Value("${ml.service.enabled:true}")
     private boolean mlServiceEnabled;
 
+    @Value("${ml.matching.incremental.enabled:true}")
+    private boolean incrementalEnabled;
+
+    @Value("${ml.matching.incremental.overlap-seconds:300}")
+    private long incrementalOverlapSeconds;
+
+    @Value("${ml.matching.full-reconciliation.interval-minutes:60}")
+    private long fullReconciliationIntervalMinutes;
+
+    @Value("${ml.matching.write.chunk-size:100}")
+    private int writeChunkSize;
+
+    @Value("${ml.matching.blood.in-process:true}")
+    private boolean bloodInProcess;
+
     @Scheduled(cron = "0 */2 * * * *")
-    @Transactional
     public void runBatchMatching() {
-        log.info("Starting scheduled batch matching at {}", LocalDateTime.now());
+        LocalDateTime runStartedAt = LocalDateTime.now();
+        log.info("Starting scheduled batch matching at {}", runStartedAt);
 
         if (!mlServiceEnabled) {
-            log.warn("ML service is disabled. Skipping batch matching.");
-            return;
+            log.warn("ML service is disabled. Only BLOOD batches will be scored, in-process.");
         }
 
+        runLock.lock();
         try {
-            List<ReceiveRequest> pendingRequests = receiveRequestRepository
-                    .findByStatusIn(List.of(RequestStatus.PENDING, RequestStatus.MATCHED));
-
-            log.info("Found {} pending/matched receive requests", pendingRequests.size());
+            MatchingWatermark watermark = matchingWatermarkRepository.findById(BATCH_MATCHING_WATERMARK)
+                    .orElseGet(() -> new MatchingWatermark(BATCH_MATCHING_WATERMARK));
 
-            if (pendingRequests.isEmpty()) {
-                log.info("No pending/matched requests. Skipping batch matching.");
-                return;
-            }
+            boolean fullReconciliation = isFullReconciliationDue(watermark, runStartedAt);
 
-            List<Donation> availableDonations = donationRepository
-                    .findByStatusIn(List.of(DonationStatus.PENDING, DonationStatus.MATCHED));
+            List<ScoringBatch> plan = fullReconciliation
+                    ? matchingRunPlanner.planFull()
+                    : matchingRunPlanner.planIncremental(
+                            watermark.getLastSuccessfulRunAt().minusSeconds(incrementalOverlapSeconds));
 
-            log.info("Found {} pending/matched donations", availableDonations.size());
+            boolean succeeded = scoreAndPersist(plan);
 
-            if (availableDonations.isEmpty()) {
-                log.info("No pending/matched donations. Skipping batch matching.");
+            if (!succeeded) {
+                log.warn("Batch matching finished with errors, watermark left at {}",
+                        watermark.getLastSuccessfulRunAt());
                 return;
             }
 
-            Map<RequestType, List<ReceiveRequest>> requestsByType = pendingRequests.stream()
-                    .collect(Collectors.groupingBy(ReceiveRequest::getRequestType));
-
-            Map<DonationType, List<Donation>> donationsByType = availableDonations.stream()
-                    .collect(Collectors.groupingBy(Donation::getDonationType));
-
-            int totalMatchesCreated = 0;
-
-            for (RequestType requestType : requestsByType.keySet()) {
-                DonationType donationType = DonationType.valueOf(requestType.name());
-
-                List<ReceiveRequest> typeRequests = requestsByType.get(requestType);
-                List<Donation> typeDonations = donationsByType.getOrDefault(donationType, List.of());
-
-                if (typeDonations.isEmpty()) {
-                    log.info("No donations available for type: {}", requestType);
-                    continue;
-                }
-
-                log.info("Matching {} requests with {} donations for type: {}",
-                        typeRequests.size(), typeDonations.size(), requestType);
-
-                int matchesForType = performMLMatching(typeRequests, typeDonations);
-                totalMatchesCreated += matchesForType;
-
-                log.info("Created {} matches for type: {}", matchesForType, requestType);
+            watermark.setLastSuccessfulRunAt(runStartedAt);
+            if (fullReconciliation) {
+                watermark.setLastFullReconciliationAt(runStartedAt);
             }
-
-            log.info("Batch matching completed. Total matches created: {}", totalMatchesCreated);
+            matchingWatermarkRepository.save(watermark);
 
         } catch (Exception e) {
             log.error("Error during batch matching: {}", e.getMessage(), e);
+        } finally {
+            runLock.unlock();
         }
     }
 
-    private int performMLMatching(List<ReceiveRequest> requests, List<Donation> donations) {
-        try {
-            log.info("Calling ML service via Eureka...");
-
-            List<MLRequestData> mlRequests = requests.stream()
-                    .map(this::convertToMLRequestData)
-                    .collect(Collectors.toList());
-
-            List<MLDonationData> mlDonations = donations.stream()
-                    .map(this::convertToMLDonationData)
-                    .collect(Collectors.toList());
-
-            MLBatchMatchRequest mlRequest = MLBatchMatchRequest.builder()
-                    .requests(mlRequests)
-                    .donations(mlDonations)
-                    .topN(10)
-                    .threshold(0.5)
-                    .build();
-
-            long startTime = System.currentTimeMillis();
-            MLBatchMatchResponse mlResponse = mlMatchingClient.batchMatch(mlRequest);
-            long endTime = System.currentTimeMillis();
-
-            log.info("ML service responded in {}ms", endTime - startTime);
-            log.info("ML found {} matches", mlResponse.getMatchesFound());
-            log.info("ML model version: {}", mlResponse.getModelVersion());
-
-            if (!mlResponse.getSuccess()) {
-                log.error("ML service returned error: {}", mlResponse.getError());
-                return 0;
-            }
+    /**
+     * Scores only the given requests and donations against open counterparts of their type.
+     * Leaves the watermark alone; anything this misses is picked up by the next cron run.
+     */
+    public void runTriggeredMatching(Collection<UUID> requestIds, Collection<UUID> donationIds) {
+        log.info("Starting triggered matching for {} requests and {} donations", requestIds.size(), donationIds.size());
 
-            return processMLMatches(mlResponse.getMatches());
-
-        } catch (Exception e) {
-            log.error("ML service error: {}", e.getMessage());
-            return 0;
+        runLock.lock();
+        try {
+            scoreAndPersist(matchingRunPlanner.planForItems(requestIds, donationIds));
+        } finally {
+            runLock.unlock();
         }
     }
 
-    private int processMLMatches(List<MLMatchResult> mlMatches) {
-        int matchCount = 0;
-
-        for (MLMatchResult mlMatch : mlMatches) {
-            try {
-                boolean exists = matchResultRepository
-                        .existsByDonationIdAndReceiveRequestId(
-                                mlMatch.getDonationId(),
-                                mlMatch.getReceiveRequestId()
-                        );
-
-                if (exists) {
-                    log.debug("Match already exists for donation {} and request {}, skipping",
-                            mlMatch.getDonationId(), mlMatch.getReceiveRequestId());
-                    continue;
-                }
-
-                Donation donation = donationRepository.findById(mlMatch.getDonationId())
-                        .orElse(null);
-                ReceiveRequest request = receiveRequestRepository.findById(mlMatch.getReceiveRequestId())
-                        .orElse(null);
-
-                if (donation == null) {
-                    log.warn("Donation {} not found, skipping ML match", mlMatch.getDonationId());
-                    continue;
-                }
-
-                if (request == null) {
-                    log.warn("Request {} not found, skipping ML match", mlMatch.getReceiveRequestId());
-                    continue;
-                }
-
-                String validationError = validateCompatibility(donation, request);
-                if (validationError != null) {
-                    log.warn("ML match validation failed for donation {} and request {}: {}",
-                            mlMatch.getDonationId(), mlMatch.getReceiveRequestId(), validationError);
-                    continue;
-                }
-
-                MatchResult matchResult = new MatchResult();
-                matchResult.setDonationId(mlMatch.getDonationId());
-                matchResult.setReceiveRequestId(mlMatch.getReceiveRequestId());
-                matchResult.setDonorUserId(mlMatch.getDonorUserId());
-                matchResult.setRecipientUserId(mlMatch.getRecipientUserId());
-                matchResult.setDonorLocationId(mlMatch.getDonorLocationId());
-                matchResult.setRecipientLocationId(mlMatch.getRecipientLocationId());
-
-                matchResult.setCompatibilityScore(mlMatch.getCompatibilityScore());
-                matchResult.setBloodCompatibilityScore(mlMatch.getBloodCompatibilityScore());
-                matchResult.setLocationCompatibilityScore(mlMatch.getLocationCompatibilityScore());
-                matchResult.setMedicalCompatibilityScore(mlMatch.getMedicalCompatibilityScore());
-                matchResult.setUrgencyPriorityScore(mlMatch.getUrgencyPriorityScore());
-                matchResult.setDistance(mlMatch.getDistanceKm());
-                matchResult.setMatchReason(mlMatch.getMatchReason());
-                matchResult.setPriorityRank(mlMatch.getPriorityRank());
-
-                matchResult.setStatus(MatchStatus.PENDING);
-                matchResult.setMatchedAt(LocalDateTime.now());
-                matchResult.setIsConfirmed(false);
-                matchResult.setDonorConfirmed(false);
-                matchResult.setRecipientConfirmed(false);
-
-                matchResultRepository.save(matchResult);
-                matchCount++;
-
-                updateDonationStatus(mlMatch.getDonationId(), DonationStatus.MATCHED);
-                updateRequestStatus(mlMatch.getReceiveRequestId(), RequestStatus.MATCHED);
-
-                log.info("Created ML match: Donation {} -> Request {} (score: {}, rank: {})",
-                        mlMatch.getDonationId(),
-                        mlMatch.getReceiveRequestId(),
-                        matchResult.getCompatibilityScore(),
-                        matchResult.getPriorityRank()
-                );
-
-                com.matchingservice.kafka.event.MatchFoundEvent event = com.matchingservice.kafka.event.MatchFoundEvent.builder()
-                        .matchId(matchResult.getId())
-                        .donationId(matchResult.getDonationId())
-                        .receiveRequestId(matchResult.getReceiveRequestId())
-                        .donorUserId(matchResult.getDonorUserId())
-                        .recipientUserId(matchResult.getRecipientUserId())
-                        .matchedAt(matchResult.getMatchedAt())
-                        .compatibilityScore(matchResult.getCompatibilityScore())
-                        .distance(matchResult.getDistance())
-                        .build();
-
-                eventPublisher.publishMatchFoundEvent(event);
-
-            } catch (Exception e) {
-                log.error("Error processing ML match: {}", e.getMessage());
-            }
+    private boolean isFullReconciliationDue(MatchingWatermark watermark, LocalDateTime now) {
+        if (!incrementalEnabled
+                || watermark.getLastSuccessfulRunAt() == null
+                || watermark.getLastFullReconciliationAt() == null) {
+            return true;
         }
-
-        return matchCount;
+        return !now.isBefore(watermark.getLastFullReconciliationAt()
+                .plusMinutes(fullReconciliationIntervalMinutes));
     }
 
-    private String validateCompatibility(Donation donation, ReceiveRequest request) {
-        if (donation.getUserId().equals(request.getUserId())) {
-            return "Cannot match donation and request from the same user";
+    /**
+     * Hands every planned batch to its {@link MatchingLanes} lane and waits for all of them. Lanes
+     * for different types run in parallel, and each lane runs its batches earliest deadline first.
+     * Batches are submitted in deadline order too, since an idle lane thread takes the first one
+     * it is handed. A failed ML call, write chunk or lane budget marks the run as failed but does
+     * not stop the remaining batches.
+     */
+    private boolean scoreAndPersist(List<ScoringBatch> batches) {
+        List<ScoringBatch> plan = batches.stream()
+                .sorted(Comparator.comparing(ScoringBatch::deadline))
+                .toList();
+        List<CompletableFuture<BatchOutcome>> outcomes = new ArrayList<>(plan.size());
+        for (ScoringBatch batch : plan) {
+            outcomes.add(matchingLanes.submit(batch, () -> scoreAndPersistBatch(batch)));
         }
 
-        if (!donation.getDonationType().toString().equals(request.getRequestType().toString())) {
-            return "Donation type (" + donation.getDonationType() + ") does not match request type (" + request.getRequestType() + ")";
-        }
+        int totalMatchesCreated = 0;
+        boolean succeeded = true;
 
-        if (donation.getStatus() != DonationStatus.PENDING && donation.getStatus() != DonationStatus.MATCHED) {
-            return "Donation must be in PENDING or MATCHED status, current status: " + donation.getStatus();
+        for (int i = 0; i < outcomes.size(); i++) {
+            try {
+                BatchOutcome outcome = outcomes.get(i).join();
+                totalMatchesCreated += outcome.matchesCreated();
+                succeeded &= outcome.succeeded();
+            } catch (CompletionException e) {
+                log.error("Batch for type {} did not run: {}", plan.get(i).donationType(), e.getCause().getMessage());
+                succeeded = false;
+            }
         }
 
-        if (request.getStatus() != RequestStatus.PENDING && request.getStatus() != RequestStatus.MATCHED) {
-            return "Request must be in PENDING or MATCHED status, current status: " + request.getStatus();
-        }
+        log.info("Batch matching completed. {} ML calls, total matches created: {}", plan.size(), totalMatchesCreated);
+        return succeeded;
+    }
 
-        if (donation instanceof OrganDonation && request.getRequestedOrgan() != null) {
-            OrganDonation organ = (OrganDonation) donation;
-            if (!organ.getOrganType().equals(request.getRequestedOrgan())) {
-                return "Organ type mismatch: Donation is " + organ.getOrganType() + ", Request needs " + request.getRequestedOrgan();
-            }
-        }
+    private record BatchOutcome(int matchesCreated, boolean succeeded) {
+    }
 
-        if (donation instanceof TissueDonation && request.getRequestedTissue() != null) {
-            TissueDonation tissue = (TissueDonation) donation;
-            if (!tissue.getTissueType().equals(request.getRequestedTissue())) {
-                return "Tissue type mismatch: Donation is " + tissue.getTissueType() + ", Request needs " + request.getRequestedTissue();
-            }
+    private BatchOutcome scoreAndPersistBatch(ScoringBatch batch) {
+        List<MLMatchResult> mlMatches;
+        boolean succeeded = true;
+        try {
+            List<MLMatchResult> scored = score(batch);
+            topCandidateStore.record(batch, scored);
+            QuantityFulfilmentPlanner.FulfilmentPlan plan = quantityFulfilmentPlanner.plan(batch, scored);
+            mlMatches = new ArrayList<>(plan.grouped());
+            mlMatches.addAll(matchAssignmentStage.assign(batch, ChunkedMLMatcher.rankPerRequest(plan.remaining(), TOP_N)));
+            assignTravelBands(batch, mlMatches);
+        } catch (Exception e) {
+            log.error("ML matching failed for type {}: {}", batch.donationType(), e.getMessage());
+            return new BatchOutcome(0, false);
         }
 
-        if (donation instanceof StemCellDonation && request.getRequestedStemCellType() != null) {
-            StemCellDonation stemCell = (StemCellDonation) donation;
-            if (!stemCell.getStemCellType().equals(request.getRequestedStemCellType())) {
-                return "Stem cell type mismatch: Donation is " + stemCell.getStemCellType() + ", Request needs " + request.getRequestedStemCellType();
+        int matchesCreated = 0;
+        for (WriteUnit unit : writeUnits(mlMatches)) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.warn("{} batch ran over its lane run budget, not writing its remaining chunks",
+                        batch.donationType());
+                return new BatchOutcome(matchesCreated, false);
+            }
+            try {
+                matchesCreated += (unit.linked()
+                        ? mlMatchWriter.persistLinked(unit.matches())
+                        : mlMatchWriter.persistChunk(unit.matches())).size();
+            } catch (Exception e) {
+                if (unit.linked()) {
+                    log.error("Fulfilment group {} of {} ML matches for type {} not written: {}",
+                            unit.matches().get(0).getFulfilmentGroupId(), unit.matches().size(),
+                            batch.donationType(), e.getMessage());
+                } else {
+                    log.error("Failed to persist {} ML matches for type {}: {}",
+                            unit.matches().size(), batch.donationType(), e.getMessage());
+                }
+                succeeded = false;
             }
         }
-
-        return null;
+        return new BatchOutcome(matchesCreated, succeeded);
     }
 
-
-    private void updateDonationStatus(UUID donationId, DonationStatus newStatus) {
-        try {
-            donationRepository.findById(donationId).ifPresent(donation -> {
-                donation.setStatus(newStatus);
-                donationRepository.save(donation);
-            });
-
-            donorServiceClient.updateDonationStatus(donationId, newStatus);
-            log.debug("Updated donation {} status to {} in donor service", donationId, newStatus);
-        } catch (Exception e) {
-            log.error("Failed to update donation status in donor service: {}", e.getMessage());
+    /**
+     * Tags each match with the {@link DistrictDistanceTable} travel band between the donation's
+     * and the request's districts, from the converted features already in the batch.
+     */
+    private void assignTravelBands(ScoringBatch batch, List<MLMatchResult> mlMatches) {
+        Map<UUID, MLDonationData> donations = new HashMap<>();
+        batch.donations().forEach(donation -> donations.put(donation.getDonationId(), donation));
+        Map<UUID, MLRequestData> requests = new HashMap<>();
+        batch.requests().forEach(request -> requests.put(request.getReceiveRequestId(), request));
+
+        for (MLMatchResult match : mlMatches) {
+            MLDonationData donation = donations.get(match.getDonationId());
+            MLRequestData request = requests.get(match.getReceiveRequestId());
+            if (donation != null && request != null) {
+                match.setTravelBand(districtDistanceTable.band(
+                        donation.getState(), donation.getDistrict(), donation.getLatitude(), donation.getLongitude(),
+                        request.getState(), request.getDistrict(), request.getLatitude(), request.getLongitude()));
+            }
         }
     }
 
-    private void updateRequestStatus(UUID requestId, RequestStatus newStatus) {
-        try {
-            receiveRequestRepository.findById(requestId).ifPresent(request -> {
-                request.setStatus(newStatus);
-                receiveRequestRepository.save(request);
-            });
-
-            recipientServiceClient.updateRequestStatus(requestId, newStatus);
-            log.debug("Updated request {} status to {} in recipient service", requestId, newStatus);
-        } catch (Exception e) {
-            log.error("Failed to update request status in recipient service: {}", e.getMessage());
-        }
+    /**
+     * Matches written in one transaction. A linked unit is one fulfilment group, written with
+     * {@link MLMatchWriter#persistLinked}: if any member no longer validates, none is written.
+     */
+    private record WriteUnit(List<MLMatchResult> matches, boolean linked) {
     }
 
-    private MLRequestData convertToMLRequestData(ReceiveRequest request) {
-        Recipient recipient = request.getRecipient();
-        RecipientMedicalDetails medical = recipient != null ? recipient.getMedicalDetails() : null;
-        RecipientEligibilityCriteria eligibility = recipient != null ? recipient.getEligibilityCriteria() : null;
-        RecipientLocation location = request.getLocation();
-
-        int daysWaiting = (int) ChronoUnit.DAYS.between(request.getRequestDate(), LocalDate.now());
-
-        String hlaA1 = null, hlaA2 = null, hlaB1 = null, hlaB2 = null, hlaC1 = null, hlaC2 = null;
-        String hlaDR1 = null, hlaDR2 = null, hlaDQ1 = null, hlaDQ2 = null, hlaDP1 = null, hlaDP2 = null;
-        String hlaString = null;
-        Boolean hlaHighRes = null;
-
-        if (request.getRequestType() == RequestType.ORGAN || request.getRequestType() == RequestType.STEM_CELL) {
-            RecipientHLAProfile hlaProfile = recipientHLAProfileRepository
-                    .findTopByRecipient_RecipientIdOrderByEventTimestampDesc(request.getRecipientId())
-                    .orElse(null);
-
-            if (hlaProfile != null) {
-                hlaA1 = hlaProfile.getHlaA1();
-                hlaA2 = hlaProfile.getHlaA2();
-                hlaB1 = hlaProfile.getHlaB1();
-                hlaB2 = hlaProfile.getHlaB2();
-                hlaC1 = hlaProfile.getHlaC1();
-                hlaC2 = hlaProfile.getHlaC2();
-                hlaDR1 = hlaProfile.getHlaDR1();
-                hlaDR2 = hlaProfile.getHlaDR2();
-                hlaDQ1 = hlaProfile.getHlaDQ1();
-                hlaDQ2 = hlaProfile.getHlaDQ2();
-                hlaDP1 = hlaProfile.getHlaDP1();
-                hlaDP2 = hlaProfile.getHlaDP2();
-                hlaString = hlaProfile.getHlaString();
-                hlaHighRes = hlaProfile.getIsHighResolution();
+    /**
+     * Splits matches into one linked unit per fulfilment group, so a group planned to cover a
+     * request is never stored partially, then the ungrouped matches in chunks of about
+     * {@code ml.matching.write.chunk-size}.
+     */
+    private List<WriteUnit> writeUnits(List<MLMatchResult> mlMatches) {
+        Map<UUID, List<MLMatchResult>> groups = new LinkedHashMap<>();
+        List<MLMatchResult> ungrouped = new ArrayList<>();
+        for (MLMatchResult match : mlMatches) {
+            if (match.getFulfilmentGroupId() != null) {
+                groups.computeIfAbsent(match.getFulfilmentGroupId(), k -> new ArrayList<>()).add(match);
+            } else {
+                ungrouped.add(match);
             }
         }
 
-        return MLRequestData.builder()
-                .receiveRequestId(request.getReceiveRequestId())
-                .recipientId(request.getRecipientId())
-                .userId(recipient != null ? recipient.getUserId() : null)
-                .locationId(location != null ? location.getLocationId() : null)
-                .requestType(request.getRequestType())
-                .requestedBloodType(request.getRequestedBloodType())
-                .requestedOrgan(request.getRequestedOrgan())
-                .requestedTissue(request.getRequestedTissue())
-                .requestedStemCellType(request.getRequestedStemCellType())
-                .urgencyLevel(request.getUrgencyLevel())
-                .quantity(request.getQuantity())
-                .requestDate(request.getRequestDate())
-                .daysWaiting(daysWaiting)
-                .age(eligibility != null ? eligibility.getAge() : null)
-                .dob(eligibility != null ? eligibility.getDob() : null)
-                .weight(eligibility != null ? eligibility.getWeight() : null)
-                .height(eligibility != null ? eligibility.getHeight() : null)
-                .bmi(eligibility != null ? eligibility.getBodyMassIndex() : null)
-                .bodySize(eligibility != null ? eligibility.getBodySize() : null)
-                .hemoglobinLevel(medical != null ? medical.getHemoglobinLevel() : null)
-                .bloodGlucoseLevel(medical != null ? medical.getBloodGlucoseLevel() : null)
-                .hasDiabetes(medical != null ? medical.getHasDiabetes() : false)
-                .bloodPressure(medical != null ? medical.getBloodPressure() : null)
-                .hasInfectiousDiseases(medical != null ? medical.getHasInfectiousDiseases() : false)
-                .infectiousDiseaseDetails(medical != null ? medical.getInfectiousDiseaseDetails() : null)
-                .creatinineLevel(medical != null ? medical.getCreatinineLevel() : null)
-                .liverFunctionTests(medical != null ? medical.getLiverFunctionTests() : null)
-                .cardiacStatus(medical != null ? medical.getCardiacStatus() : null)
-                .pulmonaryFunction(medical != null ? medical.getPulmonaryFunction() : null)
-                .overallHealthStatus(medical != null ? medical.getOverallHealthStatus() : null)
-                .diagnosis(medical != null ? medical.getDiagnosis() : null)
-                .allergies(medical != null ? medical.getAllergies() : null)
-                .smokingStatus(eligibility != null ? eligibility.getSmokingStatus() : null)
-                .packYears(eligibility != null ? eligibility.getPackYears() : null)
-                .alcoholStatus(eligibility != null ? eligibility.getAlcoholStatus() : null)
-                .drinksPerWeek(eligibility != null ? eligibility.getDrinksPerWeek() : null)
-                .latitude(location != null ? location.getLatitude() : null)
-                .longitude(location != null ? location.getLongitude() : null)
-                .city(location != null ? location.getCity() : null)
-                .district(location != null ? location.getDistrict() : null)
-                .state(location != null ? location.getState() : null)
-                .country(location != null ? location.getCountry() : null)
-                .hlaA1(hlaA1)
-                .hlaA2(hlaA2)
-                .hlaB1(hlaB1)
-                .hlaB2(hlaB2)
-                .hlaC1(hlaC1)
-                .hlaC2(hlaC2)
-                .hlaDR1(hlaDR1)
-                .hlaDR2(hlaDR2)
-                .hlaDQ1(hlaDQ1)
-                .hlaDQ2(hlaDQ2)
-                .hlaDP1(hlaDP1)
-                .hlaDP2(hlaDP2)
-                .hlaHighResolution(hlaHighRes)
-                .hlaString(hlaString)
-                .build();
+        List<WriteUnit> units = new ArrayList<>();
+        groups.values().forEach(group -> units.add(new WriteUnit(group, true)));
+        for (int from = 0; from < ungrouped.size(); from += writeChunkSize) {
+            units.add(new WriteUnit(ungrouped.subList(from, Math.min(from + writeChunkSize, ungrouped.size())), false));
+        }
+        return units;
     }
 
-    private MLDonationData convertToMLDonationData(Donation donation) {
-        Donor donor = donation.getDonor();
-        DonorMedicalDetails medical = donor != null ? donor.getMedicalDetails() : null;
-        DonorEligibilityCriteria eligibility = donor != null ? donor.getEligibilityCriteria() : null;
-        DonorLocation location = donation.getLocation();
-
-        Integer daysSinceLastDonation = null;
-        if (eligibility != null && eligibility.getLastDonationDate() != null) {
-            daysSinceLastDonation = (int) ChronoUnit.DAYS.between(
-                    eligibility.getLastDonationDate(), LocalDate.now()
-            );
+    /**
+     * Routes a batch to the in-process engine or the ML service. A BLOOD batch falls back to the
+     * engine when the ML service fails or is disabled. Any other batch fails with it.
+     */
+    private List<MLMatchResult> score(ScoringBatch batch) {
+        boolean blood = batch.donationType() == DonationType.BLOOD;
+        if (blood && (bloodInProcess || !mlServiceEnabled)) {
+            return inProcessMatchingEngine.batchMatch(batch, TOP_N, THRESHOLD);
         }
-
-        String hlaA1 = null, hlaA2 = null, hlaB1 = null, hlaB2 = null, hlaC1 = null, hlaC2 = null;
-        String hlaDR1 = null, hlaDR2 = null, hlaDQ1 = null, hlaDQ2 = null, hlaDP1 = null, hlaDP2 = null;
-        String hlaString = null;
-        Boolean hlaHighRes = null;
-
-        if (donation.getDonationType() == DonationType.ORGAN || donation.getDonationType() == DonationType.STEM_CELL) {
-            DonorHLAProfile hlaProfile = donorHLAProfileRepository
-                    .findTopByDonor_DonorIdOrderByEventTimestampDesc(donation.getDonorId())
-                    .orElse(null);
-
-            if (hlaProfile != null) {
-                hlaA1 = hlaProfile.getHlaA1();
-                hlaA2 = hlaProfile.getHlaA2();
-                hlaB1 = hlaProfile.getHlaB1();
-                hlaB2 = hlaProfile.getHlaB2();
-                hlaC1 = hlaProfile.getHlaC1();
-                hlaC2 = hlaProfile.getHlaC2();
-                hlaDR1 = hlaProfile.getHlaDR1();
-                hlaDR2 = hlaProfile.getHlaDR2();
-                hlaDQ1 = hlaProfile.getHlaDQ1();
-                hlaDQ2 = hlaProfile.getHlaDQ2();
-                hlaDP1 = hlaProfile.getHlaDP1();
-                hlaDP2 = hlaProfile.getHlaDP2();
-                hlaString = hlaProfile.getHlaString();
-                hlaHighRes = hlaProfile.getIsHighResolution();
-            }
+        if (!mlServiceEnabled) {
+            throw new IllegalStateException("ML service is disabled, " + batch.donationType() + " batches are not scored");
         }
 
-        MLDonationData.MLDonationDataBuilder builder = MLDonationData.builder()
-                .donationId(donation.getDonationId())
-                .donorId(donation.getDonorId())
-                .userId(donation.getUserId())
-                .locationId(location != null ? location.getLocationId() : null)
-                .donationType(donation.getDonationType())
-                .bloodType(donation.getBloodType())
-                .donationDate(donation.getDonationDate())
-                .age(eligibility != null ? eligibility.getAge() : null)
-                .dob(eligibility != null ? eligibility.getDob() : null)
-                .weight(eligibility != null ? eligibility.getWeight() : null)
-                .height(eligibility != null ? eligibility.getHeight() : null)
-                .bmi(eligibility != null ? eligibility.getBodyMassIndex() : null)
-                .bodySize(eligibility != null ? eligibility.getBodySize() : null)
-                .isLivingDonor(eligibility != null ? eligibility.getIsLivingDonor() : null)
-                .hemoglobinLevel(medical != null ? medical.getHemoglobinLevel() : null)
-                .bloodGlucoseLevel(medical != null ? medical.getBloodGlucoseLevel() : null)
-                .hasDiabetes(medical != null ? medical.getHasDiabetes() : false)
-                .bloodPressure(medical != null ? medical.getBloodPressure() : null)
-                .hasDiseases(medical != null ? medical.getHasDiseases() : false)
-                .hasInfectiousDiseases(medical != null ? medical.getHasInfectiousDiseases() : false)
-                .infectiousDiseaseDetails(medical != null ? medical.getInfectiousDiseaseDetails() : null)
-                .creatinineLevel(medical != null ? medical.getCreatinineLevel() : null)
-                .liverFunctionTests(medical != null ? medical.getLiverFunctionTests() : null)
-                .cardiacStatus(medical != null ? medical.getCardiacStatus() : null)
-                .pulmonaryFunction(medical != null ? medical.getPulmonaryFunction() : null)
-                .overallHealthStatus(medical != null ? medical.getOverallHealthStatus() : null)
-                .medicalClearance(eligibility != null ? eligibility.getMedicalClearance() : null)
-                .recentTattoo(eligibility != null ? eligibility.getRecentTattooOrPiercing() : null)
-                .recentVaccination(eligibility != null ? eligibility.getRecentVaccination() : null)
-                .recentSurgery(eligibility != null ? eligibility.getRecentSurgery() : null)
-                .chronicDiseases(eligibility != null ? eligibility.getChronicDiseases() : null)
-                .allergies(eligibility != null ? eligibility.getAllergies() : null)
-                .lastDonationDate(eligibility != null ? eligibility.getLastDonationDate() : null)
-                .daysSinceLastDonation(daysSinceLastDonation)
-                .smokingStatus(eligibility != null ? eligibility.getSmokingStatus() : null)
-                .packYears(eligibility != null ? eligibility.getPackYears() : null)
-                .quitSmokingDate(eligibility != null ? eligibility.getQuitSmokingDate() : null)
-                .alcoholStatus(eligibility != null ? eligibility.getAlcoholStatus() : null)
-                .drinksPerWeek(eligibility != null ? eligibility.getDrinksPerWeek() : null)
-                .quitAlcoholDate(eligibility != null ? eligibility.getQuitAlcoholDate() : null)
-                .alcoholAbstinenceMonths(eligibility != null ? eligibility.getAlcoholAbstinenceMonths() : null)
-                .latitude(location != null ? location.getLatitude() : null)
-                .longitude(location != null ? location.getLongitude() : null)
-                .city(location != null ? location.getCity() : null)
-                .district(location != null ? location.getDistrict() : null)
-                .state(location != null ? location.getState() : null)
-                .country(location != null ? location.getCountry() : null)
-                .hlaA1(hlaA1)
-                .hlaA2(hlaA2)
-                .hlaB1(hlaB1)
-                .hlaB2(hlaB2)
-                .hlaC1(hlaC1)
-                .hlaC2(hlaC2)
-                .hlaDR1(hlaDR1)
-                .hlaDR2(hlaDR2)
-                .hlaDQ1(hlaDQ1)
-                .hlaDQ2(hlaDQ2)
-                .hlaDP1(hlaDP1)
-                .hlaDP2(hlaDP2)
-                .hlaHighResolution(hlaHighRes)
-                .hlaString(hlaString);
-
-        if (donation instanceof BloodDonation) {
-            BloodDonation blood = (BloodDonation) donation;
-            builder.quantity(blood.getQuantity());
-
-        } else if (donation instanceof OrganDonation) {
-            OrganDonation organ = (OrganDonation) donation;
-            builder
-                    .organType(organ.getOrganType())
-                    .organQuality(organ.getOrganQuality())
-                    .organViabilityExpiry(organ.getOrganViabilityExpiry())
-                    .coldIschemiaTime(organ.getColdIschemiaTime())
-                    .organPerfused(organ.getOrganPerfused())
-                    .organWeight(organ.getOrganWeight())
-                    .organSize(organ.getOrganSize())
-                    .hasAbnormalities(organ.getHasAbnormalities());
-
-            if (organ.getOrganViabilityExpiry() != null) {
-                long hours = ChronoUnit.HOURS.between(LocalDateTime.now(), organ.getOrganViabilityExpiry());
-                builder.organViabilityHours((double) Math.max(0, hours));
+        try {
+            return scoreThroughCache(batch);
+        } catch (RuntimeException e) {
+            if (!blood) {
+                throw e;
             }
+            log.warn("ML service unavailable for BLOOD ({}), falling back to in-process scoring", e.getMessage());
+            return inProcessMatchingEngine.batchMatch(batch, TOP_N, THRESHOLD);
+        }
+    }
 
-        } else if (donation instanceof TissueDonation) {
-            TissueDonation tissue = (TissueDonation) donation;
-            builder
-                    .tissueType(tissue.getTissueType())
-                    .quantity(tissue.getQuantity());
-
-        } else if (donation instanceof StemCellDonation) {
-            StemCellDonation stemCell = (StemCellDonation) donation;
-            builder
-                    .stemCellType(stemCell.getStemCellType())
-                    .quantity(stemCell.getQuantity());
+    /**
+     * Sends only the pairs that {@link ScoreCache} cannot answer to the ML service, then ranks the
+     * fresh and cached matches together.
+     */
+    private List<MLMatchResult> scoreThroughCache(ScoringBatch batch) {
+        ScoreCache.Lookup lookup = scoreCache.lookup(batch);
+        if (lookup.misses() == null) {
+            log.info("All {} x {} pairs for type {} served from the score cache",
+                    batch.requests().size(), batch.donations().size(), batch.donationType());
+            return ChunkedMLMatcher.rankPerRequest(lookup.cachedMatches(), TOP_N);
         }
 
-        return builder.build();
+        List<MLMatchResult> fresh = chunkedMLMatcher.batchMatch(lookup.misses(), TOP_N, THRESHOLD);
+        scoreCache.store(lookup.misses(), fresh, TOP_N);
+
+        List<MLMatchResult> combined = new ArrayList<>(lookup.cachedMatches());
+        combined.addAll(fresh);
+        return ChunkedMLMatcher.rankPerRequest(combined, TOP_N);
     }
 }
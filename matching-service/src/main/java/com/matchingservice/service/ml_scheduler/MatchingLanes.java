@@ -0,0 +1,204 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.enums.DonationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * One executor lane per {@link DonationType}. A big BLOOD run cannot hold up an organ that is
+ * about to expire. Within a lane, queued batches run earliest {@link ScoringBatch#deadline()} first.
+ * The lane threads are started up front, so every batch, the first ones included, goes through
+ * the deadline-ordered queue.
+ * <p>
+ * Each lane is configured with {@code ml.matching.lanes.<type>.concurrency},
+ * {@code ml.matching.lanes.<type>.time-budget-ms} and {@code ml.matching.lanes.<type>.run-budget-ms}.
+ * A batch that has not started within the time budget of being submitted is dropped and left to
+ * the next run. A batch still running after its run budget has its future failed with a
+ * {@link TimeoutException} and its thread interrupted; work that checks the interrupt flag, such
+ * as the write phase, stops there. Metrics are tagged by {@code type}:
+ * <ul>
+ *     <li>{@code matching.lanes.queue_depth}</li>
+ *     <li>{@code matching.lanes.wait}</li>
+ *     <li>{@code matching.lanes.deadline_missed}</li>
+ *     <li>{@code matching.lanes.budget_exceeded}</li>
+ *     <li>{@code matching.lanes.run_budget_exceeded}</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class MatchingLanes {
+
+    private final Map<DonationType, Lane> lanes = new EnumMap<>(DonationType.class);
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "matching-lanes-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MatchingLanes(Environment environment, MeterRegistry meterRegistry) {
+        int defaultConcurrency = environment.getProperty("ml.matching.lanes.default.concurrency", Integer.class, 1);
+        long defaultBudgetMs = environment.getProperty("ml.matching.lanes.default.time-budget-ms", Long.class, 90000L);
+        long defaultRunBudgetMs = environment.getProperty("ml.matching.lanes.default.run-budget-ms", Long.class, 300000L);
+
+        for (DonationType type : DonationType.values()) {
+            String key = type.name().toLowerCase().replace('_', '-');
+            int concurrency = environment.getProperty(
+                    "ml.matching.lanes." + key + ".concurrency", Integer.class, defaultConcurrency);
+            long budgetMs = environment.getProperty(
+                    "ml.matching.lanes." + key + ".time-budget-ms", Long.class, defaultBudgetMs);
+            long runBudgetMs = environment.getProperty(
+                    "ml.matching.lanes." + key + ".run-budget-ms", Long.class, defaultRunBudgetMs);
+            lanes.put(type, new Lane(type, Math.max(1, concurrency), budgetMs, runBudgetMs, watchdog, meterRegistry));
+        }
+    }
+
+    /**
+     * Queues {@code work} on the lane of the batch's type. The returned future completes with a
+     * {@link TimeoutException} if the batch waited longer than the lane's time budget or ran
+     * longer than its run budget.
+     */
+    public <T> CompletableFuture<T> submit(ScoringBatch batch, Supplier<T> work) {
+        Lane lane = lanes.get(batch.donationType());
+        CompletableFuture<T> result = new CompletableFuture<>();
+        lane.executor.execute(new LaneTask<>(lane, batch, work, result));
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lanes.values().forEach(lane -> lane.executor.shutdownNow());
+        watchdog.shutdownNow();
+    }
+
+    private static final class Lane {
+
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        private final DonationType type;
+        private final long budgetMs;
+        private final long runBudgetMs;
+        private final ScheduledExecutorService watchdog;
+        private final ThreadPoolExecutor executor;
+        private final Timer waitTimer;
+        private final Counter deadlineMissed;
+        private final Counter budgetExceeded;
+        private final Counter runBudgetExceeded;
+
+        Lane(DonationType type, int concurrency, long budgetMs, long runBudgetMs,
+             ScheduledExecutorService watchdog, MeterRegistry meterRegistry) {
+            this.type = type;
+            this.budgetMs = budgetMs;
+            this.runBudgetMs = runBudgetMs;
+            this.watchdog = watchdog;
+            String tag = type.name().toLowerCase();
+            this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<>(),
+                    runnable -> new Thread(runnable, "matching-lane-" + tag + "-" + SEQUENCE.incrementAndGet()));
+            // Idle core threads make execute() queue every task; otherwise the first ones bypass
+            // the priority queue and run in submission order.
+            this.executor.prestartAllCoreThreads();
+
+            Gauge.builder("matching.lanes.queue_depth", executor, pool -> pool.getQueue().size())
+                    .tag("type", tag)
+                    .register(meterRegistry);
+            this.waitTimer = Timer.builder("matching.lanes.wait").tag("type", tag).register(meterRegistry);
+            this.deadlineMissed = meterRegistry.counter("matching.lanes.deadline_missed", "type", tag);
+            this.budgetExceeded = meterRegistry.counter("matching.lanes.budget_exceeded", "type", tag);
+            this.runBudgetExceeded = meterRegistry.counter("matching.lanes.run_budget_exceeded", "type", tag);
+        }
+    }
+
+    /**
+     * Ordered by batch deadline so the lane's {@link PriorityBlockingQueue} hands out the most
+     * urgent batch first; submission order breaks ties.
+     */
+    private static final class LaneTask<T> implements Runnable, Comparable<LaneTask<?>> {
+
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        private final Lane lane;
+        private final ScoringBatch batch;
+        private final Supplier<T> work;
+        private final CompletableFuture<T> result;
+        private final long submittedAtNanos = System.nanoTime();
+        private final long sequence = SEQUENCE.incrementAndGet();
+        private boolean finished;
+
+        LaneTask(Lane lane, ScoringBatch batch, Supplier<T> work, CompletableFuture<T> result) {
+            this.lane = lane;
+            this.batch = batch;
+            this.work = work;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            long waitedNanos = System.nanoTime() - submittedAtNanos;
+            lane.waitTimer.record(waitedNanos, TimeUnit.NANOSECONDS);
+
+            if (TimeUnit.NANOSECONDS.toMillis(waitedNanos) > lane.budgetMs) {
+                lane.budgetExceeded.increment();
+                result.completeExceptionally(new TimeoutException(
+                        lane.type + " batch waited " + TimeUnit.NANOSECONDS.toMillis(waitedNanos)
+                                + "ms, over the lane budget of " + lane.budgetMs + "ms"));
+                return;
+            }
+
+            Thread worker = Thread.currentThread();
+            ScheduledFuture<?> cutOff = lane.watchdog.schedule(() -> cutOff(worker), lane.runBudgetMs, TimeUnit.MILLISECONDS);
+            try {
+                result.complete(work.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                cutOff.cancel(false);
+                synchronized (this) {
+                    finished = true;
+                    Thread.interrupted();
+                }
+                if (LocalDateTime.now().isAfter(batch.deadline())) {
+                    lane.deadlineMissed.increment();
+                    log.warn("{} batch finished after its deadline {}", lane.type, batch.deadline());
+                }
+            }
+        }
+
+        private void cutOff(Thread worker) {
+            synchronized (this) {
+                if (finished || !result.completeExceptionally(new TimeoutException(
+                        lane.type + " batch ran over the lane run budget of " + lane.runBudgetMs + "ms"))) {
+                    return;
+                }
+                worker.interrupt();
+            }
+            lane.runBudgetExceeded.increment();
+            log.warn("{} batch ran over the lane run budget of {}ms, interrupting it", lane.type, lane.runBudgetMs);
+        }
+
+        @Override
+        public int compareTo(LaneTask<?> other) {
+            int byDeadline = batch.deadline().compareTo(other.batch.deadline());
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+    }
+}
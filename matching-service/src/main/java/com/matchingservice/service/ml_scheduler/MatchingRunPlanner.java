@@ -0,0 +1,367 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.*;
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.donor.DonorHLAProfile;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.model.recipients.RecipientHLAProfile;
+import com.matchingservice.repository.ExchangePairRepository;
+import com.matchingservice.repository.donor.DonationRepository;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import com.matchingservice.service.candidate.CandidateBatch;
+import com.matchingservice.service.candidate.CandidatePairGenerator;
+import com.matchingservice.service.hla.HlaAlleleCodec;
+import com.matchingservice.service.hla.HlaTyping;
+import com.matchingservice.service.scoring.HlaMismatch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot phase of a batch-matching run. Reads open requests and donations in a single
+ * read-only transaction, prunes hard-rule violations and converts what is left into
+ * {@link ScoringBatch}es, so the slow ML call happens with no connection held.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MatchingRunPlanner {
+
+    static final List<RequestStatus> OPEN_REQUEST_STATUSES =
+            List.of(RequestStatus.PENDING, RequestStatus.MATCHED);
+
+    static final List<DonationStatus> OPEN_DONATION_STATUSES =
+            List.of(DonationStatus.PENDING, DonationStatus.MATCHED);
+
+    /**
+     * How long a request of each urgency may wait for a match before it is overdue.
+     */
+    private static final Map<UrgencyLevel, Duration> URGENCY_SLACK = Map.of(
+            UrgencyLevel.CRITICAL, Duration.ofHours(1),
+            UrgencyLevel.HIGH, Duration.ofHours(6),
+            UrgencyLevel.MEDIUM, Duration.ofHours(24),
+            UrgencyLevel.LOW, Duration.ofHours(72));
+
+    private final DonationRepository donationRepository;
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final CandidatePairGenerator candidatePairGenerator;
+    private final MatchingSnapshotLoader matchingSnapshotLoader;
+    private final MLFeatureConverter mlFeatureConverter;
+    private final ExchangePairRepository exchangePairRepository;
+
+    @Value("${ml.matching.hla.max-mismatches.organ:6}")
+    private int organMaxMismatches;
+
+    @Value("${ml.matching.hla.max-mismatches.stem-cell:6}")
+    private int stemCellMaxMismatches;
+
+    @Transactional(readOnly = true)
+    public List<ScoringBatch> planFull() {
+        log.info("Planning full reconciliation pass");
+
+        List<ReceiveRequest> pendingRequests = receiveRequestRepository.findWithSnapshotByStatusIn(OPEN_REQUEST_STATUSES);
+
+        log.info("Found {} pending/matched receive requests", pendingRequests.size());
+
+        if (pendingRequests.isEmpty()) {
+            log.info("No pending/matched requests. Skipping batch matching.");
+            return List.of();
+        }
+
+        List<Donation> availableDonations = donationRepository.findWithSnapshotByStatusIn(OPEN_DONATION_STATUSES);
+
+        log.info("Found {} pending/matched donations", availableDonations.size());
+
+        if (availableDonations.isEmpty()) {
+            log.info("No pending/matched donations. Skipping batch matching.");
+            return List.of();
+        }
+
+        Map<DonationType, List<ReceiveRequest>> requestsByType = pendingRequests.stream()
+                .collect(Collectors.groupingBy(request -> DonationType.valueOf(request.getRequestType().name())));
+
+        Map<DonationType, List<Donation>> donationsByType = availableDonations.stream()
+                .collect(Collectors.groupingBy(Donation::getDonationType));
+
+        List<ScoringBatch> plan = new ArrayList<>();
+
+        for (Map.Entry<DonationType, List<ReceiveRequest>> entry : requestsByType.entrySet()) {
+            DonationType donationType = entry.getKey();
+            List<Donation> typeDonations = donationsByType.getOrDefault(donationType, List.of());
+
+            if (typeDonations.isEmpty()) {
+                log.info("No donations available for type: {}", donationType);
+                continue;
+            }
+
+            log.info("Planning {} requests with {} donations for type: {}",
+                    entry.getValue().size(), typeDonations.size(), donationType);
+
+            plan.addAll(toScoringBatches(donationType, entry.getValue(), typeDonations));
+        }
+
+        return plan;
+    }
+
+    /**
+     * Plans only pairs where at least one side was created or changed after {@code since}.
+     */
+    @Transactional(readOnly = true)
+    public List<ScoringBatch> planIncremental(LocalDateTime since) {
+        log.info("Planning incremental matching for changes since {}", since);
+
+        List<ReceiveRequest> changedRequests = receiveRequestRepository
+                .findWithSnapshotByStatusInAndUpdatedAtAfter(OPEN_REQUEST_STATUSES, since);
+        List<Donation> changedDonations = donationRepository
+                .findWithSnapshotByStatusInAndUpdatedAtAfter(OPEN_DONATION_STATUSES, since);
+
+        log.info("Found {} changed requests and {} changed donations", changedRequests.size(), changedDonations.size());
+
+        if (changedRequests.isEmpty() && changedDonations.isEmpty()) {
+            log.info("Nothing changed since last run. Skipping batch matching.");
+            return List.of();
+        }
+
+        return planChanges(changedRequests, changedDonations);
+    }
+
+    /**
+     * Plans just the given requests and donations against their open counterparts, for
+     * event-triggered runs. Ids that are no longer open are ignored.
+     */
+    @Transactional(readOnly = true)
+    public List<ScoringBatch> planForItems(Collection<UUID> requestIds, Collection<UUID> donationIds) {
+        List<ReceiveRequest> requests = requestIds.isEmpty() ? List.of() : receiveRequestRepository
+                .findWithSnapshotByReceiveRequestIdIn(requestIds).stream()
+                .filter(request -> OPEN_REQUEST_STATUSES.contains(request.getStatus()))
+                .collect(Collectors.toList());
+        List<Donation> donations = donationIds.isEmpty() ? List.of() : donationRepository
+                .findWithSnapshotByDonationIdIn(donationIds).stream()
+                .filter(donation -> OPEN_DONATION_STATUSES.contains(donation.getStatus()))
+                .collect(Collectors.toList());
+
+        log.info("Planning triggered matching for {} requests and {} donations", requests.size(), donations.size());
+
+        if (requests.isEmpty() && donations.isEmpty()) {
+            return List.of();
+        }
+
+        return planChanges(requests, donations);
+    }
+
+    /**
+     * Pairs changed requests with every open donation of their type, and changed donations
+     * with the open requests of their type that the first set did not already cover.
+     */
+    private List<ScoringBatch> planChanges(List<ReceiveRequest> changedRequests, List<Donation> changedDonations) {
+        Map<DonationType, List<ReceiveRequest>> changedRequestsByType = changedRequests.stream()
+                .collect(Collectors.groupingBy(request -> DonationType.valueOf(request.getRequestType().name())));
+
+        Map<DonationType, List<Donation>> changedDonationsByType = changedDonations.stream()
+                .collect(Collectors.groupingBy(Donation::getDonationType));
+
+        Set<DonationType> touchedTypes = EnumSet.noneOf(DonationType.class);
+        touchedTypes.addAll(changedRequestsByType.keySet());
+        touchedTypes.addAll(changedDonationsByType.keySet());
+
+        List<ScoringBatch> plan = new ArrayList<>();
+
+        for (DonationType donationType : touchedTypes) {
+            RequestType requestType = RequestType.valueOf(donationType.name());
+            List<ReceiveRequest> typeChangedRequests = changedRequestsByType.getOrDefault(donationType, List.of());
+            List<Donation> typeChangedDonations = changedDonationsByType.getOrDefault(donationType, List.of());
+
+            if (!typeChangedRequests.isEmpty()) {
+                List<Donation> openDonations = donationRepository
+                        .findWithSnapshotByDonationTypeAndStatusIn(donationType, OPEN_DONATION_STATUSES);
+
+                if (!openDonations.isEmpty()) {
+                    log.info("Planning {} changed requests with {} open donations for type: {}",
+                            typeChangedRequests.size(), openDonations.size(), donationType);
+                    plan.addAll(toScoringBatches(donationType, typeChangedRequests, openDonations));
+                }
+            }
+
+            if (!typeChangedDonations.isEmpty()) {
+                Set<UUID> alreadyScored = typeChangedRequests.stream()
+                        .map(ReceiveRequest::getReceiveRequestId)
+                        .collect(Collectors.toSet());
+
+                List<ReceiveRequest> unchangedRequests = receiveRequestRepository
+                        .findWithSnapshotByRequestTypeAndStatusIn(requestType, OPEN_REQUEST_STATUSES)
+                        .stream()
+                        .filter(request -> !alreadyScored.contains(request.getReceiveRequestId()))
+                        .collect(Collectors.toList());
+
+                if (!unchangedRequests.isEmpty()) {
+                    log.info("Planning {} open requests with {} changed donations for type: {}",
+                            unchangedRequests.size(), typeChangedDonations.size(), donationType);
+                    plan.addAll(toScoringBatches(donationType, unchangedRequests, typeChangedDonations));
+                }
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Prunes hard-rule violations with {@link CandidatePairGenerator} and converts each
+     * surviving request/donation to ML features exactly once. Organ donations and requests
+     * enrolled in paired exchange are left to the exchange run. ORGAN and STEM_CELL batches are
+     * also pruned and ranked by A/B/DR mismatch, see {@link #rankByHla}.
+     */
+    private List<ScoringBatch> toScoringBatches(DonationType donationType,
+                                                List<ReceiveRequest> requests,
+                                                List<Donation> donations) {
+        if (donationType == DonationType.ORGAN) {
+            Set<UUID> exchangeDonations = exchangePairRepository.findDonationIdsByStatus(ExchangePairStatus.ACTIVE);
+            Set<UUID> exchangeRequests = exchangePairRepository.findReceiveRequestIdsByStatus(ExchangePairStatus.ACTIVE);
+            if (!exchangeDonations.isEmpty() || !exchangeRequests.isEmpty()) {
+                donations = donations.stream().filter(donation -> !exchangeDonations.contains(donation.getDonationId())).toList();
+                requests = requests.stream().filter(request -> !exchangeRequests.contains(request.getReceiveRequestId())).toList();
+            }
+        }
+        List<CandidateBatch> batches = candidatePairGenerator.generate(requests, donations);
+        if (batches.isEmpty()) {
+            return List.of();
+        }
+
+        Map<UUID, RecipientHLAProfile> recipientHLA = matchingSnapshotLoader.loadLatestRecipientHLA(requests);
+        Map<UUID, DonorHLAProfile> donorHLA = matchingSnapshotLoader.loadLatestDonorHLA(donations);
+
+        int maxMismatches = switch (donationType) {
+            case ORGAN -> organMaxMismatches;
+            case STEM_CELL -> stemCellMaxMismatches;
+            default -> -1;
+        };
+        if (maxMismatches >= 0) {
+            batches = rankByHla(batches, donorHLA, recipientHLA, maxMismatches);
+        }
+
+        LocalDateTime plannedAt = LocalDateTime.now();
+        Map<UUID, MLRequestData> convertedRequests = new HashMap<>();
+        Map<UUID, MLDonationData> convertedDonations = new HashMap<>();
+
+        List<ScoringBatch> scoringBatches = new ArrayList<>(batches.size());
+        for (CandidateBatch batch : batches) {
+            List<MLRequestData> mlRequests = batch.requests().stream()
+                    .map(request -> convertedRequests.computeIfAbsent(
+                            request.getReceiveRequestId(),
+                            id -> mlFeatureConverter.convertToMLRequestData(request, recipientHLA.get(request.getRecipientId()))))
+                    .collect(Collectors.toList());
+
+            List<MLDonationData> mlDonations = batch.donations().stream()
+                    .map(donation -> convertedDonations.computeIfAbsent(
+                            donation.getDonationId(),
+                            id -> mlFeatureConverter.convertToMLDonationData(donation, donorHLA.get(donation.getDonorId()))))
+                    .collect(Collectors.toList());
+
+            scoringBatches.add(new ScoringBatch(donationType, mlRequests, mlDonations, batch.excludedPairs(),
+                    batch.prunedPairs(), deadlineOf(mlRequests, mlDonations, plannedAt)));
+        }
+        return scoringBatches;
+    }
+
+    /**
+     * Encodes every typing once and computes the bitset A/B/DR mismatch count of each candidate
+     * pair before any ML call. Pairs above {@code maxMismatches} are added to the batch's excluded
+     * and pruned pairs, and a batch left with no pair is dropped. Donations are reordered best match first,
+     * their rank being their lowest mismatch count with any request in the batch. Pairs where
+     * either side is untyped are kept and rank last.
+     */
+    private List<CandidateBatch> rankByHla(List<CandidateBatch> batches,
+                                           Map<UUID, DonorHLAProfile> donorHLA,
+                                           Map<UUID, RecipientHLAProfile> recipientHLA,
+                                           int maxMismatches) {
+        Map<UUID, HlaTyping> donorTypings = new HashMap<>();
+        donorHLA.forEach((donorId, profile) -> donorTypings.put(donorId, HlaAlleleCodec.encode(profile)));
+        Map<UUID, HlaTyping> recipientTypings = new HashMap<>();
+        recipientHLA.forEach((recipientId, profile) -> recipientTypings.put(recipientId, HlaAlleleCodec.encode(profile)));
+
+        List<CandidateBatch> ranked = new ArrayList<>(batches.size());
+        int pruned = 0;
+        for (CandidateBatch batch : batches) {
+            Set<MatchPair> excluded = new HashSet<>(batch.excludedPairs());
+            Set<MatchPair> prunedPairs = new HashSet<>(batch.prunedPairs());
+            Map<UUID, Integer> bestMismatches = new HashMap<>();
+            for (Donation donation : batch.donations()) {
+                HlaTyping donorTyping = donorTypings.get(donation.getDonorId());
+                int best = Integer.MAX_VALUE;
+                for (ReceiveRequest request : batch.requests()) {
+                    MatchPair pair = new MatchPair(donation.getDonationId(), request.getReceiveRequestId());
+                    if (excluded.contains(pair)) {
+                        continue;
+                    }
+                    HlaTyping recipientTyping = recipientTypings.get(request.getRecipientId());
+                    int mismatches = HlaMismatch.antigenMismatches(donorTyping, recipientTyping);
+                    if (mismatches < 0) {
+                        continue;
+                    }
+                    if (mismatches > maxMismatches) {
+                        excluded.add(pair);
+                        prunedPairs.add(pair);
+                        pruned++;
+                    } else {
+                        best = Math.min(best, mismatches);
+                    }
+                }
+                bestMismatches.put(donation.getDonationId(), best);
+            }
+
+            CandidateBatch rankedBatch = new CandidateBatch(batch.requests(),
+                    batch.donations().stream()
+                            .sorted(Comparator.comparing(donation -> bestMismatches.get(donation.getDonationId())))
+                            .toList(),
+                    excluded, prunedPairs);
+            if (rankedBatch.pairCount() > 0) {
+                ranked.add(rankedBatch);
+            }
+        }
+        if (pruned > 0) {
+            log.info("Pruned {} candidate pairs above {} HLA mismatches before scoring", pruned, maxMismatches);
+        }
+        return ranked;
+    }
+
+    /**
+     * Earliest deadline of anything in the batch. For an organ this is when it stops being
+     * viable: its viability expiry, else its cold ischemia limit in hours. For a request it is
+     * the slack for its urgency, shortened by 1% per day already waited, down to half.
+     */
+    private static LocalDateTime deadlineOf(List<MLRequestData> requests, List<MLDonationData> donations,
+                                            LocalDateTime plannedAt) {
+        LocalDateTime deadline = LocalDateTime.MAX;
+
+        for (MLDonationData donation : donations) {
+            LocalDateTime expiry = donation.getOrganViabilityExpiry();
+            if (expiry == null && donation.getColdIschemiaTime() != null) {
+                expiry = plannedAt.plusHours(donation.getColdIschemiaTime());
+            }
+            if (expiry != null && expiry.isBefore(deadline)) {
+                deadline = expiry;
+            }
+        }
+
+        for (MLRequestData request : requests) {
+            Duration slack = URGENCY_SLACK.getOrDefault(request.getUrgencyLevel(), URGENCY_SLACK.get(UrgencyLevel.MEDIUM));
+            int daysWaiting = request.getDaysWaiting() != null ? Math.max(0, request.getDaysWaiting()) : 0;
+            double factor = Math.max(0.5, 1.0 - 0.01 * daysWaiting);
+            LocalDateTime requestDeadline = plannedAt.plusSeconds((long) (slack.toSeconds() * factor));
+            if (requestDeadline.isBefore(deadline)) {
+                deadline = requestDeadline;
+            }
+        }
+
+        return deadline;
+    }
+}
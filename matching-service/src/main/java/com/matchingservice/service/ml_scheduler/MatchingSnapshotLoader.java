@@ -0,0 +1,92 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.enums.RequestType;
+import com.matchingservice.model.donor.Donation;
+import com.matchingservice.model.donor.DonorHLAProfile;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.model.recipients.RecipientHLAProfile;
+import com.matchingservice.repository.donor.DonationRepository;
+import com.matchingservice.repository.donor.DonorHLAProfileRepository;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import com.matchingservice.repository.recipient.RecipientHLAProfileRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads everything the ML feature conversion needs for a batch of donations and requests
+ * in a constant number of queries per {@value #IN_CLAUSE_CHUNK_SIZE} IDs: one entity-graph
+ * query per side (donor/recipient, medical details, eligibility, location) and one
+ * IN-query per HLA table for the latest profile of each donor/recipient.
+ */
+@Component
+@RequiredArgsConstructor
+public class MatchingSnapshotLoader {
+
+    static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
+    private final DonationRepository donationRepository;
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final DonorHLAProfileRepository donorHLAProfileRepository;
+    private final RecipientHLAProfileRepository recipientHLAProfileRepository;
+
+    public List<Donation> loadDonations(Collection<UUID> donationIds) {
+        return inChunks(donationIds, donationRepository::findWithSnapshotByDonationIdIn);
+    }
+
+    public List<ReceiveRequest> loadRequests(Collection<UUID> requestIds) {
+        return inChunks(requestIds, receiveRequestRepository::findWithSnapshotByReceiveRequestIdIn);
+    }
+
+    /**
+     * Latest HLA profile per donorId, only for donation types that are HLA-matched.
+     */
+    public Map<UUID, DonorHLAProfile> loadLatestDonorHLA(Collection<Donation> donations) {
+        Set<UUID> donorIds = donations.stream()
+                .filter(donation -> donation.getDonationType() == DonationType.ORGAN
+                        || donation.getDonationType() == DonationType.STEM_CELL)
+                .map(Donation::getDonorId)
+                .collect(Collectors.toSet());
+
+        Map<UUID, DonorHLAProfile> latest = new HashMap<>();
+        for (DonorHLAProfile profile : inChunks(donorIds, donorHLAProfileRepository::findLatestByDonorIdIn)) {
+            latest.putIfAbsent(profile.getDonor().getDonorId(), profile);
+        }
+        return latest;
+    }
+
+    /**
+     * Latest HLA profile per recipientId, only for request types that are HLA-matched.
+     */
+    public Map<UUID, RecipientHLAProfile> loadLatestRecipientHLA(Collection<ReceiveRequest> requests) {
+        Set<UUID> recipientIds = requests.stream()
+                .filter(request -> request.getRequestType() == RequestType.ORGAN
+                        || request.getRequestType() == RequestType.STEM_CELL)
+                .map(ReceiveRequest::getRecipientId)
+                .collect(Collectors.toSet());
+
+        Map<UUID, RecipientHLAProfile> latest = new HashMap<>();
+        for (RecipientHLAProfile profile : inChunks(recipientIds, recipientHLAProfileRepository::findLatestByRecipientIdIn)) {
+            latest.putIfAbsent(profile.getRecipient().getRecipientId(), profile);
+        }
+        return latest;
+    }
+
+    private static <T> List<T> inChunks(Collection<UUID> ids, Function<Collection<UUID>, List<T>> query) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<UUID> idList = new ArrayList<>(ids);
+        List<T> results = new ArrayList<>(idList.size());
+        for (int from = 0; from < idList.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            int to = Math.min(from + IN_CLAUSE_CHUNK_SIZE, idList.size());
+            results.addAll(query.apply(idList.subList(from, to)));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,120 @@
+package com.matchingservice.service.ml_scheduler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a targeted matching run as soon as a request or donation has been assembled, instead
+ * of waiting for the next cron tick. Items are coalesced: every new item pushes the run back by
+ * {@code ml.matching.trigger.debounce-ms}, but never further than
+ * {@code ml.matching.trigger.max-delay-ms} after the first pending item. Runs happen one at a
+ * time on a single thread.
+ * <p>
+ * Items are enqueued only after the caller's transaction commits, so the run sees them. A failed
+ * run is only logged; the scheduled {@link MLMatchingSchedulerService#runBatchMatching()} picks
+ * the same items up through the watermark.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MatchingTrigger {
+
+    private final MLMatchingSchedulerService schedulerService;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "matching-trigger"));
+
+    private final Object monitor = new Object();
+    private Set<UUID> pendingRequestIds = new HashSet<>();
+    private Set<UUID> pendingDonationIds = new HashSet<>();
+    private long firstPendingAt;
+    private ScheduledFuture<?> scheduledRun;
+
+    @Value("${ml.matching.trigger.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ml.matching.trigger.debounce-ms:2000}")
+    private long debounceMs;
+
+    @Value("${ml.matching.trigger.max-delay-ms:10000}")
+    private long maxDelayMs;
+
+    public void requestReady(UUID receiveRequestId) {
+        afterCommit(() -> enqueue(receiveRequestId, true));
+    }
+
+    public void donationReady(UUID donationId) {
+        afterCommit(() -> enqueue(donationId, false));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void enqueue(UUID id, boolean request) {
+        synchronized (monitor) {
+            long now = System.currentTimeMillis();
+            if (pendingRequestIds.isEmpty() && pendingDonationIds.isEmpty()) {
+                firstPendingAt = now;
+            }
+            (request ? pendingRequestIds : pendingDonationIds).add(id);
+
+            long runAt = Math.min(now + debounceMs, firstPendingAt + maxDelayMs);
+            if (scheduledRun != null) {
+                scheduledRun.cancel(false);
+            }
+            scheduledRun = executor.schedule(this::run, Math.max(0, runAt - now), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run() {
+        Set<UUID> requestIds;
+        Set<UUID> donationIds;
+        synchronized (monitor) {
+            requestIds = pendingRequestIds;
+            donationIds = pendingDonationIds;
+            pendingRequestIds = new HashSet<>();
+            pendingDonationIds = new HashSet<>();
+            scheduledRun = null;
+        }
+        if (requestIds.isEmpty() && donationIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            schedulerService.runTriggeredMatching(requestIds, donationIds);
+        } catch (Exception e) {
+            log.error("Triggered matching failed for {} requests and {} donations, leaving them to the scheduled run: {}",
+                    requestIds.size(), donationIds.size(), e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
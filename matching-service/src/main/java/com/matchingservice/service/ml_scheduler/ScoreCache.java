@@ -0,0 +1,234 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers what the ML service said about each (donation, request) pair, so unchanged pairs
+ * are not sent again on the next run. A pair known to score below the threshold is cached as
+ * "no match" too. A pair that only fell outside its request's top N is not cached at all: once a
+ * top entry closes it may be the next best, so it has to be scored again.
+ * <p>
+ * Later stages of a run set fields on the matches they are handed, such as the fulfilment group,
+ * rank and travel band. The cache therefore keeps its own copy of each match, without those
+ * fields, and hands out a fresh copy on every hit.
+ * <p>
+ * An entry is used only if all three hold:
+ * <ul>
+ *     <li>Both converted sides are still equal, field by field, to the ones it was scored from, so
+ *     time-dependent features such as {@code daysWaiting} and {@code organViabilityHours} retire
+ *     entries when they tick over. The entry keeps references to those sides, which are shared by
+ *     every pair of the run that scored them. A 64-bit hash of the two sides rejects most
+ *     changed pairs before the comparison.</li>
+ *     <li>It is younger than {@code ml.matching.score-cache.ttl-minutes}.</li>
+ *     <li>Neither the donor nor the recipient has been invalidated since it was cached. Event
+ *     handling invalidates them whenever new donor/recipient, location or HLA data is stored.</li>
+ * </ul>
+ * The hit ratio is published as {@code matching.score_cache.hit_ratio}.
+ */
+@Component
+@Slf4j
+public class ScoreCache {
+
+    private final Map<MatchPair, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> donorInvalidatedAt = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> recipientInvalidatedAt = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${ml.matching.score-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ml.matching.score-cache.ttl-minutes:360}")
+    private long ttlMinutes;
+
+    @Value("${ml.matching.score-cache.max-entries:500000}")
+    private int maxEntries;
+
+    public ScoreCache(MeterRegistry meterRegistry) {
+        this.hits = meterRegistry.counter("matching.score_cache.hits");
+        this.misses = meterRegistry.counter("matching.score_cache.misses");
+        Gauge.builder("matching.score_cache.hit_ratio", this, cache -> {
+                    double total = cache.hits.count() + cache.misses.count();
+                    return total == 0 ? 0.0 : cache.hits.count() / total;
+                })
+                .register(meterRegistry);
+        Gauge.builder("matching.score_cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Result of a lookup: the cached matches for the batch, and the smallest sub-batch that
+     * still has to be scored. The sub-batch is null when every pair was a hit.
+     */
+    public record Lookup(List<MLMatchResult> cachedMatches, ScoringBatch misses) {
+    }
+
+    /**
+     * Splits {@code batch} into cached matches and the requests x donations that still contain
+     * at least one miss. Scoring that sub-product may re-score a few cached pairs, which only
+     * refreshes them.
+     */
+    public Lookup lookup(ScoringBatch batch) {
+        if (!enabled) {
+            return new Lookup(List.of(), batch);
+        }
+
+        long now = System.currentTimeMillis();
+        long oldestValid = now - ttlMinutes * 60_000;
+        int[] donationHashes = batch.donations().stream().mapToInt(MLDonationData::hashCode).toArray();
+
+        List<MLMatchResult> cachedMatches = new ArrayList<>();
+        List<MLRequestData> missedRequests = new ArrayList<>();
+        Set<Integer> missedDonations = new TreeSet<>();
+        long hitCount = 0;
+        long missCount = 0;
+
+        for (MLRequestData request : batch.requests()) {
+            int requestHash = request.hashCode();
+            boolean requestMissed = false;
+            for (int d = 0; d < batch.donations().size(); d++) {
+                MLDonationData donation = batch.donations().get(d);
+                MatchPair pair = new MatchPair(donation.getDonationId(), request.getReceiveRequestId());
+                if (batch.excludedPairs().contains(pair)) {
+                    continue;
+                }
+                Entry entry = entries.get(pair);
+                if (entry != null && entry.isValid(featureHash(requestHash, donationHashes[d]), request, donation,
+                        oldestValid, donorInvalidatedAt.get(donation.getDonorId()),
+                        recipientInvalidatedAt.get(request.getRecipientId()))) {
+                    hitCount++;
+                    if (entry.match() != null) {
+                        cachedMatches.add(entry.match().toBuilder().build());
+                    }
+                } else {
+                    missCount++;
+                    requestMissed = true;
+                    missedDonations.add(d);
+                }
+            }
+            if (requestMissed) {
+                missedRequests.add(request);
+            }
+        }
+
+        hits.increment(hitCount);
+        misses.increment(missCount);
+
+        if (missedRequests.isEmpty()) {
+            return new Lookup(cachedMatches, null);
+        }
+        List<MLDonationData> donations = missedDonations.stream().map(batch.donations()::get).toList();
+        return new Lookup(cachedMatches, new ScoringBatch(batch.donationType(), missedRequests, donations,
+                batch.excludedPairs(), batch.prunedPairs(), batch.deadline()));
+    }
+
+    /**
+     * Records the outcome of scoring {@code scored} with the per-request top {@code topN}: the
+     * returned matches as hits, and every other pair of a request that got fewer than
+     * {@code topN} matches as "no match", since those all scored below the threshold. The other
+     * pairs of a request that filled its top N are left uncached.
+     */
+    public void store(ScoringBatch scored, List<MLMatchResult> matches, int topN) {
+        if (!enabled || scored == null) {
+            return;
+        }
+
+        Map<MatchPair, MLMatchResult> matchesByPair = new HashMap<>();
+        Map<UUID, Integer> matchesPerRequest = new HashMap<>();
+        for (MLMatchResult match : matches) {
+            matchesByPair.put(new MatchPair(match.getDonationId(), match.getReceiveRequestId()), match.toBuilder()
+                    .priorityRank(null)
+                    .fulfilmentGroupId(null)
+                    .travelBand(null)
+                    .build());
+            matchesPerRequest.merge(match.getReceiveRequestId(), 1, Integer::sum);
+        }
+
+        long now = System.currentTimeMillis();
+        int[] donationHashes = scored.donations().stream().mapToInt(MLDonationData::hashCode).toArray();
+        for (MLRequestData request : scored.requests()) {
+            int requestHash = request.hashCode();
+            boolean belowThresholdKnown = matchesPerRequest.getOrDefault(request.getReceiveRequestId(), 0) < topN;
+            for (int d = 0; d < scored.donations().size(); d++) {
+                MLDonationData donation = scored.donations().get(d);
+                MatchPair pair = new MatchPair(donation.getDonationId(), request.getReceiveRequestId());
+                if (scored.excludedPairs().contains(pair)) {
+                    continue;
+                }
+                MLMatchResult match = matchesByPair.get(pair);
+                if (match != null || belowThresholdKnown) {
+                    entries.put(pair, new Entry(featureHash(requestHash, donationHashes[d]), request, donation, match, now));
+                } else {
+                    entries.remove(pair);
+                }
+            }
+        }
+
+        if (entries.size() > maxEntries) {
+            evictExpired();
+            if (entries.size() > maxEntries) {
+                log.warn("Score cache over {} entries after expiry, clearing it", maxEntries);
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Retires every cached pair of these donors' donations, e.g. after a new donor snapshot,
+     * location or HLA profile was stored.
+     */
+    public void invalidateDonors(Collection<UUID> donorIds) {
+        long now = System.currentTimeMillis();
+        donorIds.forEach(id -> donorInvalidatedAt.put(id, now));
+    }
+
+    /**
+     * Retires every cached pair of these recipients' requests.
+     */
+    public void invalidateRecipients(Collection<UUID> recipientIds) {
+        long now = System.currentTimeMillis();
+        recipientIds.forEach(id -> recipientInvalidatedAt.put(id, now));
+    }
+
+    /**
+     * Drops expired entries and invalidation marks that no live entry can predate any more.
+     */
+    @Scheduled(fixedDelayString = "${ml.matching.score-cache.sweep-interval-ms:600000}")
+    public void evictExpired() {
+        long oldestValid = System.currentTimeMillis() - ttlMinutes * 60_000;
+        entries.values().removeIf(entry -> entry.cachedAt() < oldestValid);
+        donorInvalidatedAt.values().removeIf(invalidatedAt -> invalidatedAt < oldestValid);
+        recipientInvalidatedAt.values().removeIf(invalidatedAt -> invalidatedAt < oldestValid);
+    }
+
+    private static long featureHash(int requestHash, int donationHash) {
+        return ((long) requestHash << 32) | (donationHash & 0xffffffffL);
+    }
+
+    private record Entry(long featureHash, MLRequestData request, MLDonationData donation,
+                         MLMatchResult match, long cachedAt) {
+
+        boolean isValid(long currentFeatureHash, MLRequestData currentRequest, MLDonationData currentDonation,
+                        long oldestValid, Long donorInvalidatedAt, Long recipientInvalidatedAt) {
+            return featureHash == currentFeatureHash
+                    && cachedAt >= oldestValid
+                    && (donorInvalidatedAt == null || cachedAt > donorInvalidatedAt)
+                    && (recipientInvalidatedAt == null || cachedAt > recipientInvalidatedAt)
+                    && (request == currentRequest || request.equals(currentRequest))
+                    && (donation == currentDonation || donation.equals(currentDonation));
+        }
+    }
+}
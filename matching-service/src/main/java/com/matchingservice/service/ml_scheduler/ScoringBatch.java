@@ -0,0 +1,29 @@
+package com.matchingservice.service.ml_scheduler;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One ML batch-match call worth of already converted features. Holds no entities, so it
+ * can be scored after the read transaction that built it has closed.
+ *
+ * @param excludedPairs pairs of the cross product that must not be scored: those that already
+ *                      have a match result, and the {@code prunedPairs}
+ * @param prunedPairs the excluded pairs that have no match result but failed a pre-scoring
+ *                    filter (search radius, organ viability, HLA limit)
+ * @param deadline the earliest point by which a pair in this batch should be matched; lanes
+ *                 run batches in deadline order
+ */
+public record ScoringBatch(DonationType donationType,
+                           List<MLRequestData> requests,
+                           List<MLDonationData> donations,
+                           Set<MatchPair> excludedPairs,
+                           Set<MatchPair> prunedPairs,
+                           LocalDateTime deadline) {
+}
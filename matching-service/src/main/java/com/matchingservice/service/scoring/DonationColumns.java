@@ -0,0 +1,120 @@
+package com.matchingservice.service.scoring;
+
+import com.matchingservice.dto.ml.MLDonationData;
+
+import java.util.List;
+
+/**
+ * Struct-of-arrays copy of the BLOOD donations in one scoring batch, one primitive array per
+ * field the hard filters and the rule score read, so a {@link DonationScanKernel} can walk a
+ * request against every donation without touching the DTOs.
+ * <p>
+ * Everything that does not depend on the request is folded in once per donation: coordinates
+ * are stored in radians with the cosine of the latitude, the request-independent part of the
+ * hard score and of the rule score are precomputed, and {@link #bloodTypeBits} is zero for a
+ * donation the hard filters reject whatever the request (no blood type, infectious disease,
+ * hemoglobin below {@link InProcessMatchingEngine#MIN_HEMOGLOBIN}).
+ * <p>
+ * {@link #baseHardScore} stops before the quantity term, and leaves out the infectious-disease
+ * term that every eligible donation earns, so a kernel adds them in the engine's order.
+ */
+final class DonationColumns {
+
+    static final byte NO_BLOOD_TYPE = -1;
+
+    static final byte INFECTIOUS = 1;
+    static final byte RECENT_TATTOO_OR_SURGERY = 1 << 1;
+    static final byte CLEARED = 1 << 2;
+    static final byte ELIGIBLE = 1 << 3;
+
+    final List<MLDonationData> rows;
+    final int size;
+
+    final long[] bloodTypeBits;
+    final double[] latitudeRadians;
+    final double[] longitudeRadians;
+    final double[] cosLatitude;
+    final int[] daysSinceLastDonation;
+    final double[] hemoglobin;
+    final double[] quantity;
+    final double[] baseHardScore;
+    final double[] baseRuleScore;
+
+    private DonationColumns(List<MLDonationData> rows) {
+        this.rows = rows;
+        this.size = rows.size();
+        this.bloodTypeBits = new long[size];
+        this.latitudeRadians = new double[size];
+        this.longitudeRadians = new double[size];
+        this.cosLatitude = new double[size];
+        this.daysSinceLastDonation = new int[size];
+        this.hemoglobin = new double[size];
+        this.quantity = new double[size];
+        this.baseHardScore = new double[size];
+        this.baseRuleScore = new double[size];
+    }
+
+    static DonationColumns of(List<MLDonationData> donations) {
+        DonationColumns columns = new DonationColumns(donations);
+        for (int i = 0; i < columns.size; i++) {
+            columns.set(i, donations.get(i));
+        }
+        return columns;
+    }
+
+    private void set(int i, MLDonationData donation) {
+        byte bloodType = donation.getBloodType() == null ? NO_BLOOD_TYPE : (byte) donation.getBloodType().ordinal();
+        hemoglobin[i] = donation.getHemoglobinLevel() == null ? Double.NaN : donation.getHemoglobinLevel();
+        quantity[i] = donation.getQuantity() == null ? Double.NaN : donation.getQuantity();
+        daysSinceLastDonation[i] = donation.getDaysSinceLastDonation() == null ? -1 : donation.getDaysSinceLastDonation();
+
+        byte flags = 0;
+        if (Boolean.TRUE.equals(donation.getHasInfectiousDiseases())) {
+            flags |= INFECTIOUS;
+        }
+        if (Boolean.TRUE.equals(donation.getRecentTattoo()) || Boolean.TRUE.equals(donation.getRecentSurgery())) {
+            flags |= RECENT_TATTOO_OR_SURGERY;
+        }
+        if (Boolean.TRUE.equals(donation.getMedicalClearance()) && !Boolean.TRUE.equals(donation.getHasDiseases())) {
+            flags |= CLEARED;
+        }
+        // NaN hemoglobin fails the comparison, as a null does in the row-by-row filter.
+        if (bloodType != NO_BLOOD_TYPE && (flags & INFECTIOUS) == 0
+                && hemoglobin[i] >= InProcessMatchingEngine.MIN_HEMOGLOBIN) {
+            flags |= ELIGIBLE;
+        }
+        bloodTypeBits[i] = (flags & ELIGIBLE) != 0 ? 1L << bloodType : 0L;
+
+        double latitude = donation.getLatitude() != null
+                ? donation.getLatitude() : InProcessMatchingEngine.DEFAULT_DONOR_LATITUDE;
+        double longitude = donation.getLongitude() != null
+                ? donation.getLongitude() : InProcessMatchingEngine.DEFAULT_DONOR_LONGITUDE;
+        latitudeRadians[i] = Math.toRadians(latitude);
+        longitudeRadians[i] = Math.toRadians(longitude);
+        cosLatitude[i] = Math.cos(latitudeRadians[i]);
+
+        double hardScore = 0.40;
+        if (hemoglobin[i] >= 14.0) {
+            hardScore += 0.15;
+        }
+        if ((flags & RECENT_TATTOO_OR_SURGERY) == 0) {
+            hardScore += 0.10;
+        }
+        if ((flags & CLEARED) != 0) {
+            hardScore += 0.15;
+        }
+        baseHardScore[i] = hardScore;
+
+        double recency = daysSinceLastDonation[i] < 0
+                ? 1.0 : clamp((double) daysSinceLastDonation[i] / InProcessMatchingEngine.MIN_DAYS_BETWEEN_DONATIONS);
+        double hemoglobinScore = Double.isNaN(hemoglobin[i])
+                ? 0.5
+                : clamp((hemoglobin[i] - InProcessMatchingEngine.MIN_HEMOGLOBIN)
+                / (InProcessMatchingEngine.FULL_HEMOGLOBIN - InProcessMatchingEngine.MIN_HEMOGLOBIN));
+        baseRuleScore[i] = 0.4 * recency + 0.3 * hemoglobinScore;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+}
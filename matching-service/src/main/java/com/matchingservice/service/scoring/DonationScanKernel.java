@@ -0,0 +1,83 @@
+package com.matchingservice.service.scoring;
+
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.service.candidate.BloodTypeCompatibility;
+
+/**
+ * Scores one BLOOD request against every row of a {@link DonationColumns}, with the same
+ * filters and arithmetic as the row-by-row path of {@link InProcessMatchingEngine}. Scores agree
+ * with it up to floating-point rounding of the distance.
+ * <p>
+ * {@link #vectorOrScalar()} picks the JDK Vector API kernel when it was built (the
+ * {@code vector-api} Maven profile) and the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar loop otherwise.
+ */
+interface DonationScanKernel {
+
+    double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * The request side of a scan. {@code compatibleBits} has bit {@code i} set when a donor of
+     * blood type ordinal {@code i} may give to the request, and is zero when the request has no
+     * blood type. {@code quantity} is NaN when unknown.
+     */
+    record Request(double latitudeRadians, double longitudeRadians, double cosLatitude,
+                   long compatibleBits, double quantity, boolean allowPartialQuantity) {
+
+        static Request of(MLRequestData request, boolean allowPartialQuantity) {
+            double latitude = Math.toRadians(request.getLatitude() != null
+                    ? request.getLatitude() : InProcessMatchingEngine.DEFAULT_RECIPIENT_LATITUDE);
+            double longitude = Math.toRadians(request.getLongitude() != null
+                    ? request.getLongitude() : InProcessMatchingEngine.DEFAULT_RECIPIENT_LONGITUDE);
+            return new Request(latitude, longitude, Math.cos(latitude),
+                    BloodTypeCompatibility.donorMask(request.getRequestedBloodType()),
+                    request.getQuantity() == null ? Double.NaN : request.getQuantity(),
+                    allowPartialQuantity);
+        }
+    }
+
+    /**
+     * Writes the distance to every donation into {@code distances}, and its combined score into
+     * {@code scores}, or NaN when the pair fails a hard filter. Both arrays hold at least
+     * {@code columns.size} elements.
+     */
+    void scan(DonationColumns columns, Request request, double[] scores, double[] distances);
+
+    static DonationScanKernel vectorOrScalar() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return ScalarDonationScanKernel.INSTANCE;
+        }
+        try {
+            return (DonationScanKernel) Class.forName(DonationScanKernel.class.getPackageName() + ".VectorDonationScanKernel")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return ScalarDonationScanKernel.INSTANCE;
+        }
+    }
+
+    static boolean passes(DonationColumns columns, int i, Request request) {
+        return (columns.bloodTypeBits[i] & request.compatibleBits()) != 0
+                && (request.allowPartialQuantity() || !(columns.quantity[i] < request.quantity()));
+    }
+
+    static double hardScore(DonationColumns columns, int i, Request request) {
+        double score = columns.baseHardScore[i];
+        if (columns.quantity[i] >= request.quantity()) {
+            score += 0.10;
+        }
+        return clamp(score + 0.10);
+    }
+
+    static double locationScore(double distanceKm) {
+        return clamp(1.0 - distanceKm / InProcessMatchingEngine.LOCATION_RADIUS_KM);
+    }
+
+    static double ruleScore(DonationColumns columns, int i, double locationScore) {
+        return columns.baseRuleScore[i] + 0.3 * locationScore;
+    }
+
+    static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+}
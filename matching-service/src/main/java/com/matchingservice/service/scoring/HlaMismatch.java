@@ -0,0 +1,38 @@
+package com.matchingservice.service.scoring;
+
+import com.matchingservice.model.donor.DonorHLAProfile;
+import com.matchingservice.model.recipients.RecipientHLAProfile;
+import com.matchingservice.service.hla.HlaAlleleCodec;
+import com.matchingservice.service.hla.HlaTyping;
+
+/**
+ * Counts donor HLA-A, -B and -DR antigens that the recipient does not carry. These are the six
+ * antigens kidney allocation scores (0 = full match, 6 = full mismatch). Alleles are compared at
+ * antigen level, see {@link HlaAlleleCodec}. A blank donor allele is a homozygous repeat and is
+ * not counted.
+ */
+public final class HlaMismatch {
+
+    public static final int MAX_ANTIGEN_MISMATCHES = 6;
+
+    private HlaMismatch() {
+    }
+
+    /**
+     * Returns the A/B/DR mismatch count, or -1 when either side has no typing or no typed allele.
+     */
+    public static int antigenMismatches(DonorHLAProfile donor, RecipientHLAProfile recipient) {
+        return antigenMismatches(HlaAlleleCodec.encode(donor), HlaAlleleCodec.encode(recipient));
+    }
+
+    /**
+     * Same as {@link #antigenMismatches(DonorHLAProfile, RecipientHLAProfile)} on typings that are
+     * already encoded.
+     */
+    public static int antigenMismatches(HlaTyping donor, HlaTyping recipient) {
+        if (donor == null || recipient == null || donor.antigenCount() == 0 || recipient.antigenCount() == 0) {
+            return -1;
+        }
+        return donor.mismatchesAgainst(recipient);
+    }
+}
@@ -0,0 +1,255 @@
+package com.matchingservice.service.scoring;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.service.candidate.BloodTypeCompatibility;
+import com.matchingservice.service.ml_scheduler.ScoringBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Deterministic scorer that runs inside matching-service and returns results in the same
+ * shape as ml-matching-service. Hard filters and the hard score are a port of
+ * {@code blood_filters.py}. The model score is replaced by a rule score built from
+ * days since the last donation, hemoglobin and distance. The two are combined with the same
+ * 0.3/0.7 weights, so thresholds and ranking carry over.
+ * <p>
+ * The rules are blood-specific, so only BLOOD batches are scored here. Other types always go to
+ * the ML service.
+ * <p>
+ * While {@code ml.matching.fulfilment.enabled} is on, a donation smaller than the request is not
+ * rejected, so that {@code QuantityFulfilmentPlanner} can combine several of them.
+ * <p>
+ * With {@code ml.matching.columnar.enabled} (the default), BLOOD batches are copied once into
+ * {@link DonationColumns} and every request is scanned over them by a {@link DonationScanKernel},
+ * which keeps only the top {@code topN} indices before any result object is built. With the flag
+ * off, batches go through the row-by-row path.
+ */
+@Component
+@Slf4j
+public class InProcessMatchingEngine {
+
+    static final double MIN_HEMOGLOBIN = 12.5;
+    static final double FULL_HEMOGLOBIN = 15.0;
+    static final int MIN_DAYS_BETWEEN_DONATIONS = 56;
+    static final double LOCATION_RADIUS_KM = 50.0;
+
+    // ml-matching-service substitutes these when a side has no coordinates.
+    static final double DEFAULT_DONOR_LATITUDE = 17.4399;
+    static final double DEFAULT_DONOR_LONGITUDE = 78.3489;
+    static final double DEFAULT_RECIPIENT_LATITUDE = 17.4450;
+    static final double DEFAULT_RECIPIENT_LONGITUDE = 78.3550;
+
+    @Value("${ml.matching.fulfilment.enabled:true}")
+    private boolean fulfilmentEnabled;
+
+    @Value("${ml.matching.columnar.enabled:true}")
+    private boolean columnarEnabled;
+
+    private final DonationScanKernel scanKernel = DonationScanKernel.vectorOrScalar();
+
+    /**
+     * Scores every request/donation pair in {@code batch}. Returns the best {@code topN} matches
+     * at or above {@code threshold} for each request, ranked within the request, highest
+     * compatibility first.
+     *
+     * @throws IllegalArgumentException if the batch is not BLOOD
+     */
+    public List<MLMatchResult> batchMatch(ScoringBatch batch, int topN, double threshold) {
+        if (batch.donationType() != DonationType.BLOOD) {
+            throw new IllegalArgumentException("In-process matching only scores BLOOD, not " + batch.donationType());
+        }
+        long startTime = System.currentTimeMillis();
+
+        List<MLMatchResult> allMatches = columnarEnabled
+                ? matchColumnar(batch, topN, threshold)
+                : matchRowByRow(batch, topN, threshold);
+        allMatches.sort(Comparator.comparingDouble(MLMatchResult::getCompatibilityScore).reversed());
+
+        log.info("In-process {} matching{}: {} requests x {} donations -> {} matches in {}ms",
+                batch.donationType(),
+                columnarEnabled ? " (" + scanKernel.getClass().getSimpleName() + ")" : "",
+                batch.requests().size(), batch.donations().size(), allMatches.size(),
+                System.currentTimeMillis() - startTime);
+        return allMatches;
+    }
+
+    List<MLMatchResult> matchRowByRow(ScoringBatch batch, int topN, double threshold) {
+        List<MLMatchResult> allMatches = new ArrayList<>();
+        for (MLRequestData request : batch.requests()) {
+            List<MLMatchResult> requestMatches = new ArrayList<>();
+            for (MLDonationData donation : batch.donations()) {
+                if (batch.excludedPairs().contains(new MatchPair(donation.getDonationId(), request.getReceiveRequestId()))) {
+                    continue;
+                }
+                MLMatchResult match = score(donation, request);
+                if (match != null && match.getCompatibilityScore() >= threshold) {
+                    requestMatches.add(match);
+                }
+            }
+
+            requestMatches.sort(Comparator.comparingDouble(MLMatchResult::getCompatibilityScore).reversed());
+            List<MLMatchResult> top = requestMatches.subList(0, Math.min(topN, requestMatches.size()));
+            for (int i = 0; i < top.size(); i++) {
+                top.get(i).setPriorityRank(i + 1);
+            }
+            allMatches.addAll(top);
+        }
+        return allMatches;
+    }
+
+    List<MLMatchResult> matchColumnar(ScoringBatch batch, int topN, double threshold) {
+        DonationColumns columns = DonationColumns.of(batch.donations());
+        double[] scores = new double[columns.size];
+        double[] distances = new double[columns.size];
+
+        List<MLMatchResult> allMatches = new ArrayList<>();
+        for (MLRequestData request : batch.requests()) {
+            DonationScanKernel.Request scanRequest = DonationScanKernel.Request.of(request, fulfilmentEnabled);
+            scanKernel.scan(columns, scanRequest, scores, distances);
+
+            int[] top = TopScores.select(scores, columns.size, topN, threshold,
+                    i -> batch.excludedPairs().contains(
+                            new MatchPair(columns.rows.get(i).getDonationId(), request.getReceiveRequestId())));
+            for (int rank = 0; rank < top.length; rank++) {
+                int i = top[rank];
+                double locationScore = DonationScanKernel.locationScore(distances[i]);
+                MLMatchResult match = result(columns.rows.get(i), request, scores[i],
+                        DonationScanKernel.hardScore(columns, i, scanRequest), locationScore,
+                        DonationScanKernel.ruleScore(columns, i, locationScore), distances[i]);
+                match.setPriorityRank(rank + 1);
+                allMatches.add(match);
+            }
+        }
+        return allMatches;
+    }
+
+    private MLMatchResult score(MLDonationData donation, MLRequestData request) {
+        String rejection = hardFilterFailure(donation, request);
+        if (rejection != null) {
+            log.debug("D:{} -> R:{} rejected: {}", donation.getDonationId(), request.getReceiveRequestId(), rejection);
+            return null;
+        }
+
+        double hardScore = hardScore(donation, request);
+        double distanceKm = distanceKm(donation, request);
+        double locationScore = clamp(1.0 - distanceKm / LOCATION_RADIUS_KM);
+        double ruleScore = 0.4 * recencyScore(donation) + 0.3 * hemoglobinScore(donation) + 0.3 * locationScore;
+        double combinedScore = hardScore * 0.3 + ruleScore * 0.7;
+        return result(donation, request, combinedScore, hardScore, locationScore, ruleScore, distanceKm);
+    }
+
+    private static MLMatchResult result(MLDonationData donation, MLRequestData request, double combinedScore,
+                                        double hardScore, double locationScore, double ruleScore,
+                                        double distanceKm) {
+        return MLMatchResult.builder()
+                .donationId(donation.getDonationId())
+                .receiveRequestId(request.getReceiveRequestId())
+                .donorUserId(donation.getUserId())
+                .recipientUserId(request.getUserId())
+                .donorLocationId(donation.getLocationId())
+                .recipientLocationId(request.getLocationId())
+                .compatibilityScore(combinedScore)
+                .bloodCompatibilityScore(hardScore)
+                .locationCompatibilityScore(locationScore)
+                .medicalCompatibilityScore(ruleScore)
+                .urgencyPriorityScore(urgencyScore(request))
+                .distanceKm(distanceKm)
+                .matchReason(donation.getBloodType() + " -> " + request.getRequestedBloodType())
+                .priorityRank(1)
+                .build();
+    }
+
+    /**
+     * Returns why the pair is rejected, or null when it passes.
+     */
+    private String hardFilterFailure(MLDonationData donation, MLRequestData request) {
+        if (donation.getBloodType() != null && request.getRequestedBloodType() != null
+                && !BloodTypeCompatibility.canDonate(donation.getBloodType(), request.getRequestedBloodType())) {
+            return donation.getBloodType() + " incompatible with " + request.getRequestedBloodType();
+        }
+        if (donation.getBloodType() == null || request.getRequestedBloodType() == null) {
+            return "Missing blood type";
+        }
+        if (Boolean.TRUE.equals(donation.getHasInfectiousDiseases())) {
+            return "Has infectious diseases";
+        }
+        if (donation.getHemoglobinLevel() == null || donation.getHemoglobinLevel() < MIN_HEMOGLOBIN) {
+            return "Low hemoglobin: " + donation.getHemoglobinLevel();
+        }
+        if (!fulfilmentEnabled && donation.getQuantity() != null && request.getQuantity() != null
+                && donation.getQuantity() < request.getQuantity()) {
+            return "Low qty: " + donation.getQuantity() + "ml < " + request.getQuantity() + "ml";
+        }
+        return null;
+    }
+
+    private static double hardScore(MLDonationData donation, MLRequestData request) {
+        double score = 0.40;
+        if (donation.getHemoglobinLevel() != null && donation.getHemoglobinLevel() >= 14.0) {
+            score += 0.15;
+        }
+        if (!Boolean.TRUE.equals(donation.getRecentTattoo()) && !Boolean.TRUE.equals(donation.getRecentSurgery())) {
+            score += 0.10;
+        }
+        if (Boolean.TRUE.equals(donation.getMedicalClearance()) && !Boolean.TRUE.equals(donation.getHasDiseases())) {
+            score += 0.15;
+        }
+        if (donation.getQuantity() != null && request.getQuantity() != null
+                && donation.getQuantity() >= request.getQuantity()) {
+            score += 0.10;
+        }
+        if (!Boolean.TRUE.equals(donation.getHasInfectiousDiseases())) {
+            score += 0.10;
+        }
+        return clamp(score);
+    }
+
+    private static double recencyScore(MLDonationData donation) {
+        Integer days = donation.getDaysSinceLastDonation();
+        if (days == null) {
+            return 1.0;
+        }
+        return clamp((double) days / MIN_DAYS_BETWEEN_DONATIONS);
+    }
+
+    private static double hemoglobinScore(MLDonationData donation) {
+        Double hemoglobin = donation.getHemoglobinLevel();
+        if (hemoglobin == null) {
+            return 0.5;
+        }
+        return clamp((hemoglobin - MIN_HEMOGLOBIN) / (FULL_HEMOGLOBIN - MIN_HEMOGLOBIN));
+    }
+
+    private static double distanceKm(MLDonationData donation, MLRequestData request) {
+        return GeoDistance.haversineKm(
+                donation.getLatitude() != null ? donation.getLatitude() : DEFAULT_DONOR_LATITUDE,
+                donation.getLongitude() != null ? donation.getLongitude() : DEFAULT_DONOR_LONGITUDE,
+                request.getLatitude() != null ? request.getLatitude() : DEFAULT_RECIPIENT_LATITUDE,
+                request.getLongitude() != null ? request.getLongitude() : DEFAULT_RECIPIENT_LONGITUDE);
+    }
+
+    private static double urgencyScore(MLRequestData request) {
+        if (request.getUrgencyLevel() == null) {
+            return 0.5;
+        }
+        return switch (request.getUrgencyLevel()) {
+            case CRITICAL -> 1.0;
+            case HIGH -> 0.8;
+            case MEDIUM -> 0.6;
+            case LOW -> 0.4;
+        };
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+}
@@ -0,0 +1,37 @@
+package com.matchingservice.service.scoring;
+
+/**
+ * Plain loop over the columns, used when the Vector API module is not available.
+ */
+final class ScalarDonationScanKernel implements DonationScanKernel {
+
+    static final ScalarDonationScanKernel INSTANCE = new ScalarDonationScanKernel();
+
+    private ScalarDonationScanKernel() {
+    }
+
+    @Override
+    public void scan(DonationColumns columns, Request request, double[] scores, double[] distances) {
+        scanRange(columns, request, scores, distances, 0, columns.size);
+    }
+
+    static void scanRange(DonationColumns columns, Request request, double[] scores, double[] distances,
+                          int from, int to) {
+        for (int i = from; i < to; i++) {
+            double sinHalfLat = Math.sin((columns.latitudeRadians[i] - request.latitudeRadians()) / 2);
+            double sinHalfLon = Math.sin((columns.longitudeRadians[i] - request.longitudeRadians()) / 2);
+            double a = sinHalfLat * sinHalfLat
+                    + request.cosLatitude() * columns.cosLatitude[i] * sinHalfLon * sinHalfLon;
+            double distanceKm = EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            distances[i] = distanceKm;
+
+            if (!DonationScanKernel.passes(columns, i, request)) {
+                scores[i] = Double.NaN;
+                continue;
+            }
+            double hardScore = DonationScanKernel.hardScore(columns, i, request);
+            double ruleScore = DonationScanKernel.ruleScore(columns, i, DonationScanKernel.locationScore(distanceKm));
+            scores[i] = hardScore * 0.3 + ruleScore * 0.7;
+        }
+    }
+}
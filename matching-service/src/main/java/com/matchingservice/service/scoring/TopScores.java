@@ -0,0 +1,94 @@
+package com.matchingservice.service.scoring;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Picks the best {@code k} indices of a score array with a bounded min-heap, without boxing.
+ * Higher scores rank first and equal scores keep index order, as a stable sort would.
+ */
+final class TopScores {
+
+    private TopScores() {
+    }
+
+    /**
+     * The indices below {@code size} whose score is at or above {@code threshold} (NaN never
+     * is) and that are not {@code excluded}, best first, at most {@code k} of them.
+     * {@code excluded} is only asked about indices that would enter the current top.
+     */
+    static int[] select(double[] scores, int size, int k, double threshold, IntPredicate excluded) {
+        int capacity = Math.min(k, size);
+        if (capacity <= 0) {
+            return new int[0];
+        }
+        int[] heap = new int[capacity];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!(scores[i] >= threshold)) {
+                continue;
+            }
+            if (count == capacity && !better(scores, i, heap[0])) {
+                continue;
+            }
+            if (excluded.test(i)) {
+                continue;
+            }
+            if (count < capacity) {
+                heap[count] = i;
+                siftUp(scores, heap, count++);
+            } else {
+                heap[0] = i;
+                siftDown(scores, heap, count);
+            }
+        }
+
+        int[] top = new int[count];
+        for (int last = count - 1; last >= 0; last--) {
+            top[last] = heap[0];
+            heap[0] = heap[last];
+            siftDown(scores, heap, last);
+        }
+        return top;
+    }
+
+    private static boolean better(double[] scores, int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(double[] scores, int[] heap, int child) {
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!better(scores, heap[parent], heap[child])) {
+                break;
+            }
+            swap(heap, parent, child);
+            child = parent;
+        }
+    }
+
+    private static void siftDown(double[] scores, int[] heap, int count) {
+        int parent = 0;
+        while (true) {
+            int worst = parent;
+            int left = 2 * parent + 1;
+            int right = left + 1;
+            if (left < count && better(scores, heap[worst], heap[left])) {
+                worst = left;
+            }
+            if (right < count && better(scores, heap[worst], heap[right])) {
+                worst = right;
+            }
+            if (worst == parent) {
+                return;
+            }
+            swap(heap, parent, worst);
+            parent = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
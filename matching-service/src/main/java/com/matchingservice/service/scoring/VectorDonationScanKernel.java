@@ -0,0 +1,69 @@
+package com.matchingservice.service.scoring;
+
+import jdk.incubator.vector.*;
+
+/**
+ * {@link DonationScanKernel} on the JDK Vector API, {@link #SPECIES} lanes at a time: haversine,
+ * the blood type and quantity filters as lane masks, and the combined score. The remainder that
+ * does not fill a vector goes through the scalar loop. Only compiled with the {@code vector-api}
+ * Maven profile, and only loaded when the {@code jdk.incubator.vector} module is in the boot
+ * layer.
+ */
+final class VectorDonationScanKernel implements DonationScanKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> BITS = VectorSpecies.of(long.class, SPECIES.vectorShape());
+
+    @Override
+    public void scan(DonationColumns columns, Request request, double[] scores, double[] distances) {
+        DoubleVector requestLatitude = DoubleVector.broadcast(SPECIES, request.latitudeRadians());
+        DoubleVector requestLongitude = DoubleVector.broadcast(SPECIES, request.longitudeRadians());
+        DoubleVector requestCosLatitude = DoubleVector.broadcast(SPECIES, request.cosLatitude());
+        DoubleVector requestQuantity = DoubleVector.broadcast(SPECIES, request.quantity());
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        DoubleVector quantityBonus = DoubleVector.broadcast(SPECIES, 0.10);
+        DoubleVector rejected = DoubleVector.broadcast(SPECIES, Double.NaN);
+
+        int upper = SPECIES.loopBound(columns.size);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector sinHalfLat = DoubleVector.fromArray(SPECIES, columns.latitudeRadians, i)
+                    .sub(requestLatitude).div(2).lanewise(VectorOperators.SIN);
+            DoubleVector sinHalfLon = DoubleVector.fromArray(SPECIES, columns.longitudeRadians, i)
+                    .sub(requestLongitude).div(2).lanewise(VectorOperators.SIN);
+            DoubleVector a = sinHalfLat.mul(sinHalfLat)
+                    .add(requestCosLatitude.mul(DoubleVector.fromArray(SPECIES, columns.cosLatitude, i))
+                            .mul(sinHalfLon).mul(sinHalfLon));
+            DoubleVector distanceKm = a.sqrt().lanewise(VectorOperators.ATAN2, one.sub(a).sqrt())
+                    .mul(EARTH_RADIUS_KM * 2);
+            distanceKm.intoArray(distances, i);
+
+            DoubleVector quantity = DoubleVector.fromArray(SPECIES, columns.quantity, i);
+            VectorMask<Double> passes = LongVector.fromArray(BITS, columns.bloodTypeBits, i)
+                    .and(request.compatibleBits())
+                    .compare(VectorOperators.NE, 0)
+                    .cast(SPECIES);
+            if (!request.allowPartialQuantity()) {
+                passes = passes.andNot(quantity.compare(VectorOperators.LT, requestQuantity));
+            }
+            if (!passes.anyTrue()) {
+                rejected.intoArray(scores, i);
+                continue;
+            }
+
+            DoubleVector hardScore = DoubleVector.fromArray(SPECIES, columns.baseHardScore, i)
+                    .add(zero.blend(quantityBonus, quantity.compare(VectorOperators.GE, requestQuantity)))
+                    .add(0.10)
+                    .max(zero).min(one);
+            DoubleVector locationScore = one.sub(distanceKm.div(InProcessMatchingEngine.LOCATION_RADIUS_KM))
+                    .max(zero).min(one);
+            DoubleVector ruleScore = DoubleVector.fromArray(SPECIES, columns.baseRuleScore, i)
+                    .add(locationScore.mul(0.3));
+            hardScore.mul(0.3).add(ruleScore.mul(0.7))
+                    .blend(rejected, passes.not())
+                    .intoArray(scores, i);
+        }
+        ScalarDonationScanKernel.scanRange(columns, request, scores, distances, i, columns.size);
+    }
+}
@@ -0,0 +1,70 @@
+package com.matchingservice.service.statussync;
+
+import com.matchingservice.enums.DonationStatus;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.enums.StatusSyncTarget;
+import com.matchingservice.model.StatusSyncOutboxEntry;
+import com.matchingservice.repository.StatusSyncOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Records donation/request status changes that donor-service and recipient-service must learn
+ * about. Joins the caller's transaction, so an entry exists if and only if the local change
+ * committed; {@link StatusSyncRelay} delivers it later. Entries are stamped with
+ * {@code committed_at} just before that transaction commits, which is the order they are relayed in.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatusSyncOutbox {
+
+    private final StatusSyncOutboxRepository statusSyncOutboxRepository;
+
+    @Transactional
+    public void donationStatusChanged(UUID donationId, DonationStatus status) {
+        record(List.of(new StatusSyncOutboxEntry(StatusSyncTarget.DONATION, donationId, status.name())));
+    }
+
+    @Transactional
+    public void requestStatusChanged(UUID requestId, RequestStatus status) {
+        record(List.of(new StatusSyncOutboxEntry(StatusSyncTarget.RECEIVE_REQUEST, requestId, status.name())));
+    }
+
+    @Transactional
+    public void donationStatusesChanged(Collection<UUID> donationIds, DonationStatus status) {
+        List<StatusSyncOutboxEntry> entries = donationIds.stream()
+                .map(id -> new StatusSyncOutboxEntry(StatusSyncTarget.DONATION, id, status.name()))
+                .toList();
+        record(entries);
+    }
+
+    @Transactional
+    public void requestStatusesChanged(Collection<UUID> requestIds, RequestStatus status) {
+        List<StatusSyncOutboxEntry> entries = requestIds.stream()
+                .map(id -> new StatusSyncOutboxEntry(StatusSyncTarget.RECEIVE_REQUEST, id, status.name()))
+                .toList();
+        record(entries);
+    }
+
+    private void record(List<StatusSyncOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<Long> ids = statusSyncOutboxRepository.saveAll(entries).stream()
+                .map(StatusSyncOutboxEntry::getId)
+                .toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                statusSyncOutboxRepository.markCommitted(ids);
+            }
+        });
+    }
+}
@@ -0,0 +1,243 @@
+package com.matchingservice.service.statussync;
+
+import com.matchingservice.client.DonorServiceClient;
+import com.matchingservice.client.RecipientServiceClient;
+import com.matchingservice.dto.DonationStatusUpdateDTO;
+import com.matchingservice.dto.RequestStatusUpdateDTO;
+import com.matchingservice.dto.StatusUpdateBatchResultDTO;
+import com.matchingservice.enums.DonationStatus;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.enums.StatusSyncTarget;
+import com.matchingservice.model.StatusSyncOutboxEntry;
+import com.matchingservice.repository.StatusSyncOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Drains {@link StatusSyncOutboxEntry} rows to the bulk status endpoints of donor-service and
+ * recipient-service. Each target is a queue read in commit order and collapsed to the latest
+ * status per donation/request before sending, so one HTTP call carries a whole page of changes.
+ * Updates are absolute statuses, which makes redelivery after a partial failure harmless.
+ * <p>
+ * A page is relayed in three steps so that no transaction is open during the HTTP call. A short
+ * transaction takes a per-target advisory lock and leases the page for
+ * {@code status-sync.relay.lease-ms}; no instance claims a target while a page of it is leased,
+ * so pages go out in order. The call runs outside any transaction, then a second transaction
+ * marks the page sent or failed. A relay that dies mid-call leaves the lease to run out and the
+ * page is sent again. The lease must outlast the client's read timeout, or a late call could
+ * overwrite a newer status. Ids the target does not know are marked sent with the reason in
+ * {@code last_error} and counted by {@code matching.status_sync.rejected}. When a call fails,
+ * the page is retried after an exponential backoff from {@code status-sync.relay.initial-backoff-ms}
+ * up to {@code status-sync.relay.max-backoff-ms}, and later changes of that target wait behind it
+ * so an older status never overwrites a newer one. Failed entries are never dropped: past
+ * {@code status-sync.relay.dead-letter-after-attempts} they keep being retried at the maximum
+ * backoff and are counted by the {@code matching.status_sync.dead_letter} gauge.
+ */
+@Component
+@Slf4j
+public class StatusSyncRelay {
+
+    private static final long ADVISORY_LOCK_BASE = 0x5353_5245_0000L;
+
+    private final StatusSyncOutboxRepository statusSyncOutboxRepository;
+    private final DonorServiceClient donorServiceClient;
+    private final RecipientServiceClient recipientServiceClient;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter relayedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${status-sync.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${status-sync.relay.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${status-sync.relay.initial-backoff-ms:2000}")
+    private long initialBackoffMs;
+
+    @Value("${status-sync.relay.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    @Value("${status-sync.relay.dead-letter-after-attempts:20}")
+    private int deadLetterAfterAttempts;
+
+    @Value("${status-sync.outbox.retention-days:7}")
+    private int retentionDays;
+
+    public StatusSyncRelay(StatusSyncOutboxRepository statusSyncOutboxRepository,
+                           DonorServiceClient donorServiceClient,
+                           RecipientServiceClient recipientServiceClient,
+                           TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry) {
+        this.statusSyncOutboxRepository = statusSyncOutboxRepository;
+        this.donorServiceClient = donorServiceClient;
+        this.recipientServiceClient = recipientServiceClient;
+        this.transactionTemplate = transactionTemplate;
+        this.relayedCounter = meterRegistry.counter("matching.status_sync.relayed");
+        this.failedCounter = meterRegistry.counter("matching.status_sync.failed");
+        this.rejectedCounter = meterRegistry.counter("matching.status_sync.rejected");
+        Gauge.builder("matching.status_sync.pending", statusSyncOutboxRepository, StatusSyncOutboxRepository::countBySentAtIsNull)
+                .register(meterRegistry);
+        Gauge.builder("matching.status_sync.dead_letter", this,
+                        relay -> relay.statusSyncOutboxRepository.countBySentAtIsNullAndAttemptsGreaterThanEqual(relay.deadLetterAfterAttempts))
+                .description("Unsent status changes that failed at least dead-letter-after-attempts times")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${status-sync.relay.interval-ms:2000}")
+    public void relayPending() {
+        for (StatusSyncTarget target : StatusSyncTarget.values()) {
+            boolean more;
+            do {
+                more = relayPage(target);
+            } while (more);
+        }
+    }
+
+    @Scheduled(cron = "${status-sync.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        int deleted = statusSyncOutboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} relayed status sync entries older than {} days", deleted, retentionDays);
+        }
+    }
+
+    /**
+     * A page of one target, leased to this instance until {@code leasedUntil}.
+     */
+    private record Claim(List<StatusSyncOutboxEntry> entries, LocalDateTime leasedUntil) {
+    }
+
+    /**
+     * Relays the oldest page of {@code target}, unless another instance is relaying it or the
+     * page is still backing off.
+     *
+     * @return true when a full page was sent, so the next page may be due as well
+     */
+    private boolean relayPage(StatusSyncTarget target) {
+        Claim claim = transactionTemplate.execute(status -> claim(target));
+        if (claim == null) {
+            return false;
+        }
+
+        boolean sent = switch (target) {
+            case DONATION -> send(claim, latest -> donorServiceClient.updateDonationStatuses(
+                    latest.entrySet().stream()
+                            .map(e -> new DonationStatusUpdateDTO(e.getKey(), DonationStatus.valueOf(e.getValue())))
+                            .toList()));
+            case RECEIVE_REQUEST -> send(claim, latest -> recipientServiceClient.updateRequestStatuses(
+                    latest.entrySet().stream()
+                            .map(e -> new RequestStatusUpdateDTO(e.getKey(), RequestStatus.valueOf(e.getValue())))
+                            .toList()));
+        };
+        return sent && claim.entries().size() == batchSize;
+    }
+
+    private Claim claim(StatusSyncTarget target) {
+        if (!statusSyncOutboxRepository.tryAdvisoryTransactionLock(ADVISORY_LOCK_BASE + target.ordinal())) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (statusSyncOutboxRepository.existsByTargetAndSentAtIsNullAndLeasedUntilAfter(target, now)) {
+            return null;
+        }
+        List<StatusSyncOutboxEntry> pending = statusSyncOutboxRepository.findPending(target, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return null;
+        }
+        LocalDateTime nextAttemptAt = pending.get(0).getNextAttemptAt();
+        if (nextAttemptAt != null && nextAttemptAt.isAfter(now)) {
+            return null;
+        }
+
+        // Compared for equality when the page is marked, so keep it at the database's precision.
+        LocalDateTime leasedUntil = now.plus(leaseMs, ChronoUnit.MILLIS).truncatedTo(ChronoUnit.MICROS);
+        statusSyncOutboxRepository.lease(ids(pending), leasedUntil);
+        return new Claim(pending, leasedUntil);
+    }
+
+    private boolean send(Claim claim, Function<Map<UUID, String>, StatusUpdateBatchResultDTO> call) {
+        Map<UUID, String> latest = new LinkedHashMap<>();
+        for (StatusSyncOutboxEntry entry : claim.entries()) {
+            latest.put(entry.getAggregateId(), entry.getStatus());
+        }
+
+        StatusSyncTarget target = claim.entries().get(0).getTarget();
+        StatusUpdateBatchResultDTO result;
+        try {
+            result = call.apply(latest);
+        } catch (Exception e) {
+            markFailed(claim, target, e);
+            return false;
+        }
+
+        Set<UUID> unknownIds = result != null && result.getUnknownIds() != null
+                ? new HashSet<>(result.getUnknownIds())
+                : Set.of();
+        List<Long> applied = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+        for (StatusSyncOutboxEntry entry : claim.entries()) {
+            (unknownIds.contains(entry.getAggregateId()) ? rejected : applied).add(entry.getId());
+        }
+        LocalDateTime sentAt = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!applied.isEmpty()) {
+                statusSyncOutboxRepository.markSent(applied, claim.leasedUntil(), sentAt, null);
+            }
+            if (!rejected.isEmpty()) {
+                statusSyncOutboxRepository.markSent(rejected, claim.leasedUntil(), sentAt, "Not applied: unknown " + target + " id");
+            }
+        });
+
+        relayedCounter.increment(applied.size());
+        log.debug("Relayed {} {} status changes ({} distinct)", claim.entries().size(), target, latest.size());
+        if (!rejected.isEmpty()) {
+            rejectedCounter.increment(rejected.size());
+            log.warn("{} {} status changes not applied, ids unknown to the target: {}",
+                    rejected.size(), target, unknownIds);
+        }
+        return true;
+    }
+
+    private void markFailed(Claim claim, StatusSyncTarget target, Exception e) {
+        List<Long> ids = ids(claim.entries());
+        String error = e.getMessage() != null && e.getMessage().length() > 500
+                ? e.getMessage().substring(0, 500)
+                : e.getMessage();
+        int attempts = claim.entries().get(0).getAttempts() + 1;
+        long backoffMs = backoffMs(attempts);
+        statusSyncOutboxRepository.markFailed(ids, claim.leasedUntil(), error,
+                LocalDateTime.now().plusNanos(backoffMs * 1_000_000));
+        failedCounter.increment(ids.size());
+        if (attempts >= deadLetterAfterAttempts) {
+            log.error("Failed to relay {} {} status changes after {} attempts, retrying in {}ms: {}",
+                    ids.size(), target, attempts, backoffMs, e.getMessage());
+        } else {
+            log.warn("Failed to relay {} {} status changes (attempt {}), retrying in {}ms: {}",
+                    ids.size(), target, attempts, backoffMs, e.getMessage());
+        }
+    }
+
+    private static List<Long> ids(List<StatusSyncOutboxEntry> entries) {
+        return entries.stream().map(StatusSyncOutboxEntry::getId).toList();
+    }
+
+    private long backoffMs(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        return Math.min(maxBackoffMs, initialBackoffMs << doublings);
+    }
+}
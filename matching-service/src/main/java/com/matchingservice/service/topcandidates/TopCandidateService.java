@@ -0,0 +1,58 @@
+package com.matchingservice.service.topcandidates;
+
+import com.matchingservice.dto.TopCandidateResponse;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.exceptions.InvalidStatusException;
+import com.matchingservice.exceptions.ResourceNotFoundException;
+import com.matchingservice.model.recipients.ReceiveRequest;
+import com.matchingservice.repository.recipient.ReceiveRequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves a request's materialized top candidates from {@link TopCandidateStore}, without
+ * scoring anything. A request that is no longer open is dropped from the store on the way, and
+ * an open request that no run has scored since startup is reported as not found rather than as
+ * having no candidates.
+ */
+@Service
+@RequiredArgsConstructor
+public class TopCandidateService {
+
+    private final ReceiveRequestRepository receiveRequestRepository;
+    private final TopCandidateStore topCandidateStore;
+
+    @Transactional(readOnly = true)
+    public List<TopCandidateResponse> getTopCandidates(UUID receiveRequestId, int limit) {
+        ReceiveRequest request = receiveRequestRepository.findById(receiveRequestId)
+                .orElseThrow(() -> new ResourceNotFoundException("Request not found with id: " + receiveRequestId));
+        if (request.getStatus() != RequestStatus.PENDING && request.getStatus() != RequestStatus.MATCHED) {
+            topCandidateStore.requestsClosed(List.of(receiveRequestId));
+            throw new InvalidStatusException("Request " + receiveRequestId + " is " + request.getStatus()
+                    + " and has no open candidates");
+        }
+
+        List<TopCandidateStore.TopCandidate> candidates = topCandidateStore.top(receiveRequestId)
+                .orElseThrow(() -> new ResourceNotFoundException("Request " + receiveRequestId
+                        + " has not been scored yet, no top candidates available"));
+        List<TopCandidateResponse> responses = new ArrayList<>();
+        for (int i = 0; i < Math.min(Math.max(0, limit), candidates.size()); i++) {
+            TopCandidateStore.TopCandidate candidate = candidates.get(i);
+            responses.add(TopCandidateResponse.builder()
+                    .donationId(candidate.donationId())
+                    .donorUserId(candidate.donorUserId())
+                    .rank(i + 1)
+                    .compatibilityScore(candidate.compatibilityScore())
+                    .distanceKm(candidate.distanceKm())
+                    .matchReason(candidate.matchReason())
+                    .scoredAt(candidate.scoredAt())
+                    .build());
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,216 @@
+package com.matchingservice.service.topcandidates;
+
+import com.matchingservice.dto.MatchPair;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationStatus;
+import com.matchingservice.enums.RequestStatus;
+import com.matchingservice.service.ml_scheduler.ScoringBatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * The best {@code matching.top-candidates.size} scored donations of every open request, kept as
+ * one bounded min-heap per request so the weakest candidate is the one pushed out.
+ * <p>
+ * The heaps only change on events:
+ * <ul>
+ *     <li>every scored batch re-scores the pairs it covers, which replaces their entries (a pair
+ *     that fell below the threshold, or was pruned before scoring, is dropped), and the batch's
+ *     pairs that already have a match result keep theirs,</li>
+ *     <li>a donation that leaves PENDING/MATCHED, or is cancelled by its donor, is removed from
+ *     every heap it is in,</li>
+ *     <li>a request that leaves PENDING/MATCHED, or is cancelled, loses its heap.</li>
+ * </ul>
+ * A heap that lost candidates is refilled the next time a run scores its request. The store is
+ * in memory and starts empty; a request is known from the first run that scores it.
+ */
+@Component
+public class TopCandidateStore {
+
+    private static final Set<DonationStatus> OPEN_DONATION_STATUSES =
+            EnumSet.of(DonationStatus.PENDING, DonationStatus.MATCHED);
+
+    private static final Set<RequestStatus> OPEN_REQUEST_STATUSES =
+            EnumSet.of(RequestStatus.PENDING, RequestStatus.MATCHED);
+
+    private static final Comparator<TopCandidate> WEAKEST_FIRST =
+            Comparator.comparingDouble(TopCandidate::compatibilityScore)
+                    .thenComparing(TopCandidate::donationId, Comparator.reverseOrder());
+
+    /**
+     * One scored donation of a request.
+     */
+    public record TopCandidate(UUID donationId, UUID donorUserId, double compatibilityScore,
+                               Double distanceKm, String matchReason, LocalDateTime scoredAt) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, PriorityQueue<TopCandidate>> byRequest = new HashMap<>();
+    private final Map<UUID, Set<UUID>> requestsByDonation = new HashMap<>();
+
+    @Value("${matching.top-candidates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${matching.top-candidates.size:10}")
+    private int size;
+
+    public TopCandidateStore(MeterRegistry meterRegistry) {
+        meterRegistry.gauge("matching.top_candidates.requests", this, TopCandidateStore::requestCount);
+    }
+
+    /**
+     * Applies the outcome of scoring {@code batch}: for each of its requests, the batch's
+     * donations are replaced by what {@code matches} says about them.
+     */
+    public void record(ScoringBatch batch, List<MLMatchResult> matches) {
+        if (!enabled) {
+            return;
+        }
+        Set<UUID> rescored = batch.donations().stream()
+                .map(MLDonationData::getDonationId)
+                .collect(Collectors.toSet());
+        Map<UUID, List<MLMatchResult>> matchesByRequest = matches.stream()
+                .collect(Collectors.groupingBy(MLMatchResult::getReceiveRequestId));
+        LocalDateTime now = LocalDateTime.now();
+
+        lock.writeLock().lock();
+        try {
+            for (MLRequestData request : batch.requests()) {
+                UUID requestId = request.getReceiveRequestId();
+                PriorityQueue<TopCandidate> heap = byRequest.computeIfAbsent(requestId,
+                        id -> new PriorityQueue<>(WEAKEST_FIRST));
+
+                List<TopCandidate> stale = heap.stream()
+                        .filter(candidate -> rescored.contains(candidate.donationId())
+                                && !alreadyMatched(batch, new MatchPair(candidate.donationId(), requestId)))
+                        .toList();
+                stale.forEach(candidate -> remove(heap, requestId, candidate));
+
+                for (MLMatchResult match : matchesByRequest.getOrDefault(requestId, List.of())) {
+                    offer(heap, requestId, new TopCandidate(match.getDonationId(), match.getDonorUserId(),
+                            match.getCompatibilityScore(), match.getDistanceKm(), match.getMatchReason(), now));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean alreadyMatched(ScoringBatch batch, MatchPair pair) {
+        return batch.excludedPairs().contains(pair) && !batch.prunedPairs().contains(pair);
+    }
+
+    public void donationStatusChanged(UUID donationId, DonationStatus status) {
+        if (!OPEN_DONATION_STATUSES.contains(status)) {
+            donationsClosed(List.of(donationId));
+        }
+    }
+
+    public void requestStatusChanged(UUID requestId, RequestStatus status) {
+        if (!OPEN_REQUEST_STATUSES.contains(status)) {
+            requestsClosed(List.of(requestId));
+        }
+    }
+
+    public void donationsClosed(Collection<UUID> donationIds) {
+        lock.writeLock().lock();
+        try {
+            for (UUID donationId : donationIds) {
+                Set<UUID> requestIds = requestsByDonation.remove(donationId);
+                if (requestIds == null) {
+                    continue;
+                }
+                for (UUID requestId : requestIds) {
+                    PriorityQueue<TopCandidate> heap = byRequest.get(requestId);
+                    if (heap != null) {
+                        heap.removeIf(candidate -> candidate.donationId().equals(donationId));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void requestsClosed(Collection<UUID> requestIds) {
+        lock.writeLock().lock();
+        try {
+            for (UUID requestId : requestIds) {
+                PriorityQueue<TopCandidate> heap = byRequest.remove(requestId);
+                if (heap != null) {
+                    heap.forEach(candidate -> unlink(candidate.donationId(), requestId));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The request's candidates, best first, or empty when no run has scored the request yet.
+     */
+    public Optional<List<TopCandidate>> top(UUID requestId) {
+        lock.readLock().lock();
+        try {
+            PriorityQueue<TopCandidate> heap = byRequest.get(requestId);
+            if (heap == null) {
+                return Optional.empty();
+            }
+            List<TopCandidate> candidates = new ArrayList<>(heap);
+            candidates.sort(WEAKEST_FIRST.reversed());
+            return Optional.of(candidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int requestCount() {
+        lock.readLock().lock();
+        try {
+            return byRequest.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void offer(PriorityQueue<TopCandidate> heap, UUID requestId, TopCandidate candidate) {
+        heap.stream()
+                .filter(existing -> existing.donationId().equals(candidate.donationId()))
+                .findFirst()
+                .ifPresent(existing -> remove(heap, requestId, existing));
+        if (heap.size() < size) {
+            add(heap, requestId, candidate);
+        } else if (!heap.isEmpty() && WEAKEST_FIRST.compare(candidate, heap.peek()) > 0) {
+            remove(heap, requestId, heap.peek());
+            add(heap, requestId, candidate);
+        }
+    }
+
+    private void add(PriorityQueue<TopCandidate> heap, UUID requestId, TopCandidate candidate) {
+        heap.add(candidate);
+        requestsByDonation.computeIfAbsent(candidate.donationId(), id -> new HashSet<>()).add(requestId);
+    }
+
+    private void remove(PriorityQueue<TopCandidate> heap, UUID requestId, TopCandidate candidate) {
+        heap.remove(candidate);
+        unlink(candidate.donationId(), requestId);
+    }
+
+    private void unlink(UUID donationId, UUID requestId) {
+        Set<UUID> requestIds = requestsByDonation.get(donationId);
+        if (requestIds != null) {
+            requestIds.remove(requestId);
+            if (requestIds.isEmpty()) {
+                requestsByDonation.remove(donationId);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.matchingservice.service.assignment;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optimal vs greedy assignment on random sparse problems shaped like a scoring run:
+ * {@code requests} requests, as many donations, and {@code candidatesPerRequest} scored
+ * donations per request with urgency-weighted scores.
+ * <p>
+ * Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.matchingservice.service.assignment.AssignmentSolverBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignmentSolverBenchmark {
+
+    private static final double[] URGENCY_WEIGHTS = {1.0, 1.5, 2.0, 3.0};
+
+    @Param({"1000", "3000", "10000"})
+    int requests;
+
+    @Param({"10", "50"})
+    int candidatesPerRequest;
+
+    private AssignmentProblem problem;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int edges = requests * candidatesPerRequest;
+        int[] edgeRow = new int[edges];
+        int[] edgeColumn = new int[edges];
+        double[] edgeWeight = new double[edges];
+        for (int e = 0; e < edges; e++) {
+            edgeRow[e] = e / candidatesPerRequest;
+            edgeColumn[e] = random.nextInt(requests);
+            edgeWeight[e] = (0.5 + random.nextDouble() * 0.5) * URGENCY_WEIGHTS[random.nextInt(URGENCY_WEIGHTS.length)];
+        }
+        problem = AssignmentProblem.fromEdges(requests, requests, edgeRow, edgeColumn, edgeWeight);
+    }
+
+    @Benchmark
+    public AssignmentSolver.Assignment optimal() {
+        return AssignmentSolver.optimal(problem, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public AssignmentSolver.Assignment greedy() {
+        return AssignmentSolver.greedy(problem);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AssignmentSolverBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
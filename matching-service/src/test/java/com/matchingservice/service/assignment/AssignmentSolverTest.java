@@ -0,0 +1,109 @@
+package com.matchingservice.service.assignment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssignmentSolverTest {
+
+    private static final double[] URGENCY_WEIGHTS = {1.0, 1.5, 2.0, 3.0};
+
+    @Test
+    void optimalFindsTheBruteForceOptimumAndGreedyAtLeastHalf() {
+        Random random = new Random(13);
+        for (int round = 0; round < 2_000; round++) {
+            AssignmentProblem problem = randomProblem(random, 1 + random.nextInt(7), 1 + random.nextInt(7));
+            double best = bestAssignment(problem, 0, new boolean[problem.columns()]);
+
+            AssignmentSolver.Assignment optimal = AssignmentSolver.optimal(problem, Long.MAX_VALUE);
+            assertValid(problem, optimal, "round " + round);
+            assertTrue(optimal.exact(), "round " + round);
+            assertEquals(best, optimal.totalWeight(problem), 1e-9, "round " + round);
+
+            AssignmentSolver.Assignment greedy = AssignmentSolver.greedy(problem);
+            assertValid(problem, greedy, "round " + round);
+            assertTrue(greedy.totalWeight(problem) >= best / 2 - 1e-9, "round " + round);
+        }
+    }
+
+    @Test
+    void pastDeadlineFallsBackToGreedy() {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            AssignmentProblem problem = randomProblem(random, 1 + random.nextInt(40), 1 + random.nextInt(40));
+
+            AssignmentSolver.Assignment assignment = AssignmentSolver.optimal(problem, System.nanoTime() - 1);
+
+            assertValid(problem, assignment, "round " + round);
+            assertFalse(assignment.exact(), "round " + round);
+            assertArrayEquals(AssignmentSolver.greedy(problem).columnOfRow(), assignment.columnOfRow(), "round " + round);
+        }
+    }
+
+    /**
+     * Same weight distribution as {@link AssignmentSolverBenchmark}, with each row scoring a
+     * random subset of the columns.
+     */
+    private static AssignmentProblem randomProblem(Random random, int rows, int columns) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (random.nextInt(3) > 0) {
+                    pairs.add(new int[]{r, c});
+                }
+            }
+        }
+        int[] edgeRow = new int[pairs.size()];
+        int[] edgeColumn = new int[pairs.size()];
+        double[] edgeWeight = new double[pairs.size()];
+        for (int e = 0; e < pairs.size(); e++) {
+            edgeRow[e] = pairs.get(e)[0];
+            edgeColumn[e] = pairs.get(e)[1];
+            edgeWeight[e] = (0.5 + random.nextDouble() * 0.5) * URGENCY_WEIGHTS[random.nextInt(URGENCY_WEIGHTS.length)];
+        }
+        return AssignmentProblem.fromEdges(rows, columns, edgeRow, edgeColumn, edgeWeight);
+    }
+
+    /**
+     * Heaviest total over every way to give rows {@code row..} a free column or none.
+     */
+    private static double bestAssignment(AssignmentProblem problem, int row, boolean[] columnTaken) {
+        if (row == problem.rows()) {
+            return 0;
+        }
+        double best = bestAssignment(problem, row + 1, columnTaken);
+        for (int e = problem.rowStart()[row]; e < problem.rowStart()[row + 1]; e++) {
+            int column = problem.edgeColumn()[e];
+            if (!columnTaken[column]) {
+                columnTaken[column] = true;
+                best = Math.max(best, problem.edgeWeight()[e] + bestAssignment(problem, row + 1, columnTaken));
+                columnTaken[column] = false;
+            }
+        }
+        return best;
+    }
+
+    private static void assertValid(AssignmentProblem problem, AssignmentSolver.Assignment assignment, String message) {
+        boolean[] columnTaken = new boolean[problem.columns()];
+        for (int r = 0; r < problem.rows(); r++) {
+            int column = assignment.columnOfRow()[r];
+            if (column == -1) {
+                continue;
+            }
+            assertFalse(columnTaken[column], message + " assigns column " + column + " twice");
+            columnTaken[column] = true;
+            boolean edge = false;
+            for (int e = problem.rowStart()[r]; e < problem.rowStart()[r + 1]; e++) {
+                edge |= problem.edgeColumn()[e] == column;
+            }
+            assertTrue(edge, message + " assigns row " + r + " to unscored column " + column);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.matchingservice.service.assignment;
+
+import com.matchingservice.dto.GroupAllocation;
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.repository.MatchResultRepository;
+import com.matchingservice.service.ml_scheduler.ScoringBatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuantityFulfilmentPlannerTest {
+
+    private static final double KM_PER_EXCESS_UNIT = 0.1;
+
+    private final MatchResultRepository matchResultRepository = mock(MatchResultRepository.class);
+    private final QuantityFulfilmentPlanner planner =
+            new QuantityFulfilmentPlanner(matchResultRepository, new SimpleMeterRegistry());
+
+    private final List<MLDonationData> donations = new ArrayList<>();
+    private final List<MLMatchResult> matches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "maxCandidates", 16);
+        ReflectionTestUtils.setField(planner, "kmPerExcessUnit", KM_PER_EXCESS_UNIT);
+        liveGroups();
+    }
+
+    @Test
+    void cheapestCoverMatchesBruteForce() {
+        Random random = new Random(3);
+        for (int round = 0; round < 1_000; round++) {
+            int n = 1 + random.nextInt(10);
+            double[] quantities = new double[n];
+            double[] distances = new double[n];
+            for (int i = 0; i < n; i++) {
+                quantities[i] = 50 * (1 + random.nextInt(10));
+                distances[i] = random.nextDouble() * 100;
+            }
+            double needed = 50 * (1 + random.nextInt(3 * n));
+
+            boolean[] chosen = planner.cheapestCover(quantities, distances, needed);
+
+            double best = Double.MAX_VALUE;
+            for (int subset = 1; subset < 1 << n; subset++) {
+                double quantity = 0;
+                double distance = 0;
+                for (int i = 0; i < n; i++) {
+                    if ((subset & 1 << i) != 0) {
+                        quantity += quantities[i];
+                        distance += distances[i];
+                    }
+                }
+                if (quantity >= needed) {
+                    best = Math.min(best, distance + (quantity - needed) * KM_PER_EXCESS_UNIT);
+                }
+            }
+            if (best == Double.MAX_VALUE) {
+                assertNull(chosen, "round " + round);
+                continue;
+            }
+            double quantity = 0;
+            double distance = 0;
+            for (int i = 0; i < n; i++) {
+                if (chosen[i]) {
+                    quantity += quantities[i];
+                    distance += distances[i];
+                }
+            }
+            assertTrue(quantity >= needed, "round " + round);
+            assertEquals(best, distance + (quantity - needed) * KM_PER_EXCESS_UNIT, 1e-9, "round " + round);
+        }
+    }
+
+    @Test
+    void groupsEveryCandidateWhenTheyFallShort() {
+        MLRequestData request = request(1000.0);
+        UUID near = candidate(request, 300.0, 5.0);
+        UUID far = candidate(request, 200.0, 40.0);
+
+        QuantityFulfilmentPlanner.FulfilmentPlan plan = planner.plan(batch(request), matches);
+
+        assertEquals(Set.of(near, far), donationIds(plan.grouped()));
+        assertEquals(1, plan.grouped().stream().map(MLMatchResult::getFulfilmentGroupId).distinct().count());
+        assertTrue(plan.remaining().isEmpty());
+    }
+
+    @Test
+    void plansOnlyTheQuantityLiveGroupsDoNotCover() {
+        MLRequestData request = request(1000.0);
+        liveGroups(new GroupAllocation(request.getReceiveRequestId(), UUID.randomUUID(), 600.0));
+        UUID first = candidate(request, 250.0, 10.0);
+        UUID second = candidate(request, 200.0, 12.0);
+        candidate(request, 100.0, 1.0);
+
+        QuantityFulfilmentPlanner.FulfilmentPlan plan = planner.plan(batch(request), matches);
+
+        // 400 units are still open: 250 + 200 covers them, which no set including the 100 does cheaper.
+        assertEquals(Set.of(first, second), donationIds(plan.grouped()));
+    }
+
+    @Test
+    void skipsRequestsLiveGroupsAlreadyCover() {
+        MLRequestData request = request(500.0);
+        liveGroups(new GroupAllocation(request.getReceiveRequestId(), UUID.randomUUID(), 300.0),
+                new GroupAllocation(request.getReceiveRequestId(), UUID.randomUUID(), 200.0));
+        candidate(request, 200.0, 10.0);
+        candidate(request, 100.0, 20.0);
+
+        QuantityFulfilmentPlanner.FulfilmentPlan plan = planner.plan(batch(request), matches);
+
+        assertTrue(plan.grouped().isEmpty());
+        assertTrue(plan.remaining().isEmpty());
+    }
+
+    @Test
+    void neverGroupsADonationThatIsInAnotherRequestsLiveGroup() {
+        MLRequestData request = request(500.0);
+        UUID grouped = candidate(request, 300.0, 1.0);
+        UUID free = candidate(request, 250.0, 30.0);
+        UUID other = candidate(request, 250.0, 40.0);
+        liveGroups(new GroupAllocation(UUID.randomUUID(), grouped, 300.0));
+
+        QuantityFulfilmentPlanner.FulfilmentPlan plan = planner.plan(batch(request), matches);
+
+        assertEquals(Set.of(free, other), donationIds(plan.grouped()));
+    }
+
+    private void liveGroups(GroupAllocation... allocations) {
+        when(matchResultRepository.findGroupAllocations(any(), any(), any())).thenReturn(List.of(allocations));
+    }
+
+    private static MLRequestData request(double quantity) {
+        return MLRequestData.builder()
+                .receiveRequestId(UUID.randomUUID())
+                .quantity(quantity)
+                .build();
+    }
+
+    private UUID candidate(MLRequestData request, double quantity, double distanceKm) {
+        UUID donationId = UUID.randomUUID();
+        donations.add(MLDonationData.builder()
+                .donationId(donationId)
+                .donationType(DonationType.BLOOD)
+                .quantity(quantity)
+                .build());
+        matches.add(MLMatchResult.builder()
+                .donationId(donationId)
+                .receiveRequestId(request.getReceiveRequestId())
+                .compatibilityScore(0.8)
+                .distanceKm(distanceKm)
+                .priorityRank(1)
+                .build());
+        return donationId;
+    }
+
+    private ScoringBatch batch(MLRequestData... requests) {
+        return new ScoringBatch(DonationType.BLOOD, List.of(requests), donations, Set.of(), Set.of(), null);
+    }
+
+    private static Set<UUID> donationIds(List<MLMatchResult> matches) {
+        return matches.stream().map(MLMatchResult::getDonationId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,117 @@
+package com.matchingservice.service.candidate;
+
+import com.matchingservice.service.scoring.GeoDistance;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeoGridIndexTest {
+
+    private static final double[] CELL_DEGREES = {0.25, 1.0, 7.0, 180.0};
+
+    @Test
+    void withinMatchesALinearHaversineScan() {
+        Random random = new Random(19);
+        for (int round = 0; round < 400; round++) {
+            double cellDegrees = CELL_DEGREES[random.nextInt(CELL_DEGREES.length)];
+            GeoGridIndex<Integer> index = new GeoGridIndex<>(cellDegrees);
+            int size = random.nextInt(300);
+            double[][] points = new double[size][];
+            for (int i = 0; i < size; i++) {
+                points[i] = randomPosition(random);
+                index.put(i, points[i][0], points[i][1]);
+            }
+
+            for (int query = 0; query < 20; query++) {
+                double[] center = randomPosition(random);
+                // Mostly local radii, sometimes one that makes the grid fall back to a linear scan.
+                double radiusKm = random.nextInt(10) == 0 ? random.nextDouble() * 20_000 : random.nextDouble() * 1_500;
+
+                assertEquals(bruteForce(points, center, radiusKm), Set.copyOf(index.within(center[0], center[1], radiusKm)),
+                        "round " + round + " query " + query);
+            }
+        }
+    }
+
+    @Test
+    void findsPointsAcrossTheAntimeridian() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(1.0);
+        index.put("east", 10.0, 179.9);
+        index.put("west", 10.0, -179.9);
+        index.put("far", 10.0, 178.0);
+
+        assertEquals(Set.of("east", "west"), Set.copyOf(index.within(10.0, 179.95, 50)));
+        assertEquals(Set.of("east", "west"), Set.copyOf(index.within(10.0, -179.95, 50)));
+    }
+
+    @Test
+    void coversEveryLongitudeNearAPole() {
+        GeoGridIndex<Integer> index = new GeoGridIndex<>(1.0);
+        for (int longitude = -180; longitude < 180; longitude += 15) {
+            index.put(longitude, 89.5, longitude);
+        }
+        index.put(1_000, 85.0, 0.0);
+
+        List<Integer> found = index.within(89.9, 120.0, 100);
+
+        assertEquals(24, found.size());
+    }
+
+    @Test
+    void keepsAPointDueNorthAtTheEdgeOfTheRadius() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(1.0);
+        double radiusKm = 500;
+        double latitude = 0.0;
+        while (GeoDistance.haversineKm(0.0, 0.0, latitude + 1e-6, 0.0) <= radiusKm) {
+            latitude += 1e-6;
+        }
+        index.put("edge", latitude, 0.0);
+        index.put("filler", -60.0, 30.0);
+
+        assertEquals(List.of("edge"), index.within(0.0, 0.0, radiusKm));
+    }
+
+    @Test
+    void followsMovedAndRemovedPoints() {
+        GeoGridIndex<String> index = new GeoGridIndex<>(1.0);
+        index.put("a", 17.44, 78.35);
+        index.put("b", 17.45, 78.36);
+
+        index.put("a", 28.61, 77.21);
+        index.remove("b");
+
+        assertEquals(List.of(), index.within(17.44, 78.35, 50));
+        assertEquals(List.of("a"), index.within(28.6, 77.2, 50));
+        assertEquals(1, index.size());
+    }
+
+    /**
+     * Uniform on the sphere, with a share of points pushed onto the antimeridian and the poles.
+     */
+    private static double[] randomPosition(Random random) {
+        double latitude = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+        double longitude = random.nextDouble() * 360 - 180;
+        switch (random.nextInt(8)) {
+            case 0 -> longitude = random.nextBoolean() ? 180 - random.nextDouble() * 2 : -180 + random.nextDouble() * 2;
+            case 1 -> latitude = random.nextBoolean() ? 90 - random.nextDouble() * 3 : -90 + random.nextDouble() * 3;
+            default -> {
+            }
+        }
+        return new double[]{latitude, longitude};
+    }
+
+    private static Set<Integer> bruteForce(double[][] points, double[] center, double radiusKm) {
+        Set<Integer> found = new HashSet<>();
+        for (int i = 0; i < points.length; i++) {
+            if (GeoDistance.haversineKm(center[0], center[1], points[i][0], points[i][1]) <= radiusKm) {
+                found.add(i);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,108 @@
+package com.matchingservice.service.exchange;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cycle and chain search on synthetic exchange pools of {@code pairs} pairs, 5% of them
+ * altruistic. Donor and recipient blood groups follow O 45%, A 35%, B 15%, AB 5%. Recipient
+ * sensitization is 40% low (PRA below 20%), 30% mid and 30% high (PRA 80-99%), and an
+ * ABO-compatible edge survives the crossmatch with probability 1 - PRA.
+ * <p>
+ * Each invocation is one full run, so the score is the wall time of a round, capped by
+ * {@code timeLimitMs}. Run with {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.matchingservice.service.exchange.ExchangeSearchBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExchangeSearchBenchmark {
+
+    private static final double[] ABO_FREQUENCY = {0.45, 0.35, 0.15, 0.05};
+    private static final int O = 0;
+    private static final int AB = 3;
+
+    @Param({"100", "300", "500"})
+    int pairs;
+
+    @Param({"5000"})
+    long timeLimitMs;
+
+    private ExchangeGraph graph;
+    private ExchangeSearch.Options options;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        int[] donorGroup = new int[pairs];
+        int[] recipientGroup = new int[pairs];
+        double[] pra = new double[pairs];
+        boolean[] altruistic = new boolean[pairs];
+        for (int i = 0; i < pairs; i++) {
+            donorGroup[i] = bloodGroup(random);
+            recipientGroup[i] = bloodGroup(random);
+            double band = random.nextDouble();
+            pra[i] = band < 0.4 ? random.nextDouble() * 0.2
+                    : band < 0.7 ? 0.2 + random.nextDouble() * 0.6
+                    : 0.8 + random.nextDouble() * 0.19;
+            altruistic[i] = i < pairs / 20;
+        }
+
+        int[][] successors = new int[pairs][];
+        double[][] weights = new double[pairs][];
+        for (int u = 0; u < pairs; u++) {
+            List<Integer> out = new ArrayList<>();
+            for (int v = 0; v < pairs; v++) {
+                if (u == v || altruistic[v] || !aboCompatible(donorGroup[u], recipientGroup[v])
+                        || random.nextDouble() < pra[v]) {
+                    continue;
+                }
+                out.add(v);
+            }
+            successors[u] = out.stream().mapToInt(Integer::intValue).toArray();
+            weights[u] = new double[successors[u].length];
+            for (int e = 0; e < weights[u].length; e++) {
+                weights[u][e] = 1.0 + random.nextDouble();
+            }
+        }
+        graph = new ExchangeGraph(altruistic, successors, weights);
+        options = new ExchangeSearch.Options(3, 3, 2000, timeLimitMs);
+    }
+
+    @Benchmark
+    public ExchangeSearch.Result solve() {
+        return ExchangeSearch.solve(graph, options);
+    }
+
+    private static int bloodGroup(Random random) {
+        double x = random.nextDouble();
+        for (int group = 0; group < ABO_FREQUENCY.length; group++) {
+            x -= ABO_FREQUENCY[group];
+            if (x < 0) {
+                return group;
+            }
+        }
+        return O;
+    }
+
+    private static boolean aboCompatible(int donor, int recipient) {
+        return donor == O || donor == recipient || recipient == AB;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ExchangeSearchBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,189 @@
+package com.matchingservice.service.exchange;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeSearchTest {
+
+    private static final double[] ABO_FREQUENCY = {0.45, 0.35, 0.15, 0.05};
+    private static final int O = 0;
+    private static final int AB = 3;
+    private static final int MAX_CYCLE = 3;
+    private static final int MAX_CHAIN = 3;
+
+    @Test
+    void packsAsMuchWeightAsBruteForceOnSmallPools() {
+        Random random = new Random(7);
+        ExchangeSearch.Options options = new ExchangeSearch.Options(MAX_CYCLE, MAX_CHAIN, 100_000, 10_000);
+        for (int pool = 0; pool < 300; pool++) {
+            ExchangeGraph graph = randomPool(random, 4 + random.nextInt(6), random.nextInt(2));
+
+            ExchangeSearch.Result result = ExchangeSearch.solve(graph, options);
+
+            boolean[] used = new boolean[graph.size()];
+            double total = 0;
+            for (ExchangeSearch.Exchange exchange : result.exchanges()) {
+                assertEquals(exchangeWeight(graph, exchange), exchange.weight(), 1e-9, "pool " + pool);
+                for (int node : exchange.nodes()) {
+                    assertFalse(used[node], "pool " + pool + " uses node " + node + " twice");
+                    used[node] = true;
+                }
+                total += exchange.weight();
+            }
+            double best = bestPacking(allExchanges(graph), 0, new boolean[graph.size()]);
+            assertTrue(result.optimal(), "pool " + pool);
+            assertEquals(best, total, 1e-6, "pool " + pool);
+        }
+    }
+
+    /**
+     * Same distributions as {@link ExchangeSearchBenchmark}, with 0 or 1 altruistic donor.
+     */
+    private static ExchangeGraph randomPool(Random random, int pairs, int altruists) {
+        int[] donorGroup = new int[pairs];
+        int[] recipientGroup = new int[pairs];
+        double[] pra = new double[pairs];
+        boolean[] altruistic = new boolean[pairs];
+        for (int i = 0; i < pairs; i++) {
+            donorGroup[i] = bloodGroup(random);
+            recipientGroup[i] = bloodGroup(random);
+            double band = random.nextDouble();
+            pra[i] = band < 0.4 ? random.nextDouble() * 0.2
+                    : band < 0.7 ? 0.2 + random.nextDouble() * 0.6
+                    : 0.8 + random.nextDouble() * 0.19;
+            altruistic[i] = i < altruists;
+        }
+
+        int[][] successors = new int[pairs][];
+        double[][] weights = new double[pairs][];
+        for (int u = 0; u < pairs; u++) {
+            List<Integer> out = new ArrayList<>();
+            for (int v = 0; v < pairs; v++) {
+                if (u == v || altruistic[v] || !aboCompatible(donorGroup[u], recipientGroup[v])
+                        || random.nextDouble() < pra[v]) {
+                    continue;
+                }
+                out.add(v);
+            }
+            successors[u] = out.stream().mapToInt(Integer::intValue).toArray();
+            weights[u] = new double[successors[u].length];
+            for (int e = 0; e < weights[u].length; e++) {
+                weights[u][e] = 1.0 + random.nextDouble() * 0.6;
+            }
+        }
+        return new ExchangeGraph(altruistic, successors, weights);
+    }
+
+    /**
+     * Every cycle of 2..{@link #MAX_CYCLE} pairs, once from its smallest node, and every chain
+     * from an altruistic donor through 1..{@link #MAX_CHAIN} pairs.
+     */
+    private static List<ExchangeSearch.Exchange> allExchanges(ExchangeGraph graph) {
+        List<ExchangeSearch.Exchange> exchanges = new ArrayList<>();
+        int n = graph.size();
+        for (int a = 0; a < n; a++) {
+            if (graph.altruistic()[a]) {
+                extendChain(graph, new int[]{a}, 0, exchanges);
+                continue;
+            }
+            for (int b = a + 1; b < n; b++) {
+                if (graph.altruistic()[b]) {
+                    continue;
+                }
+                double pair = graph.weight(a, b) + graph.weight(b, a);
+                if (!Double.isNaN(pair)) {
+                    exchanges.add(new ExchangeSearch.Exchange(new int[]{a, b}, pair, false));
+                }
+                for (int c = a + 1; c < n; c++) {
+                    if (c == b || graph.altruistic()[c]) {
+                        continue;
+                    }
+                    double triple = graph.weight(a, b) + graph.weight(b, c) + graph.weight(c, a);
+                    if (!Double.isNaN(triple)) {
+                        exchanges.add(new ExchangeSearch.Exchange(new int[]{a, b, c}, triple, false));
+                    }
+                }
+            }
+        }
+        return exchanges;
+    }
+
+    private static void extendChain(ExchangeGraph graph, int[] path, double weight, List<ExchangeSearch.Exchange> exchanges) {
+        if (path.length > MAX_CHAIN) {
+            return;
+        }
+        int last = path[path.length - 1];
+        for (int next = 0; next < graph.size(); next++) {
+            double edge = graph.weight(last, next);
+            if (graph.altruistic()[next] || Double.isNaN(edge) || contains(path, next)) {
+                continue;
+            }
+            int[] extended = Arrays.copyOf(path, path.length + 1);
+            extended[path.length] = next;
+            exchanges.add(new ExchangeSearch.Exchange(extended, weight + edge, true));
+            extendChain(graph, extended, weight + edge, exchanges);
+        }
+    }
+
+    private static double bestPacking(List<ExchangeSearch.Exchange> exchanges, int index, boolean[] used) {
+        if (index == exchanges.size()) {
+            return 0;
+        }
+        double best = bestPacking(exchanges, index + 1, used);
+        int[] nodes = exchanges.get(index).nodes();
+        for (int node : nodes) {
+            if (used[node]) {
+                return best;
+            }
+        }
+        for (int node : nodes) {
+            used[node] = true;
+        }
+        best = Math.max(best, exchanges.get(index).weight() + bestPacking(exchanges, index + 1, used));
+        for (int node : nodes) {
+            used[node] = false;
+        }
+        return best;
+    }
+
+    private static double exchangeWeight(ExchangeGraph graph, ExchangeSearch.Exchange exchange) {
+        int[] nodes = exchange.nodes();
+        double weight = 0;
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            weight += graph.weight(nodes[i], nodes[i + 1]);
+        }
+        return exchange.chain() ? weight : weight + graph.weight(nodes[nodes.length - 1], nodes[0]);
+    }
+
+    private static boolean contains(int[] path, int node) {
+        for (int visited : path) {
+            if (visited == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int bloodGroup(Random random) {
+        double x = random.nextDouble();
+        for (int group = 0; group < ABO_FREQUENCY.length; group++) {
+            x -= ABO_FREQUENCY[group];
+            if (x < 0) {
+                return group;
+            }
+        }
+        return O;
+    }
+
+    private static boolean aboCompatible(int donor, int recipient) {
+        return donor == O || donor == recipient || recipient == AB;
+    }
+}
@@ -0,0 +1,40 @@
+package com.matchingservice.service.hla;
+
+import com.matchingservice.service.hla.HlaAlleleCodec.Locus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HlaAlleleCodecTest {
+
+    @Test
+    void molecularSerologicalAndBareNamesShareACode() {
+        int code = HlaAlleleCodec.code(Locus.A, "A*02:01");
+        for (String allele : new String[]{"A*02:05", "HLA-A*02", "A2", "a*02", " 02 ", "2", "HLA-A2"}) {
+            assertEquals(code, HlaAlleleCodec.code(Locus.A, allele), allele);
+        }
+        int dr = HlaAlleleCodec.code(Locus.DR, "DRB1*15:01");
+        for (String allele : new String[]{"DR15", "HLA-DRB1*15", "15", "DRB1*15:02:01"}) {
+            assertEquals(dr, HlaAlleleCodec.code(Locus.DR, allele), allele);
+        }
+    }
+
+    @Test
+    void codesAreKeptApartByLocusAndAntigen() {
+        assertNotEquals(HlaAlleleCodec.code(Locus.A, "02"), HlaAlleleCodec.code(Locus.B, "02"));
+        assertNotEquals(HlaAlleleCodec.code(Locus.A, "A*02"), HlaAlleleCodec.code(Locus.A, "A*20"));
+        assertNotEquals(HlaAlleleCodec.code(Locus.B, "B7"), HlaAlleleCodec.code(Locus.B, "B70"));
+        assertNotEquals(HlaAlleleCodec.code(Locus.B, "B*07"), HlaAlleleCodec.code(Locus.B, "BW4"));
+    }
+
+    @Test
+    void blankAllelesHaveNoCodeAndAnAllBlankProfileNoTyping() {
+        assertEquals(-1, HlaAlleleCodec.code(Locus.A, null));
+        assertEquals(-1, HlaAlleleCodec.code(Locus.A, "  "));
+        assertEquals(-1, HlaAlleleCodec.code(Locus.A, "HLA-A*"));
+        assertNull(HlaAlleleCodec.encode(null, "", " ", null, "", null));
+        assertEquals(1, HlaAlleleCodec.encode("A*01", "", null, null, null, null).antigenCount());
+    }
+}
@@ -0,0 +1,85 @@
+package com.matchingservice.service.scoring;
+
+import com.matchingservice.service.hla.HlaAlleleCodec;
+import com.matchingservice.service.hla.HlaTyping;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HlaMismatchTest {
+
+    private static final String[] LOCI = {"A", "A", "B", "B", "DRB1", "DRB1"};
+
+    @Test
+    void countsDonorAntigensTheRecipientDoesNotCarry() {
+        Random random = new Random(11);
+        for (int round = 0; round < 2_000; round++) {
+            String[] donor = randomTyping(random);
+            String[] recipient = randomTyping(random);
+
+            int mismatches = HlaMismatch.antigenMismatches(encode(donor), encode(recipient));
+
+            Set<String> carried = new HashSet<>();
+            Set<String> donorAntigens = new HashSet<>();
+            boolean donorTyped = false;
+            boolean recipientTyped = false;
+            for (int i = 0; i < LOCI.length; i++) {
+                if (recipient[i] != null) {
+                    carried.add(LOCI[i] + antigen(recipient[i]));
+                    recipientTyped = true;
+                }
+                if (donor[i] != null) {
+                    donorAntigens.add(LOCI[i] + antigen(donor[i]));
+                    donorTyped = true;
+                }
+            }
+            donorAntigens.removeAll(carried);
+            assertEquals(donorTyped && recipientTyped ? donorAntigens.size() : -1, mismatches, "round " + round);
+        }
+    }
+
+    @Test
+    void anUntypedSideIsUnknownRatherThanAFullMatch() {
+        HlaTyping typed = HlaAlleleCodec.encode("A*01", "A*02", "B*07", "B*08", "DRB1*15", "DRB1*04");
+        HlaTyping blank = HlaAlleleCodec.encode("", " ", null, null, "", "");
+
+        assertEquals(-1, HlaMismatch.antigenMismatches(blank, typed));
+        assertEquals(-1, HlaMismatch.antigenMismatches(typed, blank));
+        assertEquals(-1, HlaMismatch.antigenMismatches(HlaTyping.of(new int[0]), typed));
+        assertEquals(0, HlaMismatch.antigenMismatches(typed, typed));
+    }
+
+    /**
+     * Antigens 1..8 in a random one of the molecular, serological and bare spellings, or null.
+     */
+    private static String[] randomTyping(Random random) {
+        String[] typing = new String[LOCI.length];
+        for (int i = 0; i < typing.length; i++) {
+            if (random.nextInt(6) == 0) {
+                continue;
+            }
+            int antigen = 1 + random.nextInt(8);
+            typing[i] = switch (random.nextInt(3)) {
+                case 0 -> String.format("%s*%02d:%02d", LOCI[i], antigen, 1 + random.nextInt(5));
+                case 1 -> (LOCI[i].equals("DRB1") ? "DR" : LOCI[i]) + antigen;
+                default -> String.format("%02d", antigen);
+            };
+        }
+        return typing;
+    }
+
+    private static int antigen(String allele) {
+        int star = allele.indexOf('*');
+        String digits = star >= 0 ? allele.substring(star + 1) : allele.replaceAll("^[A-Z]+", "");
+        int separator = digits.indexOf(':');
+        return Integer.parseInt(separator >= 0 ? digits.substring(0, separator) : digits);
+    }
+
+    private static HlaTyping encode(String[] typing) {
+        return HlaAlleleCodec.encode(typing[0], typing[1], typing[2], typing[3], typing[4], typing[5]);
+    }
+}
@@ -0,0 +1,100 @@
+package com.matchingservice.service.scoring;
+
+import com.matchingservice.dto.ml.MLDonationData;
+import com.matchingservice.dto.ml.MLMatchResult;
+import com.matchingservice.dto.ml.MLRequestData;
+import com.matchingservice.enums.BloodType;
+import com.matchingservice.enums.DonationType;
+import com.matchingservice.service.ml_scheduler.ScoringBatch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BLOOD scoring of {@code requests} requests against {@code donations} open donations spread
+ * over India, row by row over the DTOs against the columnar scan. Blood types are drawn
+ * uniformly, 10% of donors have hemoglobin below the cut-off and 5% an infectious disease.
+ * <p>
+ * The columnar path uses the Vector API kernel because the fork adds
+ * {@code jdk.incubator.vector}; drop it from {@code jvmArgsAppend}, or build without the
+ * {@code vector-api} profile, to measure the scalar kernel. Run with
+ * {@code ./mvnw -Pvector-api test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.matchingservice.service.scoring.InProcessMatchingEngineBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class InProcessMatchingEngineBenchmark {
+
+    @Param({"100000"})
+    int donations;
+
+    @Param({"20"})
+    int requests;
+
+    @Param({"10"})
+    int topN;
+
+    private final InProcessMatchingEngine engine = new InProcessMatchingEngine();
+    private ScoringBatch batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        BloodType[] bloodTypes = BloodType.values();
+
+        List<MLDonationData> donationData = new ArrayList<>(donations);
+        for (int i = 0; i < donations; i++) {
+            donationData.add(MLDonationData.builder()
+                    .donationId(UUID.randomUUID())
+                    .userId(UUID.randomUUID())
+                    .donationType(DonationType.BLOOD)
+                    .bloodType(bloodTypes[random.nextInt(bloodTypes.length)])
+                    .quantity(350.0 + 100 * random.nextInt(3))
+                    .hemoglobinLevel(random.nextDouble() < 0.1 ? 11.0 : 12.5 + 4 * random.nextDouble())
+                    .hasInfectiousDiseases(random.nextDouble() < 0.05)
+                    .medicalClearance(random.nextBoolean())
+                    .daysSinceLastDonation(random.nextInt(365))
+                    .latitude(8 + 25 * random.nextDouble())
+                    .longitude(68 + 28 * random.nextDouble())
+                    .build());
+        }
+
+        List<MLRequestData> requestData = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            requestData.add(MLRequestData.builder()
+                    .receiveRequestId(UUID.randomUUID())
+                    .userId(UUID.randomUUID())
+                    .requestedBloodType(bloodTypes[random.nextInt(bloodTypes.length)])
+                    .quantity(450.0)
+                    .latitude(8 + 25 * random.nextDouble())
+                    .longitude(68 + 28 * random.nextDouble())
+                    .build());
+        }
+        batch = new ScoringBatch(DonationType.BLOOD, requestData, donationData, Set.of(), Set.of(), null);
+    }
+
+    @Benchmark
+    public List<MLMatchResult> rowByRow() {
+        return engine.matchRowByRow(batch, topN, 0.0);
+    }
+
+    @Benchmark
+    public List<MLMatchResult> columnar() {
+        return engine.matchColumnar(batch, topN, 0.0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InProcessMatchingEngineBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
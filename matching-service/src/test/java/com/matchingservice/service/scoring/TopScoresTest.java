@@ -0,0 +1,56 @@
+package com.matchingservice.service.scoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopScoresTest {
+
+    @Test
+    void selectsLikeAStableSortOfTheScores() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            int size = random.nextInt(2_000);
+            double[] scores = new double[size + random.nextInt(5)];
+            for (int i = 0; i < scores.length; i++) {
+                // Two decimals, so ties are common, and some rows rejected by the kernel.
+                scores[i] = random.nextInt(10) == 0 ? Double.NaN : Math.round(random.nextDouble() * 100) / 100.0;
+            }
+            int k = random.nextInt(50);
+            double threshold = random.nextDouble() * 0.5;
+            int excludedEvery = 2 + random.nextInt(20);
+
+            int[] top = TopScores.select(scores, size, k, threshold, i -> i % excludedEvery == 0);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (scores[i] >= threshold && i % excludedEvery != 0) {
+                    expected.add(i);
+                }
+            }
+            expected.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+            int[] expectedTop = expected.stream().limit(k).mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expectedTop, top, "round " + round);
+        }
+    }
+
+    @Test
+    void asksAboutExclusionOnlyForRowsThatWouldEnterTheTop() {
+        double[] scores = {0.9, 0.1, 0.8, 0.2, 0.85, 0.3};
+        List<Integer> asked = new ArrayList<>();
+
+        int[] top = TopScores.select(scores, scores.length, 2, 0.0, i -> {
+            asked.add(i);
+            return false;
+        });
+
+        assertArrayEquals(new int[]{0, 4}, top);
+        assertEquals(List.of(0, 1, 2, 4), asked);
+    }
+}
@@ -86,6 +86,7 @@ async def batch_match(request: BatchMatchRequest):
         ml_donations = request.donations
         top_n = request.topN
         threshold = request.threshold
+        excluded_pairs = {(pair.donationId, pair.receiveRequestId) for pair in request.excludedPairs}
 
         logger.info("=" * 120)
         logger.info("RECEIVED BATCH MATCH REQUEST")
@@ -114,7 +115,7 @@ async def batch_match(request: BatchMatchRequest):
         logger.info("=" * 120)
 
         start_time = time.time()
-        matches = DonationRouter.route_to_service(categorized_batch, top_n, threshold)
+        matches = DonationRouter.route_to_service(categorized_batch, top_n, threshold, excluded_pairs)
         processing_time_ms = int((time.time() - start_time) * 1000)
 
         match_objects = []
@@ -44,9 +44,15 @@ class Match(BaseModel):
     hospitalName: Optional[str] = None
 
 
+class ExcludedPair(BaseModel):
+    donationId: str
+    receiveRequestId: str
+
+
 class BatchMatchRequest(BaseModel):
     requests: List[RecipientRequest]
     donations: List[DonationData]
+    excludedPairs: List[ExcludedPair] = []
     topN: int = 10
     threshold: float = 0.5
 
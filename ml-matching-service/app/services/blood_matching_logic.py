@@ -74,7 +74,7 @@ class BloodMatchingLogic:
 
         return match
 
-    def batch_match(self, donations, requests, top_n=10, threshold=0.5):
+    def batch_match(self, donations, requests, top_n=10, threshold=0.5, excluded_pairs=frozenset()):
         logger.info(f"Blood matching: {len(donations)} donations x {len(requests)} requests")
 
         all_matches = []
@@ -85,6 +85,8 @@ class BloodMatchingLogic:
             request_matches = []
 
             for donation in donations:
+                if (str(donation.donationId), str(request.receiveRequestId)) in excluded_pairs:
+                    continue
                 match = self.calculate_match(donation, request, threshold)
                 if match:
                     request_matches.append(match)
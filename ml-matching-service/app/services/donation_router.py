@@ -60,7 +60,7 @@ class DonationRouter:
         return categorized
 
     @staticmethod
-    def route_to_service(categorized_batch, top_n, threshold):
+    def route_to_service(categorized_batch, top_n, threshold, excluded_pairs=frozenset()):
         all_matches = []
 
         for batch_key, batch_data in categorized_batch.items():
@@ -72,7 +72,8 @@ class DonationRouter:
                     batch_data['donations'],
                     batch_data['requests'],
                     top_n=top_n,
-                    threshold=threshold
+                    threshold=threshold,
+                    excluded_pairs=excluded_pairs
                 )
                 all_matches.extend(matches)
                 logger.info(f"{batch_key}: {len(matches)} matches")
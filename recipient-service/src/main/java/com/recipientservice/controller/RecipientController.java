@@ -135,6 +135,12 @@ public class RecipientController {
         return ResponseEntity.ok("Request status updated to " + status);
     }
 
+    @InternalOnly
+    @PutMapping("/requests/status/batch")
+    public ResponseEntity<StatusUpdateBatchResultDTO> updateRequestStatuses(@RequestBody List<RequestStatusUpdateDTO> updates) {
+        return ResponseEntity.ok(recipientService.updateRequestStatuses(updates));
+    }
+
 
     @RequireRole("RECIPIENT")
     @GetMapping("/requests/{requestId}/status")
@@ -0,0 +1,16 @@
+package com.recipientservice.dto;
+
+import com.recipientservice.enums.RequestStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestStatusUpdateDTO {
+    private UUID requestId;
+    private RequestStatus status;
+}
@@ -22,6 +22,8 @@ public interface RecipientService {
 
     void updateRequestStatus(UUID requestId, RequestStatus status);
 
+    StatusUpdateBatchResultDTO updateRequestStatuses(List<RequestStatusUpdateDTO> updates);
+
     String getRequestStatus(UUID requestId);
 
     ReceiveRequestDTO getRequestById(UUID requestId);
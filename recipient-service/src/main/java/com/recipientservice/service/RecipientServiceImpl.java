@@ -262,6 +262,24 @@ public class RecipientServiceImpl implements RecipientService {
         });
     }
 
+    @Override
+    @Transactional
+    public StatusUpdateBatchResultDTO updateRequestStatuses(List<RequestStatusUpdateDTO> updates) {
+        Map<UUID, RequestStatus> latest = new LinkedHashMap<>();
+        for (RequestStatusUpdateDTO update : updates) {
+            latest.put(update.getRequestId(), update.getStatus());
+        }
+
+        List<ReceiveRequest> requests = receiveRequestRepository.findAllById(latest.keySet());
+        Set<UUID> unknownIds = new LinkedHashSet<>(latest.keySet());
+        for (ReceiveRequest request : requests) {
+            request.setStatus(latest.get(request.getId()));
+            unknownIds.remove(request.getId());
+        }
+        receiveRequestRepository.saveAll(requests);
+        return new StatusUpdateBatchResultDTO(requests.size(), new ArrayList<>(unknownIds));
+    }
+
     @Override
     public String getRequestStatus(UUID requestId) {
         return receiveRequestRepository.findById(requestId).map(request -> request.getStatus().toString()).orElseThrow(() -> new RecipientNotFoundException("Request not found"));